@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.api.service.impl.resource.utils.AuditLogRetriever;
 import com.emc.storageos.api.service.impl.resource.utils.MarshallingExcetion;
+import com.emc.storageos.api.service.impl.resource.utils.StreamCompression;
 import com.emc.storageos.db.client.TimeSeriesMetadata;
 import com.emc.storageos.security.authorization.CheckPermission;
 import com.emc.storageos.security.authorization.Role;
@@ -70,7 +71,7 @@ public class AuditService extends ResourceService {
      * @return Output stream of auditlogs or an error status.
      */
     public Response getAuditLogs( final String timeBucket, final String language, HttpHeaders header) {
-        return getAuditLogs(timeBucket, language, null, null, null, null, null, null, header);
+        return getAuditLogs(timeBucket, language, null, null, null, null, null, null, null, header);
     }
     /**
      * Retrieves the bulk auditlogs and alerts based on passed request paramters
@@ -88,6 +89,7 @@ public class AuditService extends ResourceService {
      * @param result the result of auditlogs to retrieve
      * @param keyword the containing keyword of auditlog to retrive
      * @param language Lanuage for the auditlog description. "en_US" by default
+     * @param compress optional, "gzip" to get the auditlogs gzip compressed
      * @brief Show audit logs for time period with specified paramters
      * @return Output stream of auditlogs or an error status.
      */
@@ -104,6 +106,7 @@ public class AuditService extends ResourceService {
             @QueryParam("result") final String result,
             @QueryParam("keyword") final String keyword,
             @QueryParam("language") @DefaultValue("en_US") final String language,
+            @QueryParam(StreamCompression.COMPRESS_PARAM) final String compress,
             @Context HttpHeaders header) {
 
         MediaType mType = MediaType.APPLICATION_XML_TYPE;
@@ -154,7 +157,8 @@ public class AuditService extends ResourceService {
                 .user(user).result(auditResult).keyword(keyword).lang(language).timeBucket(timeBucket)
                 .start(startTime).end(endTime).build();
 
-        return Response.ok(getStreamOutput(auditLogRequest, mType), mType).build();
+        boolean gzip = StreamCompression.isGzip(compress);
+        return StreamCompression.setEncoding(Response.ok(getStreamOutput(auditLogRequest, mType, gzip), mType), gzip).build();
     }
 
     /**
@@ -163,16 +167,17 @@ public class AuditService extends ResourceService {
      *
      * @param auditLogRequest - the auditLogRequest containing query paramter to filter out when retrieve auditlogs.
      * @param type - media type of the response.
+     * @param gzip - compress the stream
      * @return - the stream object from which client retrieves response message
      *         body.
      */
-    private StreamingOutput getStreamOutput(final AuditLogRequest auditLogRequest,final MediaType type) {
+    private StreamingOutput getStreamOutput(final AuditLogRequest auditLogRequest,final MediaType type, final boolean gzip) {
 
         return new StreamingOutput() {
             @Override
-            public void write(OutputStream outputStream) {
+            public void write(OutputStream outputStream) throws IOException {
 
-                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(outputStream));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(StreamCompression.wrap(outputStream, gzip)));
                 try {
                     if (_auditlogRetriever == null) {
                         throw APIException.internalServerErrors.noAuditLogRetriever();
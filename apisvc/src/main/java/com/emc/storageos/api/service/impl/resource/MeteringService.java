@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.api.service.impl.resource.utils.StatRetriever;
+import com.emc.storageos.api.service.impl.resource.utils.StreamCompression;
 import com.emc.storageos.db.client.TimeSeriesMetadata;
 import com.emc.storageos.db.client.TimeSeriesMetadata.TimeBucket;
 import com.emc.storageos.security.authorization.CheckPermission;
@@ -60,12 +61,26 @@ public class MeteringService extends ResourceService {
      * @brief List metering statistics for time period
      * @return - Output stream of stats or an error status.
      */
+    public Response getStats(final String timeBucketParam, HttpHeaders header) {
+        return getStats(timeBucketParam, null, header);
+    }
+
+    /**
+     * Retrieves the bulk metering stats for all resources in a specified time bucket (minute or hour).
+     * 
+     * @param time_bucket required Time bucket for retrieval of stats. Acceptable formats are: yyyy-MM-dd'T'HH for hour bucket,
+     *            yyyy-MM-dd'T'HH:mm for minute bucket
+     * @param compress optional, "gzip" to get the stats gzip compressed
+     * @brief List metering statistics for time period
+     * @return - Output stream of stats or an error status.
+     */
     @GET
     @Path("/stats")
     @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
     @CheckPermission(roles = { Role.SYSTEM_MONITOR, Role.SYSTEM_ADMIN })
     public Response getStats(
             @QueryParam("time_bucket") final String timeBucketParam,
+            @QueryParam(StreamCompression.COMPRESS_PARAM) final String compress,
             @Context HttpHeaders header) {
 
         _logger.debug("getStats: timebucket: {}", timeBucketParam);
@@ -108,9 +123,10 @@ public class MeteringService extends ResourceService {
             throw APIException.badRequests.invalidTimeBucket(timeBucketParam);
         }
 
-        return Response.ok(
-                getStreamData(timeBucket, granularity, mediaType),
-                mediaType).build();
+        boolean gzip = StreamCompression.isGzip(compress);
+        return StreamCompression.setEncoding(Response.ok(
+                getStreamData(timeBucket, granularity, mediaType, gzip),
+                mediaType), gzip).build();
     }
 
     /**
@@ -122,16 +138,19 @@ public class MeteringService extends ResourceService {
      *            - granularity can be HOUR or MINUTE
      * @param mediaType
      *            - mediaType application/xml (default) or application/json
+     * @param gzip
+     *            - compress the stream
      * @return StreamingOuput() - produces StreamingOutput of Stats
      */
     private StreamingOutput getStreamData(final DateTime timeBucket,
-            final TimeBucket granularity, final MediaType mediaType) {
+            final TimeBucket granularity, final MediaType mediaType, final boolean gzip) {
         return new StreamingOutput() {
             @Override
             public void write(OutputStream outputStream) {
-                PrintWriter out = new PrintWriter(new BufferedOutputStream(
-                        outputStream));
+                PrintWriter out = null;
                 try {
+                    out = new PrintWriter(new BufferedOutputStream(
+                            StreamCompression.wrap(outputStream, gzip)));
                     if (_statRetriever == null) {
                         throw APIException.internalServerErrors.noMeteringStats();
                     }
@@ -140,7 +159,9 @@ public class MeteringService extends ResourceService {
                 } catch (final Exception e) {
                     throw APIException.internalServerErrors.meteringStatsError(e.getMessage(), e);
                 } finally {
-                    out.close();
+                    if (out != null) {
+                        out.close();
+                    }
                 }
             }
         };
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.api.service.impl.resource.utils.EventRetriever;
 import com.emc.storageos.api.service.impl.resource.utils.MarshallingExcetion;
+import com.emc.storageos.api.service.impl.resource.utils.StreamCompression;
 import com.emc.storageos.db.client.TimeSeriesMetadata;
 import com.emc.storageos.db.client.TimeSeriesMetadata.TimeBucket;
 import com.emc.storageos.security.authorization.CheckPermission;
@@ -73,12 +74,26 @@ public class MonitoringService extends ResourceService {
      * @brief List events and alerts for time period
      * @return Output stream of events or an error status.
      */
+    public Response getEvents(final String timeBucketParam, HttpHeaders header) {
+        return getEvents(timeBucketParam, null, header);
+    }
+
+    /**
+     * Retrieves the bulk events and alerts in a specified time bucket (minute or hour).
+     * 
+     * @param time_bucket required Time bucket for retrieval of events. Acceptable formats are: yyyy-MM-dd'T'HH for hour bucket,
+     *            yyyy-MM-dd'T'HH:mm for minute bucket
+     * @param compress optional, "gzip" to get the events gzip compressed
+     * @brief List events and alerts for time period
+     * @return Output stream of events or an error status.
+     */
     @GET
     @Path("/events")
     @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
     @CheckPermission(roles = { Role.SYSTEM_MONITOR, Role.SYSTEM_ADMIN })
     public Response getEvents(
             @QueryParam("time_bucket") final String timeBucketParam,
+            @QueryParam(StreamCompression.COMPRESS_PARAM) final String compress,
             @Context HttpHeaders header) {
 
         _logger.debug("getEvents: timebucket: {}", timeBucketParam);
@@ -123,9 +138,10 @@ public class MonitoringService extends ResourceService {
             throw APIException.badRequests.invalidTimeBucket(timeBucketParam);
         }
 
-        return Response.ok(
-                getStreamOutput(timeBucket, timeBucketGran, mType),
-                mType).build();
+        boolean gzip = StreamCompression.isGzip(compress);
+        return StreamCompression.setEncoding(Response.ok(
+                getStreamOutput(timeBucket, timeBucketGran, mType, gzip),
+                mType), gzip).build();
     }
 
     /**
@@ -137,17 +153,19 @@ public class MonitoringService extends ResourceService {
      *            - granularity of the time bucket, can be hour or minute.
      * @param mediaType
      *            - media type of the response.
+     * @param gzip
+     *            - compress the stream
      * @return
      *         - the stream object from which client retrieves response message body.
      */
     private StreamingOutput getStreamOutput(final DateTime timeBucket,
-            final TimeBucket timeBucketGran, final MediaType mediaType) {
+            final TimeBucket timeBucketGran, final MediaType mediaType, final boolean gzip) {
 
         return new StreamingOutput() {
             @Override
-            public void write(OutputStream outputStream) {
+            public void write(OutputStream outputStream) throws IOException {
 
-                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(outputStream));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(StreamCompression.wrap(outputStream, gzip)));
                 try {
                     if (_eventRetriever == null) {
                         throw APIException.internalServerErrors.noEventRetriever();
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.api.service.impl.resource.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import com.emc.storageos.svcs.errorhandling.resources.APIException;
+
+/**
+ * Optional compression of streamed time series responses, selected with the "compress" query parameter
+ */
+public final class StreamCompression {
+    public static final String COMPRESS_PARAM = "compress";
+    public static final String GZIP = "gzip";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final int BUFFER_SIZE = 8192;
+
+    private StreamCompression() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @param compress value of the compress query parameter
+     * @return true if the response has to be gzip compressed
+     */
+    public static boolean isGzip(final String compress) {
+        if (compress == null || compress.isEmpty()) {
+            return false;
+        }
+        if (GZIP.equalsIgnoreCase(compress)) {
+            return true;
+        }
+        throw APIException.badRequests.invalidParameter(COMPRESS_PARAM, compress);
+    }
+
+    /**
+     * Wrap the response stream, closing the returned stream completes the gzip trailer
+     */
+    public static OutputStream wrap(final OutputStream outputStream, final boolean gzip) throws IOException {
+        return gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+    }
+
+    public static ResponseBuilder setEncoding(final ResponseBuilder builder, final boolean gzip) {
+        return gzip ? builder.header(CONTENT_ENCODING, GZIP) : builder;
+    }
+}
@@ -532,6 +532,20 @@ public class DummyDBClient implements DbClient {
         return null;
     }
 
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjects(
+            Class<T> clazz, Collection<URI> ids, boolean activeOnly)
+            throws DatabaseException {
+        return queryIterativeObjects(clazz, ids, activeOnly);
+    }
+
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjectFields(
+            Class<T> clazz, Collection<String> fieldNames, Collection<URI> ids)
+            throws DatabaseException {
+        return queryIterativeObjectFields(clazz, fieldNames, ids);
+    }
+
     @Override
     public Operation suspended_no_error(Class<? extends DataObject> clazz, URI id,
             String opId, String message) throws DatabaseException {
@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.coordinator.client.service.DistributedDataManager;
+import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
 import com.emc.storageos.coordinator.common.impl.ZkConnection;
 import org.apache.curator.framework.api.CuratorListener;
 import org.apache.curator.framework.state.ConnectionStateListener;
@@ -88,6 +89,22 @@ public class TestDistributedDataManager implements DistributedDataManager {
         _dataMap.put(path, data);
     }
 
+    @Override
+    public void putSerializedData(String path, byte[] data) throws Exception {
+        _dataMap.put(path, GenericSerializer.deserialize(data));
+    }
+
+    @Override
+    public String createNodesIfAbsent(Map<String, Object> nodes) throws Exception {
+        for (String path : nodes.keySet()) {
+            if (_dataMap.containsKey(path)) {
+                return path;
+            }
+        }
+        _dataMap.putAll(nodes);
+        return null;
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         return _dataMap.get(path);
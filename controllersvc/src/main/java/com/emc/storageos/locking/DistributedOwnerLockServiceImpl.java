@@ -7,7 +7,10 @@ package com.emc.storageos.locking;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
@@ -25,18 +28,26 @@ import com.emc.storageos.exceptions.DeviceControllerException;
 
 public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockService {
     /**
-     * 
+     * Waiters are woken up by a watch on the lock data as soon as the lock is released,
+     * this is only the longest time between two attempts if a notification gets lost.
      */
     private static final int SLEEP_MS_BETWEEN_ACQUIRE_ATTEMPTS = 10000;
     private static final Logger log = LoggerFactory.getLogger(DistributedOwnerLockServiceImpl.class);
     private CoordinatorClient coordinator;
     private DistributedDataManager dataManager;
     private DistributedLockQueueManager lockQueueManager;
+    private LockWaiters waiters;
+    private volatile boolean locksPathCreated = false;
+    private final DistributedOwnerLockStats stats = new DistributedOwnerLockStats();
 
     @Override
     public boolean acquireLocks(List<String> lockKeys, String owner, long seconds) {
         // Sort the lockKeys to maintain the same lock order.
         Collections.sort(lockKeys);
+        if (acquireLocksAtomically(lockKeys, owner, System.currentTimeMillis() / 1000) == null) {
+            return true;
+        }
+        // Some lock is taken, wait for the locks one by one
         for (int i = 0; i < lockKeys.size(); i++) {
             boolean wasLocked = acquireLock(lockKeys.get(i), owner, seconds);
             if (wasLocked == false) {
@@ -63,6 +74,17 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         LockRetryException lockRetryThrowable = null;
         // Sort the lockKeys to maintain the same lock order.
         Collections.sort(lockKeys);
+        String heldKey = acquireLocksAtomically(lockKeys, owner, lockingStartedTimeSeconds);
+        if (heldKey == null) {
+            return true;
+        }
+        DistributedOwnerLockData heldData = loadLockData(heldKey);
+        if (heldData != null && !heldData.owner.equals(owner)) {
+            // Held by another owner, nothing was taken so there's nothing to roll back
+            log.info(String.format("Lock %s held by %s, owner %s will be queued", heldKey, heldData.owner, owner));
+            throw new LockRetryException(getLockDataPath(heldKey), remainingTimeSeconds);
+        }
+        // Some locks are already ours, take the others one by one
         for (int i=0; i < lockKeys.size(); i++) {
             // Poll, since we are going to throw an exception if cannot get lock.
             boolean wasLocked = acquireLock(lockKeys.get(i), owner, lockingStartedTimeSeconds, 0);
@@ -79,6 +101,81 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         return true;
     }
 
+    /**
+     * Takes all the locks at once if none of them is held. The lock data and owner reference nodes of
+     * all the keys are created in a single ZK transaction, under one hold of the global IPL, instead of
+     * the IPL acquire/load/persist round trips of each key.
+     * 
+     * @param lockKeys -- sorted lock keys
+     * @param owner -- the lock owner
+     * @param lockingStartedTimeSeconds -- when the caller started to lock, for the wait time statistics
+     * @return null if all the locks were acquired. Else the key of a lock which is held, possibly by the
+     *         same owner, or the first key if the transaction could not be run.
+     */
+    private String acquireLocksAtomically(List<String> lockKeys, String owner, long lockingStartedTimeSeconds) {
+        if (lockKeys.isEmpty()) {
+            return null;
+        }
+        Map<String, String> pathToKey = new HashMap<String, String>();
+        Map<String, Object> nodes = new LinkedHashMap<String, Object>();
+        long currentTime = System.currentTimeMillis();
+        DistributedOwnerLockData data = new DistributedOwnerLockData(owner, currentTime);
+        for (String lockKey : lockKeys) {
+            String path = getLockDataPath(lockKey);
+            String ownerLockPath = getLockByOwnerPath(lockKey, owner);
+            nodes.put(path, data);
+            nodes.put(ownerLockPath, null);
+            pathToKey.put(path, lockKey);
+            pathToKey.put(ownerLockPath, lockKey);
+        }
+        InterProcessLock lock = null;
+        try {
+            // Same semaphore as acquireLock(), no other owner checks a lock while the transaction runs
+            lock = lockIPL(null);
+            if (lock == null) {
+                return lockKeys.get(0);
+            }
+            ensureParentNodes(owner);
+            String existingPath = dataManager.createNodesIfAbsent(nodes);
+            if (existingPath != null) {
+                String heldKey = pathToKey.get(existingPath);
+                log.info(String.format("Lock %s taken, owner %s can't acquire %d locks at once", heldKey, owner, lockKeys.size()));
+                return heldKey != null ? heldKey : lockKeys.get(0);
+            }
+        } catch (Exception ex) {
+            log.error("Can't acquire locks at once for owner: " + owner, ex);
+            return lockKeys.get(0);
+        } finally {
+            unlockIPL(lock);
+        }
+        log.info(String.format("Owner %s acquired %d locks at once after %d seconds", owner, lockKeys.size(),
+                (currentTime / 1000) - lockingStartedTimeSeconds));
+        for (String lockKey : lockKeys) {
+            stats.waited(lockKey, Math.max(0, currentTime - lockingStartedTimeSeconds * 1000));
+        }
+        return null;
+    }
+
+    /**
+     * Create the parents of the nodes written by acquireLocksAtomically(), a transaction can't do it
+     * 
+     * @param owner
+     * @throws Exception
+     */
+    private void ensureParentNodes(String owner) throws Exception {
+        if (!locksPathCreated) {
+            String locksPath = ZkPath.LOCKDATA.toString() + "/distOwnerLock/locks";
+            if (dataManager.checkExists(locksPath) == null) {
+                dataManager.createNode(locksPath, false);
+            }
+            locksPathCreated = true;
+        }
+        String ownerPath = getOwnerPath(owner);
+        if (dataManager.checkExists(ownerPath) == null) {
+            dataManager.createNode(ownerPath, false);
+        }
+    }
+
     @Override
     public boolean releaseLocks(List<String> lockKeys, String owner) {
         // Sort the lockKeys to maintain the same lock order.
@@ -153,51 +250,68 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         InterProcessLock lock = null;
         boolean reportedLongLock = false;
         boolean reportedBlocking = false;
-        do {
-            long currentTime = System.currentTimeMillis();
-            try {
-                // Get semaphore
-                lock = lockIPL(lockKey);
-                if (lock != null) {
-                    // Get the lock data.
-                    DistributedOwnerLockData data = loadLockData(lockKey);
-                    // If no data, then we got the lock
-                    if (data == null) {
-                        data = new DistributedOwnerLockData(owner, currentTime);
-                        persistLockData(lockKey, data);
-                        acquired = true;
-                    } else {
-                        // If we're already the owner, that's fine.
-                        if (data.owner.equals(owner)) {
+        // queue up before the first attempt, a release right after it must wake us up
+        LockWaiters.Waiter waiter = (maxWaitSeconds > 0 && waiters != null)
+                ? waiters.register(lockKey, getLockDataPath(lockKey)) : null;
+        try {
+            do {
+                long currentTime = System.currentTimeMillis();
+                try {
+                    // Get semaphore
+                    lock = lockIPL(lockKey);
+                    if (lock != null) {
+                        // Get the lock data.
+                        DistributedOwnerLockData data = loadLockData(lockKey);
+                        // If no data, then we got the lock
+                        if (data == null) {
+                            data = new DistributedOwnerLockData(owner, currentTime);
+                            persistLockData(lockKey, data);
                             acquired = true;
-                        } else if (!reportedLongLock && currentTime / 1000 > data.timeAcquired + 3600) {
-                            reportedLongLock = true;
-                            log.info("Lock held more than 1 hour: " + lockKey + " owner: " + data.owner);
+                        } else {
+                            // If we're already the owner, that's fine.
+                            if (data.owner.equals(owner)) {
+                                acquired = true;
+                            } else if (!reportedLongLock && currentTime / 1000 > data.timeAcquired + 3600) {
+                                reportedLongLock = true;
+                                log.info("Lock held more than 1 hour: " + lockKey + " owner: " + data.owner);
+                            }
                         }
                     }
+                } finally {
+                    unlockIPL(lock);
                 }
-            } finally {
-                unlockIPL(lock);
-            }
-            // Report the time to acquire the lock if acquired.
-            if (acquired) {
-                log.info(String.format("Lock %s owner %s acquired after %d seconds", lockKey, owner,
-                        (currentTime / 1000) - lockingStartedTimeSeconds));
-            }
-            // Sleep if we did not acquire the lock and want to block
-            else if (maxWaitSeconds > 0) {
-                try {
-                    if (!reportedBlocking) {
-                        reportedBlocking = true;
-                        log.info(String.format("Owner %s blocking to wait for lock %s maxWaitSeconds %d", owner, lockKey, maxWaitSeconds));
+                // Report the time to acquire the lock if acquired.
+                if (acquired) {
+                    log.info(String.format("Lock %s owner %s acquired after %d seconds", lockKey, owner,
+                            (currentTime / 1000) - lockingStartedTimeSeconds));
+                    stats.waited(lockKey, Math.max(0, currentTime - lockingStartedTimeSeconds * 1000));
+                }
+                // Sleep if we did not acquire the lock and want to block
+                else if (maxWaitSeconds > 0) {
+                    try {
+                        if (!reportedBlocking) {
+                            reportedBlocking = true;
+                            log.info(String.format("Owner %s blocking to wait for lock %s maxWaitSeconds %d", owner, lockKey, maxWaitSeconds));
+                        }
+                        long remainingMs = (lockingStartedTimeSeconds + maxWaitSeconds) * 1000 - System.currentTimeMillis();
+                        // the wait time is counted in seconds, don't spin on its last one
+                        long sleepMs = Math.max(1000, Math.min(SLEEP_MS_BETWEEN_ACQUIRE_ATTEMPTS, remainingMs));
+                        if (waiter != null) {
+                            waiter.await(sleepMs);
+                        } else {
+                            Thread.sleep(sleepMs);
+                        }
+                    } catch (Exception ex) {
+                        log.error(ex.getMessage(), ex);
                     }
-                    Thread.sleep(SLEEP_MS_BETWEEN_ACQUIRE_ATTEMPTS);
-                } catch (Exception ex) {
-                    log.error(ex.getMessage(), ex);
                 }
+                waitTime = (System.currentTimeMillis() / 1000) - lockingStartedTimeSeconds;
+            } while (!acquired && waitTime < maxWaitSeconds);
+        } finally {
+            if (waiter != null) {
+                waiter.done(acquired);
             }
-            waitTime = (System.currentTimeMillis() / 1000) - lockingStartedTimeSeconds;
-        } while (!acquired && waitTime < maxWaitSeconds);
+        }
         if (!acquired && maxWaitSeconds > 0 && waitTime >= maxWaitSeconds) {
             log.info("Timeout waiting on lock: " + lockKey + " owner: " + owner);
         }
@@ -226,8 +340,10 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
                 }
                 // remove the lock data
                 removeLockData(lockName, data.getOwner());
-                Long heldTime = (System.currentTimeMillis() - data.timeAcquired) / 1000;
+                long heldTimeMs = System.currentTimeMillis() - data.timeAcquired;
+                Long heldTime = heldTimeMs / 1000;
                 log.info(String.format("Lock %s released after %d seconds", lockName, heldTime));
+                stats.held(lockName, heldTimeMs);
             } else {
                 log.info(String.format("unable to unlock lockname: %s owner: %s lock not found in zk", lockName, owner));
             }
@@ -238,6 +354,10 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         } finally {
             unlockIPL(lock);
         }
+        // no need to wait for the watch to hand the lock over to a local waiter
+        if (waiters != null) {
+            waiters.signal(lockName);
+        }
         return retval;
     }
 
@@ -465,6 +585,8 @@ public class DistributedOwnerLockServiceImpl implements DistributedOwnerLockServ
         } catch (Exception ex) {
             log.error("Can't get a DistributedDataManager", ex);
         }
+        waiters = new LockWaiters(coordinator);
+        stats.register();
     }
 
     public CoordinatorClient getCoordinator() {
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wait and hold time histograms of the distributed owner locks, per lock group.
+ *
+ * Lock keys are mostly built by ControllerLockingUtil as <host, cg or group name>::<array native guid>,
+ * the contended resource being the array. Such keys are grouped by their array part, ViPR URIs by
+ * their type and any other key by its text up to the first ':'.
+ */
+public class DistributedOwnerLockStats implements DistributedOwnerLockStatsMBean {
+    private static final Logger log = LoggerFactory.getLogger(DistributedOwnerLockStats.class);
+
+    private static final String KEY_DELIMITER = "::";
+    private static final String URN_PREFIX = "urn:storageos:";
+    // keeps the histograms bounded if the keys don't follow the usual patterns
+    private static final int MAX_GROUPS = 500;
+    private static final String OTHER_GROUP = "other";
+
+    private final ConcurrentMap<String, Histogram> waitTimes = new ConcurrentHashMap<String, Histogram>();
+    private final ConcurrentMap<String, Histogram> holdTimes = new ConcurrentHashMap<String, Histogram>();
+
+    /**
+     * Register with the platform MBean server, unless another lock service of this JVM did already
+     */
+    public void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            log.error("Register MBean error ", ex);
+        }
+    }
+
+    void waited(String lockKey, long millis) {
+        histogram(waitTimes, lockKey).add(millis);
+    }
+
+    void held(String lockKey, long millis) {
+        histogram(holdTimes, lockKey).add(millis);
+    }
+
+    static String getGroup(String lockKey) {
+        int index = lockKey.lastIndexOf(KEY_DELIMITER);
+        if (index >= 0) {
+            return "*" + lockKey.substring(index);
+        }
+        if (lockKey.startsWith(URN_PREFIX)) {
+            index = lockKey.indexOf(':', URN_PREFIX.length());
+            return index > 0 ? lockKey.substring(0, index) : lockKey;
+        }
+        index = lockKey.indexOf(':');
+        return index > 0 ? lockKey.substring(0, index) : lockKey;
+    }
+
+    private static Histogram histogram(ConcurrentMap<String, Histogram> histograms, String lockKey) {
+        String group = getGroup(lockKey);
+        Histogram histogram = histograms.get(group);
+        if (histogram == null) {
+            if (histograms.size() >= MAX_GROUPS) {
+                group = OTHER_GROUP;
+            }
+            histograms.putIfAbsent(group, new Histogram());
+            histogram = histograms.get(group);
+        }
+        return histogram;
+    }
+
+    @Override
+    public String[] getWaitTimeHistograms() {
+        return toStrings(waitTimes);
+    }
+
+    @Override
+    public String[] getHoldTimeHistograms() {
+        return toStrings(holdTimes);
+    }
+
+    @Override
+    public void reset() {
+        waitTimes.clear();
+        holdTimes.clear();
+    }
+
+    private static String[] toStrings(Map<String, Histogram> histograms) {
+        List<String> lines = new ArrayList<String>(histograms.size());
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Counts of durations in fixed buckets, from sub-second to more than an hour
+     */
+    static class Histogram {
+        static final long[] BOUNDS_MS = { 100, 1000, 10000, 60000, 600000, 3600000 };
+        static final String[] LABELS = { "<100ms", "<1s", "<10s", "<1m", "<10m", "<1h", ">=1h" };
+
+        private final AtomicLongArray counts = new AtomicLongArray(LABELS.length);
+        private final AtomicLong total = new AtomicLong(0);
+        private final AtomicLong max = new AtomicLong(0);
+
+        void add(long millis) {
+            int bucket = 0;
+            while (bucket < BOUNDS_MS.length && millis >= BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            total.addAndGet(millis);
+            long current = max.get();
+            while (millis > current && !max.compareAndSet(current, millis)) {
+                current = max.get();
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            long count = 0;
+            for (int i = 0; i < LABELS.length; i++) {
+                count += counts.get(i);
+                builder.append(LABELS[i]).append('=').append(counts.get(i)).append(' ');
+            }
+            builder.append("count=").append(count);
+            builder.append(" avgMs=").append(count > 0 ? total.get() / count : 0);
+            builder.append(" maxMs=").append(max.get());
+            return builder.toString();
+        }
+    }
+}
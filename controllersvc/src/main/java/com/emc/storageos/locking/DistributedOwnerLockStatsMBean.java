@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+/**
+ * The API for wait and hold time statistics of the distributed owner locks
+ */
+public interface DistributedOwnerLockStatsMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.locking:type=DistributedOwnerLockStats";
+
+    /**
+     * @return one line per lock group with the histogram of the time taken to acquire its locks
+     */
+    String[] getWaitTimeHistograms();
+
+    /**
+     * @return one line per lock group with the histogram of the time its locks were held
+     */
+    String[] getHoldTimeHistograms();
+
+    /**
+     * Start over with empty histograms
+     */
+    void reset();
+}
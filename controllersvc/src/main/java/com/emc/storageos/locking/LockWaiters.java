@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.NodeListener;
+
+/**
+ * Threads of this node blocked on a distributed owner lock.
+ *
+ * The waiters of a lock key are queued in arrival order and a ZK watch is kept on the lock data
+ * node while the queue isn't empty. When the node changes (the lock is released on any node) or
+ * when this node releases the lock, the first waiter is woken up to try again. The others stay
+ * asleep until the lock is released again, or the first waiter gives up.
+ */
+class LockWaiters {
+    private static final Logger log = LoggerFactory.getLogger(LockWaiters.class);
+
+    private final CoordinatorClient coordinator;
+    private final Map<String, KeyWaiters> waiters = new HashMap<String, KeyWaiters>();
+
+    LockWaiters(CoordinatorClient coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Queue a waiter for a lock key. Must be called before the attempt to take the lock, so that
+     * a release in between isn't missed, and be followed by Waiter.done().
+     *
+     * @param lockKey lock key
+     * @param lockDataPath ZK path of the lock data node to watch
+     */
+    Waiter register(String lockKey, String lockDataPath) {
+        KeyWaiters keyWaiters;
+        Waiter waiter;
+        boolean created = false;
+        synchronized (this) {
+            keyWaiters = waiters.get(lockKey);
+            if (keyWaiters == null) {
+                keyWaiters = new KeyWaiters(lockKey, lockDataPath);
+                waiters.put(lockKey, keyWaiters);
+                created = true;
+            }
+            waiter = new Waiter(keyWaiters);
+            keyWaiters.queue.add(waiter);
+        }
+        if (created) {
+            try {
+                coordinator.addNodeListener(keyWaiters);
+            } catch (Exception e) {
+                // waiters fall back to polling
+                log.warn("Unable to watch lock data of {}", lockKey, e);
+            }
+        }
+        return waiter;
+    }
+
+    /**
+     * Wake up the first waiter of a lock key, if any
+     */
+    void signal(String lockKey) {
+        KeyWaiters keyWaiters;
+        synchronized (this) {
+            keyWaiters = waiters.get(lockKey);
+        }
+        if (keyWaiters != null) {
+            keyWaiters.signalFirst();
+        }
+    }
+
+    synchronized int getWaiterCount(String lockKey) {
+        KeyWaiters keyWaiters = waiters.get(lockKey);
+        return keyWaiters == null ? 0 : keyWaiters.queue.size();
+    }
+
+    private void remove(Waiter waiter, boolean acquired) {
+        KeyWaiters keyWaiters = waiter.keyWaiters;
+        boolean empty;
+        synchronized (this) {
+            keyWaiters.queue.remove(waiter);
+            empty = keyWaiters.queue.isEmpty();
+            if (empty && waiters.get(keyWaiters.lockKey) == keyWaiters) {
+                waiters.remove(keyWaiters.lockKey);
+            }
+        }
+        if (empty) {
+            coordinator.removeNodeListener(keyWaiters);
+        } else if (!acquired && (waiter.woken || waiter.wakeup.availablePermits() > 0)) {
+            // woken up but leaving without trying for the lock again, pass the wakeup on
+            keyWaiters.signalFirst();
+        }
+    }
+
+    /**
+     * One thread waiting for a lock
+     */
+    class Waiter {
+        private final KeyWaiters keyWaiters;
+        private final Semaphore wakeup = new Semaphore(0);
+        // the last wait ended with a wakeup that no attempt has followed yet
+        private boolean woken;
+
+        private Waiter(KeyWaiters keyWaiters) {
+            this.keyWaiters = keyWaiters;
+        }
+
+        /**
+         * Sleep until woken up or the timeout elapsed
+         *
+         * @return true if woken up
+         */
+        boolean await(long timeoutMs) throws InterruptedException {
+            woken = false;
+            woken = wakeup.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+            // several changes seen while asleep are one wakeup
+            if (wakeup.drainPermits() > 0) {
+                woken = true;
+            }
+            return woken;
+        }
+
+        /**
+         * Leave the queue
+         *
+         * @param acquired true if the lock was taken
+         */
+        void done(boolean acquired) {
+            remove(this, acquired);
+        }
+    }
+
+    private class KeyWaiters implements NodeListener {
+        private final String lockKey;
+        private final String lockDataPath;
+        private final LinkedList<Waiter> queue = new LinkedList<Waiter>();
+
+        KeyWaiters(String lockKey, String lockDataPath) {
+            this.lockKey = lockKey;
+            this.lockDataPath = lockDataPath;
+        }
+
+        void signalFirst() {
+            synchronized (LockWaiters.this) {
+                Waiter first = queue.peek();
+                if (first != null && first.wakeup.availablePermits() == 0) {
+                    first.wakeup.release();
+                }
+            }
+        }
+
+        void signalAll() {
+            synchronized (LockWaiters.this) {
+                for (Waiter waiter : queue) {
+                    if (waiter.wakeup.availablePermits() == 0) {
+                        waiter.wakeup.release();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String getPath() {
+            return lockDataPath;
+        }
+
+        @Override
+        public void nodeChanged() throws Exception {
+            signalFirst();
+        }
+
+        @Override
+        public void connectionStateChanged(State state) {
+            // changes may have been missed while disconnected, everyone checks again
+            if (state == State.CONNECTED) {
+                signalAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.svcs.errorhandling.model.ServiceCoded;
+import com.emc.storageos.svcs.errorhandling.resources.ServiceCode;
+
+/**
+ * Concurrency limits of the Dispatcher per device, learnt from the calls made to it (AIMD).
+ *
+ * The limit of a device starts at the maxConnections configured for its type. It is cut by
+ * BACKOFF_RATIO when a call fails or takes more than LATENCY_TOLERANCE times the usual latency of
+ * its method on this device, and grows back by one after about a limit's worth of calls completed
+ * in time while the limit was reached. It stays between 1 and maxConnections, the size of the
+ * device semaphore capping the calls of all the nodes together.
+ *
+ * A call is failed if the method throws, or if it reports an error through a TaskCompleter or
+ * WorkflowStepCompleter on the dispatching thread. Errors reported later by asynchronous jobs
+ * are not seen, which is why the Dispatcher only uses this when enabled.
+ */
+public class AdaptiveDeviceLimiter implements AdaptiveDeviceLimiterMBean {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveDeviceLimiter.class);
+
+    static final double BACKOFF_RATIO = 0.75;
+    static final double LATENCY_TOLERANCE = 2.0;
+    // calls faster than this are never slow, whatever the usual latency
+    static final long MIN_SLOW_LATENCY_MS = 1000;
+    // weight of the usual latency against a new slower sample
+    static final int LATENCY_DRIFT = 64;
+    // errors of calls that didn't get an answer from the device in time
+    private static final Set<ServiceCode> TIMEOUT_CODES = EnumSet.of(
+            ServiceCode.VPLEX_API_RESPONSE_TIMEOUT_ERROR, ServiceCode.CONTROLLER_NETWORK_SESSION_TIMEOUT);
+
+    // call of the current thread, to be failed by the completers
+    private static final ThreadLocal<Permit> current = new ThreadLocal<Permit>();
+
+    private final ConcurrentMap<URI, DeviceLimit> limits = new ConcurrentHashMap<URI, DeviceLimit>();
+
+    /**
+     * Register with the platform MBean server, unless another Dispatcher of this JVM did already
+     */
+    public void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            log.error("Register MBean error ", ex);
+        }
+    }
+
+    /**
+     * Marks the call being made by the current thread, if any, as failed
+     *
+     * @param coded the error reported
+     */
+    public static void reportError(ServiceCoded coded) {
+        Permit permit = current.get();
+        if (permit != null) {
+            permit.failed = true;
+            if (coded != null && TIMEOUT_CODES.contains(coded.getServiceCode())) {
+                permit.timedOut = true;
+            }
+        }
+    }
+
+    /**
+     * Take a slot for a call to a device
+     *
+     * @param device device URI
+     * @param deviceType device type
+     * @param maxConnections configured maxConnections of the device type
+     * @param method name of the method to be called
+     * @return the permit to be released after the call, null if the device is at its limit
+     */
+    Permit tryAcquire(URI device, String deviceType, int maxConnections, String method) {
+        DeviceLimit limit = limits.get(device);
+        if (limit == null) {
+            limits.putIfAbsent(device, new DeviceLimit(device, deviceType, maxConnections));
+            limit = limits.get(device);
+        }
+        synchronized (limit) {
+            if (limit.inFlight >= (int) limit.limit) {
+                limit.rejected++;
+                return null;
+            }
+            limit.inFlight++;
+            return new Permit(limit, method, limit.inFlight >= (int) limit.limit, limit.generation);
+        }
+    }
+
+    /**
+     * Give a slot back and learn from the call made with it
+     *
+     * @param permit permit of tryAcquire()
+     */
+    void release(Permit permit) {
+        if (current.get() == permit) {
+            current.remove();
+        }
+        DeviceLimit limit = permit.limit;
+        long now = System.currentTimeMillis();
+        synchronized (limit) {
+            limit.inFlight--;
+            if (permit.start == 0) {
+                // the device was never called
+                return;
+            }
+            long latency = now - permit.start;
+            limit.calls++;
+            limit.totalLatency += latency;
+            if (permit.failed) {
+                limit.errors++;
+            }
+            if (permit.timedOut) {
+                limit.timeouts++;
+            }
+
+            Long usual = limit.latencies.get(permit.method);
+            boolean slow = usual != null && latency > MIN_SLOW_LATENCY_MS && latency > usual * LATENCY_TOLERANCE;
+            if (usual == null || latency < usual) {
+                limit.latencies.put(permit.method, latency);
+            } else {
+                limit.latencies.put(permit.method, usual + (latency - usual) / LATENCY_DRIFT);
+            }
+
+            if (permit.failed || slow) {
+                // calls let in before the last cut were made under the previous limit, one cut for all
+                if (permit.generation == limit.generation) {
+                    limit.limit = Math.max(1.0, limit.limit * BACKOFF_RATIO);
+                    limit.generation++;
+                    log.info("Concurrency limit of {} lowered to {} after a {} {}", limit.device,
+                            (int) limit.limit, permit.failed ? "failed" : "slow", permit.method);
+                }
+            } else if (permit.saturated && limit.limit < limit.configured) {
+                limit.limit = Math.min(limit.configured, limit.limit + 1.0 / limit.limit);
+            }
+        }
+    }
+
+    /**
+     * @return current limit of a device, -1 if it wasn't called yet
+     */
+    int getLimit(URI device) {
+        DeviceLimit limit = limits.get(device);
+        if (limit == null) {
+            return -1;
+        }
+        synchronized (limit) {
+            return (int) limit.limit;
+        }
+    }
+
+    @Override
+    public String[] getDeviceLimits() {
+        List<String> lines = new ArrayList<String>(limits.size());
+        for (DeviceLimit limit : limits.values()) {
+            synchronized (limit) {
+                lines.add(String.format("%s %s limit=%d configured=%d inFlight=%d calls=%d avgMs=%d"
+                        + " errors=%d timeouts=%d rejected=%d",
+                        limit.device, limit.deviceType, (int) limit.limit, limit.configured,
+                        limit.inFlight, limit.calls, limit.calls > 0 ? limit.totalLatency / limit.calls : 0,
+                        limit.errors, limit.timeouts, limit.rejected));
+            }
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public void reset() {
+        for (DeviceLimit limit : limits.values()) {
+            synchronized (limit) {
+                limit.limit = limit.configured;
+                limit.generation++;
+                limit.latencies.clear();
+                limit.calls = 0;
+                limit.totalLatency = 0;
+                limit.errors = 0;
+                limit.timeouts = 0;
+                limit.rejected = 0;
+            }
+        }
+    }
+
+    /**
+     * A slot taken for one call to a device
+     */
+    class Permit {
+        private final DeviceLimit limit;
+        private final String method;
+        // the limit was reached by this call, it is worth raising
+        private final boolean saturated;
+        // generation of the limit the slot was taken from
+        private final long generation;
+        private long start = 0;
+        private volatile boolean failed = false;
+        private volatile boolean timedOut = false;
+
+        private Permit(DeviceLimit limit, String method, boolean saturated, long generation) {
+            this.limit = limit;
+            this.method = method;
+            this.saturated = saturated;
+            this.generation = generation;
+        }
+
+        /**
+         * The device is being called by the current thread
+         */
+        void invoking() {
+            start = System.currentTimeMillis();
+            current.set(this);
+        }
+
+        /**
+         * The call threw
+         */
+        void failed() {
+            failed = true;
+        }
+
+        /**
+         * The call returned without doing its work, to be retried
+         */
+        void skipped() {
+            start = 0;
+        }
+    }
+
+    private static class DeviceLimit {
+        private final URI device;
+        private final String deviceType;
+        private final int configured;
+        private double limit;
+        private int inFlight = 0;
+        // bumped each time the limit is cut
+        private long generation = 0;
+        // usual latency of each method
+        private final Map<String, Long> latencies = new HashMap<String, Long>();
+        private long calls = 0;
+        private long totalLatency = 0;
+        private long errors = 0;
+        private long timeouts = 0;
+        private long rejected = 0;
+
+        DeviceLimit(URI device, String deviceType, int configured) {
+            this.device = device;
+            this.deviceType = deviceType;
+            this.configured = configured;
+            this.limit = configured;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl;
+
+/**
+ * The API for the per device concurrency limits of the Dispatcher
+ */
+public interface AdaptiveDeviceLimiterMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.volumecontroller.impl:type=AdaptiveDeviceLimiter";
+
+    /**
+     * @return one line per device with its current limit, calls in flight, latency and error counts
+     */
+    String[] getDeviceLimits();
+
+    /**
+     * Forget what was learnt, the devices start over from their configured maxConnections
+     */
+    void reset();
+}
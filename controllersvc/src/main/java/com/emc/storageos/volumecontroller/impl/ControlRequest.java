@@ -19,6 +19,8 @@ public class ControlRequest implements Serializable {
     private static final String DEVICE_INFO_NAME = "deviceinfo";
     private static final String TIMESTAMP = "timestamp";
     private static final String LOCK_GROUP = "lockGroup";
+    private static final String PRIORITY = "priority";
+    private static final String FAIR_SHARE_KEY = "fairShareKey";
 
     private Map<String, Object> _req = new HashMap<String, Object>();
 
@@ -67,6 +69,29 @@ public class ControlRequest implements Serializable {
         return (String) _req.get(LOCK_GROUP);
     }
 
+    /**
+     * @param priority name of a Dispatcher.Priority, null for the default class of the queue
+     */
+    public void setPriority(String priority) {
+        _req.put(PRIORITY, priority);
+    }
+
+    public String getPriority() {
+        return (String) _req.get(PRIORITY);
+    }
+
+    /**
+     * @param fairShareKey requests of the same key take turns with the requests of the other keys,
+     *            e.g. a tenant, device or workflow URI
+     */
+    public void setFairShareKey(String fairShareKey) {
+        _req.put(FAIR_SHARE_KEY, fairShareKey);
+    }
+
+    public String getFairShareKey() {
+        return (String) _req.get(FAIR_SHARE_KEY);
+    }
+
     @SuppressWarnings({ "squid:S2118" })
     public byte[] serialize() {
         try {
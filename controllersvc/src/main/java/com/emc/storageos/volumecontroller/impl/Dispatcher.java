@@ -8,10 +8,12 @@ package com.emc.storageos.volumecontroller.impl;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -60,6 +62,8 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
     private static final int DEFAULT_CONTROLLER_MAX_ITEM = 1000;
     private static final int MAX_WORKFLOW_STEPS = 10000;
     private static final long STALE_ITEM_THRESHOLD = 24 * 60 * 60 * 1000; // 24 hours in milliseconds
+    // requests with a collection or array argument of this size or more are bulk by default
+    private static final int BULK_ARGUMENT_SIZE = 20;
 
     // Define the Queues used by the Dispatcher.
     // To add a new Queue, add its name to the QueueName enum, and then add a constructor
@@ -68,6 +72,24 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         controller, workflow_outer, workflow_inner;
     };
 
+    /**
+     * Priority classes of the requests in a queue. While requests of several classes are waiting,
+     * each class gets a share of the claims proportional to its weight.
+     */
+    public static enum Priority {
+        high(8), normal(4), bulk(1);
+
+        private final int weight;
+
+        private Priority(int weight) {
+            this.weight = weight;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    };
+
     private class DispatcherQueue {
         final QueueName _queue_name;
         final Integer _method_executor_pool_size;
@@ -154,6 +176,8 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
     private final ConcurrentMap<URI, DistributedSemaphore> _deviceSemaphoreMap = new ConcurrentHashMap<URI, DistributedSemaphore>();
     private int _acquireLeaseWaitTimeSeconds = ACQUIRE_LEASE_WAIT_TIME_SECONDS;
     private int _acquireLeaseRetryWaitTimeSeconds = ACQUIRE_LEASE_RETRY_WAIT_TIME__SECONDS;
+    private final AdaptiveDeviceLimiter _deviceLimiter = new AdaptiveDeviceLimiter();
+    private boolean _adaptiveDeviceLimits = false;
 
     private DistributedLockQueueManager<ControlRequest> _lockQueueManager;
 
@@ -204,6 +228,7 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         private final DistributedQueueItemProcessedCallback _callback;
         private final DistributedSemaphore _deviceSemaphore;
         private final Object[] _args;
+        private AdaptiveDeviceLimiter.Permit _permit;
 
         public DeviceMethodInvoker(ControlRequest item,
                 DistributedQueueItemProcessedCallback callback) throws DeviceControllerException {
@@ -266,10 +291,18 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
                         // this device did not specify maxConnections.
                         _log.info("Dispatching task {}: {}", _method.getName(), _args);
                         _method.invoke(_innerController, _args);
+                    } else if (_adaptiveDeviceLimits && (_permit = acquirePermit(_item.getDeviceInfo(), _method)) == null) {
+                        // The device is at its adaptive limit. Retry.
+                        _log.info("Rescheduling task {} at device limit: {}", _method.getName(), _args);
+                        _queue.getMethodPoolExecutor().schedule(this, _acquireLeaseRetryWaitTimeSeconds, TimeUnit.SECONDS);
+                        bRetryLease = true;
                     } else {
                         lease = _deviceSemaphore.acquireLease(_acquireLeaseWaitTimeSeconds, TimeUnit.SECONDS);
                         if (lease != null) {
                             _log.info("Dispatching task {}: {}", _method.getName(), _args);
+                            if (_permit != null) {
+                                _permit.invoking();
+                            }
                             _method.invoke(_innerController, _args);
                         } else {
                             // Could not get a lease. Retry.
@@ -286,6 +319,9 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
             } catch (InvocationTargetException e) {
                 Throwable cause = e.getCause();
                 if (cause instanceof LockRetryException) {
+                    if (_permit != null) {
+                        _permit.skipped();
+                    }
                     LockRetryException lockEx = (LockRetryException) cause;
                     _item.setLockGroup(lockEx.getLockIdentifier());
                     if (!addRequestToLockQueue(lockEx, _item)) {
@@ -296,12 +332,22 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
                 } else {
                     _log.warn("Problem executing task: " + _method.getName() + "; {}", _args, e);
                     bInvocationProblem = true;
+                    if (_permit != null) {
+                        _permit.failed();
+                    }
                 }
             } catch (Exception e) {
                 _log.warn("Problem executing task: " + _method.getName() + "; {}", _args, e);
                 bInvocationProblem = true;
+                if (_permit != null) {
+                    _permit.failed();
+                }
             } finally {
                 try {
+                    if (_permit != null) {
+                        _deviceLimiter.release(_permit);
+                        _permit = null;
+                    }
                     if (_deviceSemaphore != null && lease != null) {
                         _deviceSemaphore.returnLease(lease);
                     }
@@ -317,6 +363,18 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         }
     }
 
+    /**
+     * Take a slot of the adaptive limit of a device for a method call.
+     *
+     * @param info device of the call
+     * @param method method to be called
+     * @return the permit, or null if the device is at its limit
+     */
+    private AdaptiveDeviceLimiter.Permit acquirePermit(DeviceInfo info, Method method) {
+        Integer maxConnections = _deviceMaxConnectionMap.get(info.getType());
+        return _deviceLimiter.tryAcquire(info.getURI(), info.getType(), maxConnections.intValue(), method.getName());
+    }
+
     /**
      * Attempt to push an item onto the lock queue.
      *
@@ -417,6 +475,17 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         _acquireLeaseRetryWaitTimeSeconds = retryWaitTime;
     }
 
+    /**
+     * Sets whether the number of calls to a device adapts, below maxConnections, to its latency
+     * and errors. Off by default, as only the errors reported on the dispatching thread are seen:
+     * maxConnections is then a fixed limit.
+     *
+     * @param adaptiveDeviceLimits
+     */
+    public void setAdaptiveDeviceLimits(boolean adaptiveDeviceLimits) {
+        _adaptiveDeviceLimits = adaptiveDeviceLimits;
+    }
+
     /**
      * Creates _methodPoolExecutor for each Queue
      */
@@ -484,8 +553,37 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
      */
     public void queue(final QueueName queueName, final URI deviceURI, final String deviceType, boolean lockDevice,
             Object target, String method, Object... args) throws ControllerException {
+        queue(queueName, deviceURI, deviceType, lockDevice, null, null, target, method, args);
+    }
+
+    /**
+     * Queues a method call against device specific controller
+     * 
+     * @param queueName of enum QueueName identifies the Dispatcher queue to be
+     *            used
+     * @param deviceURI
+     * @param deviceType
+     * @param lockDevice indicates whether a semaphore should be acquired for the device
+     * @param priority priority class of the call, null to choose from the size of the arguments
+     * @param fairShareKey calls of the same key, e.g. a tenant or workflow URI, take turns with the calls
+     *            of the other keys, null for the device
+     * @param target
+     * @param method
+     * @param args
+     * 
+     * @throws ControllerException
+     */
+    public void queue(final QueueName queueName, final URI deviceURI, final String deviceType, boolean lockDevice,
+            Priority priority, String fairShareKey, Object target, String method, Object... args)
+            throws ControllerException {
         ControlRequest req = new ControlRequest(queueName.name(),
                 new DeviceInfo(deviceURI, deviceType, lockDevice), target, method, args);
+        req.setPriority((priority != null ? priority : getDefaultPriority(args)).name());
+        if (fairShareKey != null) {
+            req.setFairShareKey(fairShareKey);
+        } else if (deviceURI != null) {
+            req.setFairShareKey(deviceURI.toString());
+        }
         try {
             if (QueueName.controller.equals(queueName)) {
                 checkZkStepToWorkflowSize();
@@ -531,6 +629,26 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         _log.info("Queued existing task {}: {} ", item.getMethodName(), item.getArg());
     }
 
+    /**
+     * @return bulk for calls on many objects at once, normal otherwise
+     */
+    private static Priority getDefaultPriority(Object... args) {
+        if (args != null) {
+            for (Object arg : args) {
+                int size = 0;
+                if (arg instanceof Collection) {
+                    size = ((Collection<?>) arg).size();
+                } else if (arg != null && arg.getClass().isArray()) {
+                    size = Array.getLength(arg);
+                }
+                if (size >= BULK_ARGUMENT_SIZE) {
+                    return Priority.bulk;
+                }
+            }
+        }
+        return Priority.normal;
+    }
+
     /**
      * This method checks the size of the total number of steps across all the running
      * workflows in zoo keeper if it reaches the default limit then it throws
@@ -553,6 +671,9 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
      */
     public void start() throws Exception {
         _coordinator.start();
+        if (_adaptiveDeviceLimits) {
+            _deviceLimiter.register();
+        }
         // todo make max threads configurable
         // _queue = _coordinator.getQueue(QUEUE_NAME, this, new ControlRequestSerializer(), DEFAULT_MAX_THREADS);
         for (DispatcherQueue q : getQueues()) {
@@ -646,6 +767,36 @@ public class Dispatcher extends DistributedQueueConsumer<ControlRequest> {
         return false;
     }
 
+    @Override
+    public int getAvailableSlots(String queue) {
+        // Never busy, but a batched claim takes no more items than the method pool
+        // of the queue can start now, none while it is full, leaving the rest of a
+        // burst to the other nodes.
+        ScheduledThreadPoolExecutor executor = getQueue(queue).getMethodPoolExecutor();
+        return Math.max(0, executor.getCorePoolSize() - executor.getActiveCount());
+    }
+
+    @Override
+    public String getPriorityClass(ControlRequest item) {
+        return item.getPriority();
+    }
+
+    @Override
+    public String getFairShareKey(ControlRequest item) {
+        return item.getFairShareKey();
+    }
+
+    @Override
+    public int getPriorityWeight(String priorityClass) {
+        for (Priority priority : Priority.values()) {
+            if (priority.name().equals(priorityClass)) {
+                return priority.getWeight();
+            }
+        }
+        // queued without a priority, e.g. by a node of an older version
+        return Priority.normal.getWeight();
+    }
+
     public void setLockQueueManager(DistributedLockQueueManager lockQueueManager) {
         _lockQueueManager = lockQueueManager;
     }
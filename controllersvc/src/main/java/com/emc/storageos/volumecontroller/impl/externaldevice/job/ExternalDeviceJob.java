@@ -219,4 +219,13 @@ abstract public class ExternalDeviceJob extends Job implements Serializable {
     public TaskCompleter getTaskCompleter() {
         return _taskCompleter;
     }
+
+    /**
+     * Getter for the URI of the external storage system on which the task is running.
+     * 
+     * @return The URI of the external storage system.
+     */
+    public URI getStorageSystemURI() {
+        return _storageSystemURI;
+    }
 }
@@ -127,6 +127,10 @@ public class IsilonSyncIQJob extends Job implements Serializable {
         _error_tracking_time = trackingTime;
     }
 
+    public URI getStorageSystemUri() {
+        return _storageSystemUri;
+    }
+
     /**
      * Get Isilon API client
      * 
@@ -7,42 +7,92 @@ package com.emc.storageos.volumecontroller.impl.job;
 import com.emc.storageos.coordinator.client.service.impl.DistributedQueueConsumer;
 import com.emc.storageos.coordinator.client.service.DistributedQueueItemProcessedCallback;
 import com.emc.storageos.exceptions.DeviceControllerException;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.emc.storageos.svcs.errorhandling.model.ServiceError;
 import com.emc.storageos.volumecontroller.Job;
 import com.emc.storageos.volumecontroller.JobContext;
 import com.emc.storageos.volumecontroller.impl.JobPollResult;
+import com.emc.storageos.volumecontroller.impl.cinder.job.CinderJob;
+import com.emc.storageos.volumecontroller.impl.externaldevice.job.ExternalDeviceJob;
+import com.emc.storageos.volumecontroller.impl.hds.prov.job.HDSJob;
+import com.emc.storageos.volumecontroller.impl.isilon.job.IsilonSyncIQJob;
+import com.emc.storageos.volumecontroller.impl.smis.job.SmisJob;
+import com.emc.storageos.volumecontroller.impl.vnxe.job.VNXeJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import com.emc.storageos.vplexcontroller.job.VPlexMigrationJob;
 
 /**
  * QueueJobTracker tracks jobs in the job queue
+ *
+ * Jobs are polled on a bounded pool, one lane per storage system: the jobs of a storage system
+ * are polled one after the other, while the jobs of other storage systems are polled in parallel,
+ * so that a slow provider only delays its own jobs. Jobs which do not report their storage system
+ * share a lane per job type.
+ *
+ * A job which makes no progress between two polls is polled half as often, down to once every
+ * maxTrackingPeriodInMillis. It is polled every trackingPeriodInMillis again once it progresses,
+ * or while it is in a transient error or retry state: jobs counting their polls to measure time
+ * (such as VPlexMigrationJob retrying its status check) assume a poll every trackingPeriodInMillis,
+ * which is also the period they are given when polled.
  */
 public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implements Runnable
 {
     private static final Logger _logger = LoggerFactory.getLogger(QueueJobTracker.class);
+    private static final int DEFAULT_MAX_POLLING_THREADS = 10;
+    private static final int BACKOFF_FACTOR = 2;
     private long _trackingPeriodInMillis;
+    private long _maxTrackingPeriodInMillis;
     private long _trackingTimeoutInMillis;
+    private int _maxPollingThreads = DEFAULT_MAX_POLLING_THREADS;
 
     private ExecutorService _trackerService = null;
+    private ExecutorService _pollingService = null;
     private ConcurrentLinkedQueue<JobWrapper> _activeJobs = new ConcurrentLinkedQueue<JobWrapper>();
+    // lanes with a poll in progress
+    private final Set<String> _busyLanes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final HashMap<String, HashMap<String, Integer>> _jobProgressMap = new HashMap<String, HashMap<String, Integer>>();
     private JobContext _jobContext;
 
+    // completion poll gap: time between the last poll which found a job in progress and the
+    // poll which found it done, an upper bound of how late the completion was seen
+    private final AtomicLong _completedJobs = new AtomicLong();
+    private final AtomicLong _totalCompletionPollGap = new AtomicLong();
+    private final AtomicLong _maxCompletionPollGap = new AtomicLong();
+    private long _loggedCompletedJobs = 0;
+
     private class JobWrapper
     {
         Job _job;
         DistributedQueueItemProcessedCallback _cb;
+        String _lane;
+        // written by the polling threads, read by the tracker thread
+        volatile long _pollingInterval;
+        volatile long _nextPollTime = 0L;
+        volatile long _lastPollTime = System.currentTimeMillis();
+        volatile int _lastPercentComplete = -1;
+        volatile Job.JobStatus _lastStatus = null;
 
         public JobWrapper(Job job, DistributedQueueItemProcessedCallback cb) {
             _job = job;
             _cb = cb;
+            _lane = QueueJobTracker.getLane(job);
+            _pollingInterval = _trackingPeriodInMillis;
         }
 
         public Job getJob() {
@@ -52,6 +102,10 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         public DistributedQueueItemProcessedCallback getJobDoneCallback() {
             return _cb;
         }
+
+        public String getLane() {
+            return _lane;
+        }
     }
 
     public void setJobContext(JobContext jobContext) {
@@ -59,6 +113,7 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
     }
 
     public void start() {
+        _pollingService = new NamedThreadPoolExecutor(QueueJobTracker.class.getSimpleName(), _maxPollingThreads);
         _trackerService = Executors.newSingleThreadExecutor();
         _trackerService.submit(this);
     }
@@ -73,67 +128,41 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         _activeJobs.add(new JobWrapper(job.getJob(), cb));
     }
 
+    /**
+     * Jobs are serialized in the job queue, their classes are not changed to report their lane.
+     *
+     * @param job
+     * @return lane of the job
+     */
+    static String getLane(Job job) {
+        URI storageSystem = null;
+        try {
+            if (job instanceof SmisJob) {
+                storageSystem = ((SmisJob) job).getStorageSystemURI();
+            } else if (job instanceof VNXeJob) {
+                storageSystem = ((VNXeJob) job).getStorageSystemUri();
+            } else if (job instanceof HDSJob) {
+                storageSystem = ((HDSJob) job).getStorageSystemURI();
+            } else if (job instanceof CinderJob) {
+                storageSystem = ((CinderJob) job).getStorageSystemURI();
+            } else if (job instanceof IsilonSyncIQJob) {
+                storageSystem = ((IsilonSyncIQJob) job).getStorageSystemUri();
+            } else if (job instanceof ExternalDeviceJob) {
+                storageSystem = ((ExternalDeviceJob) job).getStorageSystemURI();
+            }
+        } catch (Exception e) {
+            _logger.warn("Tracker: Unable to get the storage system of job {}", job, e);
+        }
+        return storageSystem != null ? storageSystem.toString() : job.getClass().getName();
+    }
+
     public void run() {
-        HashMap<String, HashMap<String, Integer>> jobProgressMap = new HashMap<String, HashMap<String, Integer>>();
         while (true) {
-            JobWrapper jobWrapper = null;
             _logger.debug("Tracker: Will check job status after {} ms...", _trackingPeriodInMillis);
             try {
-                ArrayList<String> completedJobs = new ArrayList<String>();
                 Thread.sleep(_trackingPeriodInMillis);
-                _logger.debug("Tracker: Checking status of {} jobs", _activeJobs.size());
-                for (Iterator<JobWrapper> iter = _activeJobs.iterator(); iter.hasNext();) {
-                    jobWrapper = iter.next();
-                    Job job = jobWrapper.getJob();
-                    try {
-                        setPollingStartTime(job);
-                        JobPollResult result = job.poll(_jobContext, _trackingPeriodInMillis);
-                        updateJobProgress(jobProgressMap, result);
-
-                        boolean stopJobTracking = false;
-                        String msg = null;
-                        // Check if we have to stop job tracking.
-                        if (result.isJobInTerminalState()) {
-                            // stop tracking jobs in final status and final post processing status
-                            msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s",
-                                    result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus());
-                            stopJobTracking = true;
-                        } else {
-                            long trackingTime = System.currentTimeMillis() - job.getPollingStartTime();
-                            if (trackingTime > job.getTimeoutTimeMsec()) {
-                                // Stop tracking job if maximum job tracking time was reached.
-                                msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s .\n" +
-                                        "The job tracking time reached job tracking time limit %d hours, job tracking time %d hours.",
-                                        result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus(),
-                                        job.getTimeoutTimeMsec() / (60 * 60 * 1000),
-                                        trackingTime / (60 * 60 * 1000));
-                                _logger.info(msg);
-                                String errorMsg = String.format(
-                                        "Could not execute job %s on backend device. Exceeded time limit for job status tracking.",
-                                        result.getJobName());
-                                if (job instanceof VPlexMigrationJob) {
-                                    errorMsg = String.format(
-                                            "Could not execute VPlex Migration Job %s on backend device. Exceeded time limit for VPLEX migration timeout.",
-                                            result.getJobName());
-                                }
-                                ServiceError error = DeviceControllerException.errors.unableToExecuteJob(errorMsg);
-                                job.getTaskCompleter().error(_jobContext.getDbClient(), error);
-                                stopJobTracking = true;
-                            }
-                        }
-                        if (stopJobTracking) {
-                            _logger.info(msg);
-                            stopTrackingJob(jobWrapper);
-                            completedJobs.add(result.getJobId());
-                        }
-                    } catch (Exception ex) {
-                        _logger.error("Tracker: Unexpected exception.", ex);
-                    }
-                }
-                if (!jobProgressMap.isEmpty()) {
-                    _logger.info(String.format("Progress of jobs - %n %s", jobProgressMap.toString()));
-                }
-                removeCompletedJobProgressItems(jobProgressMap, completedJobs);
+                pollJobs(System.currentTimeMillis());
+                logProgress();
             } catch (InterruptedException ie) {
                 _logger.info("Tracker: Unexpected Interrupted exception.", ie);
             } catch (Exception e) {
@@ -142,21 +171,184 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         }
     }
 
-    private void updateJobProgress(HashMap<String, HashMap<String, Integer>> jobProgressMap, JobPollResult result) {
-        HashMap<String, Integer> jobInstancesForJobName = jobProgressMap.get(result.getJobName());
-        if (jobInstancesForJobName == null) {
-            jobInstancesForJobName = new HashMap<String, Integer>();
-            jobProgressMap.put(result.getJobName(), jobInstancesForJobName);
+    /**
+     * Submits the jobs due for a poll, one task per lane. Lanes still busy with a previous
+     * poll are skipped until the next period.
+     *
+     * @param now
+     */
+    private void pollJobs(final long now) {
+        Map<String, List<JobWrapper>> dueJobs = new HashMap<String, List<JobWrapper>>();
+        int dueCount = 0;
+        for (JobWrapper jobWrapper : _activeJobs) {
+            if (_busyLanes.contains(jobWrapper.getLane()) || jobWrapper._nextPollTime > now) {
+                continue;
+            }
+            List<JobWrapper> laneJobs = dueJobs.get(jobWrapper.getLane());
+            if (laneJobs == null) {
+                laneJobs = new ArrayList<JobWrapper>();
+                dueJobs.put(jobWrapper.getLane(), laneJobs);
+            }
+            laneJobs.add(jobWrapper);
+            dueCount++;
+        }
+        _logger.debug("Tracker: Checking status of {} of {} jobs in {} lanes", dueCount, _activeJobs.size(), dueJobs.size());
+        for (Map.Entry<String, List<JobWrapper>> entry : dueJobs.entrySet()) {
+            final String lane = entry.getKey();
+            final List<JobWrapper> laneJobs = entry.getValue();
+            _busyLanes.add(lane);
+            try {
+                _pollingService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (JobWrapper jobWrapper : laneJobs) {
+                                pollJob(jobWrapper, now);
+                            }
+                        } finally {
+                            _busyLanes.remove(lane);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                _busyLanes.remove(lane);
+                _logger.error("Tracker: Unable to poll jobs of {}", lane, e);
+            }
+        }
+    }
+
+    private void pollJob(JobWrapper jobWrapper, long dispatchTime) {
+        Job job = jobWrapper.getJob();
+        try {
+            setPollingStartTime(job);
+            // the backoff only delays the next poll
+            JobPollResult result = job.poll(_jobContext, _trackingPeriodInMillis);
+            long polledTime = System.currentTimeMillis();
+            updateJobProgress(result);
+
+            boolean stopJobTracking = false;
+            String msg = null;
+            // Check if we have to stop job tracking.
+            if (result.isJobInTerminalState()) {
+                // stop tracking jobs in final status and final post processing status
+                msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s",
+                        result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus());
+                stopJobTracking = true;
+                recordCompletionPollGap(polledTime - jobWrapper._lastPollTime);
+            } else {
+                long trackingTime = System.currentTimeMillis() - job.getPollingStartTime();
+                if (trackingTime > job.getTimeoutTimeMsec()) {
+                    // Stop tracking job if maximum job tracking time was reached.
+                    msg = String.format("Tracker: Stopping tracking job %s with status: %s and post-processing status %s .\n" +
+                            "The job tracking time reached job tracking time limit %d hours, job tracking time %d hours.",
+                            result.getJobId(), result.getJobStatus(), result.getJobPostProcessingStatus(),
+                            job.getTimeoutTimeMsec() / (60 * 60 * 1000),
+                            trackingTime / (60 * 60 * 1000));
+                    _logger.info(msg);
+                    String errorMsg = String.format(
+                            "Could not execute job %s on backend device. Exceeded time limit for job status tracking.",
+                            result.getJobName());
+                    if (job instanceof VPlexMigrationJob) {
+                        errorMsg = String.format(
+                                "Could not execute VPlex Migration Job %s on backend device. Exceeded time limit for VPLEX migration timeout.",
+                                result.getJobName());
+                    }
+                    ServiceError error = DeviceControllerException.errors.unableToExecuteJob(errorMsg);
+                    job.getTaskCompleter().error(_jobContext.getDbClient(), error);
+                    stopJobTracking = true;
+                }
+            }
+            if (stopJobTracking) {
+                _logger.info(msg);
+                stopTrackingJob(jobWrapper);
+                removeCompletedJobProgressItem(result.getJobId());
+            } else {
+                boolean progressed = result.getJobPercentComplete() != jobWrapper._lastPercentComplete
+                        || result.getJobStatus() != jobWrapper._lastStatus;
+                jobWrapper._pollingInterval = getNextPollingInterval(jobWrapper._pollingInterval,
+                        progressed || isRetrying(job, result));
+                jobWrapper._lastPercentComplete = result.getJobPercentComplete();
+                jobWrapper._lastStatus = result.getJobStatus();
+                jobWrapper._lastPollTime = polledTime;
+                jobWrapper._nextPollTime = dispatchTime + jobWrapper._pollingInterval;
+            }
+        } catch (Exception ex) {
+            _logger.error("Tracker: Unexpected exception.", ex);
+            jobWrapper._nextPollTime = dispatchTime + jobWrapper._pollingInterval;
+        }
+    }
+
+    /**
+     * @param job
+     * @param result result of the last poll of the job
+     * @return true if the job is in a transient error state or retries its status check
+     */
+    static boolean isRetrying(Job job, JobPollResult result) {
+        if (result.getJobStatus() == Job.JobStatus.ERROR || result.getJobPostProcessingStatus() == Job.JobStatus.ERROR) {
+            return true;
+        }
+        return job instanceof VPlexMigrationJob && ((VPlexMigrationJob) job).isRetrying();
+    }
+
+    /**
+     * @param interval current polling interval of a job
+     * @param reset true if the job progressed since its previous poll, or is retrying
+     * @return interval until the next poll of the job
+     */
+    long getNextPollingInterval(long interval, boolean reset) {
+        if (reset) {
+            return _trackingPeriodInMillis;
+        }
+        return Math.max(_trackingPeriodInMillis, Math.min(interval * BACKOFF_FACTOR, getMaxTrackingPeriodInMillis()));
+    }
+
+    private void recordCompletionPollGap(long gap) {
+        _completedJobs.incrementAndGet();
+        _totalCompletionPollGap.addAndGet(gap);
+        long max = _maxCompletionPollGap.get();
+        while (gap > max && !_maxCompletionPollGap.compareAndSet(max, gap)) {
+            max = _maxCompletionPollGap.get();
+        }
+    }
+
+    private void logProgress() {
+        synchronized (_jobProgressMap) {
+            if (!_jobProgressMap.isEmpty()) {
+                _logger.info(String.format("Progress of jobs - %n %s", _jobProgressMap.toString()));
+            }
+        }
+        long completedJobs = _completedJobs.get();
+        if (completedJobs != _loggedCompletedJobs) {
+            _loggedCompletedJobs = completedJobs;
+            _logger.info("Tracker: Completion of {} jobs detected, average completion poll gap {} ms, max {} ms",
+                    completedJobs, _totalCompletionPollGap.get() / completedJobs, _maxCompletionPollGap.get());
+        }
+    }
+
+    long getCompletedJobCount() {
+        return _completedJobs.get();
+    }
+
+    long getMaxCompletionPollGap() {
+        return _maxCompletionPollGap.get();
+    }
+
+    private void updateJobProgress(JobPollResult result) {
+        synchronized (_jobProgressMap) {
+            HashMap<String, Integer> jobInstancesForJobName = _jobProgressMap.get(result.getJobName());
+            if (jobInstancesForJobName == null) {
+                jobInstancesForJobName = new HashMap<String, Integer>();
+                _jobProgressMap.put(result.getJobName(), jobInstancesForJobName);
+            }
+            jobInstancesForJobName.put(result.getJobId(), Integer.valueOf(result.getJobPercentComplete()));
         }
-        jobInstancesForJobName.put(result.getJobId(), Integer.valueOf(result.getJobPercentComplete()));
     }
 
-    private void removeCompletedJobProgressItems(HashMap<String, HashMap<String, Integer>> jobProgressMap,
-            ArrayList<String> completedJobs) {
-        for (String jobId : completedJobs) {
-            Iterator<String> jobProgressMapIter = jobProgressMap.keySet().iterator();
+    private void removeCompletedJobProgressItem(String jobId) {
+        synchronized (_jobProgressMap) {
+            Iterator<String> jobProgressMapIter = _jobProgressMap.keySet().iterator();
             while (jobProgressMapIter.hasNext()) {
-                HashMap<String, Integer> jobProgressItemMap = jobProgressMap.get(jobProgressMapIter.next());
+                HashMap<String, Integer> jobProgressItemMap = _jobProgressMap.get(jobProgressMapIter.next());
                 if (jobProgressItemMap.containsKey(jobId)) {
                     jobProgressItemMap.remove(jobId);
                     if (jobProgressItemMap.isEmpty()) {
@@ -185,6 +377,21 @@ public class QueueJobTracker extends DistributedQueueConsumer<QueueJob> implemen
         this._trackingPeriodInMillis = trackingPeriodInMillis;
     }
 
+    /**
+     * @return longest interval between two polls of a job, four tracking periods if not set
+     */
+    public long getMaxTrackingPeriodInMillis() {
+        return _maxTrackingPeriodInMillis > 0 ? _maxTrackingPeriodInMillis : 4 * _trackingPeriodInMillis;
+    }
+
+    public void setMaxTrackingPeriodInMillis(long maxTrackingPeriodInMillis) {
+        this._maxTrackingPeriodInMillis = maxTrackingPeriodInMillis;
+    }
+
+    public void setMaxPollingThreads(int maxPollingThreads) {
+        this._maxPollingThreads = maxPollingThreads;
+    }
+
     private void setPollingStartTime(Job job) {
         if (job.getPollingStartTime() == 0L) {
             // set job polling start time
@@ -36,6 +36,7 @@ import com.emc.storageos.plugins.BaseCollectionException;
 import com.emc.storageos.plugins.common.Constants;
 import com.emc.storageos.plugins.common.PartitionManager;
 import com.emc.storageos.volumecontroller.TaskCompleter;
+import com.emc.storageos.volumecontroller.impl.plugins.metering.CassandraInsertion;
 import com.emc.storageos.volumecontroller.impl.plugins.metering.XMLStatsDumpGenerator;
 
 /**
@@ -93,10 +94,19 @@ public abstract class ExtendedCommunicationInterfaceImpl implements ExtendedComm
         _completer = completer;
     }
 
+    /**
+     * Inject Project, VirtualPool and Tenant of the stat records whose processors deferred it,
+     * with one lookup per plugin instead of one per record.
+     */
+    protected void enrichStats() {
+        CassandraInsertion.injectDeferredColumns(_keyMap, (DbClient) _keyMap.get(Constants.dbClient));
+    }
+
     /**
      * Dump stat records in /tmp location.
      */
     protected void dumpStatRecords() {
+        enrichStats();
         @SuppressWarnings("unchecked")
         Map<String, String> meteringProps = (Map<String, String>) _keyMap.get(Constants.PROPS);
         if (Boolean.parseBoolean(meteringProps.get(Constants.METERINGDUMP))) {
@@ -112,7 +122,7 @@ public abstract class ExtendedCommunicationInterfaceImpl implements ExtendedComm
      * @throws BaseCollectionException
      */
     protected void injectStats() throws BaseCollectionException {
-
+        enrichStats();
         DbClient client = (DbClient) _keyMap.get(Constants.dbClient);
         @SuppressWarnings("unchecked")
         List<Stat> stats = (List<Stat>) _keyMap.get(Constants._Stats);
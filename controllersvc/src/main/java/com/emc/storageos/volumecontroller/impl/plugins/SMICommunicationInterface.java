@@ -345,7 +345,8 @@ public class SMICommunicationInterface extends ExtendedCommunicationInterfaceImp
                 _keyMap.put(Constants.IS_NEW_SMIS_PROVIDER, isSMIS8XProvider(providerVersion));
             }
 
-            Map<URI, StoragePool> poolsToMatchWithVpool = new HashMap<URI, StoragePool>();
+            // updated by the port, protocol end point and pool processors, which may run in parallel
+            Map<URI, StoragePool> poolsToMatchWithVpool = new ConcurrentHashMap<URI, StoragePool>();
             _keyMap.put(Constants.MODIFIED_STORAGEPOOLS, poolsToMatchWithVpool);
             // need this nested structure to be able to minimize the changes on existing code.
             List<List<StoragePort>> portsToRunNetworkConnectivity = new ArrayList<List<StoragePort>>();
@@ -369,6 +370,11 @@ public class SMICommunicationInterface extends ExtendedCommunicationInterfaceImp
             executor.setKeyMap(_keyMap);
             executor.execute((Namespace) namespaces.getNsList().get(DISCOVER));
 
+            Object unManagedVolumeCounts = _keyMap.get(Constants.UN_VOLUME_DISCOVERY_COUNTS);
+            if (null != unManagedVolumeCounts) {
+                _logger.info("UnManaged volumes of Storage System {}: {}", storageSystemURI, unManagedVolumeCounts);
+            }
+
         } catch (Exception e) {
             detailedStatusMessage = String.format("Discovery failed for Storage System: %s because %s",
                     storageSystemURI.toString(), e.getMessage());
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -54,6 +55,7 @@ import com.emc.storageos.volumecontroller.impl.plugins.discovery.smis.processor.
 import com.emc.storageos.volumecontroller.impl.smis.SmisConstants;
 import com.emc.storageos.volumecontroller.impl.smis.srdf.SRDFUtils;
 import com.emc.storageos.volumecontroller.impl.utils.DiscoveryUtils;
+import com.emc.storageos.volumecontroller.impl.utils.UnManagedObjectFingerprint;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
@@ -79,6 +81,10 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
     private static final String UNMANAGED_EXPORT_MASK = "UnManagedExportMask";
     private static final String SVELEMENT_NAME = "SVElementName";
     private static final String THINLY_PROVISIONED = "ThinlyProvisioned";
+    private static final String UNCHANGED = "unchanged";
+    private static final String UPDATED = "updated";
+    private static final String CREATED = "created";
+    private static final String REMOVED = "removed";
     private AccessProfile _profile;
 
     private PartitionManager _partitionManager;
@@ -89,6 +95,7 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
     List<CIMObjectPath> _metaVolumeViewPaths = null;
     List<CIMObjectPath> _metaVolumePaths = null;
     private Map<String, String> _volumeToSpaceConsumedMap = null;
+    private Map<String, Integer> _unManagedVolumeCounts = null;
     Set<URI> unManagedVolumesReturnedFromProvider = new HashSet<URI>();
 
     public void setPartitionManager(PartitionManager partitionManager) {
@@ -139,6 +146,10 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
             _unManagedVolumesInsert = new ArrayList<UnManagedVolume>();
             _unManagedVolumesUpdate = new ArrayList<UnManagedVolume>();
             _unManagedExportMasksUpdate = new ArrayList<UnManagedExportMask>();
+            _unManagedVolumeCounts = new LinkedHashMap<String, Integer>();
+            for (String count : new String[] { UNCHANGED, UPDATED, CREATED, REMOVED }) {
+                _unManagedVolumeCounts.put(count, 0);
+            }
 
             // get bound volumes list for VMAX2 Thin pools
             boundVolumes = vmax2ThinPoolToBoundVolumesMap.get(storagePoolPath.toString());
@@ -192,13 +203,16 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
                         _dbClient, UNMANAGED_EXPORT_MASK);
             }
 
-            performStorageUnManagedVolumeBookKeeping(pool.getId());
+            _unManagedVolumeCounts.put(REMOVED, performStorageUnManagedVolumeBookKeeping(pool.getId()));
+            _logger.info("UnManaged volumes of pool {}: {}", pool.getNativeGuid(), _unManagedVolumeCounts);
+            addUnManagedVolumeCounts(keyMap);
 
         } catch (Exception e) {
             _logger.error("Processing Storage Volume Information failed :", e);
         } finally {
             _unManagedVolumesInsert = null;
             _unManagedVolumesUpdate = null;
+            _unManagedVolumeCounts = null;
             if (null != volumeInstances) {
                 volumeInstances.close();
             }
@@ -292,6 +306,8 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
 
                 UnManagedVolume unManagedVolume = checkUnManagedVolumeExistsInDB(unManagedVolumeNativeGuid,
                         _dbClient);
+                String storedFingerprint = null == unManagedVolume ? null
+                        : UnManagedObjectFingerprint.getFingerprint(unManagedVolume);
 
                 unManagedVolume = createUnManagedVolume(unManagedVolume, volumeViewInstance,
                         unManagedVolumeNativeGuid, pool, system, volumeNativeGuid,
@@ -411,6 +427,8 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
                             unManagedVolume.getLabel());
                 }
 
+                countUnManagedVolume(unManagedVolume, storedFingerprint);
+
                 // if volumes size reaches 200 , then dump to Db.
                 if (_unManagedVolumesInsert.size() > BATCH_SIZE) {
                     _partitionManager.insertInBatches(_unManagedVolumesInsert, BATCH_SIZE,
@@ -499,6 +517,54 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
         return new CIMObjectPath(null, host, null, namespace, objectTypeName, volumeKeys);
     }
 
+    /**
+     * Counts the volume just processed as created, updated or unchanged. A volume whose
+     * fingerprint is the same as the one stored is removed from the volumes to update, as
+     * writing it again would not change anything.
+     *
+     * @param unManagedVolume volume just processed
+     * @param storedFingerprint fingerprint of the volume as it was stored, null if it is new
+     */
+    private void countUnManagedVolume(UnManagedVolume unManagedVolume, String storedFingerprint) {
+        // createUnManagedVolume adds the volume to one of the lists, unless it failed
+        if (!_unManagedVolumesInsert.isEmpty()
+                && _unManagedVolumesInsert.get(_unManagedVolumesInsert.size() - 1) == unManagedVolume) {
+            increment(CREATED);
+        } else if (!_unManagedVolumesUpdate.isEmpty()
+                && _unManagedVolumesUpdate.get(_unManagedVolumesUpdate.size() - 1) == unManagedVolume) {
+            if (null != storedFingerprint
+                    && storedFingerprint.equals(UnManagedObjectFingerprint.getFingerprint(unManagedVolume))) {
+                _logger.debug("UnManagedVolume {} is unchanged", unManagedVolume.getNativeGuid());
+                _unManagedVolumesUpdate.remove(_unManagedVolumesUpdate.size() - 1);
+                increment(UNCHANGED);
+            } else {
+                increment(UPDATED);
+            }
+        }
+    }
+
+    private void increment(String count) {
+        _unManagedVolumeCounts.put(count, _unManagedVolumeCounts.get(count) + 1);
+    }
+
+    /**
+     * Adds the counts of this pool to the counts of the discovery run, kept in the keyMap.
+     *
+     * @param keyMap
+     */
+    private void addUnManagedVolumeCounts(Map<String, Object> keyMap) {
+        @SuppressWarnings("unchecked")
+        Map<String, Integer> runCounts = (Map<String, Integer>) keyMap.get(Constants.UN_VOLUME_DISCOVERY_COUNTS);
+        if (null == runCounts) {
+            runCounts = new LinkedHashMap<String, Integer>(_unManagedVolumeCounts);
+            keyMap.put(Constants.UN_VOLUME_DISCOVERY_COUNTS, runCounts);
+            return;
+        }
+        for (Map.Entry<String, Integer> count : _unManagedVolumeCounts.entrySet()) {
+            runCounts.put(count.getKey(), runCounts.get(count.getKey()) + count.getValue());
+        }
+    }
+
     /**
      * This method cleans up UnManaged Volumes in DB, which had been deleted
      * manually from the Array 1. Get All UnManagedVolumes from DB 2. Store URIs
@@ -517,9 +583,10 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
      *
      *
      * @param storagePoolUri
+     * @return number of unmanaged volumes set to inactive
      * @throws IOException
      */
-    private void performStorageUnManagedVolumeBookKeeping(URI storagePoolUri) throws IOException {
+    private int performStorageUnManagedVolumeBookKeeping(URI storagePoolUri) throws IOException {
         @SuppressWarnings("deprecation")
         List<URI> unManagedVolumesInDB = _dbClient.queryByConstraint(ContainmentConstraint.Factory
                 .getPoolUnManagedVolumeConstraint(storagePoolUri));
@@ -529,6 +596,7 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
                 unManagedVolumesReturnedFromProvider);
 
         _logger.info("Diff :" + Joiner.on("\t").join(onlyAvailableinDB));
+        int removed = 0;
         if (!onlyAvailableinDB.isEmpty()) {
             List<UnManagedVolume> unManagedVolumeTobeDeleted = new ArrayList<UnManagedVolume>();
             Iterator<UnManagedVolume> unManagedVolumes = _dbClient.queryIterativeObjects(
@@ -550,8 +618,9 @@ public class StorageVolumeInfoProcessor extends StorageProcessor {
                 _partitionManager.updateAndReIndexInBatches(unManagedVolumeTobeDeleted, 1000, _dbClient,
                         "UnManagedVolume");
             }
+            removed = unManagedVolumeTobeDeleted.size();
         }
-
+        return removed;
     }
 
     /**
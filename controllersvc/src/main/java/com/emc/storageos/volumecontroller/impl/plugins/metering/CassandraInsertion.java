@@ -4,12 +4,29 @@
  */
 package com.emc.storageos.volumecontroller.impl.plugins.metering;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.FileShare;
+import com.emc.storageos.db.client.model.NamedURI;
 import com.emc.storageos.db.client.model.Stat;
+import com.emc.storageos.db.client.model.Volume;
 import com.emc.storageos.plugins.BaseCollectionException;
+import com.emc.storageos.plugins.common.Constants;
 
 /**
  * Plugins can extend this Class, and use it for Cassandra Injection. But,
@@ -20,6 +37,9 @@ import com.emc.storageos.plugins.BaseCollectionException;
  */
 public abstract class CassandraInsertion {
 
+    // columns of the metered resources copied into their Stat records
+    static final List<String> RESOURCE_FIELDS = Arrays.asList("project", "tenant", "virtualPool");
+
     protected Logger _logger = LoggerFactory.getLogger(CassandraInsertion.class);
 
     /**
@@ -57,4 +77,114 @@ public abstract class CassandraInsertion {
             _logger.error("Cassandra Database Error while querying Resource ID, VirtualPool & Project URIs", e);
         }
     }
+
+    /**
+     * Inject Stat columns of a batch of records. Plugins able to look up the resources of many
+     * records at once override this, by default records are injected one by one.
+     * 
+     * @param stats
+     * @param client
+     */
+    public void injectColumns(Collection<Stat> stats, DbClient client) {
+        for (Stat statObj : stats) {
+            injectColumns(statObj, client);
+        }
+    }
+
+    /**
+     * Sets project, tenant and virtual pool of a batch of records from their resources, read
+     * with one projected query instead of one full read per record. Records whose resource is
+     * not found are left as they are.
+     * 
+     * @param clazz Volume or FileShare
+     * @param stats records of resources of this class
+     * @param client
+     */
+    protected <T extends DataObject> void injectResourceColumns(Class<T> clazz, Collection<Stat> stats,
+            DbClient client) {
+        Set<URI> ids = new HashSet<URI>();
+        for (Stat statObj : stats) {
+            if (null != statObj.getResourceId()) {
+                ids.add(statObj.getResourceId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<URI, DataObject> resources = new HashMap<URI, DataObject>();
+        Iterator<T> objects = client.queryIterativeObjectFields(clazz, RESOURCE_FIELDS, ids);
+        while (objects.hasNext()) {
+            T object = objects.next();
+            resources.put(object.getId(), object);
+        }
+        _logger.info("Injected columns of {} {} Stat records, {} resources found",
+                stats.size(), clazz.getSimpleName(), resources.size());
+
+        for (Stat statObj : stats) {
+            DataObject resource = null == statObj.getResourceId() ? null : resources.get(statObj.getResourceId());
+            if (resource instanceof Volume) {
+                Volume volume = (Volume) resource;
+                statObj.setProject(getURI(volume.getProject()));
+                statObj.setTenant(getURI(volume.getTenant()));
+                statObj.setVirtualPool(volume.getVirtualPool());
+            } else if (resource instanceof FileShare) {
+                FileShare fileShare = (FileShare) resource;
+                statObj.setProject(getURI(fileShare.getProject()));
+                statObj.setTenant(getURI(fileShare.getTenant()));
+                statObj.setVirtualPool(fileShare.getVirtualPool());
+            }
+        }
+    }
+
+    private static URI getURI(NamedURI namedURI) {
+        return null == namedURI ? null : namedURI.getURI();
+    }
+
+    /**
+     * Leave the Stat columns to be injected along with the other records of the collection run,
+     * see injectDeferredColumns.
+     * 
+     * @param statObj
+     * @param keyMap map of the collection run
+     */
+    public void deferColumns(Stat statObj, Map<String, Object> keyMap) {
+        synchronized (keyMap) {
+            @SuppressWarnings("unchecked")
+            Map<CassandraInsertion, Set<Stat>> pending = (Map<CassandraInsertion, Set<Stat>>) keyMap
+                    .get(Constants._StatsToEnrich);
+            if (null == pending) {
+                pending = new HashMap<CassandraInsertion, Set<Stat>>();
+                keyMap.put(Constants._StatsToEnrich, pending);
+            }
+            Set<Stat> stats = pending.get(this);
+            if (null == stats) {
+                stats = Collections.newSetFromMap(new IdentityHashMap<Stat, Boolean>());
+                pending.put(this, stats);
+            }
+            stats.add(statObj);
+        }
+    }
+
+    /**
+     * Inject the Stat columns deferred during a collection run, a batch per plugin. To be called
+     * before the records are dumped or persisted.
+     * 
+     * @param keyMap map of the collection run
+     * @param client
+     */
+    public static void injectDeferredColumns(Map<String, Object> keyMap, DbClient client) {
+        Map<CassandraInsertion, Set<Stat>> pending;
+        synchronized (keyMap) {
+            @SuppressWarnings("unchecked")
+            Map<CassandraInsertion, Set<Stat>> removed = (Map<CassandraInsertion, Set<Stat>>) keyMap
+                    .remove(Constants._StatsToEnrich);
+            pending = removed;
+        }
+        if (null == pending) {
+            return;
+        }
+        for (Map.Entry<CassandraInsertion, Set<Stat>> entry : pending.entrySet()) {
+            entry.getKey().injectColumns(entry.getValue(), client);
+        }
+    }
 }
@@ -4,6 +4,8 @@
  */
 package com.emc.storageos.volumecontroller.impl.plugins.metering.file;
 
+import java.util.Collection;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.emc.storageos.db.client.DbClient;
@@ -42,6 +44,18 @@ public class FileDBInsertion extends CassandraInsertion {
         _logger.debug("VPool :" + statObj.getVirtualPool());
     }
 
+    @Override
+    public void injectColumns(final Collection<Stat> stats, final DbClient client) {
+        for (Stat statObj : stats) {
+            statObj.setServiceType(VNXFileConstants.FILE);
+        }
+        try {
+            injectResourceColumns(FileShare.class, stats, client);
+        } catch (Exception e) {
+            _logger.error("Cassandra Database Error while querying VirtualPool & Project URIs of FileShares", e);
+        }
+    }
+
     @Override
     public void throwException(final Exception ex) throws BaseCollectionException {
         throw new VNXFilePluginException(
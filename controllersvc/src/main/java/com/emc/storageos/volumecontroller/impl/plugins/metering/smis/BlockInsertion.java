@@ -4,6 +4,8 @@
  */
 package com.emc.storageos.volumecontroller.impl.plugins.metering.smis;
 
+import java.util.Collection;
+
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.model.Stat;
 import com.emc.storageos.db.client.model.Volume;
@@ -22,6 +24,15 @@ public class BlockInsertion extends CassandraInsertion {
         }
     }
 
+    @Override
+    public void injectColumns(Collection<Stat> stats, DbClient client) {
+        try {
+            injectResourceColumns(Volume.class, stats, client);
+        } catch (Exception e) {
+            _logger.error("Cassandra Database Error while querying VirtualPool & Project URIs of Volumes", e);
+        }
+    }
+
     @Override
     public void throwException(Exception e) throws BaseCollectionException {
         _logger.error("Cassandra Database Injection Error", e);
@@ -193,7 +193,7 @@ public class VolumeProcessor extends CommonStatsProcessor {
                 statObj.setServiceType(Constants._Block);
                 statObj.setTimeCollected((Long) keyMap.get(Constants._TimeCollected));
                 statObj.setTimeInMillis(timeinMillis);
-                _statsColumnInjector.injectColumns(statObj, dbClient);
+                _statsColumnInjector.deferColumns(statObj, keyMap);
                 // Default Capacity in Model is -1. As snapshotCount and
                 // capacity is cumulative Count of multiple Snapshots, making to
                 // default 0
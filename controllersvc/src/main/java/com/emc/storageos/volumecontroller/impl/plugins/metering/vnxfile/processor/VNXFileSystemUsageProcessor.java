@@ -135,7 +135,7 @@ public class VNXFileSystemUsageProcessor extends VNXFileProcessor {
                     injectProvisionedCapacity(stat, keyMap);
                     // The data coming in is in KB. Converting to Bytes
                     stat.setAllocatedCapacity(item.getSpaceUsed() * 1024);
-                    _statsColumnInjector.injectColumns(stat, dbClient);
+                    _statsColumnInjector.deferColumns(stat, keyMap);
                     statList.add(stat);
                     // Persists the file system, only if change in used capacity.
                     DbClient client = (DbClient) keyMap.get(Constants.dbClient);
@@ -7,8 +7,16 @@ package com.emc.storageos.volumecontroller.impl.smis;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.cim.CIMObjectPath;
 import javax.wbem.WBEMException;
@@ -34,12 +42,17 @@ import com.emc.storageos.db.client.util.CustomQueryUtility;
 import com.emc.storageos.db.exceptions.DatabaseException;
 import com.emc.storageos.plugins.common.Constants;
 import com.emc.storageos.services.OperationTypeEnum;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.emc.storageos.volumecontroller.impl.monitoring.RecordableBourneEvent;
 import com.emc.storageos.volumecontroller.impl.monitoring.RecordableEventManager;
 import com.emc.storageos.volumecontroller.impl.monitoring.cim.enums.RecordType;
 
 /**
  * This class will encapsulate the CIM ConnectionManager.
+ *
+ * Connections are looked up without locking. A missing connection is created by the first
+ * thread asking for it, while the other threads asking for the same provider wait for its
+ * result; threads asking for other providers are not held up.
  */
 public class CIMConnectionFactory {
     // Logger
@@ -71,6 +84,19 @@ public class CIMConnectionFactory {
     private static final CIMObjectPath _cop = CimObjectPathCreator.createInstance(
             Constants.PROFILECLASS, CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
 
+    private static final int MAX_LIVENESS_CHECK_THREADS = 8;
+
+    /**
+     * Connections being created, by provider host and port
+     */
+    private final ConcurrentMap<String, Future<CimConnection>> _pendingConnections =
+            new ConcurrentHashMap<String, Future<CimConnection>>();
+
+    /**
+     * ConnectionManager only takes its configuration from the first call to configure
+     */
+    private volatile boolean _configured = false;
+
     /**
      * setter method to inject connectionManager.
      * 
@@ -103,10 +129,10 @@ public class CIMConnectionFactory {
      *            : StorageDevice.
      * @return CimConnection.
      */
-    public synchronized CimConnection getConnection(final StorageSystem storageDevice) {
+    public CimConnection getConnection(final StorageSystem storageDevice) {
         CimConnection connection = null;
         try {
-            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            configure();
             /**
              * Check cimConnection already exist for vnxfile, if not create new one
              */
@@ -117,23 +143,13 @@ public class CIMConnectionFactory {
             }
 
             if (null == connection) {
-                final CimConnectionInfo connInfo = new CimConnectionInfo();
-                connInfo.setHost(storageDevice.getSmisProviderIP());
-                connInfo.setPort(storageDevice.getSmisPortNumber());
-                connInfo.setUser(storageDevice.getSmisUserName());
-                connInfo.setPassword(storageDevice.getSmisPassword());
-                connInfo.setUseSSL(storageDevice.getSmisUseSSL());
-                connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
-
-                // Set the type of connection to be created.
-                connInfo.setType(getConnectionTypeForDevice(storageDevice.getSystemType()));
-
-                // Set the implementation namespace for this type of storage device
-                connInfo
-                        .setImplNS(getImplNamespaceForDevice(storageDevice.getSystemType()));
-
-                _connectionManager.addConnection(connInfo);
-                connection = getConnection(storageDevice.getSmisProviderIP(), storageDevice.getSmisPortNumber().toString());
+                connection = getOrCreateConnection(storageDevice.getSmisProviderIP(), storageDevice.getSmisPortNumber(),
+                        new Callable<CimConnectionInfo>() {
+                            @Override
+                            public CimConnectionInfo call() {
+                                return getConnectionInfo(storageDevice);
+                            }
+                        });
             }
         } catch (final ConnectionManagerException ex) {
             _log.error("No CIMOM Connection found for ipaddress due to ",
@@ -142,6 +158,86 @@ public class CIMConnectionFactory {
         return connection;
     }
 
+    private CimConnectionInfo getConnectionInfo(StorageSystem storageDevice) {
+        final CimConnectionInfo connInfo = new CimConnectionInfo();
+        connInfo.setHost(storageDevice.getSmisProviderIP());
+        connInfo.setPort(storageDevice.getSmisPortNumber());
+        connInfo.setUser(storageDevice.getSmisUserName());
+        connInfo.setPassword(storageDevice.getSmisPassword());
+        connInfo.setUseSSL(storageDevice.getSmisUseSSL());
+        connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
+
+        // Set the type of connection to be created.
+        connInfo.setType(getConnectionTypeForDevice(storageDevice.getSystemType()));
+
+        // Set the implementation namespace for this type of storage device
+        connInfo
+                .setImplNS(getImplNamespaceForDevice(storageDevice.getSystemType()));
+        return connInfo;
+    }
+
+    /**
+     * Configures the ConnectionManager from the coordinator properties, once.
+     */
+    private void configure() {
+        if (!_configured) {
+            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            _configured = true;
+        }
+    }
+
+    /**
+     * Creates the connection to a provider, unless another thread did it. Only one thread
+     * creates the connection to a provider, the other threads asking for it wait for it.
+     *
+     * @param host provider host
+     * @param port provider port
+     * @param connectionInfo information to create the connection, may return null if there is none
+     * @return connection, null if there is none and no information to create it
+     * @throws ConnectionManagerException if the connection could not be created
+     */
+    private CimConnection getOrCreateConnection(final String host, final Integer port,
+            final Callable<CimConnectionInfo> connectionInfo) throws ConnectionManagerException {
+        final String key = ConnectionManager.generateConnectionCacheKey(host, port);
+        FutureTask<CimConnection> creation = new FutureTask<CimConnection>(new Callable<CimConnection>() {
+            @Override
+            public CimConnection call() throws Exception {
+                // it may have been created since this thread looked it up
+                CimConnection created = _connectionManager.getConnection(host, port);
+                if (null == created) {
+                    CimConnectionInfo connInfo = connectionInfo.call();
+                    if (null == connInfo) {
+                        return null;
+                    }
+                    _connectionManager.addConnection(connInfo);
+                    created = _connectionManager.getConnection(host, port);
+                    _log.info("Connection Added to Cache {}", key);
+                }
+                return created;
+            }
+        });
+        Future<CimConnection> pending = _pendingConnections.putIfAbsent(key, creation);
+        if (null == pending) {
+            pending = creation;
+            try {
+                creation.run();
+            } finally {
+                _pendingConnections.remove(key, creation);
+            }
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionManagerException("Interrupted while connecting to " + key, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof ConnectionManagerException) {
+                throw (ConnectionManagerException) ex.getCause();
+            }
+            throw new ConnectionManagerException("Failed connecting to " + key, ex.getCause());
+        }
+    }
+
     /**
      * Refresh the SMISProvider connections. This will be called after loading
      * the SMIS Provider information from DB.
@@ -152,31 +248,61 @@ public class CIMConnectionFactory {
      */
     public List<URI> refreshConnections(final List<StorageProvider> smisProviderList) {
         _log.debug("In refreshConnections()");
-        List<URI> activeProviderURIList = new ArrayList<URI>();
-        for (StorageProvider smisProvider : smisProviderList) {
-            try {
-                CimConnection connection = getConnection(smisProvider.getIPAddress(), smisProvider.getPortNumber().toString());
-                if (null == connection) {
-                    _log.error("No CIMOM connection found for ip/port {}",
-                            ConnectionManager.generateConnectionCacheKey(smisProvider.getIPAddress(), smisProvider.getPortNumber()));
-                    // No need to add connection, as getConnection() called from any thread would create it.
-                    continue;
-                }
-                validateProviderConnection(smisProvider, connection,
-                        activeProviderURIList);
-            } catch (final DatabaseException ex) {
-                _log.error(
-                        "DatabaseException occurred while fetching the storageDevice for {} due to ",
-                        smisProvider.getId(), ex);
-            } catch (final ConnectionManagerException ex) {
-                _log.error("No CIMOM Connection found for ipaddress due to ",
-                        ex);
-            } catch (final Exception ex) {
-                _log.error("Exception while refreshing connections due to ",
-                        ex);
+        final List<URI> activeProviderURIList = Collections.synchronizedList(new ArrayList<URI>());
+        if (smisProviderList.isEmpty()) {
+            return activeProviderURIList;
+        }
+        // check the providers in parallel, so that a slow provider does not delay the others
+        ExecutorService livenessChecks = new NamedThreadPoolExecutor(CIMConnectionFactory.class.getSimpleName(),
+                Math.min(MAX_LIVENESS_CHECK_THREADS, smisProviderList.size()));
+        try {
+            List<Future<?>> checks = new ArrayList<Future<?>>();
+            for (final StorageProvider smisProvider : smisProviderList) {
+                checks.add(livenessChecks.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        refreshConnection(smisProvider, activeProviderURIList);
+                    }
+                }));
             }
+            for (Future<?> check : checks) {
+                check.get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            _log.error("Interrupted while refreshing connections", ex);
+        } catch (final ExecutionException ex) {
+            _log.error("Exception while refreshing connections due to ", ex.getCause());
+        } finally {
+            livenessChecks.shutdown();
+        }
+        synchronized (activeProviderURIList) {
+            return new ArrayList<URI>(activeProviderURIList);
+        }
+    }
+
+    private void refreshConnection(final StorageProvider smisProvider, final List<URI> activeProviderURIList) {
+        try {
+            CimConnection connection = getConnection(smisProvider.getIPAddress(), smisProvider.getPortNumber().toString());
+            if (null == connection) {
+                _log.error("No CIMOM connection found for ip/port {}",
+                        ConnectionManager.generateConnectionCacheKey(smisProvider.getIPAddress(), smisProvider.getPortNumber()));
+                // No need to add connection, as getConnection() called from any thread would create it.
+                return;
+            }
+            validateProviderConnection(smisProvider, connection,
+                    activeProviderURIList);
+        } catch (final DatabaseException ex) {
+            _log.error(
+                    "DatabaseException occurred while fetching the storageDevice for {} due to ",
+                    smisProvider.getId(), ex);
+        } catch (final ConnectionManagerException ex) {
+            _log.error("No CIMOM Connection found for ipaddress due to ",
+                    ex);
+        } catch (final Exception ex) {
+            _log.error("Exception while refreshing connections due to ",
+                    ex);
         }
-        return activeProviderURIList;
     }
 
     /**
@@ -387,10 +513,10 @@ public class CIMConnectionFactory {
      * @return CimConnection.
      * @throws IOException
      */
-    public synchronized CimConnection getConnection(String ipAddress, String port) {
+    public CimConnection getConnection(String ipAddress, String port) {
         CimConnection connection = null;
         try {
-            _connectionManager.configure(coordinatorClient.getPropertyInfo());
+            configure();
             connection = _connectionManager.getConnection(ipAddress, Integer.parseInt(port));
             if (null == connection) {
                 connection = addConnection(ipAddress, port);
@@ -412,41 +538,15 @@ public class CIMConnectionFactory {
      * 
      * @param smisIPAddress
      */
-    private synchronized CimConnection addConnection(String smisIPAddress, String port) {
+    private CimConnection addConnection(final String smisIPAddress, final String port) {
         CimConnection connection = null;
         try {
-            connection = _connectionManager
-                    .getConnection(smisIPAddress, Integer.parseInt(port));
-            if (null == connection) {
-                String smisAltId = smisIPAddress + "-" + port;
-                List<StorageProvider> providers = CustomQueryUtility.getActiveStorageProvidersByProviderId(_dbClient, smisAltId);
-                if (providers.isEmpty()) {
-                    _log.error("No SMISProvider found with id {}", smisAltId);
-                    return connection;
-                }
-                StorageProvider smisProvider = providers.get(0);
-                final CimConnectionInfo connInfo = new CimConnectionInfo();
-                connInfo.setHost(smisProvider.getIPAddress());
-                connInfo.setPort(smisProvider.getPortNumber());
-                connInfo.setUser(smisProvider.getUserName());
-                connInfo.setPassword(smisProvider.getPassword());
-                connInfo.setUseSSL(smisProvider.getUseSSL());
-                if (smisProvider.getInterfaceType().equals(StorageProvider.InterfaceType.ibmxiv.name()) ||
-                        "IBM".equals(smisProvider.getManufacturer())) {
-                    connInfo.setType(CimConstants.CIM_CONNECTION_TYPE);
-                    connInfo.setImplNS(CimConstants.DFLT_IBM_CIM_CONNECTION_IMPL_NS);
-                }
-                else {
-                    connInfo.setType(CimConstants.ECOM_CONNECTION_TYPE);
-                    connInfo.setImplNS(CimConstants.DFLT_CIM_CONNECTION_IMPL_NS);
+            connection = getOrCreateConnection(smisIPAddress, Integer.parseInt(port), new Callable<CimConnectionInfo>() {
+                @Override
+                public CimConnectionInfo call() {
+                    return getProviderConnectionInfo(smisIPAddress, port);
                 }
-
-                connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
-                _connectionManager.addConnection(connInfo);
-                connection = _connectionManager.getConnection(smisIPAddress, Integer.parseInt(port));
-                _log.info("Connection Added to Cache {}", ConnectionManager.generateConnectionCacheKey(
-                        smisProvider.getIPAddress(), smisProvider.getPortNumber()));
-            }
+            });
         } catch (ConnectionManagerException ex) {
             _log.error("Exception occurred while adding connections due to ",
                     ex);
@@ -457,6 +557,34 @@ public class CIMConnectionFactory {
         return connection;
     }
 
+    private CimConnectionInfo getProviderConnectionInfo(String smisIPAddress, String port) {
+        String smisAltId = smisIPAddress + "-" + port;
+        List<StorageProvider> providers = CustomQueryUtility.getActiveStorageProvidersByProviderId(_dbClient, smisAltId);
+        if (providers.isEmpty()) {
+            _log.error("No SMISProvider found with id {}", smisAltId);
+            return null;
+        }
+        StorageProvider smisProvider = providers.get(0);
+        final CimConnectionInfo connInfo = new CimConnectionInfo();
+        connInfo.setHost(smisProvider.getIPAddress());
+        connInfo.setPort(smisProvider.getPortNumber());
+        connInfo.setUser(smisProvider.getUserName());
+        connInfo.setPassword(smisProvider.getPassword());
+        connInfo.setUseSSL(smisProvider.getUseSSL());
+        if (smisProvider.getInterfaceType().equals(StorageProvider.InterfaceType.ibmxiv.name()) ||
+                "IBM".equals(smisProvider.getManufacturer())) {
+            connInfo.setType(CimConstants.CIM_CONNECTION_TYPE);
+            connInfo.setImplNS(CimConstants.DFLT_IBM_CIM_CONNECTION_IMPL_NS);
+        }
+        else {
+            connInfo.setType(CimConstants.ECOM_CONNECTION_TYPE);
+            connInfo.setImplNS(CimConstants.DFLT_CIM_CONNECTION_IMPL_NS);
+        }
+
+        connInfo.setInteropNS(CimConstants.DFLT_CIM_CONNECTION_INTEROP_NS);
+        return connInfo;
+    }
+
     /**
      * Un-Subscribe connection for the given Passive SMIS provider
      * 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.utils;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Stable hash of the discovered attributes of an unmanaged object. Discovery computes it for
+ * the object as stored before updating it from the array, and again afterwards: when both
+ * match, nothing on the array changed and the object does not need to be written.
+ *
+ * Maps are hashed in key order and collections in value order, so the fingerprint does not
+ * depend on the order the values were read from the database or the provider.
+ */
+public final class UnManagedObjectFingerprint {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String ALGORITHM = "SHA-256";
+
+    private final MessageDigest _digest;
+
+    private UnManagedObjectFingerprint() {
+        try {
+            _digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * @param volume unmanaged volume, as stored or as rediscovered
+     * @return fingerprint of the discovered attributes of the volume
+     */
+    public static String getFingerprint(UnManagedVolume volume) {
+        UnManagedObjectFingerprint fingerprint = new UnManagedObjectFingerprint();
+        fingerprint.add(volume.getLabel());
+        fingerprint.add(volume.getNativeGuid());
+        fingerprint.add(volume.getInactive());
+        fingerprint.add(volume.getStorageSystemUri());
+        fingerprint.add(volume.getStoragePoolUri());
+        fingerprint.add(volume.getWwn());
+        fingerprint.add(volume.getVolumeInformation());
+        fingerprint.add(volume.getVolumeCharacterstics());
+        fingerprint.add(volume.getSupportedVpoolUris());
+        fingerprint.add(volume.getUnmanagedExportMasks());
+        fingerprint.add(volume.getInitiatorUris());
+        fingerprint.add(volume.getInitiatorNetworkIds());
+        fingerprint.add(volume.getStoragePortUris());
+        return BaseEncoding.base16().lowerCase().encode(fingerprint._digest.digest());
+    }
+
+    private void add(Object value) {
+        if (value == null) {
+            // distinct from an empty value
+            _digest.update((byte) 0);
+        } else if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<String, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            _digest.update((byte) 'm');
+            addLength(sorted.size());
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                add(entry.getKey());
+                add(entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            List<String> sorted = new ArrayList<String>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                sorted.add(String.valueOf(element));
+            }
+            Collections.sort(sorted);
+            _digest.update((byte) 'c');
+            addLength(sorted.size());
+            for (String element : sorted) {
+                add(element);
+            }
+        } else {
+            byte[] bytes = String.valueOf(value).getBytes(UTF_8);
+            _digest.update((byte) 's');
+            addLength(bytes.length);
+            _digest.update(bytes);
+        }
+    }
+
+    private void addLength(int length) {
+        _digest.update((byte) (length >>> 24));
+        _digest.update((byte) (length >>> 16));
+        _digest.update((byte) (length >>> 8));
+        _digest.update((byte) length);
+    }
+}
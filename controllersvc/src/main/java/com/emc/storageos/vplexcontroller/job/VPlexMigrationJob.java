@@ -342,6 +342,16 @@ public class VPlexMigrationJob extends Job implements Serializable {
         return _pollResult.getJobPercentComplete();
     }
 
+    /**
+     * The retries are counted against the time allowed for a successful status check, assuming
+     * the job is polled every tracking period.
+     * 
+     * @return true if the last attempt to get the migration status failed.
+     */
+    public boolean isRetrying() {
+        return _retryCount > 0;
+    }
+
     public TaskCompleter getTaskCompleter() {
         return _taskCompleter;
     }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.io.Serializable;
+import java.net.URI;
+
+/**
+ * Left in ZK in place of workflow data too large to be kept there. The data itself is
+ * a WorkflowStepData record of the main workflow, found by its step id and label.
+ */
+class WorkflowDataReference implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final URI workflowURI;
+    private final String stepId;
+    private final String label;
+    private final int size;
+
+    WorkflowDataReference(URI workflowURI, String stepId, String label, int size) {
+        this.workflowURI = workflowURI;
+        this.stepId = stepId;
+        this.label = label;
+        this.size = size;
+    }
+
+    URI getWorkflowURI() {
+        return workflowURI;
+    }
+
+    String getStepId() {
+        return stepId;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WorkflowStepData %s %s %s (%d bytes)", workflowURI, stepId, label, size);
+    }
+}
@@ -10,10 +10,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,7 +35,9 @@ import org.slf4j.LoggerFactory;
 import com.emc.storageos.Controller;
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
 import com.emc.storageos.coordinator.client.service.DistributedDataManager;
+import com.emc.storageos.coordinator.client.service.impl.DeflatePayloadCodec;
 import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
+import com.emc.storageos.coordinator.client.service.impl.PayloadCodec;
 import com.emc.storageos.coordinator.common.impl.ZkPath;
 import com.emc.storageos.db.client.DbClient;
 import com.emc.storageos.db.client.URIUtil;
@@ -83,6 +88,9 @@ public class WorkflowService implements WorkflowController {
     private DbClient _dbClient;
     private CoordinatorClient _coordinator;
     private DistributedDataManager _dataManager;
+    private int _workflowDataZkThreshold = DEFAULT_WORKFLOW_DATA_ZK_THRESHOLD;
+    // codec of large workflows, steps and workflow data, null to write them uncompressed
+    private volatile PayloadCodec _payloadCodec;
     private Dispatcher _dispatcher;
     private ControllerLockingService _locker;
     private DistributedOwnerLockService _ownerLocker;
@@ -93,15 +101,43 @@ public class WorkflowService implements WorkflowController {
     private final String WORKFLOW_SUSPEND_ON_CLASS_METHOD_PROPERTY = "workflow_suspend_on_class_method";
 
     // Zookeeper paths, all proceeded by /workflow which is ZkPath.WORKFLOW
-    private final String _zkWorkflowPath = ZkPath.WORKFLOW.toString() + "/workflows/%s/%s/%s";
+    private final String _zkWorkflows = ZkPath.WORKFLOW.toString() + "/workflows";
+    private final String _zkWorkflowPath = _zkWorkflows + "/%s/%s/%s";
     private final String _zkWorkflowData = "/data/%s";
     private final String _zkStepDataPath = ZkPath.WORKFLOW.toString() + "/stepdata/%s";
     private final String _zkStepToWorkflowPath = ZkPath.WORKFLOW.toString() + "/step2workflow/%s";
     private final String _zkStepToWorkflow = ZkPath.WORKFLOW.toString() + "/step2workflow";
+    // WorkflowStateSummary of each workflow, kept out of the workflow node whose every child
+    // is read as a Step, also by nodes which don't know the class during an upgrade
+    private final String _zkWorkflowSummaries = ZkPath.WORKFLOW.toString() + "/summaries";
+    private static final int NO_SUMMARY_VERSION = -1;
 
     // Other constants
     private static final String WORKFLOW_URI_Match = "urn:storageos:Workflow.*";
     private static final int WORKFLOW_DESTROY_MAX_RETRIES = 5;
+    private static final int MAX_CACHED_WORKFLOWS = 100;
+    // steps of larger workflows are dispatched with the bulk priority
+    private static final int BULK_WORKFLOW_STEPS = 50;
+    // workflow data larger than this once serialized goes to the database, see storeWorkflowData()
+    private static final int DEFAULT_WORKFLOW_DATA_ZK_THRESHOLD = 16 * 1024;
+    private static final String WORKFLOW_DATA_LABEL = "workflowData:%s";
+
+    // Steps of the workflows last updated by this node, by ZK workflow path, so that
+    // updateStepStatus() only has to read the steps saved since from ZK.
+    private final Map<String, CachedSteps> _stepCache = new LinkedHashMap<String, CachedSteps>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSteps> eldest) {
+            return size() > MAX_CACHED_WORKFLOWS;
+        }
+    };
+
+    // Workflow locks held by the current thread, by ZK workflow path
+    private final ThreadLocal<Map<String, HeldLock>> _heldLocks = new ThreadLocal<Map<String, HeldLock>>() {
+        @Override
+        protected Map<String, HeldLock> initialValue() {
+            return new HashMap<String, HeldLock>();
+        }
+    };
 
     // Test-provided suspend variables that override system variables during unit testing.
     private String _suspendClassMethodTestOnly = null;
@@ -133,6 +169,17 @@ public class WorkflowService implements WorkflowController {
         return path;
     }
 
+    /**
+     * Returns the ZK path of the state summary of a workflow, under /workflow/summaries
+     * rather than /workflow/workflows.
+     *
+     * @param zkWorkflowPath
+     * @return
+     */
+    private String getZKWorkflowSummaryPath(String zkWorkflowPath) {
+        return _zkWorkflowSummaries + zkWorkflowPath.substring(_zkWorkflows.length());
+    }
+
     /**
      * Returns the path of a Step to Workflow path node
      *
@@ -155,6 +202,27 @@ public class WorkflowService implements WorkflowController {
         return path;
     }
 
+    /**
+     * Set the size above which workflow data is kept in the database instead of ZK
+     *
+     * @param threshold size of the serialized data in bytes
+     */
+    public void setWorkflowDataZkThreshold(int threshold) {
+        this._workflowDataZkThreshold = threshold;
+    }
+
+    /**
+     * Compress large workflows, steps and workflow data written by this service. Off by default:
+     * releases without codecs can't read compressed data, so it's only to be turned on once
+     * every node has been upgraded. Compressed data is read whether this is on or not. Other
+     * users of GenericSerializer are not affected.
+     *
+     * @param compress true to compress
+     */
+    public void setCompressLargePayloads(boolean compress) {
+        _payloadCodec = compress ? new DeflatePayloadCodec() : null;
+    }
+
     public void setDispatcher(Dispatcher dispatcher) {
         this._dispatcher = dispatcher;
     }
@@ -275,6 +343,10 @@ public class WorkflowService implements WorkflowController {
      * of the main workflow regardless of whether the step belongs in the main
      * workflow or one of its nested workflows.
      * <p>
+     * Data larger than the ZK threshold once serialized is saved in a WorkflowStepData
+     * record of the main workflow instead, and only a WorkflowDataReference to it is
+     * left under that path. Either way, it is removed when the workflow is destroyed.
+     * <p>
      * Additional enhancements of this function are to allow the caller to specify what to do if data already exists (override or fail) or
      * if an exception should be ignored or propagated.
      *
@@ -293,7 +365,15 @@ public class WorkflowService implements WorkflowController {
                 return;
             }
             String dataPath = String.format(_zkStepDataPath, workflowUri) + String.format(_zkWorkflowData, key);
-            _dataManager.putData(dataPath, data);
+            byte[] serialized = GenericSerializer.serialize(data, key, false, _payloadCodec);
+            if (serialized.length <= _workflowDataZkThreshold) {
+                _dataManager.putSerializedData(dataPath, serialized);
+            } else {
+                URI mainWorkflowURI = URI.create(workflowUri);
+                String label = String.format(WORKFLOW_DATA_LABEL, key);
+                storeStepDataBytes(mainWorkflowURI, label, workflowUri, serialized);
+                _dataManager.putData(dataPath, new WorkflowDataReference(mainWorkflowURI, workflowUri, label, serialized.length));
+            }
         } catch (Exception ex) {
             // so far this is used to improve performance by caching data, if this fails do not fail the call
             String exMsg = "Exception adding global data to workflow from stepId: " + stepId + ": " + ex.getMessage();
@@ -322,6 +402,9 @@ public class WorkflowService implements WorkflowController {
                 if (_dataManager.checkExists(dataPath) != null) {
                     data = _dataManager.getData(dataPath, false);
                 }
+                if (data instanceof WorkflowDataReference) {
+                    data = loadReferencedData((WorkflowDataReference) data);
+                }
             }
         } catch (Exception ex) {
             // so far this is used to improve performance by caching data, if this fails do not fail the call
@@ -395,7 +478,18 @@ public class WorkflowService implements WorkflowController {
      * @param data -- A Java Serializable object.
      */
     public void storeStepData(URI workflowURI, String key, String stepId, Object data) {
+        storeStepDataBytes(workflowURI, key, stepId, GenericSerializer.serialize(data, key, false, _payloadCodec));
+    }
 
+    /**
+     * Saves serialized data in the WorkflowStepData record of a step, creating it if needed
+     *
+     * @param workflowURI -- Mandatory, the URI of the containing workflow
+     * @param key -- String key (optional).
+     * @param stepId -- The step identifier.
+     * @param data -- data serialized by GenericSerializer
+     */
+    private void storeStepDataBytes(URI workflowURI, String key, String stepId, byte[] data) {
         WorkflowStepData dataRecord = getWorkflowStepData(workflowURI, stepId, key);
         boolean created = false;
         if (dataRecord == null) {
@@ -406,7 +500,7 @@ public class WorkflowService implements WorkflowController {
             dataRecord.setLabel(key);
             created = true;
         }
-        dataRecord.setData(GenericSerializer.serialize(data, key, false));
+        dataRecord.setData(data);
         if (created) {
             _dbClient.createObject(dataRecord);
             _log.info(String.format("Created WorkflowStepData for %s %s %s", workflowURI, stepId, key));
@@ -512,6 +606,22 @@ public class WorkflowService implements WorkflowController {
         return null;
     }
 
+    /**
+     * Loads workflow data that was saved in the database by storeWorkflowData()
+     *
+     * @param reference -- the reference left in ZK
+     * @return -- A Java serializable object, or null if the record is gone.
+     */
+    private Object loadReferencedData(WorkflowDataReference reference) {
+        WorkflowStepData dataRecord = getWorkflowStepData(reference.getWorkflowURI(), reference.getStepId(),
+                reference.getLabel());
+        if (dataRecord == null) {
+            _log.warn("No data found for workflow data reference to " + reference);
+            return null;
+        }
+        return GenericSerializer.deserialize(dataRecord.getData());
+    }
+
     /**
      * Returns a WorkflowStepData from database based on workflowURI and stepId
      *
@@ -601,13 +711,14 @@ public class WorkflowService implements WorkflowController {
             }
             // Lock the Workflow
             lock = lockWorkflow(workflow);
-            // Load the entire workflow state including the steps
-            workflow = loadWorkflow(workflow);
-            if (workflow == null) {
+            // Load the workflow state, reading only the steps this node hasn't seen yet
+            Workflow loadedWorkflow = loadWorkflowForUpdate(workflowPath);
+            if (loadedWorkflow == null) {
                 WorkflowException ex = WorkflowException.exceptions.workflowNotFound(workflowPath);
                 _log.info("Workflow not found: " + workflowPath, ex);
                 throw ex;
             }
+            workflow = loadedWorkflow;
 
             synchronized (workflow) {
                 // Update the StepState structure
@@ -662,7 +773,7 @@ public class WorkflowService implements WorkflowController {
                 // otherwise the child will rollback, then the parent will think it's done, but then also try
                 // to initiate a totally separate rollback.
                 try {
-                    if (workflow.allStatesTerminal() && !workflow.isRollbackState()
+                    if (allStatesTerminal(workflow) && !workflow.isRollbackState()
                             && (workflow._childWorkflows == null || workflow._childWorkflows.isEmpty())) {
                         InvokeTestFailure.internalOnlyInvokeTestFailure(InvokeTestFailure.ARTIFICIAL_FAILURE_004);
                     }
@@ -693,7 +804,7 @@ public class WorkflowService implements WorkflowController {
                 }
 
                 // Check to see if the workflow might be finished, or need a rollback.
-                if (workflow.allStatesTerminal()) {
+                if (allStatesTerminal(workflow)) {
                     workflowDeleted = doWorkflowEndProcessing(workflow, automaticRollback, lock);
                     if (workflowDeleted) {
                         // lock is released by end processing if the workflow is deleted
@@ -704,6 +815,10 @@ public class WorkflowService implements WorkflowController {
         } catch (Exception ex) {
             String exMsg = "Exception processing updateStepStatus stepId: " + stepId + ": " + ex.getMessage();
             _log.error(exMsg, ex);
+            // The steps kept by this node may not match ZK anymore
+            if (workflowPath != null) {
+                dropCachedSteps(workflowPath);
+            }
             throw new WorkflowException(exMsg, ex);
         } finally {
             unlockWorkflow(workflow, lock);
@@ -968,6 +1083,9 @@ public class WorkflowService implements WorkflowController {
                 _dbClient.markForDeletion(dataRecords);
             }
 
+            // Remove the workflow data, the large values were in the records above.
+            _dataManager.removeNode(String.format(_zkStepDataPath, workflow.getWorkflowURI()), true);
+
             // Remove the steo to workflow path for all steps in the workflow.
             for (String stepId : workflow.getStepMap().keySet()) {
                 Stat stat = _dataManager.checkExists(getZKStep2WorkflowPath(stepId));
@@ -978,6 +1096,11 @@ public class WorkflowService implements WorkflowController {
 
             // Destroy the workflow under /workflow/workflows
             String path = getZKWorkflowPath(workflow);
+            dropCachedSteps(path);
+            String summaryPath = getZKWorkflowSummaryPath(path);
+            if (_dataManager.checkExists(summaryPath) != null) {
+                _dataManager.removeNode(summaryPath);
+            }
             Stat stat = _dataManager.checkExists(path);
             if (stat != null) {
                 _dataManager.removeNode(path);
@@ -1044,37 +1167,140 @@ public class WorkflowService implements WorkflowController {
      */
     private void persistWorkflowStep(Workflow workflow, Step step)
             throws WorkflowException {
-        Workflow.Method executeMethod = step.executeMethod;
-        Workflow.Method rollbackMethod = step.rollbackMethod;
+        persistWorkflowSteps(workflow, Collections.singletonList(step));
+    }
+
+    /**
+     * Save Workflow Steps in Zookeeper and record them as changed in the workflow state summary.
+     * Steps already known to be in ZK by a thread holding the workflow lock only have
+     * their own node updated.
+     *
+     * @param workflow
+     * @param steps
+     * @throws WorkflowException
+     */
+    void persistWorkflowSteps(Workflow workflow, Collection<Step> steps)
+            throws WorkflowException {
+        String workflowPath = getZKWorkflowPath(workflow);
+        HeldLock heldLock = _heldLocks.get().get(workflowPath);
+        boolean workflowPathChecked = false;
+        for (Step step : steps) {
+            Workflow.Method executeMethod = step.executeMethod;
+            Workflow.Method rollbackMethod = step.rollbackMethod;
+            try {
+                logStep(workflow, step);
+                // Temporarily null out the executeMethod, and rollbackMethod.
+                // These will no longer be saved in ZK.
+                step.executeMethod = null;
+                step.rollbackMethod = null;
+                boolean known = heldLock != null && heldLock.cachedSteps != null
+                        && heldLock.cachedSteps.steps.containsKey(step.stepId);
+                // Make sure the workflow path exists.
+                if (!known && !workflowPathChecked) {
+                    Stat stat = _dataManager.checkExists(workflowPath);
+                    if (stat == null) {
+                        _dataManager.createNode(workflowPath, false);
+                    }
+                    workflowPathChecked = true;
+                }
+                // Save the step state.
+                String path = getZKStepPath(workflow, step);
+                _dataManager.putSerializedData(path, GenericSerializer.serialize(step, path, true, _payloadCodec));
+                _log.debug("Saved step path " + path);
+                if (!known) {
+                    // Make a stepToWorkflowPath node
+                    path = getZKStep2WorkflowPath(step.stepId);
+                    _dataManager.putData(path, workflowPath);
+                    _log.debug("Created step path: " + path);
+                }
+            } catch (Exception ex) {
+                throw new WorkflowException("Cannot persist step in ZK", ex);
+            } finally {
+                step.executeMethod = executeMethod;
+                step.rollbackMethod = rollbackMethod;
+            }
+        }
+        recordStepChanges(workflow, workflowPath, heldLock, steps);
+    }
+
+    /**
+     * Update the state summary of a workflow after some of its steps were saved.
+     * With the workflow lock held the steps are added to the change log of the summary,
+     * otherwise a new epoch is started as concurrent changes can't be ordered.
+     *
+     * @param workflow
+     * @param workflowPath
+     * @param heldLock -- the workflow lock held by this thread, or null
+     * @param steps -- the saved steps
+     * @throws WorkflowException
+     */
+    private void recordStepChanges(Workflow workflow, String workflowPath, HeldLock heldLock, Collection<Step> steps)
+            throws WorkflowException {
+        if (steps.isEmpty()) {
+            return;
+        }
         try {
-            logStep(workflow, step);
-            // Temporarily null out the executeMethod, and rollbackMethod.
-            // These will no longer be saved in ZK.
-            step.executeMethod = null;
-            step.rollbackMethod = null;
-            // Make sure the workflow path exists.
-            String workflowPath = getZKWorkflowPath(workflow);
-            Stat stat = _dataManager.checkExists(workflowPath);
-            if (stat == null) {
-                _dataManager.createNode(workflowPath, false);
-            }
-            // Save the step state.
-            String path = getZKStepPath(workflow, step);
-            _dataManager.putData(path, step);
-            stat = _dataManager.checkExists(path);
-            _log.debug("Created path " + path + " bytes " + stat.getDataLength());
-            // Make a stepToWorkflowPath node
-            path = getZKStep2WorkflowPath(step.stepId);
-            _dataManager.putData(path, workflowPath);
-            _log.debug("Created step path: " + path);
+            String summaryPath = getZKWorkflowSummaryPath(workflowPath);
+            WorkflowStateSummary summary = null;
+            if (heldLock != null) {
+                summary = getHeldSummary(workflowPath, heldLock);
+                if (summary == null) {
+                    summary = new WorkflowStateSummary();
+                    heldLock.summary = summary;
+                }
+            } else {
+                summary = new WorkflowStateSummary();
+            }
+            List<String> stepIds = new ArrayList<String>();
+            for (Step step : steps) {
+                stepIds.add(step.stepId);
+            }
+            summary.stepsChanged(stepIds);
+            if (workflow.getStepStatusMap() != null) {
+                summary.count(workflow.getStepStatusMap().values());
+            }
+            _dataManager.putData(summaryPath, summary);
+            if (heldLock == null) {
+                return;
+            }
+            // Next version unless someone else wrote in between, it is read again then
+            heldLock.summaryVersion++;
+
+            // Keep the steps cached by this node in line with ZK
+            if (heldLock.cachedSteps != null && heldLock.cachedSteps.epoch.equals(summary.getEpoch())) {
+                for (Step step : steps) {
+                    heldLock.cachedSteps.steps.put(step.stepId, step);
+                }
+                heldLock.cachedSteps.sequence = summary.getSequence();
+            } else if (heldLock.cachedSteps != null) {
+                dropCachedSteps(workflowPath);
+            }
         } catch (Exception ex) {
-            throw new WorkflowException("Cannot persist step in ZK", ex);
-        } finally {
-            step.executeMethod = executeMethod;
-            step.rollbackMethod = rollbackMethod;
+            throw new WorkflowException("Cannot persist workflow state summary in ZK", ex);
         }
     }
 
+    /**
+     * Returns the state summary of a workflow whose lock is held by this thread. It is read
+     * again when its version isn't the one this thread last read or wrote, as steps saved
+     * without the lock start a new epoch.
+     *
+     * @param workflowPath -- zookeeper path of the Workflow
+     * @param heldLock -- the workflow lock held by this thread
+     * @return the summary, or null if there is none
+     * @throws Exception
+     */
+    private WorkflowStateSummary getHeldSummary(String workflowPath, HeldLock heldLock) throws Exception {
+        String summaryPath = getZKWorkflowSummaryPath(workflowPath);
+        Stat stat = _dataManager.checkExists(summaryPath);
+        int version = (stat != null) ? stat.getVersion() : NO_SUMMARY_VERSION;
+        if (heldLock.summary == null || version != heldLock.summaryVersion) {
+            heldLock.summary = (stat != null) ? (WorkflowStateSummary) _dataManager.getData(summaryPath, false) : null;
+            heldLock.summaryVersion = version;
+        }
+        return heldLock.summary;
+    }
+
     /**
      * Returns false if this workflow doesn't exist.
      *
@@ -1113,7 +1339,6 @@ public class WorkflowService implements WorkflowController {
     /**
      * This method sets up the workflow from ZK and DB data using the supplied ZK workflow path.
      * The state for each of the Steps is loaded from ZK.
-     * This is called from updateStepStatus().
      *
      * @param zkWorkflowPath -- zookeeper path of the Workflow
      * @return Workflow -- returns fully reconstructed workflow
@@ -1123,35 +1348,7 @@ public class WorkflowService implements WorkflowController {
         try {
 
             Workflow workflow = (Workflow) _dataManager.getData(zkWorkflowPath, false);
-            // The stepMap and stepStatusMap can be large; they are saved
-            // separately in ZK and reconstructed from the database.
-            workflow._stepMap = new HashMap<String, Step>();
-            workflow._stepStatusMap = new HashMap<String, StepStatus>();
-            workflow._service = this;
-            // Load all the step states.
-            List<String> children = _dataManager.getChildren(zkWorkflowPath);
-            for (String child : children) {
-                String childPath = zkWorkflowPath + "/" + child;
-                Object stepObj = _dataManager.getData(childPath, false);
-                if (stepObj == null || false == (stepObj instanceof Step)) {
-                    continue;
-                }
-                Step step = (Step) stepObj;
-                restoreStepDataFromDB(step);
-                workflow.getStepMap().put(step.stepId, step);
-                if (step.stepGroup != null) {
-                    if (workflow.getStepGroupMap().get(step.stepGroup) == null) {
-                        workflow.getStepGroupMap().put(step.stepGroup,
-                                new HashSet<String>());
-                    }
-                    workflow.getStepGroupMap().get(step.stepGroup).add(step.stepId);
-                }
-                StepStatus status = step.status;
-                workflow._stepStatusMap.put(step.stepId, status);
-                _log.debug(String.format(
-                        "Loaded step %s state %s for workflow %s",
-                        step.stepId, step.status.state, workflow._orchTaskId));
-            }
+            loadWorkflowSteps(workflow, zkWorkflowPath);
             return workflow;
         } catch (Exception ex) {
             _log.error("Unable to load workflow: " + zkWorkflowPath, ex);
@@ -1159,6 +1356,162 @@ public class WorkflowService implements WorkflowController {
         }
     }
 
+    /**
+     * Loads all the Steps of a workflow from ZK and DB data.
+     *
+     * @param workflow -- Workflow read from its ZK node
+     * @param zkWorkflowPath -- zookeeper path of the Workflow
+     * @throws Exception
+     */
+    private void loadWorkflowSteps(Workflow workflow, String zkWorkflowPath) throws Exception {
+        // The stepMap and stepStatusMap can be large; they are saved
+        // separately in ZK and reconstructed from the database.
+        workflow._stepMap = new HashMap<String, Step>();
+        workflow._stepStatusMap = new HashMap<String, StepStatus>();
+        workflow._service = this;
+        // Load all the step states.
+        List<String> children = _dataManager.getChildren(zkWorkflowPath);
+        for (String child : children) {
+            // Steps are named by their UUID, other children aren't read
+            if (child.startsWith("_")) {
+                _log.debug("Skipping child {} of workflow {}", child, zkWorkflowPath);
+                continue;
+            }
+            String childPath = zkWorkflowPath + "/" + child;
+            Object stepObj = _dataManager.getData(childPath, false);
+            if (stepObj == null || false == (stepObj instanceof Step)) {
+                continue;
+            }
+            Step step = (Step) stepObj;
+            restoreStepDataFromDB(step);
+            addLoadedStep(workflow, step);
+        }
+    }
+
+    /**
+     * Adds a Step loaded from ZK to the maps of a workflow.
+     *
+     * @param workflow
+     * @param step
+     */
+    private void addLoadedStep(Workflow workflow, Step step) {
+        workflow.getStepMap().put(step.stepId, step);
+        if (step.stepGroup != null) {
+            if (workflow.getStepGroupMap().get(step.stepGroup) == null) {
+                workflow.getStepGroupMap().put(step.stepGroup,
+                        new HashSet<String>());
+            }
+            workflow.getStepGroupMap().get(step.stepGroup).add(step.stepId);
+        }
+        StepStatus status = step.status;
+        workflow._stepStatusMap.put(step.stepId, status);
+        _log.debug(String.format(
+                "Loaded step %s state %s for workflow %s",
+                step.stepId, step.status.state, workflow._orchTaskId));
+    }
+
+    /**
+     * Loads a workflow for updateStepStatus(), which holds the workflow lock.
+     * This node keeps the steps of the workflows it updates; if the state summary of the
+     * workflow shows which steps were saved since, only those are read from ZK and DB.
+     * Otherwise all the steps are loaded as by loadWorkflow().
+     *
+     * @param zkWorkflowPath -- zookeeper path of the Workflow
+     * @return Workflow, or null if it doesn't exist anymore
+     * @throws Exception
+     */
+    Workflow loadWorkflowForUpdate(String zkWorkflowPath) throws Exception {
+        HeldLock heldLock = _heldLocks.get().get(zkWorkflowPath);
+        Workflow workflow = (Workflow) _dataManager.getData(zkWorkflowPath, false);
+        if (workflow == null) {
+            return null;
+        }
+        if (heldLock == null) {
+            loadWorkflowSteps(workflow, zkWorkflowPath);
+            return workflow;
+        }
+        WorkflowStateSummary summary = getHeldSummary(zkWorkflowPath, heldLock);
+
+        CachedSteps cachedSteps = heldLock.cachedSteps;
+        if (cachedSteps == null) {
+            synchronized (_stepCache) {
+                cachedSteps = _stepCache.get(zkWorkflowPath);
+            }
+        }
+        Set<String> changedSteps = null;
+        if (cachedSteps != null && summary != null) {
+            changedSteps = summary.getChangesSince(cachedSteps.epoch, cachedSteps.sequence);
+        }
+
+        if (changedSteps == null) {
+            loadWorkflowSteps(workflow, zkWorkflowPath);
+            if (summary == null) {
+                // Nothing to tell later changes from, don't keep the steps
+                dropCachedSteps(zkWorkflowPath);
+                return workflow;
+            }
+            cachedSteps = new CachedSteps(summary.getEpoch(), summary.getSequence(), workflow.getStepMap());
+            synchronized (_stepCache) {
+                _stepCache.put(zkWorkflowPath, cachedSteps);
+            }
+            heldLock.cachedSteps = cachedSteps;
+            return workflow;
+        }
+
+        _log.debug(String.format("Reading %d changed steps of workflow %s", changedSteps.size(), zkWorkflowPath));
+        for (String stepId : changedSteps) {
+            Object stepObj = _dataManager.getData(zkWorkflowPath + "/" + stepId, false);
+            if (stepObj == null || false == (stepObj instanceof Step)) {
+                cachedSteps.steps.remove(stepId);
+                continue;
+            }
+            Step step = (Step) stepObj;
+            restoreStepDataFromDB(step);
+            cachedSteps.steps.put(stepId, step);
+        }
+        cachedSteps.sequence = summary.getSequence();
+        heldLock.cachedSteps = cachedSteps;
+
+        workflow._stepMap = new HashMap<String, Step>();
+        workflow._stepStatusMap = new HashMap<String, StepStatus>();
+        workflow._service = this;
+        for (Step step : cachedSteps.steps.values()) {
+            addLoadedStep(workflow, step);
+        }
+        return workflow;
+    }
+
+    /**
+     * Forget the steps of a workflow kept by this node.
+     *
+     * @param zkWorkflowPath -- zookeeper path of the Workflow
+     */
+    private void dropCachedSteps(String zkWorkflowPath) {
+        synchronized (_stepCache) {
+            _stepCache.remove(zkWorkflowPath);
+        }
+        HeldLock heldLock = _heldLocks.get().get(zkWorkflowPath);
+        if (heldLock != null) {
+            heldLock.cachedSteps = null;
+        }
+    }
+
+    /**
+     * Returns true if all the steps of the workflow are in a terminal state. The counts of the
+     * state summary are used when the workflow lock is held, they are up to date then.
+     *
+     * @param workflow
+     * @return
+     * @throws WorkflowException
+     */
+    private boolean allStatesTerminal(Workflow workflow) throws WorkflowException {
+        HeldLock heldLock = _heldLocks.get().get(getZKWorkflowPath(workflow));
+        if (heldLock != null && heldLock.summary != null) {
+            return heldLock.summary.allStatesTerminal();
+        }
+        return workflow.allStatesTerminal();
+    }
+
     /**
      * Persits the workflow to Zookeeper.
      *
@@ -1177,7 +1530,7 @@ public class WorkflowService implements WorkflowController {
 
             // Persist the workflow in ZK.
             String path = getZKWorkflowPath(workflow);
-            _dataManager.putData(path, workflow);
+            _dataManager.putSerializedData(path, GenericSerializer.serialize(workflow, path, true, _payloadCodec));
 
             // Restore the values
             workflow.setStepMap(stepMap);
@@ -1208,9 +1561,7 @@ public class WorkflowService implements WorkflowController {
 
                 persistWorkflow(workflow);
 
-                for (Step step : workflow.getStepMap().values()) {
-                    persistWorkflowStep(workflow, step);
-                }
+                persistWorkflowSteps(workflow, workflow.getStepMap().values());
 
                 // Check suspended state and modify states
                 if (checkSuspendedSteps(workflow)) {
@@ -1345,7 +1696,7 @@ public class WorkflowService implements WorkflowController {
 
             // If step is ready to run, send it to the Dispatcher.
             if (state == StepState.QUEUED) {
-                dispatchStep(step, workflow._nested);
+                dispatchStep(step, workflow);
             }
         }
     }
@@ -1353,13 +1704,17 @@ public class WorkflowService implements WorkflowController {
     /**
      * Send a step to the Dispatcher for execution. Must be in the QUEUED state.
      *
+     * The steps of a workflow share the Dispatcher fairly with the steps of the other workflows,
+     * and the steps of large workflows give way to smaller requests.
+     *
      * @param step
      *            Step to be dispatched.
-     * @param isNested
-     *            True if this Workflow is nested within another workflow
+     * @param workflow
+     *            Workflow of the step, the nested queue is used if it is nested within another workflow
      * @throws WorkflowException
      */
-    private void dispatchStep(Step step, boolean isNested) throws WorkflowException {
+    private void dispatchStep(Step step, Workflow workflow) throws WorkflowException {
+        boolean isNested = workflow._nested;
         assert (step.status.state == StepState.QUEUED);
         // The stepId is automatically added as the last argument to the step.
         List<Object> argList = new ArrayList<Object>(
@@ -1381,7 +1736,9 @@ public class WorkflowService implements WorkflowController {
         try {
             _dispatcher.queue(
                     (isNested ? Dispatcher.QueueName.workflow_inner : Dispatcher.QueueName.workflow_outer),
-                    step.deviceURI, step.deviceType, step.lockDevice, controller,
+                    step.deviceURI, step.deviceType, step.lockDevice,
+                    (workflow.getStepMap().size() > BULK_WORKFLOW_STEPS ? Dispatcher.Priority.bulk : null),
+                    workflow.getWorkflowURI() == null ? null : workflow.getWorkflowURI().toString(), controller,
                     step.executeMethod.methodName, argList.toArray());
         } catch (InternalException ex) {
             throw new WorkflowException(String.format(
@@ -1393,6 +1750,8 @@ public class WorkflowService implements WorkflowController {
     /**
      * Checks the workflow for any BLOCKED steps that have become unblocked,
      * and dispatches them or cancels them if necessary.
+     * Only the steps waiting for the changed step or its step group are checked, then
+     * the steps waiting for those that changed state in turn.
      *
      * @param workflow
      *            -- The Workflow to be checked.
@@ -1400,29 +1759,42 @@ public class WorkflowService implements WorkflowController {
      *            -- The Step that has changed state.
      */
     private void checkBlockedSteps(Workflow workflow, String fromStepId) {
-        boolean again;
+        Map<String, List<Step>> waiters = getBlockedStepsByWaitFor(workflow);
+        if (waiters.isEmpty()) {
+            return;
+        }
         Set<String> suspendedSteps = new HashSet<String>();
-        do {
-            again = false; // only loop again if made change
-            for (Step step : workflow.getStepMap().values()) {
+        LinkedList<String> changedSteps = new LinkedList<String>();
+        changedSteps.add(fromStepId);
+        while (!changedSteps.isEmpty()) {
+            String changedStepId = changedSteps.removeFirst();
+            List<Step> candidates = new ArrayList<Step>();
+            if (waiters.containsKey(changedStepId)) {
+                candidates.addAll(waiters.get(changedStepId));
+            }
+            Step changedStep = workflow.getStepMap().get(changedStepId);
+            if (changedStep != null && changedStep.stepGroup != null && waiters.containsKey(changedStep.stepGroup)) {
+                candidates.addAll(waiters.get(changedStep.stepGroup));
+            }
+            for (Step step : candidates) {
                 if (step.status.state != StepState.BLOCKED) {
                     continue;
                 }
                 try {
                     try {
                         if (!isBlocked(workflow, step)) {
-                            again = true;
+                            changedSteps.add(step.stepId);
                             if (isStepMarkedForSuspend(workflow, step)) {
                                 changeStepToSuspendedNoErrorState(workflow, suspendedSteps, step);
                             } else {
                                 step.status.updateState(StepState.QUEUED, null, "Unblocked by step: " + fromStepId);
                                 persistWorkflowStep(workflow, step);
                                 _log.info(String.format("Step %s has been unblocked by step %s", step.stepId, fromStepId));
-                                dispatchStep(step, workflow._nested);
+                                dispatchStep(step, workflow);
                             }
                         }
                     } catch (CancelledException ex) {
-                        again = true;
+                        changedSteps.add(step.stepId);
                         // If we got a CancelledException, this step needs to be cancelled.
                         step.status.updateState(StepState.CANCELLED, null, "Cancelled by step: " + fromStepId);
                         _log.info(String.format("Step %s has been cancelled by step %s", step.stepId, fromStepId));
@@ -1432,7 +1804,30 @@ public class WorkflowService implements WorkflowController {
                     _log.error("Exception" + ex.getMessage());
                 }
             }
-        } while (again == true);
+        }
+    }
+
+    /**
+     * Index of the BLOCKED steps of a workflow by their waitFor step id or step group name.
+     *
+     * @param workflow
+     *            -- The Workflow to be checked.
+     * @return map of waitFor to the steps blocked on it
+     */
+    static Map<String, List<Step>> getBlockedStepsByWaitFor(Workflow workflow) {
+        Map<String, List<Step>> waiters = new HashMap<String, List<Step>>();
+        for (Step step : workflow.getStepMap().values()) {
+            if (step.status.state != StepState.BLOCKED || step.waitFor == null) {
+                continue;
+            }
+            List<Step> steps = waiters.get(step.waitFor);
+            if (steps == null) {
+                steps = new ArrayList<Step>();
+                waiters.put(step.waitFor, steps);
+            }
+            steps.add(step);
+        }
+        return waiters;
     }
 
     /**
@@ -1948,7 +2343,7 @@ public class WorkflowService implements WorkflowController {
      * @return true if lock acquired
      * @throws WorkflowException
      */
-    private InterProcessLock lockWorkflow(Workflow workflow) throws WorkflowException {
+    InterProcessLock lockWorkflow(Workflow workflow) throws WorkflowException {
         boolean acquired = false;
         InterProcessLock lock = getWorkflowLock(workflow);
         try {
@@ -1961,6 +2356,13 @@ public class WorkflowService implements WorkflowController {
             _log.error("Unable to acquire workflow lock: " + workflow.getWorkflowURI().toString());
             throw new WorkflowException("Unable to acquire workflow lock: " + workflow.getWorkflowURI().toString());
         }
+        String workflowPath = getZKWorkflowPath(workflow);
+        HeldLock heldLock = _heldLocks.get().get(workflowPath);
+        if (heldLock == null) {
+            heldLock = new HeldLock();
+            _heldLocks.get().put(workflowPath, heldLock);
+        }
+        heldLock.holds++;
         return lock;
     }
 
@@ -1970,9 +2372,14 @@ public class WorkflowService implements WorkflowController {
      * @param workflow
      * @throws WorkflowException
      */
-    private void unlockWorkflow(Workflow workflow, InterProcessLock lock) throws WorkflowException {
+    void unlockWorkflow(Workflow workflow, InterProcessLock lock) throws WorkflowException {
         try {
             if (lock != null) {
+                String workflowPath = getZKWorkflowPath(workflow);
+                HeldLock heldLock = _heldLocks.get().get(workflowPath);
+                if (heldLock != null && --heldLock.holds == 0) {
+                    _heldLocks.get().remove(workflowPath);
+                }
                 lock.release();
             }
         } catch (Exception ex) {
@@ -1995,6 +2402,33 @@ public class WorkflowService implements WorkflowController {
         }
     }
 
+    /**
+     * A workflow lock held by a thread, with the state summary of the workflow once read
+     * and the steps kept by this node once brought up to date.
+     */
+    private static class HeldLock {
+        private int holds = 0;
+        private WorkflowStateSummary summary;
+        // ZK version of the summary node as last read or written by this thread
+        private int summaryVersion = NO_SUMMARY_VERSION;
+        private CachedSteps cachedSteps;
+    }
+
+    /**
+     * The steps of a workflow as of a sequence number of its state summary.
+     */
+    private static class CachedSteps {
+        private final String epoch;
+        private long sequence;
+        private final Map<String, Step> steps;
+
+        CachedSteps(String epoch, long sequence, Map<String, Step> steps) {
+            this.epoch = epoch;
+            this.sequence = sequence;
+            this.steps = new HashMap<String, Step>(steps);
+        }
+    }
+
     private String getLockName(Workflow workflow) {
         return "workflows/" + workflow.getWorkflowURI().toString();
     }
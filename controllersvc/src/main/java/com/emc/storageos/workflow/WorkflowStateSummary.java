@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.emc.storageos.workflow.Workflow.StepState;
+import com.emc.storageos.workflow.Workflow.StepStatus;
+
+/**
+ * Small aggregate of the step states of a Workflow, kept in ZK next to the Step nodes.
+ *
+ * Besides the counts of pending, terminal and failed steps, it records the ids of the
+ * last steps that were saved. A node that has the step states as of a given sequence
+ * number of the current epoch can catch up by reading only the steps saved since then.
+ * A new epoch is started whenever the steps are saved without holding the workflow
+ * lock, after which every node has to load all the steps again.
+ */
+class WorkflowStateSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // number of step changes remembered, beyond that the steps are all loaded again
+    static final int MAX_CHANGES = 256;
+
+    private final String epoch;
+    private long sequence = 0;
+    private final LinkedList<String> changedSteps = new LinkedList<String>();
+    private int pendingSteps = 0;
+    private int terminalSteps = 0;
+    private int errorSteps = 0;
+
+    WorkflowStateSummary() {
+        epoch = UUID.randomUUID().toString();
+    }
+
+    String getEpoch() {
+        return epoch;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getPendingSteps() {
+        return pendingSteps;
+    }
+
+    int getTerminalSteps() {
+        return terminalSteps;
+    }
+
+    int getErrorSteps() {
+        return errorSteps;
+    }
+
+    /**
+     * @return true if no step is left to run, as Workflow.allStatesTerminal()
+     */
+    boolean allStatesTerminal() {
+        return pendingSteps == 0;
+    }
+
+    /**
+     * Record that the given steps were saved, one sequence number each
+     *
+     * @param stepIds ids of the saved steps
+     */
+    void stepsChanged(Collection<String> stepIds) {
+        for (String stepId : stepIds) {
+            sequence++;
+            changedSteps.add(stepId);
+            if (changedSteps.size() > MAX_CHANGES) {
+                changedSteps.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Recompute the counts from the step states
+     *
+     * @param statuses status of every step of the workflow
+     */
+    void count(Collection<StepStatus> statuses) {
+        pendingSteps = 0;
+        terminalSteps = 0;
+        errorSteps = 0;
+        for (StepStatus status : statuses) {
+            if (!status.isTerminalState()) {
+                pendingSteps++;
+                continue;
+            }
+            terminalSteps++;
+            if (status.state == StepState.ERROR || status.state == StepState.SUSPENDED_ERROR) {
+                errorSteps++;
+            }
+        }
+    }
+
+    /**
+     * Ids of the steps saved after the given point
+     *
+     * @param sinceEpoch epoch the caller's step states belong to
+     * @param sinceSequence sequence number the caller's step states are up to date with
+     * @return ids of the steps to read again, or null if they aren't all known and
+     *         all the steps must be read
+     */
+    Set<String> getChangesSince(String sinceEpoch, long sinceSequence) {
+        if (!epoch.equals(sinceEpoch) || sinceSequence > sequence) {
+            return null;
+        }
+        long missed = sequence - sinceSequence;
+        if (missed > changedSteps.size()) {
+            return null;
+        }
+        List<String> changes = new ArrayList<String>(changedSteps);
+        return new HashSet<String>(changes.subList(changes.size() - (int) missed, changes.size()));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("epoch %s sequence %d pending %d terminal %d error %d",
+                epoch, sequence, pendingSteps, terminalSteps, errorSteps);
+    }
+}
@@ -8,6 +8,7 @@ import java.io.Serializable;
 
 import com.emc.storageos.db.client.model.Operation;
 import com.emc.storageos.svcs.errorhandling.model.ServiceCoded;
+import com.emc.storageos.volumecontroller.impl.AdaptiveDeviceLimiter;
 
 /**
  * Should be called in a Downstream Method to:
@@ -60,6 +61,7 @@ public class WorkflowStepCompleter implements Serializable {
      * @throws WorkflowException
      */
     static public void stepFailed(String stepId, ServiceCoded coded) throws WorkflowException {
+        AdaptiveDeviceLimiter.reportError(coded);
         WorkflowService.completerStepError(stepId, coded);
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.zookeeper.data.Stat;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.DistributedDataManager;
+
+public class DistributedOwnerLockServiceImplTest {
+    private static final String OWNER = "urn:storageos:Workflow:1:vdc1";
+
+    private DistributedDataManager dataManager;
+    private DistributedOwnerLockServiceImpl lockService;
+
+    @Before
+    public void setUp() throws Exception {
+        InterProcessLock ipl = EasyMock.createNiceMock(InterProcessLock.class);
+        EasyMock.expect(ipl.acquire(EasyMock.anyLong(), EasyMock.anyObject(TimeUnit.class))).andReturn(true).anyTimes();
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getLock(EasyMock.anyObject(String.class))).andReturn(ipl).anyTimes();
+        EasyMock.replay(ipl, coordinator);
+
+        dataManager = EasyMock.createNiceMock(DistributedDataManager.class);
+        lockService = new DistributedOwnerLockServiceImpl();
+        lockService.setCoordinator(coordinator);
+        lockService.setDataManager(dataManager);
+    }
+
+    @Test
+    public void testAllLocksTakenInOneTransaction() throws Exception {
+        Capture<Map<String, Object>> nodes = new Capture<Map<String, Object>>();
+        EasyMock.expect(dataManager.createNodesIfAbsent(EasyMock.capture(nodes))).andReturn(null).once();
+        EasyMock.replay(dataManager);
+
+        List<String> keys = Arrays.asList("host2::array1", "host1::array1", "host3::array1");
+        Assert.assertTrue(lockService.acquireLocks(keys, OWNER, System.currentTimeMillis() / 1000, 60));
+
+        // lock data and owner reference of each key
+        Assert.assertEquals(6, nodes.getValue().size());
+        for (String key : keys) {
+            boolean found = false;
+            for (Map.Entry<String, Object> entry : nodes.getValue().entrySet()) {
+                if (entry.getKey().endsWith("/locks/" + key)) {
+                    Assert.assertEquals(OWNER, ((DistributedOwnerLockData) entry.getValue()).getOwner());
+                    found = true;
+                }
+            }
+            Assert.assertTrue(found);
+        }
+        EasyMock.verify(dataManager);
+    }
+
+    @Test
+    public void testLockHeldByAnotherOwnerIsQueued() throws Exception {
+        final String heldKey = "host2::array1";
+        final Capture<Map<String, Object>> nodes = new Capture<Map<String, Object>>();
+        EasyMock.expect(dataManager.createNodesIfAbsent(EasyMock.capture(nodes))).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() throws Throwable {
+                for (String path : nodes.getValue().keySet()) {
+                    if (path.endsWith("/locks/" + heldKey)) {
+                        return path;
+                    }
+                }
+                return null;
+            }
+        }).once();
+        EasyMock.expect(dataManager.checkExists(EasyMock.endsWith("/locks/" + heldKey))).andReturn(new Stat()).anyTimes();
+        EasyMock.expect(dataManager.getData(EasyMock.endsWith("/locks/" + heldKey), EasyMock.eq(false)))
+                .andReturn(new DistributedOwnerLockData("otherOwner", System.currentTimeMillis())).anyTimes();
+        EasyMock.replay(dataManager);
+
+        try {
+            lockService.acquireLocks(Arrays.asList("host1::array1", heldKey), OWNER, System.currentTimeMillis() / 1000, 60);
+            Assert.fail("Expected a LockRetryException");
+        } catch (LockRetryException ex) {
+            Assert.assertEquals(heldKey, ex.getLockIdentifier());
+        }
+        // nothing was taken, nothing was released
+        EasyMock.verify(dataManager);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.locking;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.NodeListener;
+
+public class LockWaitersTest {
+    private static final String KEY = "host1::SYMMETRIX+000195700001";
+    private static final String PATH = "/lockdata/distOwnerLock/locks/" + KEY;
+
+    private CoordinatorClient coordinator;
+    private LockWaiters waiters;
+
+    @Before
+    public void setUp() throws Exception {
+        coordinator = EasyMock.createMock(CoordinatorClient.class);
+        // one watch for all the waiters of a key, dropped with the last one
+        coordinator.addNodeListener(EasyMock.anyObject(NodeListener.class));
+        EasyMock.expectLastCall().once();
+        coordinator.removeNodeListener(EasyMock.anyObject(NodeListener.class));
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(coordinator);
+        waiters = new LockWaiters(coordinator);
+    }
+
+    @Test
+    public void testWaitersAreWokenUpInOrder() throws Exception {
+        LockWaiters.Waiter first = waiters.register(KEY, PATH);
+        LockWaiters.Waiter second = waiters.register(KEY, PATH);
+        Assert.assertEquals(2, waiters.getWaiterCount(KEY));
+
+        // released before the first waiter went to sleep, not lost
+        waiters.signal(KEY);
+        Assert.assertFalse(second.await(10));
+        Assert.assertTrue(first.await(10));
+
+        // first takes the lock, second waits for the next release
+        first.done(true);
+        Assert.assertFalse(second.await(10));
+        waiters.signal(KEY);
+        Assert.assertTrue(second.await(10));
+
+        second.done(true);
+        Assert.assertEquals(0, waiters.getWaiterCount(KEY));
+        EasyMock.verify(coordinator);
+    }
+
+    @Test
+    public void testWakeupIsPassedOnWhenGivingUp() throws Exception {
+        LockWaiters.Waiter first = waiters.register(KEY, PATH);
+        LockWaiters.Waiter second = waiters.register(KEY, PATH);
+
+        waiters.signal(KEY);
+        first.done(false);
+        Assert.assertTrue(second.await(10));
+
+        second.done(true);
+        EasyMock.verify(coordinator);
+    }
+
+    @Test
+    public void testWakeupIsPassedOnWhenTimingOutAfterIt() throws Exception {
+        LockWaiters.Waiter first = waiters.register(KEY, PATH);
+        LockWaiters.Waiter second = waiters.register(KEY, PATH);
+
+        // woken up, but out of time before trying again
+        waiters.signal(KEY);
+        Assert.assertTrue(first.await(10));
+        first.done(false);
+        Assert.assertTrue(second.await(10));
+
+        second.done(true);
+        EasyMock.verify(coordinator);
+    }
+
+    @Test
+    public void testFailedAttemptUsesTheWakeup() throws Exception {
+        LockWaiters.Waiter first = waiters.register(KEY, PATH);
+        LockWaiters.Waiter second = waiters.register(KEY, PATH);
+
+        // woken up, tried and lost the lock again, then timed out
+        waiters.signal(KEY);
+        Assert.assertTrue(first.await(10));
+        Assert.assertFalse(first.await(10));
+        first.done(false);
+        Assert.assertFalse(second.await(10));
+
+        second.done(false);
+        EasyMock.verify(coordinator);
+    }
+
+    @Test
+    public void testLockGroups() {
+        Assert.assertEquals("*::SYMMETRIX+000195700001", DistributedOwnerLockStats.getGroup(KEY));
+        Assert.assertEquals("urn:storageos:Host", DistributedOwnerLockStats.getGroup("urn:storageos:Host:1234:vdc1"));
+        Assert.assertEquals("10.1.1.1", DistributedOwnerLockStats.getGroup("10.1.1.1"));
+    }
+}
@@ -106,6 +106,18 @@ public class DummyDbClient implements DbClient {
         return null;
     }
 
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjects(Class<T> clazz,
+            Collection<URI> ids, boolean activeOnly) throws DatabaseException {
+        return queryIterativeObjects(clazz, ids, activeOnly);
+    }
+
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjectFields(Class<T> clazz,
+            Collection<String> fieldNames, Collection<URI> ids) throws DatabaseException {
+        return queryIterativeObjectFields(clazz, fieldNames, ids);
+    }
+
     @Override
     public <T extends DataObject> List<T> queryObjectField(Class<T> clazz, String fieldName,
             Collection<URI> ids) throws DatabaseException {
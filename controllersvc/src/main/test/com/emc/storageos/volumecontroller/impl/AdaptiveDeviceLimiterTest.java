@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.exceptions.DeviceControllerException;
+import com.emc.storageos.svcs.errorhandling.model.ServiceCoded;
+import com.emc.storageos.svcs.errorhandling.resources.ServiceCode;
+
+public class AdaptiveDeviceLimiterTest {
+    private static final URI DEVICE = URI.create("urn:storageos:StorageSystem:1234:vdc1");
+    private static final String TYPE = "xtremio";
+    private static final String METHOD = "createVolumes";
+
+    private final AdaptiveDeviceLimiter limiter = new AdaptiveDeviceLimiter();
+
+    private List<AdaptiveDeviceLimiter.Permit> acquireAll() {
+        List<AdaptiveDeviceLimiter.Permit> permits = new ArrayList<AdaptiveDeviceLimiter.Permit>();
+        AdaptiveDeviceLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire(DEVICE, TYPE, 4, METHOD)) != null) {
+            permit.invoking();
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    private static ServiceCoded error(final ServiceCode code) {
+        return new ServiceCoded() {
+            @Override
+            public ServiceCode getServiceCode() {
+                return code;
+            }
+
+            @Override
+            public String getMessage() {
+                return code.name();
+            }
+
+            @Override
+            public String getMessage(Locale locale) {
+                return code.name();
+            }
+
+            @Override
+            public boolean isRetryable() {
+                return false;
+            }
+        };
+    }
+
+    @Test
+    public void testLimitRecoversUpToMaxConnections() {
+        List<AdaptiveDeviceLimiter.Permit> permits = acquireAll();
+        Assert.assertEquals(4, permits.size());
+        Assert.assertNull(limiter.tryAcquire(DEVICE, TYPE, 4, METHOD));
+        for (AdaptiveDeviceLimiter.Permit permit : permits) {
+            permit.failed();
+            limiter.release(permit);
+        }
+        Assert.assertEquals(3, limiter.getLimit(DEVICE));
+
+        for (int round = 0; round < 100; round++) {
+            for (AdaptiveDeviceLimiter.Permit permit : acquireAll()) {
+                limiter.release(permit);
+            }
+        }
+        // never beyond the size of the device semaphore
+        Assert.assertEquals(4, limiter.getLimit(DEVICE));
+    }
+
+    @Test
+    public void testTimeouts() {
+        for (ServiceCode code : new ServiceCode[] { ServiceCode.VPLEX_API_RESPONSE_TIMEOUT_ERROR,
+                ServiceCode.SYS_DR_OPERATION_TIMEOUT }) {
+            AdaptiveDeviceLimiter.Permit permit = limiter.tryAcquire(DEVICE, TYPE, 4, METHOD);
+            permit.invoking();
+            AdaptiveDeviceLimiter.reportError(error(code));
+            limiter.release(permit);
+        }
+        // not a device call timeout, whatever its name
+        Assert.assertTrue(limiter.getDeviceLimits()[0].contains("errors=2 timeouts=1"));
+    }
+
+    @Test
+    public void testLimitIsCutOnceOnErrors() {
+        List<AdaptiveDeviceLimiter.Permit> permits = acquireAll();
+        for (AdaptiveDeviceLimiter.Permit permit : permits) {
+            permit.failed();
+            limiter.release(permit);
+        }
+        // calls made together fail together, they lower the limit once
+        Assert.assertEquals(3, limiter.getLimit(DEVICE));
+
+        for (int round = 0; round < 10; round++) {
+            AdaptiveDeviceLimiter.Permit permit = limiter.tryAcquire(DEVICE, TYPE, 4, METHOD);
+            permit.invoking();
+            // as a completer of the call would
+            AdaptiveDeviceLimiter.reportError(DeviceControllerException.errors.unforeseen());
+            limiter.release(permit);
+        }
+        Assert.assertEquals(1, limiter.getLimit(DEVICE));
+
+        limiter.reset();
+        Assert.assertEquals(4, limiter.getLimit(DEVICE));
+    }
+
+    @Test
+    public void testCallsNotMadeAreNotCounted() {
+        AdaptiveDeviceLimiter.Permit permit = limiter.tryAcquire(DEVICE, TYPE, 4, METHOD);
+        permit.invoking();
+        permit.skipped();
+        permit.failed();
+        limiter.release(permit);
+        Assert.assertEquals(4, limiter.getLimit(DEVICE));
+        Assert.assertTrue(limiter.getDeviceLimits()[0].contains("calls=0"));
+    }
+}
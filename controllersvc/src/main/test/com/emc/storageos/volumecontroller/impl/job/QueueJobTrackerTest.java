@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.job;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.DistributedQueueItemProcessedCallback;
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.storagedriver.DriverTask;
+import com.emc.storageos.volumecontroller.Job;
+import com.emc.storageos.volumecontroller.JobContext;
+import com.emc.storageos.volumecontroller.TaskCompleter;
+import com.emc.storageos.volumecontroller.impl.JobPollResult;
+import com.emc.storageos.volumecontroller.impl.externaldevice.job.ExternalDeviceJob;
+import com.emc.storageos.volumecontroller.impl.isilon.job.IsilonSyncIQJob;
+
+public class QueueJobTrackerTest {
+
+    private static JobPollResult result(String id, Job.JobStatus status) {
+        JobPollResult result = new JobPollResult();
+        result.setJobId(id);
+        result.setJobName(id);
+        result.setJobStatus(status);
+        return result;
+    }
+
+    /**
+     * Blocks in its first poll until released
+     */
+    private static class SlowJob extends Job {
+        private final CountDownLatch _release = new CountDownLatch(1);
+
+        @Override
+        public JobPollResult poll(JobContext jobContext, long trackingPeriodInMillis) {
+            try {
+                _release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result("slow", JobStatus.SUCCESS);
+        }
+
+        @Override
+        public TaskCompleter getTaskCompleter() {
+            return null;
+        }
+    }
+
+    /**
+     * Done on its second poll
+     */
+    private static class QuickJob extends Job {
+        private int _polls = 0;
+
+        @Override
+        public JobPollResult poll(JobContext jobContext, long trackingPeriodInMillis) {
+            return result("quick", ++_polls < 2 ? JobStatus.IN_PROGRESS : JobStatus.SUCCESS);
+        }
+
+        @Override
+        public TaskCompleter getTaskCompleter() {
+            return null;
+        }
+    }
+
+    /**
+     * Makes no progress until its fourth poll, recording the tracking period of each poll
+     */
+    private static class StalledJob extends Job {
+        private final List<Long> _periods = Collections.synchronizedList(new ArrayList<Long>());
+
+        @Override
+        public JobPollResult poll(JobContext jobContext, long trackingPeriodInMillis) {
+            _periods.add(trackingPeriodInMillis);
+            return result("stalled", _periods.size() < 4 ? JobStatus.IN_PROGRESS : JobStatus.SUCCESS);
+        }
+
+        @Override
+        public TaskCompleter getTaskCompleter() {
+            return null;
+        }
+    }
+
+    private static DistributedQueueItemProcessedCallback countDown(final CountDownLatch latch) {
+        return new DistributedQueueItemProcessedCallback() {
+            @Override
+            public void itemProcessed() throws Exception {
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testBackoff() {
+        QueueJobTracker tracker = new QueueJobTracker();
+        tracker.setTrackingPeriodInMillis(100);
+        Assert.assertEquals(200, tracker.getNextPollingInterval(100, false));
+        Assert.assertEquals(400, tracker.getNextPollingInterval(200, false));
+        Assert.assertEquals(400, tracker.getNextPollingInterval(400, false));
+        Assert.assertEquals(100, tracker.getNextPollingInterval(400, true));
+
+        tracker.setMaxTrackingPeriodInMillis(300);
+        Assert.assertEquals(300, tracker.getNextPollingInterval(200, false));
+    }
+
+    @Test
+    public void testNoBackoffWhileRetrying() {
+        Job job = new QuickJob();
+        Assert.assertFalse(QueueJobTracker.isRetrying(job, result("quick", Job.JobStatus.IN_PROGRESS)));
+        Assert.assertTrue(QueueJobTracker.isRetrying(job, result("quick", Job.JobStatus.ERROR)));
+
+        JobPollResult postProcessing = result("quick", Job.JobStatus.SUCCESS);
+        postProcessing.setJobPostProcessingStatus(Job.JobStatus.ERROR);
+        Assert.assertTrue(QueueJobTracker.isRetrying(job, postProcessing));
+    }
+
+    @Test
+    public void testPollGivenTrackingPeriod() throws Exception {
+        QueueJobTracker tracker = new QueueJobTracker();
+        tracker.setTrackingPeriodInMillis(20);
+        tracker.setTrackingTimeout(TimeUnit.MINUTES.toMillis(1));
+        tracker.start();
+
+        StalledJob job = new StalledJob();
+        CountDownLatch done = new CountDownLatch(1);
+        tracker.consumeItem(new QueueJob(job), countDown(done));
+
+        // polled less often, but still told the tracking period
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(4, job._periods.size());
+        for (Long period : job._periods) {
+            Assert.assertEquals(20L, period.longValue());
+        }
+    }
+
+    @Test
+    public void testLanes() {
+        URI system = URI.create("urn:storageos:StorageSystem:1:vdc1");
+        Assert.assertEquals(system.toString(), QueueJobTracker.getLane(new IsilonSyncIQJob(system, null)));
+        Assert.assertEquals(system.toString(), QueueJobTracker.getLane(new ExternalDeviceJob(system, "task", null) {
+            @Override
+            protected void doTaskSucceeded(DriverTask driverTask, DbClient dbClient) {
+            }
+
+            @Override
+            protected void doTaskFailed(DriverTask driverTask, DbClient dbClient) {
+            }
+        }));
+        Assert.assertEquals(QuickJob.class.getName(), QueueJobTracker.getLane(new QuickJob()));
+    }
+
+    @Test
+    public void testSlowLane() throws Exception {
+        QueueJobTracker tracker = new QueueJobTracker();
+        tracker.setTrackingPeriodInMillis(20);
+        tracker.setTrackingTimeout(TimeUnit.MINUTES.toMillis(1));
+        tracker.start();
+
+        SlowJob slowJob = new SlowJob();
+        CountDownLatch slowDone = new CountDownLatch(1);
+        CountDownLatch quickDone = new CountDownLatch(1);
+        tracker.consumeItem(new QueueJob(slowJob), countDown(slowDone));
+        tracker.consumeItem(new QueueJob(new QuickJob()), countDown(quickDone));
+
+        // the quick job completes while the slow one is still being polled
+        Assert.assertTrue(quickDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, slowDone.getCount());
+        Assert.assertEquals(1, tracker.getCompletedJobCount());
+        Assert.assertTrue(tracker.getMaxCompletionPollGap() > 0);
+
+        slowJob._release.countDown();
+        Assert.assertTrue(slowDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, tracker.getCompletedJobCount());
+    }
+}
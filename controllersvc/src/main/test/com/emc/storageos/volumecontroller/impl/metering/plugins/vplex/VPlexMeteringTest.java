@@ -353,6 +353,17 @@ public class VPlexMeteringTest {
             return list.iterator();
         }
 
+        @Override
+        public <T extends DataObject> Iterator<T> queryPipelinedObjects(Class<T> clazz, Collection<URI> ids, boolean activeOnly) {
+            return queryIterativeObjects(clazz, ids, activeOnly);
+        }
+
+        @Override
+        public <T extends DataObject> Iterator<T> queryPipelinedObjectFields(Class<T> clazz, Collection<String> fieldNames,
+                Collection<URI> ids) {
+            return queryIterativeObjectFields(clazz, fieldNames, ids);
+        }
+
         @Override
         public <T extends DataObject> List<T> queryObjectField(Class<T> clazz, String fieldName, Collection<URI> ids) {
             return null;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.plugins.metering;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.NamedURI;
+import com.emc.storageos.db.client.model.Stat;
+import com.emc.storageos.db.client.model.Volume;
+import com.emc.storageos.volumecontroller.impl.plugins.metering.smis.BlockInsertion;
+
+public class CassandraInsertionTest {
+    private static final URI VOLUME = URI.create("urn:storageos:Volume:1:vdc1");
+    private static final URI MISSING = URI.create("urn:storageos:Volume:2:vdc1");
+    private static final URI PROJECT = URI.create("urn:storageos:Project:1:global");
+    private static final URI TENANT = URI.create("urn:storageos:TenantOrg:1:global");
+    private static final URI VPOOL = URI.create("urn:storageos:VirtualPool:1:vdc1");
+
+    private static Stat stat(URI resourceId) {
+        Stat stat = new Stat();
+        stat.setResourceId(resourceId);
+        return stat;
+    }
+
+    private static Volume volume(URI id) {
+        Volume volume = new Volume();
+        volume.setId(id);
+        volume.setProject(new NamedURI(PROJECT, "project"));
+        volume.setTenant(new NamedURI(TENANT, "tenant"));
+        volume.setVirtualPool(VPOOL);
+        return volume;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DbClient expectQuery(Collection<URI> ids, List<Volume> found) {
+        DbClient client = EasyMock.createMock(DbClient.class);
+        EasyMock.expect(client.queryIterativeObjectFields(EasyMock.eq(Volume.class),
+                EasyMock.eq(CassandraInsertion.RESOURCE_FIELDS), (Collection<URI>) EasyMock.eq(ids)))
+                .andReturn(found.iterator()).once();
+        EasyMock.replay(client);
+        return client;
+    }
+
+    @Test
+    public void testOneQueryPerBatch() {
+        DbClient client = expectQuery(new HashSet<URI>(Arrays.asList(VOLUME, MISSING)),
+                Collections.singletonList(volume(VOLUME)));
+        Stat first = stat(VOLUME);
+        Stat second = stat(VOLUME);
+        Stat missing = stat(MISSING);
+        new BlockInsertion().injectColumns(Arrays.asList(first, second, missing), client);
+        EasyMock.verify(client);
+
+        for (Stat stat : Arrays.asList(first, second)) {
+            Assert.assertEquals(PROJECT, stat.getProject());
+            Assert.assertEquals(TENANT, stat.getTenant());
+            Assert.assertEquals(VPOOL, stat.getVirtualPool());
+        }
+        Assert.assertNull(missing.getProject());
+    }
+
+    @Test
+    public void testNoQueryWithoutResources() {
+        DbClient client = EasyMock.createMock(DbClient.class);
+        EasyMock.replay(client);
+        new BlockInsertion().injectColumns(Arrays.asList(stat(null)), client);
+        EasyMock.verify(client);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.smis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.cimadapter.connections.ConnectionManager;
+import com.emc.storageos.cimadapter.connections.ConnectionManagerConfiguration;
+import com.emc.storageos.cimadapter.connections.cim.CimConnection;
+import com.emc.storageos.cimadapter.connections.cim.CimConnectionInfo;
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.model.property.PropertyInfo;
+
+/**
+ * Tests concurrent connection lookups of CIMConnectionFactory, with a ConnectionManager that
+ * connects without a provider. See CIMConnectionFactoryPerfTest for their throughput.
+ */
+public class CIMConnectionFactoryContentionTest {
+    private static final int THREADS = 16;
+    private static final long CONNECT_MILLIS = 50;
+    private static final String BLOCKED_HOST = "10.0.0.99";
+
+    private final ConcurrentMap<String, CimConnection> _connections = new ConcurrentHashMap<String, CimConnection>();
+    private final AtomicInteger _connects = new AtomicInteger();
+    private final CountDownLatch _release = new CountDownLatch(1);
+    private CIMConnectionFactory _factory;
+    private ExecutorService _executor;
+
+    @Before
+    public void setup() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(new ConnectionManagerConfiguration()) {
+            @Override
+            public void configure(PropertyInfo propertyInfo) {
+            }
+
+            @Override
+            public CimConnection getConnection(String host, Integer port) {
+                return _connections.get(generateConnectionCacheKey(host, port));
+            }
+
+            @Override
+            public void addConnection(CimConnectionInfo connectionInfo) {
+                _connects.incrementAndGet();
+                try {
+                    if (BLOCKED_HOST.equals(connectionInfo.getHost())) {
+                        _release.await();
+                    } else {
+                        Thread.sleep(CONNECT_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                _connections.put(generateConnectionCacheKey(connectionInfo.getHost(), connectionInfo.getPort()),
+                        EasyMock.createNiceMock(CimConnection.class));
+            }
+        };
+        _factory = new CIMConnectionFactory();
+        _factory.setConnectionManager(connectionManager);
+        _factory.setCoordinator(EasyMock.createNiceMock(CoordinatorClient.class));
+        _executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void cleanup() {
+        _release.countDown();
+        _executor.shutdownNow();
+    }
+
+    private static StorageSystem system(String host) {
+        StorageSystem system = new StorageSystem();
+        // vnxfile systems carry their own connection information, without a provider in the database
+        system.setSystemType(StorageSystem.Type.vnxfile.name());
+        system.setSmisProviderIP(host);
+        system.setSmisPortNumber(5989);
+        system.setPortNumber(5989);
+        system.setSmisUserName("user");
+        system.setSmisPassword("password");
+        system.setSmisUseSSL(true);
+        return system;
+    }
+
+    private Future<CimConnection> getConnection(final StorageSystem system) {
+        return _executor.submit(new Callable<CimConnection>() {
+            @Override
+            public CimConnection call() {
+                return _factory.getConnection(system);
+            }
+        });
+    }
+
+    @Test
+    public void testSingleCreation() throws Exception {
+        StorageSystem system = system("10.0.0.1");
+        List<Future<CimConnection>> connections = new ArrayList<Future<CimConnection>>();
+        for (int i = 0; i < THREADS; i++) {
+            connections.add(getConnection(system));
+        }
+        CimConnection connection = connections.get(0).get(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(connection);
+        for (Future<CimConnection> other : connections) {
+            Assert.assertSame(connection, other.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, _connects.get());
+    }
+
+    @Test
+    public void testOtherProvider() throws Exception {
+        Future<CimConnection> blocked = getConnection(system(BLOCKED_HOST));
+        // another provider is served while the first one is connecting
+        Assert.assertNotNull(getConnection(system("10.0.0.2")).get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(blocked.isDone());
+
+        _release.countDown();
+        Assert.assertNotNull(blocked.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, _connects.get());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.smis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.cimadapter.connections.ConnectionManager;
+import com.emc.storageos.cimadapter.connections.ConnectionManagerConfiguration;
+import com.emc.storageos.cimadapter.connections.cim.CimConnection;
+import com.emc.storageos.cimadapter.connections.cim.CimConnectionInfo;
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.model.property.PropertyInfo;
+
+/**
+ * Throughput of concurrent CIMConnectionFactory lookups of connections already created, with a
+ * ConnectionManager that connects without a provider. Run by the PerformanceTest task only.
+ */
+public class CIMConnectionFactoryPerfTest {
+    private static final int THREADS = 16;
+    private static final int LOOKUPS = 100000;
+    private static final int SYSTEMS = 4;
+
+    private final ConcurrentMap<String, CimConnection> _connections = new ConcurrentHashMap<String, CimConnection>();
+    private final AtomicInteger _connects = new AtomicInteger();
+    private CIMConnectionFactory _factory;
+    private ExecutorService _executor;
+
+    @Before
+    public void setup() throws Exception {
+        ConnectionManager connectionManager = new ConnectionManager(new ConnectionManagerConfiguration()) {
+            @Override
+            public void configure(PropertyInfo propertyInfo) {
+            }
+
+            @Override
+            public CimConnection getConnection(String host, Integer port) {
+                return _connections.get(generateConnectionCacheKey(host, port));
+            }
+
+            @Override
+            public void addConnection(CimConnectionInfo connectionInfo) {
+                _connects.incrementAndGet();
+                _connections.put(generateConnectionCacheKey(connectionInfo.getHost(), connectionInfo.getPort()),
+                        EasyMock.createNiceMock(CimConnection.class));
+            }
+        };
+        _factory = new CIMConnectionFactory();
+        _factory.setConnectionManager(connectionManager);
+        _factory.setCoordinator(EasyMock.createNiceMock(CoordinatorClient.class));
+        _executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void cleanup() {
+        _executor.shutdownNow();
+    }
+
+    private static StorageSystem system(String host) {
+        StorageSystem system = new StorageSystem();
+        // vnxfile systems carry their own connection information, without a provider in the database
+        system.setSystemType(StorageSystem.Type.vnxfile.name());
+        system.setSmisProviderIP(host);
+        system.setSmisPortNumber(5989);
+        system.setPortNumber(5989);
+        system.setSmisUserName("user");
+        system.setSmisPassword("password");
+        system.setSmisUseSSL(true);
+        return system;
+    }
+
+    @Test
+    public void testLookupThroughput() throws Exception {
+        final StorageSystem[] systems = new StorageSystem[SYSTEMS];
+        for (int i = 0; i < systems.length; i++) {
+            systems[i] = system("10.0.1." + i);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> lookups = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            lookups.add(_executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    start.await();
+                    int found = 0;
+                    for (int j = 0; j < LOOKUPS; j++) {
+                        if (null != _factory.getConnection(systems[(thread + j) % systems.length])) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }
+            }));
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<Integer> found : lookups) {
+            Assert.assertEquals(LOOKUPS, found.get(1, TimeUnit.MINUTES).intValue());
+        }
+        long elapsed = System.nanoTime() - startTime;
+        System.out.println(THREADS + " threads: " +
+                (long) THREADS * LOOKUPS * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1) + " lookups/sec.");
+        Assert.assertEquals(systems.length, _connects.get());
+    }
+}
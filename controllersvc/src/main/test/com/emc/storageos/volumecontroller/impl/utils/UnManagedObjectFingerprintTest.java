@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.volumecontroller.impl.utils;
+
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.model.StringMap;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.StringSetMap;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeCharacterstics;
+import com.emc.storageos.db.client.model.UnManagedDiscoveredObjects.UnManagedVolume.SupportedVolumeInformation;
+
+public class UnManagedObjectFingerprintTest {
+
+    private static UnManagedVolume volume(String... pools) {
+        UnManagedVolume volume = new UnManagedVolume();
+        volume.setId(URI.create("urn:storageos:UnManagedVolume:1:vdc1"));
+        volume.setLabel("volume");
+        volume.setNativeGuid("SYMMETRIX+000195701573+VOLUME+00001");
+        volume.setStorageSystemUri(URI.create("urn:storageos:StorageSystem:1:vdc1"));
+        volume.setStoragePoolUri(URI.create("urn:storageos:StoragePool:1:vdc1"));
+        volume.setVolumeInformation(new StringSetMap());
+        for (String pool : pools) {
+            volume.getVolumeInformation().put(SupportedVolumeInformation.STORAGE_POOL.toString(), pool);
+        }
+        volume.setVolumeCharacterstics(new StringMap());
+        volume.putVolumeCharacterstics(SupportedVolumeCharacterstics.IS_THINLY_PROVISIONED.toString(), "true");
+        return volume;
+    }
+
+    @Test
+    public void testStable() {
+        String fingerprint = UnManagedObjectFingerprint.getFingerprint(volume("a", "b"));
+        Assert.assertEquals(fingerprint, UnManagedObjectFingerprint.getFingerprint(volume("b", "a")));
+        Assert.assertEquals(64, fingerprint.length());
+    }
+
+    @Test
+    public void testChanges() {
+        UnManagedVolume volume = volume("a");
+        String fingerprint = UnManagedObjectFingerprint.getFingerprint(volume);
+
+        volume.getInitiatorUris().add("urn:storageos:Initiator:1:vdc1");
+        String exported = UnManagedObjectFingerprint.getFingerprint(volume);
+        Assert.assertNotEquals(fingerprint, exported);
+
+        volume.getInitiatorUris().clear();
+        Assert.assertEquals(fingerprint, UnManagedObjectFingerprint.getFingerprint(volume));
+
+        StringSet capacity = new StringSet();
+        capacity.add("1024");
+        volume.getVolumeInformation().put(SupportedVolumeInformation.PROVISIONED_CAPACITY.toString(), capacity);
+        Assert.assertNotEquals(fingerprint, UnManagedObjectFingerprint.getFingerprint(volume));
+
+        // the same values in different fields
+        UnManagedVolume label = volume("a");
+        label.setLabel("volumex");
+        UnManagedVolume guid = volume("a");
+        guid.setLabel("volume");
+        guid.setNativeGuid("x" + guid.getNativeGuid());
+        Assert.assertNotEquals(UnManagedObjectFingerprint.getFingerprint(label),
+                UnManagedObjectFingerprint.getFingerprint(guid));
+    }
+}
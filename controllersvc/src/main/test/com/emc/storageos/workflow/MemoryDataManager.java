@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.data.Stat;
+
+import com.emc.storageos.coordinator.client.service.DistributedDataManager;
+import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
+
+/**
+ * ZK data in memory, counting the reads of each node
+ */
+class MemoryDataManager implements DistributedDataManager {
+    private final Map<String, byte[]> data = new HashMap<String, byte[]>();
+    private final Map<String, Integer> versions = new HashMap<String, Integer>();
+    private final Map<String, Integer> reads = new HashMap<String, Integer>();
+
+    synchronized int getReads(String path) {
+        Integer count = reads.get(path);
+        return count == null ? 0 : count;
+    }
+
+    synchronized void resetReads() {
+        reads.clear();
+    }
+
+    synchronized byte[] getBytes(String path) {
+        return data.get(path);
+    }
+
+    @Override
+    public void setListener(CuratorListener listener) {
+    }
+
+    @Override
+    public void setConnectionStateListener(ConnectionStateListener listener) {
+    }
+
+    @Override
+    public synchronized Stat checkExists(String path) {
+        if (!data.containsKey(path)) {
+            return null;
+        }
+        Stat stat = new Stat();
+        stat.setVersion(versions.get(path));
+        return stat;
+    }
+
+    @Override
+    public synchronized void createNode(String path, boolean watch) {
+        if (!data.containsKey(path)) {
+            data.put(path, new byte[0]);
+            versions.put(path, 0);
+        }
+    }
+
+    @Override
+    public synchronized void removeNode(String path) {
+        removeNode(path, true);
+    }
+
+    @Override
+    public synchronized void removeNode(String path, boolean recursive) {
+        for (String node : new ArrayList<String>(data.keySet())) {
+            if (node.equals(path) || node.startsWith(path + "/")) {
+                data.remove(node);
+                versions.remove(node);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void putData(String path, Object object) {
+        putSerializedData(path, GenericSerializer.serialize(object, path, true));
+    }
+
+    @Override
+    public synchronized void putSerializedData(String path, byte[] bytes) {
+        data.put(path, bytes);
+        versions.put(path, versions.containsKey(path) ? versions.get(path) + 1 : 0);
+    }
+
+    @Override
+    public synchronized String createNodesIfAbsent(Map<String, Object> nodes) {
+        for (String path : nodes.keySet()) {
+            if (data.containsKey(path)) {
+                return path;
+            }
+        }
+        for (Map.Entry<String, Object> node : nodes.entrySet()) {
+            putData(node.getKey(), node.getValue());
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Object getData(String path, boolean watch) {
+        reads.put(path, getReads(path) + 1);
+        byte[] bytes = data.get(path);
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return GenericSerializer.deserialize(bytes);
+    }
+
+    @Override
+    public synchronized List<String> getChildren(String path) {
+        List<String> children = new ArrayList<String>();
+        for (String node : data.keySet()) {
+            if (node.startsWith(path + "/") && node.indexOf('/', path.length() + 1) < 0) {
+                children.add(node.substring(path.length() + 1));
+            }
+        }
+        return children;
+    }
+
+    @Override
+    public void close() {
+    }
+}
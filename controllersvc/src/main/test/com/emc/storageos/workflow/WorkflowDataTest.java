@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.impl.DeflatePayloadCodec;
+import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.WorkflowStepData;
+
+/**
+ * Tests the workflow data kept by WorkflowService in ZK, or in the database when too large.
+ */
+public class WorkflowDataTest {
+    private static final String STEP_ID = "aaaaaaaa-0000-0000-0000-000000000001";
+    private static final String KEY = "key";
+
+    private final List<WorkflowStepData> records = new ArrayList<WorkflowStepData>();
+    private MemoryDataManager dataManager;
+    private WorkflowService service;
+    private String dataPath;
+
+    @Before
+    public void setup() throws Exception {
+        dataManager = new MemoryDataManager();
+        DbClient dbClient = EasyMock.createNiceMock(DbClient.class);
+        dbClient.createObject(EasyMock.<WorkflowStepData> anyObject());
+        EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                records.add((WorkflowStepData) EasyMock.getCurrentArguments()[0]);
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.expect(dbClient.queryIterativeObjects(EasyMock.eq(WorkflowStepData.class),
+                EasyMock.<Collection<URI>> anyObject())).andAnswer(new IAnswer<Iterator<WorkflowStepData>>() {
+                    @Override
+                    public Iterator<WorkflowStepData> answer() {
+                        return new ArrayList<WorkflowStepData>(records).iterator();
+                    }
+                }).anyTimes();
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getWorkflowDataManager()).andReturn(dataManager).anyTimes();
+        EasyMock.replay(dbClient, coordinator);
+
+        service = new WorkflowService();
+        service.setDbClient(dbClient);
+        service.setCoordinator(coordinator);
+        service.setScrubber(new WorkflowScrubberExecutor() {
+            @Override
+            public void start() {
+            }
+        });
+        service.start();
+
+        Workflow workflow = new Workflow(service, "controller", "method", "task",
+                URIUtil.createId(com.emc.storageos.db.client.model.Workflow.class));
+        service.persistWorkflow(workflow);
+        String workflowPath = String.format("/workflow/workflows/%s/%s/%s", "controller", "method",
+                workflow.getWorkflowURI());
+        dataManager.putData("/workflow/step2workflow/" + STEP_ID, workflowPath);
+        dataPath = String.format("/workflow/stepdata/%s/data/%s", workflow.getWorkflowURI(), KEY);
+    }
+
+    @Test
+    public void testSmallDataInZk() throws Exception {
+        service.storeWorkflowData(STEP_ID, KEY, "small");
+        Assert.assertEquals("small", dataManager.getData(dataPath, false));
+        Assert.assertTrue(records.isEmpty());
+        Assert.assertEquals("small", service.loadWorkflowData(STEP_ID, KEY));
+    }
+
+    private static String createLargeData() {
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 20000) {
+            large.append("large data ");
+        }
+        return large.toString();
+    }
+
+    @Test
+    public void testLargeDataInDatabase() throws Exception {
+        String large = createLargeData();
+        service.storeWorkflowData(STEP_ID, KEY, large);
+
+        // only a reference to the record is left in ZK
+        Assert.assertEquals(1, records.size());
+        Assert.assertTrue(dataManager.getData(dataPath, false) instanceof WorkflowDataReference);
+        Assert.assertEquals(large, service.loadWorkflowData(STEP_ID, KEY));
+    }
+
+    @Test
+    public void testCompressionScopedToWorkflows() throws Exception {
+        service.setCompressLargePayloads(true);
+        String large = createLargeData();
+        service.storeWorkflowData(STEP_ID, KEY, large);
+
+        // small enough for ZK once compressed
+        Assert.assertTrue(records.isEmpty());
+        Assert.assertEquals(DeflatePayloadCodec.ID, dataManager.getBytes(dataPath)[0]);
+        Assert.assertEquals(large, service.loadWorkflowData(STEP_ID, KEY));
+
+        // other serializations are left alone
+        byte[] other = GenericSerializer.serialize(large, KEY, false);
+        Assert.assertEquals(large, GenericSerializer.deserialize(other));
+        Assert.assertTrue(other.length > large.length());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.impl.DeflatePayloadCodec;
+import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
+import com.emc.storageos.coordinator.client.service.impl.PayloadCodec;
+
+/**
+ * Compares payload size and latency of workflows serialized by GenericSerializer as they are and
+ * with the codec WorkflowService uses once compressLargePayloads is on, on workflows shaped like
+ * the large VPLEX ones. Run by the PerformanceTest task only.
+ */
+public class WorkflowSerializerPerfTest {
+    private static final int ITERATIONS = 200;
+
+    private interface Codec {
+        byte[] encode(Workflow workflow) throws Exception;
+
+        Workflow decode(byte[] data) throws Exception;
+    }
+
+    /**
+     * Stands for the controllers in the steps, only the method names are checked
+     */
+    public static class TestController {
+        public void createVirtualVolumes(URI vplexURI, List<URI> volumeURIs, Map<String, String> initiators, String stepId) {
+        }
+
+        public void rollbackCreateVirtualVolumes(URI vplexURI, List<URI> volumeURIs, String stepId) {
+        }
+    }
+
+    private static URI createURI(String type) {
+        return URI.create("urn:storageos:" + type + ":" + UUID.randomUUID() + ":vdc1");
+    }
+
+    static Workflow createWorkflow(int stepCount, int volumesPerStep) throws Exception {
+        Workflow workflow = new Workflow(null, "VPlexDeviceController", "createVirtualVolumes",
+                UUID.randomUUID().toString(), createURI("Workflow"));
+        URI vplexURI = createURI("StorageSystem");
+        String previous = null;
+        for (int i = 0; i < stepCount; i++) {
+            List<URI> volumes = new ArrayList<URI>();
+            for (int j = 0; j < volumesPerStep; j++) {
+                volumes.add(createURI("Volume"));
+            }
+            Map<String, String> initiators = new HashMap<String, String>();
+            for (int j = 0; j < 8; j++) {
+                initiators.put(createURI("Initiator").toString(), "50:00:09:72:08:1" + j + ":2d:" + (i % 100));
+            }
+            String stepId = workflow.createStepId();
+            workflow.createStep("VPLEX_VOLUMES_" + (i % 10), "Creating virtual volumes on VPLEX, step " + i,
+                    previous, vplexURI, "vplex", TestController.class,
+                    new Workflow.Method("createVirtualVolumes", vplexURI, volumes, initiators, stepId),
+                    new Workflow.Method("rollbackCreateVirtualVolumes", vplexURI, volumes, stepId), stepId);
+            previous = stepId;
+        }
+        return workflow;
+    }
+
+    @Test
+    public void testWorkflowSizeAndLatency() throws Exception {
+        int[][] shapes = { { 10, 4 }, { 100, 8 }, { 400, 16 } };
+        for (int[] shape : shapes) {
+            Workflow workflow = createWorkflow(shape[0], shape[1]);
+            String name = String.format("Workflow of %d steps x %d volumes", shape[0], shape[1]);
+            int javaSize = run(name + ", java serialization", workflow, codec(null));
+            int encodedSize = run(name + ", compressed", workflow, codec(new DeflatePayloadCodec()));
+            Assert.assertTrue(encodedSize < javaSize);
+        }
+    }
+
+    private static Codec codec(final PayloadCodec payloadCodec) {
+        return new Codec() {
+            @Override
+            public byte[] encode(Workflow data) {
+                return GenericSerializer.serialize(data, "workflow", false, payloadCodec);
+            }
+
+            @Override
+            public Workflow decode(byte[] data) {
+                return (Workflow) GenericSerializer.deserialize(data);
+            }
+        };
+    }
+
+    private int run(String name, Workflow workflow, Codec codec) throws Exception {
+        // warm up
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            codec.decode(codec.encode(workflow));
+        }
+
+        byte[] encoded = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            encoded = codec.encode(workflow);
+        }
+        long encodeTime = System.nanoTime() - start;
+
+        Workflow decoded = null;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoded = codec.decode(encoded);
+        }
+        long decodeTime = System.nanoTime() - start;
+        Assert.assertEquals(workflow.getStepMap().size(), decoded.getStepMap().size());
+
+        System.out.println(String.format("%s: %d bytes, encode %d us, decode %d us", name, encoded.length,
+                encodeTime / ITERATIONS / 1000, decodeTime / ITERATIONS / 1000));
+        return encoded.length;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.client.service.impl.GenericSerializer;
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.WorkflowStep;
+import com.emc.storageos.workflow.Workflow.Step;
+import com.emc.storageos.workflow.Workflow.StepState;
+import com.emc.storageos.workflow.Workflow.StepStatus;
+
+/**
+ * Tests the steps and state summary kept by WorkflowService while holding a workflow lock,
+ * with two services sharing the same ZK data as two nodes would.
+ */
+public class WorkflowServiceStepCacheTest {
+    private static final String STEP_A = "aaaaaaaa-0000-0000-0000-000000000001";
+    private static final String STEP_B = "bbbbbbbb-0000-0000-0000-000000000002";
+    private static final String STEP_C = "cccccccc-0000-0000-0000-000000000003";
+
+    private MemoryDataManager dataManager;
+    private WorkflowService thisNode;
+    private WorkflowService otherNode;
+    private Workflow workflow;
+    private String workflowPath;
+
+    private WorkflowService createService() throws Exception {
+        WorkflowStep logStep = new WorkflowStep();
+        logStep.setExecuteMethodData(GenericSerializer.serialize(new Workflow.Method("test"), "test", false));
+        DbClient dbClient = EasyMock.createNiceMock(DbClient.class);
+        EasyMock.expect(dbClient.queryObject(EasyMock.eq(WorkflowStep.class), EasyMock.<URI> anyObject()))
+                .andReturn(logStep).anyTimes();
+
+        InterProcessLock lock = EasyMock.createNiceMock(InterProcessLock.class);
+        EasyMock.expect(lock.acquire(EasyMock.anyLong(), EasyMock.<TimeUnit> anyObject())).andReturn(true).anyTimes();
+        CoordinatorClient coordinator = EasyMock.createNiceMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.getWorkflowDataManager()).andReturn(dataManager).anyTimes();
+        EasyMock.expect(coordinator.getLock(EasyMock.<String> anyObject())).andReturn(lock).anyTimes();
+        EasyMock.replay(dbClient, lock, coordinator);
+
+        WorkflowService service = new WorkflowService();
+        service.setDbClient(dbClient);
+        service.setCoordinator(coordinator);
+        service.setScrubber(new WorkflowScrubberExecutor() {
+            @Override
+            public void start() {
+            }
+        });
+        service.start();
+        return service;
+    }
+
+    private static Step step(String stepId) {
+        Step step = new Step();
+        step.stepId = stepId;
+        step.stepGroup = "group";
+        step.description = stepId;
+        step.executeMethod = new Workflow.Method("test");
+        step.status = new StepStatus(stepId, StepState.CREATED, stepId);
+        step.workflowStepURI = URIUtil.createId(WorkflowStep.class);
+        return step;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        dataManager = new MemoryDataManager();
+        thisNode = createService();
+        otherNode = createService();
+
+        workflow = new Workflow(thisNode, "controller", "method", "task",
+                URIUtil.createId(com.emc.storageos.db.client.model.Workflow.class));
+        for (String stepId : Arrays.asList(STEP_A, STEP_B, STEP_C)) {
+            Step step = step(stepId);
+            workflow.getStepMap().put(stepId, step);
+            workflow.getStepStatusMap().put(stepId, step.status);
+        }
+        thisNode.persistWorkflow(workflow);
+        thisNode.persistWorkflowSteps(workflow, workflow.getStepMap().values());
+        workflowPath = String.format("/workflow/workflows/%s/%s/%s", "controller", "method", workflow.getWorkflowURI());
+    }
+
+    /**
+     * Locks the workflow, loads it, saves one of its steps with a new state and unlocks it
+     */
+    private Workflow updateStep(WorkflowService service, String stepId, StepState state) throws Exception {
+        InterProcessLock lock = service.lockWorkflow(workflow);
+        try {
+            Workflow loaded = service.loadWorkflowForUpdate(workflowPath);
+            Step step = loaded.getStepMap().get(stepId);
+            step.status.state = state;
+            service.persistWorkflowSteps(loaded, Arrays.asList(step));
+            return loaded;
+        } finally {
+            service.unlockWorkflow(workflow, lock);
+        }
+    }
+
+    private Workflow load(WorkflowService service) throws Exception {
+        InterProcessLock lock = service.lockWorkflow(workflow);
+        try {
+            return service.loadWorkflowForUpdate(workflowPath);
+        } finally {
+            service.unlockWorkflow(workflow, lock);
+        }
+    }
+
+    @Test
+    public void testOnlyChangedStepsAreRead() throws Exception {
+        // the first load reads every step
+        updateStep(thisNode, STEP_A, StepState.QUEUED);
+        Assert.assertEquals(1, dataManager.getReads(workflowPath + "/" + STEP_B));
+
+        // its own changes are known to this node
+        dataManager.resetReads();
+        Assert.assertEquals(StepState.QUEUED, load(thisNode).getStepStatus(STEP_A).state);
+        Assert.assertEquals(0, dataManager.getReads(workflowPath + "/" + STEP_A));
+        Assert.assertEquals(0, dataManager.getReads(workflowPath + "/" + STEP_B));
+
+        // the changes of the other node are read
+        updateStep(otherNode, STEP_B, StepState.EXECUTING);
+        dataManager.resetReads();
+        Workflow loaded = load(thisNode);
+        Assert.assertEquals(StepState.EXECUTING, loaded.getStepStatus(STEP_B).state);
+        Assert.assertEquals(3, loaded.getStepMap().size());
+        Assert.assertEquals(0, dataManager.getReads(workflowPath + "/" + STEP_A));
+        Assert.assertEquals(1, dataManager.getReads(workflowPath + "/" + STEP_B));
+        Assert.assertEquals(0, dataManager.getReads(workflowPath + "/" + STEP_C));
+    }
+
+    @Test
+    public void testStepsSavedWithoutLockAreNotMissed() throws Exception {
+        load(thisNode);
+        InterProcessLock lock = thisNode.lockWorkflow(workflow);
+        try {
+            Workflow loaded = thisNode.loadWorkflowForUpdate(workflowPath);
+
+            // saved by the other node without the lock while this one holds it
+            Workflow unlocked = load(otherNode);
+            Step changed = unlocked.getStepMap().get(STEP_C);
+            changed.status.state = StepState.CANCELLED;
+            otherNode.persistWorkflowSteps(unlocked, Arrays.asList(changed));
+
+            Step step = loaded.getStepMap().get(STEP_A);
+            step.status.state = StepState.QUEUED;
+            thisNode.persistWorkflowSteps(loaded, Arrays.asList(step));
+        } finally {
+            thisNode.unlockWorkflow(workflow, lock);
+        }
+
+        Workflow loaded = load(thisNode);
+        Assert.assertEquals(StepState.QUEUED, loaded.getStepStatus(STEP_A).state);
+        Assert.assertEquals(StepState.CANCELLED, loaded.getStepStatus(STEP_C).state);
+    }
+
+    @Test
+    public void testWorkflowWithoutSummary() throws Exception {
+        // only steps under the workflow node, which older nodes read as such
+        updateStep(thisNode, STEP_A, StepState.QUEUED);
+        for (String child : dataManager.getChildren(workflowPath)) {
+            Assert.assertTrue(dataManager.getData(workflowPath + "/" + child, false) instanceof Step);
+        }
+
+        // a workflow saved by an older node has no summary, all its steps are loaded
+        dataManager.removeNode(workflowPath.replace("/workflows/", "/summaries/"));
+        Workflow loaded = load(otherNode);
+        Assert.assertEquals(3, loaded.getStepMap().size());
+        Assert.assertEquals(StepState.QUEUED, loaded.getStepStatus(STEP_A).state);
+
+        updateStep(otherNode, STEP_B, StepState.EXECUTING);
+        loaded = load(thisNode);
+        Assert.assertEquals(3, loaded.getStepMap().size());
+        Assert.assertEquals(StepState.EXECUTING, loaded.getStepStatus(STEP_B).state);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.workflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.workflow.Workflow.StepState;
+import com.emc.storageos.workflow.Workflow.StepStatus;
+
+public class WorkflowStateSummaryTest {
+
+    private static StepStatus status(String stepId, StepState state) {
+        StepStatus status = new StepStatus(stepId, state, stepId);
+        status.state = state;
+        return status;
+    }
+
+    @Test
+    public void testChangesSince() {
+        WorkflowStateSummary summary = new WorkflowStateSummary();
+        summary.stepsChanged(Arrays.asList("a", "b", "c"));
+        long seen = summary.getSequence();
+        summary.stepsChanged(Arrays.asList("b", "d"));
+
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("b", "d")), summary.getChangesSince(summary.getEpoch(), seen));
+        Assert.assertTrue(summary.getChangesSince(summary.getEpoch(), summary.getSequence()).isEmpty());
+        // another epoch, or a sequence number from the future, means everything must be read again
+        Assert.assertNull(summary.getChangesSince(new WorkflowStateSummary().getEpoch(), seen));
+        Assert.assertNull(summary.getChangesSince(summary.getEpoch(), summary.getSequence() + 1));
+    }
+
+    @Test
+    public void testChangeLogIsBounded() {
+        WorkflowStateSummary summary = new WorkflowStateSummary();
+        List<String> stepIds = new ArrayList<String>();
+        for (int i = 0; i < WorkflowStateSummary.MAX_CHANGES + 10; i++) {
+            stepIds.add("step" + i);
+        }
+        summary.stepsChanged(stepIds);
+
+        Assert.assertNull(summary.getChangesSince(summary.getEpoch(), 0));
+        Assert.assertEquals(WorkflowStateSummary.MAX_CHANGES,
+                summary.getChangesSince(summary.getEpoch(), 10).size());
+    }
+
+    @Test
+    public void testCounts() {
+        WorkflowStateSummary summary = new WorkflowStateSummary();
+        summary.count(Arrays.asList(status("a", StepState.SUCCESS), status("b", StepState.BLOCKED),
+                status("c", StepState.ERROR), status("d", StepState.CANCELLED)));
+        Assert.assertEquals(1, summary.getPendingSteps());
+        Assert.assertEquals(3, summary.getTerminalSteps());
+        Assert.assertEquals(1, summary.getErrorSteps());
+        Assert.assertFalse(summary.allStatesTerminal());
+
+        summary.count(Arrays.asList(status("a", StepState.SUCCESS), status("b", StepState.SUSPENDED_NO_ERROR)));
+        Assert.assertTrue(summary.allStatesTerminal());
+    }
+}
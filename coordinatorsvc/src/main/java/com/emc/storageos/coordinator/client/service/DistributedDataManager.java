@@ -5,6 +5,7 @@
 package com.emc.storageos.coordinator.client.service;
 
 import java.util.List;
+import java.util.Map;
 
 import org.apache.zookeeper.data.Stat;
 import org.apache.curator.framework.api.CuratorListener;
@@ -86,6 +87,28 @@ public interface DistributedDataManager {
      */
     public void putData(String path, Object data) throws Exception;
 
+    /**
+     * Stores data already serialized with GenericSerializer.serialize() as data of the
+     * zookeeper node given by path (will create the node if necessary), as putData() would
+     * store the object itself.
+     * 
+     * @param path -- String zookeeper path.
+     * @param data -- serialized object, within the zookeeper size limit
+     * @throws Exception
+     */
+    public void putSerializedData(String path, byte[] data) throws Exception;
+
+    /**
+     * Creates all the zookeeper nodes given in a single ZK transaction, each with the Java object
+     * (see putData) mapped to it as data. Either all the nodes are created or, if one of them
+     * exists already, none is. The parent nodes must exist.
+     * 
+     * @param nodes -- Map of zookeeper path to data, the data can be null
+     * @return null if the nodes were created, else the path of a node which already existed
+     * @throws Exception
+     */
+    public String createNodesIfAbsent(Map<String, Object> nodes) throws Exception;
+
     /**
      * Returns the data in the zookeeper node given by path. If the node does not exist,
      * or there is no data present in the node, null is returned. The data is returned
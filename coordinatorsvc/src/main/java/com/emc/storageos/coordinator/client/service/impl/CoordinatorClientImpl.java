@@ -38,6 +38,7 @@ import org.apache.curator.framework.api.DeleteBuilder;
 import org.apache.curator.framework.api.transaction.CuratorTransaction;
 import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.recipes.barriers.DistributedBarrier;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.NodeCache;
 import org.apache.curator.framework.recipes.cache.NodeCacheListener;
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
@@ -117,6 +118,12 @@ public class CoordinatorClientImpl implements CoordinatorClient {
     private static final int ATOMIC_INTEGER_RETRY_TIME = 5;
     private static final String ATOMIC_INTEGER_ZK_PATH_FORMAT = "%s/%s/%s";
     private static final String VDC_NODE_PREFIX = "node";
+    // /service/<name>/<version>/<id>
+    private static final int SERVICE_CACHE_DEPTH = 3;
+    // /config/<kind>/<id>
+    private static final int CONFIG_CACHE_DEPTH = 1;
+    // queues claim and read their items one by one unless configured otherwise
+    private static final int DEFAULT_QUEUE_CLAIM_BATCH_SIZE = 1;
 
     private final ConcurrentMap<String, Object> _proxyCache = new ConcurrentHashMap<String, Object>();
 
@@ -144,6 +151,10 @@ public class CoordinatorClientImpl implements CoordinatorClient {
 
     private NodeCacheWatcher nodeWatcher = new NodeCacheWatcher();
 
+    private boolean readCacheEnabled = false;
+    private volatile CoordinatorReadCache readCache;
+    private Map<String, Integer> queueClaimBatchSizes = new HashMap<String, Integer>();
+
     private DistributedAroundHook ownerLockAroundHook;
     
     // ThreadLocal variable to hold zk transaction handler
@@ -192,6 +203,35 @@ public class CoordinatorClientImpl implements CoordinatorClient {
         return _zkConnection;
     }
 
+    /**
+     * Serve service lookups and configuration queries from a watch driven in-memory
+     * copy of ZK. Disabled by default.
+     *
+     * @param readCacheEnabled
+     */
+    public void setReadCacheEnabled(boolean readCacheEnabled) {
+        this.readCacheEnabled = readCacheEnabled;
+    }
+
+    public CoordinatorReadCache getReadCache() {
+        return readCache;
+    }
+
+    /**
+     * Maximum number of items the consumer of a distributed queue claims with one ZK transaction,
+     * by queue name. Queues not listed claim and read their items one by one.
+     *
+     * @param queueClaimBatchSizes
+     */
+    public void setQueueClaimBatchSizes(Map<String, Integer> queueClaimBatchSizes) {
+        this.queueClaimBatchSizes = queueClaimBatchSizes;
+    }
+
+    private int getQueueClaimBatchSize(String name) {
+        Integer batchSize = queueClaimBatchSizes.get(name);
+        return batchSize != null ? batchSize : DEFAULT_QUEUE_CLAIM_BATCH_SIZE;
+    }
+
     public void setNodeCount(int count) {
         nodeCount = count;
     }
@@ -352,7 +392,7 @@ public class CoordinatorClientImpl implements CoordinatorClient {
         String siteMonitorState = siteConfigPath + ZkPath.SITEMONITORSTATE;
         String siteNetworkState = siteConfigPath + ZkPath.SITENETWORKSTATE;
         String siteTargetConfig = siteConfigPath + ZkPath.SITETARGETCONFIG;
-
+        notifyReadCache(siteConfigPath);
 
         ZooKeeper zooKeeper =  getZkConnection().curator().getZookeeperClient().getZooKeeper();
         try {
@@ -417,6 +457,10 @@ public class CoordinatorClientImpl implements CoordinatorClient {
                     @Override
                     public void stateChanged(CuratorFramework client, final ConnectionState newState) {
                         log.info("Entering stateChanged method : {}", newState);
+                        CoordinatorReadCache cache = readCache;
+                        if (cache != null) {
+                            cache.stateChanged(newState);
+                        }
                         _connectionStateWorker.submit(new Callable<Object>() {
                             @Override
                             public Object call() throws Exception {
@@ -446,6 +490,11 @@ public class CoordinatorClientImpl implements CoordinatorClient {
                     }
                 });
         
+        if (readCacheEnabled) {
+            readCache = new CoordinatorReadCache(_zkConnection.curator());
+            readCache.register();
+        }
+
         _zkConnection.connect();
 
         // writing local node to zk
@@ -472,11 +521,23 @@ public class CoordinatorClientImpl implements CoordinatorClient {
 
     @Override
     public void stop() {
+        CoordinatorReadCache cache = readCache;
+        if (cache != null) {
+            readCache = null;
+            cache.close();
+        }
         if (_zkConnection.curator().isStarted()) {
             _zkConnection.disconnect();
         }
     }
 
+    private void notifyReadCache(String path) {
+        CoordinatorReadCache cache = readCache;
+        if (cache != null) {
+            cache.written(path);
+        }
+    }
+
     /**
      * Verify if this is in zk and it's the same as current node; If not, save to the map and update
      * zk
@@ -659,6 +720,7 @@ public class CoordinatorClientImpl implements CoordinatorClient {
 
                 String servicePath = String.format("%1$s/%2$s", configParentPath, config.getId());
                 Stat stat = _zkConnection.curator().checkExists().forPath(servicePath);
+                notifyReadCache(servicePath);
                 
                 CuratorTransaction handler = zkTransactionHandler.get();
                 if (stat != null) {
@@ -698,6 +760,7 @@ public class CoordinatorClientImpl implements CoordinatorClient {
             }
             String servicePath = String.format("%1$s%2$s/%3$s/%4$s", prefix, ZkPath.CONFIG, config.getKind(),
                     config.getId());
+            notifyReadCache(servicePath);
             try {
                 CuratorTransaction handler = zkTransactionHandler.get();
                 if (handler != null) {
@@ -725,6 +788,16 @@ public class CoordinatorClientImpl implements CoordinatorClient {
         String serviceParentPath = getKindPath(siteId, kind);
         List<String> configPaths;
         try {
+            CoordinatorReadCache cache = readCache;
+            Map<String, ChildData> cached = cache != null
+                    ? cache.getChildren(serviceParentPath, serviceParentPath, CONFIG_CACHE_DEPTH) : null;
+            if (cached != null) {
+                List<Configuration> configs = new ArrayList<Configuration>(cached.size());
+                for (ChildData child : cached.values()) {
+                    configs.add(ConfigurationImpl.parse(child.getData()));
+                }
+                return configs;
+            }
             configPaths = _zkConnection.curator().getChildren().forPath(serviceParentPath);
         } catch (KeeperException.NoNodeException ignore) {
             // Ignore exception, don't re-throw
@@ -804,9 +877,14 @@ public class CoordinatorClientImpl implements CoordinatorClient {
     
     @Override
     public Configuration queryConfiguration(String siteId, String kind, String id) throws CoordinatorException {
-        String servicePath = String.format("%s/%s", getKindPath(siteId, kind), id);
+        String kindPath = getKindPath(siteId, kind);
+        String servicePath = String.format("%s/%s", kindPath, id);
         try {
-            byte[] data = _zkConnection.curator().getData().forPath(servicePath);
+            CoordinatorReadCache cache = readCache;
+            byte[] data = cache != null ? cache.getData(kindPath, servicePath) : null;
+            if (data == null) {
+                data = _zkConnection.curator().getData().forPath(servicePath);
+            }
             return ConfigurationImpl.parse(data);
         } catch (KeeperException.NoNodeException ignore) {
             // Ignore exception, don't re-throw
@@ -895,8 +973,15 @@ public class CoordinatorClientImpl implements CoordinatorClient {
      */
     private List<String> lookupServicePath(String siteId, String serviceRoot) throws CoordinatorException {
         List<String> services = null;
-        String fullPath = String.format("%1$s/%2$s", getServicePath(siteId), serviceRoot);
+        String servicePath = getServicePath(siteId);
+        String fullPath = String.format("%1$s/%2$s", servicePath, serviceRoot);
         try {
+            CoordinatorReadCache cache = readCache;
+            Set<String> cached = cache != null
+                    ? cache.getChildNames(servicePath, fullPath, SERVICE_CACHE_DEPTH) : null;
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
             services = _zkConnection.curator().getChildren().forPath(fullPath);
         } catch (KeeperException.NoNodeException e) {
             throw CoordinatorException.retryables.cannotFindNode(fullPath, e);
@@ -925,12 +1010,18 @@ public class CoordinatorClientImpl implements CoordinatorClient {
      */
     private byte[] getServiceData(String siteId, String serviceRoot, String id) {
         byte[] data = null;
+        String servicePath = getServicePath(siteId);
+        String fullPath = String.format("%1$s/%2$s/%3$s", servicePath, serviceRoot, id);
         try {
-            data = _zkConnection
-                    .curator()
-                    .getData()
-                    .forPath(String.format("%1$s/%2$s/%3$s", getServicePath(siteId), serviceRoot, id));
+            CoordinatorReadCache cache = readCache;
+            data = cache != null ? cache.getData(servicePath, fullPath) : null;
+            if (data == null) {
+                data = _zkConnection.curator().getData().forPath(fullPath);
+            }
             return data;
+        } catch (KeeperException.NoNodeException e) {
+            // the service instance went away since its parent was listed
+            log.debug("Service node {} is gone", fullPath);
         } catch (Exception e) {
             log.warn("e=", e);
         }
@@ -1029,8 +1120,9 @@ public class CoordinatorClientImpl implements CoordinatorClient {
     @Override
     public <T> DistributedQueue<T> getQueue(String name, DistributedQueueConsumer<T> consumer,
             QueueSerializer<T> serializer, int maxThreads, int maxItem) throws CoordinatorException {
-        DistributedQueue<T> queue = new DistributedQueueImpl<T>(_zkConnection, consumer,
+        DistributedQueueImpl<T> queue = new DistributedQueueImpl<T>(_zkConnection, consumer,
                 serializer, name, maxThreads, maxItem);
+        queue.setClaimBatchSize(getQueueClaimBatchSize(name));
         queue.start();
         return queue;
     }
@@ -1038,8 +1130,9 @@ public class CoordinatorClientImpl implements CoordinatorClient {
     @Override
     public <T> DistributedQueue<T> getQueue(String name, DistributedQueueConsumer<T> consumer,
             QueueSerializer<T> serializer, int maxThreads) throws CoordinatorException {
-        DistributedQueue<T> queue = new DistributedQueueImpl<T>(_zkConnection, consumer,
+        DistributedQueueImpl<T> queue = new DistributedQueueImpl<T>(_zkConnection, consumer,
                 serializer, name, maxThreads);
+        queue.setClaimBatchSize(getQueueClaimBatchSize(name));
         queue.start();
         return queue;
     }
@@ -2121,7 +2214,8 @@ public class CoordinatorClientImpl implements CoordinatorClient {
             for (String subPath : subPaths) {
                 log.info("Subpath {}/{} is going to be deleted", path, subPath);
             }
-            
+            notifyReadCache(path);
+
             DeleteBuilder deleteOp = _zkConnection.curator().delete();
             deleteOp.deletingChildrenIfNeeded();
             deleteOp.forPath(path);
@@ -2147,12 +2241,14 @@ public class CoordinatorClientImpl implements CoordinatorClient {
 
     public void createEphemeralNode(String path, byte[] data) throws Exception {
         log.info("create ephemeral node path={} data={}", path, data);
+        notifyReadCache(path);
         _zkConnection.curator().create().creatingParentContainersIfNeeded().withMode(CreateMode.EPHEMERAL).
                 forPath(path, data);
     }
 
     public void deleteNode(String path) throws Exception {
         log.info("delete ephemeral node path={}", path);
+        notifyReadCache(path);
         _zkConnection.curator().delete().forPath(path);
     }
 
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.utils.CloseableUtils;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
+
+/**
+ * In-memory snapshot of the ZK subtrees read over and over by CoordinatorClientImpl
+ * (/service and /config/<kind>), kept up to date by Curator TreeCache watches.
+ *
+ * A cached subtree only answers reads when it is known to be current:
+ * <ul>
+ * <li>after the initial load of the subtree completed</li>
+ * <li>while the ZK connection is up. The caches are dropped on reconnect and built again,
+ * since the watches may have missed changes in between</li>
+ * <li>when no write done by this client below the subtree is waiting for its watch event,
+ * so callers read their own writes</li>
+ * </ul>
+ * Otherwise the lookup methods return null and the caller reads from ZK.
+ */
+public class CoordinatorReadCache implements CoordinatorReadCacheMBean {
+    private static final Logger log = LoggerFactory.getLogger(CoordinatorReadCache.class);
+
+    private static final String POOL_NAME = "CoordinatorReadCache";
+    // how long a local write keeps its subtree on direct reads if its watch event never comes
+    // (e.g. the write failed or deleted a node which didn't exist)
+    private static final long PENDING_WRITE_TIMEOUT_MS = 5000;
+
+    private final CuratorFramework _zkClient;
+    private final ConcurrentMap<String, CachedTree> _trees = new ConcurrentHashMap<String, CachedTree>();
+    // one thread for all caches keeps the events of each cache in order
+    private final ExecutorService _eventWorker = new NamedThreadPoolExecutor(POOL_NAME, 1);
+
+    private final AtomicLong _readsAvoided = new AtomicLong(0);
+    private final AtomicLong _fallbackReads = new AtomicLong(0);
+    private final AtomicLong _rebuilds = new AtomicLong(0);
+
+    private volatile boolean _connected = true;
+    private volatile boolean _closed = false;
+
+    public CoordinatorReadCache(CuratorFramework zkClient) {
+        _zkClient = zkClient;
+    }
+
+    /**
+     * Register with the platform MBean server, unless another coordinator client of this JVM did already
+     */
+    public void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            log.error("Register MBean error ", ex);
+        }
+    }
+
+    /**
+     * Child names of a node, served from the cache of rootPath. The cache is created on first use.
+     *
+     * @param rootPath root of the cached subtree
+     * @param path node below (or equal to) rootPath
+     * @param maxDepth depth of the subtree to cache
+     * @return child names, null if the cache can't answer
+     * @throws KeeperException.NoNodeException if the node doesn't exist
+     */
+    public Set<String> getChildNames(String rootPath, String path, int maxDepth)
+            throws KeeperException.NoNodeException {
+        Map<String, ChildData> children = getCurrentChildren(rootPath, path, maxDepth);
+        if (children == null) {
+            return null;
+        }
+        _readsAvoided.incrementAndGet();
+        return children.keySet();
+    }
+
+    /**
+     * Same as getChildNames, with the data of the children
+     *
+     * @return child name to data map, null if the cache can't answer
+     */
+    public Map<String, ChildData> getChildren(String rootPath, String path, int maxDepth)
+            throws KeeperException.NoNodeException {
+        Map<String, ChildData> children = getCurrentChildren(rootPath, path, maxDepth);
+        if (children == null) {
+            return null;
+        }
+        // one getChildren and a getData per child
+        _readsAvoided.addAndGet(1 + children.size());
+        return children;
+    }
+
+    private Map<String, ChildData> getCurrentChildren(String rootPath, String path, int maxDepth)
+            throws KeeperException.NoNodeException {
+        CachedTree tree = getTree(rootPath, maxDepth);
+        if (tree == null || !tree.isCurrent()) {
+            _fallbackReads.incrementAndGet();
+            return null;
+        }
+        Map<String, ChildData> children = tree.cache.getCurrentChildren(path);
+        if (children == null) {
+            _readsAvoided.incrementAndGet();
+            throw new KeeperException.NoNodeException(path);
+        }
+        return children;
+    }
+
+    /**
+     * Data of a node, served from the cache of rootPath if there is one already
+     *
+     * @return node data, null if the cache can't answer
+     * @throws KeeperException.NoNodeException if the node doesn't exist
+     */
+    public byte[] getData(String rootPath, String path) throws KeeperException.NoNodeException {
+        CachedTree tree = _trees.get(rootPath);
+        if (tree == null || !tree.isCurrent()) {
+            _fallbackReads.incrementAndGet();
+            return null;
+        }
+        ChildData data = tree.cache.getCurrentData(path);
+        _readsAvoided.incrementAndGet();
+        if (data == null) {
+            throw new KeeperException.NoNodeException(path);
+        }
+        return data.getData();
+    }
+
+    /**
+     * Called before this client changes the node at path, or deletes the subtree at path. The
+     * caches covering it, or below it, are bypassed until the watch event of the change is processed
+     */
+    public void written(String path) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PENDING_WRITE_TIMEOUT_MS);
+        for (CachedTree tree : _trees.values()) {
+            if (path.equals(tree.rootPath) || path.startsWith(tree.rootPath + "/")) {
+                tree.pendingWrites.put(path, deadline);
+            } else if (tree.rootPath.startsWith(path + "/")) {
+                // an ancestor of the cached subtree, the watch reports the change at its root
+                tree.pendingWrites.put(tree.rootPath, deadline);
+            }
+        }
+    }
+
+    /**
+     * Connection state changes of the ZK client
+     */
+    public void stateChanged(ConnectionState newState) {
+        switch (newState) {
+            case CONNECTED:
+                _connected = true;
+                break;
+            case RECONNECTED:
+                // the caches catch up with the changes done while disconnected in the background,
+                // we can't tell when they are done. Build them again from scratch.
+                _rebuilds.incrementAndGet();
+                clear();
+                _connected = true;
+                break;
+            case SUSPENDED:
+            case LOST:
+                _connected = false;
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void close() {
+        _closed = true;
+        clear();
+        _eventWorker.shutdownNow();
+    }
+
+    private void clear() {
+        Iterator<CachedTree> it = _trees.values().iterator();
+        while (it.hasNext()) {
+            CachedTree tree = it.next();
+            it.remove();
+            CloseableUtils.closeQuietly(tree.cache);
+        }
+    }
+
+    private CachedTree getTree(String rootPath, int maxDepth) {
+        CachedTree tree = _trees.get(rootPath);
+        if (tree != null || _closed || !_connected) {
+            return tree;
+        }
+        tree = new CachedTree(rootPath, maxDepth);
+        CachedTree existing = _trees.putIfAbsent(rootPath, tree);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            tree.cache.start();
+            log.info("Started read cache of {}", rootPath);
+        } catch (Exception e) {
+            log.warn("Failed to start read cache of {}", rootPath, e);
+            _trees.remove(rootPath, tree);
+            CloseableUtils.closeQuietly(tree.cache);
+            return null;
+        }
+        return tree;
+    }
+
+    @Override
+    public long getZkReadsAvoided() {
+        return _readsAvoided.get();
+    }
+
+    @Override
+    public long getFallbackReads() {
+        return _fallbackReads.get();
+    }
+
+    @Override
+    public long getRebuildCount() {
+        return _rebuilds.get();
+    }
+
+    @Override
+    public String[] getCachedPaths() {
+        return _trees.keySet().toArray(new String[0]);
+    }
+
+    private class CachedTree implements TreeCacheListener {
+        private final String rootPath;
+        private final TreeCache cache;
+        private final ConcurrentMap<String, Long> pendingWrites = new ConcurrentHashMap<String, Long>();
+        private volatile boolean initialized = false;
+
+        CachedTree(String rootPath, int maxDepth) {
+            this.rootPath = rootPath;
+            cache = TreeCache.newBuilder(_zkClient, rootPath)
+                    .setCacheData(true)
+                    .setMaxDepth(maxDepth)
+                    .setExecutor(_eventWorker)
+                    .build();
+            cache.getListenable().addListener(this);
+        }
+
+        boolean isCurrent() {
+            if (!initialized || !_connected) {
+                return false;
+            }
+            if (pendingWrites.isEmpty()) {
+                return true;
+            }
+            long now = System.nanoTime();
+            for (Map.Entry<String, Long> entry : pendingWrites.entrySet()) {
+                if (now - entry.getValue() >= 0) {
+                    pendingWrites.remove(entry.getKey(), entry.getValue());
+                }
+            }
+            return pendingWrites.isEmpty();
+        }
+
+        @Override
+        public void childEvent(CuratorFramework client, TreeCacheEvent event) throws Exception {
+            switch (event.getType()) {
+                case INITIALIZED:
+                    log.info("Read cache of {} initialized", rootPath);
+                    initialized = true;
+                    break;
+                case NODE_ADDED:
+                case NODE_UPDATED:
+                case NODE_REMOVED:
+                    pendingWrites.remove(event.getData().getPath());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
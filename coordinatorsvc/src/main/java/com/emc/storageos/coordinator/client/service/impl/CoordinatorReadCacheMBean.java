@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+/**
+ * The API for statistics of the coordinator client read cache
+ */
+public interface CoordinatorReadCacheMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.coordinator.client.service.impl:type=CoordinatorReadCache";
+
+    /**
+     * @return number of getChildren/getData calls served from memory instead of ZK
+     */
+    long getZkReadsAvoided();
+
+    /**
+     * @return number of reads sent to ZK because the cache was building, rebuilding after a
+     *         reconnect or waiting for the watch event of a local write
+     */
+    long getFallbackReads();
+
+    /**
+     * @return number of times the caches were dropped after a reconnect
+     */
+    long getRebuildCount();
+
+    /**
+     * @return ZK paths currently cached
+     */
+    String[] getCachedPaths();
+}
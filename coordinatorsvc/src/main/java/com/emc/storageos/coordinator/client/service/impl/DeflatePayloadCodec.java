@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression. Java serialization of workflows repeats class descriptors, URIs and
+ * step ids over and over, it typically shrinks several times.
+ */
+public class DeflatePayloadCodec implements PayloadCodec {
+    public static final byte ID = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int _level;
+
+    public DeflatePayloadCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param level compression level, from Deflater.BEST_SPEED to Deflater.BEST_COMPRESSION
+     */
+    public DeflatePayloadCodec(int level) {
+        _level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) throws IOException {
+        Deflater deflater = new Deflater(_level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflate data");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
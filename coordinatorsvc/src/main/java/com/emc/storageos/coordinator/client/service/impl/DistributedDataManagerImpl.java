@@ -8,6 +8,7 @@ package com.emc.storageos.coordinator.client.service.impl;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.zookeeper.CreateMode;
@@ -93,7 +94,7 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
         checkPath(path);
         Stat stat = checkExists(path);
         if (stat == null) {
-            checkLimit();
+            checkLimit(1);
             _zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path);
         }
         if (_listener != null && watch) {
@@ -128,17 +129,30 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
 
     @Override
     public void putData(String path, Object object) throws Exception {
+        putSerializedData(path, GenericSerializer.serialize(object, path, true));
+    }
+
+    @Override
+    public void putSerializedData(String path, byte[] data) throws Exception {
         checkPath(path);
         Stat stat = checkExists(path);
-        byte[] data = GenericSerializer.serialize(object, path, true);
         if (stat == null) {
-            checkLimit();
+            checkLimit(1);
             _zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
         } else {
             _zkClient.setData().forPath(path, data);
         }
     }
 
+    @Override
+    public String createNodesIfAbsent(Map<String, Object> nodes) throws Exception {
+        for (String path : nodes.keySet()) {
+            checkPath(path);
+        }
+        checkLimit(nodes.size());
+        return WorkflowDataManagerImpl.createNodesIfAbsent(_zkClient, nodes);
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         checkPath(path);
@@ -248,11 +262,12 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
     }
 
     /**
-     * Check that adding a new node to this data manager would not exceed the max node limit
+     * Check that adding new nodes to this data manager would not exceed the max node limit
      * 
-     * @throws Exception if the limit has been reached
+     * @param count number of nodes to be added
+     * @throws Exception if the limit would be exceeded
      */
-    private void checkLimit() throws Exception {
+    private void checkLimit(int count) throws Exception {
         // in order to speed up writes, check limits against the cache
         // instead of doing live checkExists if possible
 
@@ -273,9 +288,9 @@ public class DistributedDataManagerImpl implements DistributedDataManager {
             }
         }
         if (children != null) {
-            _log.debug("{}: current nodes = {}; maxNodes = {}",
-                    Arrays.asList(_basePath, children.toString(), Long.toString(_maxNodes)).toArray());
-            if (children >= _maxNodes) {
+            _log.debug("{}: current nodes = {}; adding = {}; maxNodes = {}",
+                    Arrays.asList(_basePath, children.toString(), Integer.toString(count), Long.toString(_maxNodes)).toArray());
+            if (children + count > _maxNodes) {
                 _log.warn("{}: rejecting create because limit of {} has been reached", _basePath, _maxNodes);
                 throw new DataManagerFullException();
             }
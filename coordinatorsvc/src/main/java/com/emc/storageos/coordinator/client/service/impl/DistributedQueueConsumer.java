@@ -163,6 +163,60 @@ public abstract class DistributedQueueConsumer<T>
         return (_curItems.get() >= _maxThreads) ? true : false;
     }
 
+    /**
+     * Number of items the consumer can start right away. Used by the batched dispatch
+     * of the distributed queue to size its claims.
+     * Note:
+     * Each inherited consumer who overrides isBusy() may override it as well.
+     * 
+     * @param queue queue name
+     * 
+     * @return 0 when busy, otherwise the number of free consumer threads, at least 1
+     */
+    public int getAvailableSlots(String queue) {
+        if (isBusy(queue)) {
+            return 0;
+        }
+        return Math.max(1, _maxThreads - _curItems.get());
+    }
+
+    /**
+     * Priority class of an item, part of the name of its queue node. The classes are served by weighted
+     * round robin, see getPriorityWeight().
+     * Note:
+     * The default class of null keeps the items in plain queueing order.
+     * 
+     * @param item item being queued
+     * 
+     * @return name of the class, null for the default class
+     */
+    public String getPriorityClass(T item) {
+        return null;
+    }
+
+    /**
+     * Fair share key of an item, part of the name of its queue node. The keys of a priority class take
+     * turns, so that a key with many queued items doesn't hold back the others.
+     * 
+     * @param item item being queued
+     * 
+     * @return the key, null for the default key
+     */
+    public String getFairShareKey(T item) {
+        return null;
+    }
+
+    /**
+     * Relative share of the claims given to a priority class while items of several classes are waiting
+     * 
+     * @param priorityClass name of the class, empty for the default class
+     * 
+     * @return the weight, at least 1
+     */
+    public int getPriorityWeight(String priorityClass) {
+        return 1;
+    }
+
     /**
      * Process an item from the distributed queue
      * 
@@ -7,16 +7,22 @@ package com.emc.storageos.coordinator.client.service.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
 import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.CuratorEventType;
 import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.recipes.queue.QueueSerializer;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
@@ -24,6 +30,7 @@ import org.apache.curator.utils.EnsurePath;
 import org.apache.curator.utils.ZKPaths;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
@@ -41,15 +48,30 @@ import com.emc.storageos.services.util.NamedThreadPoolExecutor;
  * <p/>
  * 1. Multithreaded queue consumer callbacks 2. Queue item is always processed with lock safety (meaning they are not removed from queue
  * until successfully processed / lock released)
+ * <p/>
+ * With a claim batch size above 1, the dispatch loop keeps the item and lock names in memory and only lists
+ * the children whose watch fired, claims up to that many items with a single ZK transaction and reads their
+ * data asynchronously.
+ * <p/>
+ * Items are claimed in the order given by DistributedQueueScheduler, by priority class and fair share key
+ * of the consumer, oldest first within a key.
  */
 public class DistributedQueueImpl<T> implements DistributedQueue<T> {
     private static final Logger _log = LoggerFactory.getLogger(DistributedQueueImpl.class);
-    private static final String _queuePrefix = "queue-";
     private static final String WORKER_POOL_NAME = "DQWorkers";
     private static final String STATE_LISTENER_POOL_NAME = "DQStateListener";
+    private static final String PREFETCH_POOL_NAME = "DQPrefetch";
 
     // default max of 100K requests
     private static final int DEFAULT_MAX_ITEM = 100000;
+    // one lock and one read per item unless configured otherwise
+    private static final int DEFAULT_CLAIM_BATCH_SIZE = 1;
+    // a full consumer gets no wakeup from ZK when one of its threads frees up without
+    // removing an item, e.g. rescheduling it
+    private static final long SLOT_CHECK_INTERVAL_MS = 1000;
+    // backoff of the batched dispatch loop after a ZK error
+    private static final long MIN_RETRY_INTERVAL_MS = 100;
+    private static final long MAX_RETRY_INTERVAL_MS = 10000;
 
     private final CuratorFramework _zkClient;
     private final DistributedQueueConsumer<T> _consumer;
@@ -62,6 +84,19 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
     private final ThreadPoolExecutor _workers;
     private int _maxItem = DEFAULT_MAX_ITEM;
     private int _maxThreads = 10; // this is for distributed queue consumer threads
+    private int _claimBatchSize = DEFAULT_CLAIM_BATCH_SIZE;
+    private final DistributedQueueStats _stats;
+    private final DistributedQueueScheduler _scheduler;
+
+    // batched dispatch state, guarded by this
+    private final TreeSet<String> _knownItems = new TreeSet<String>();
+    private final Set<String> _knownLocks = new HashSet<String>();
+    private boolean _itemsChanged = true;
+    private boolean _locksChanged = true;
+    // claimed items whose data is being read
+    private final AtomicInteger _prefetching = new AtomicInteger(0);
+    // hands the data read in the background to the consumer, off the ZK event thread
+    private ExecutorService _prefetchExecutor;
 
     /**
      * Responds to connection drops / reconnects.
@@ -120,10 +155,11 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
             if (event.getType() == CuratorEventType.WATCHED) {
                 if (event.getWatchedEvent().getType() == Watcher.Event.EventType.NodeChildrenChanged &&
                         (event.getPath().startsWith(_queuePath) || event.getPath().startsWith(_lockPath))) {
+                    final String path = event.getPath();
                     _notifyExecutor.execute(new Runnable() {
                         @Override
                         public void run() {
-                            notifyPendingChange();
+                            notifyChildrenChanged(path);
                         }
                     });
                 }
@@ -132,11 +168,26 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
     };
 
     /**
-     * Wakes up main dispatch loop
+     * Wakes up main dispatch loop. Watches may have been lost, both child lists are read again.
      */
     private synchronized void notifyPendingChange() {
-        // This is not a naked notify, we do status mutation outside this method, safe to suppress
-        notifyAll(); // NOSONAR("findbugs:NN_NAKED_NOTIFY")
+        _itemsChanged = true;
+        _locksChanged = true;
+        notifyAll();
+    }
+
+    /**
+     * Wakes up main dispatch loop after the children of the queue or lock node changed
+     * 
+     * @param path path of the watched node
+     */
+    private synchronized void notifyChildrenChanged(String path) {
+        if (path.startsWith(_lockPath)) {
+            _locksChanged = true;
+        } else {
+            _itemsChanged = true;
+        }
+        notifyAll();
     }
 
     /**
@@ -167,6 +218,8 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
 
         _lockPath = String.format("%1$s/%2$s/lock", ZkPath.QUEUE.toString(), name);
         _maxItem = maxItem;
+        _stats = new DistributedQueueStats(name);
+        _scheduler = new DistributedQueueScheduler(consumer);
     }
 
     /**
@@ -182,6 +235,20 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
         return _consumer;
     }
 
+    /**
+     * Maximum number of items claimed with one ZK transaction. Above 1, the batched dispatch loop is used.
+     * Must be set before start().
+     * 
+     * @param claimBatchSize
+     */
+    public void setClaimBatchSize(int claimBatchSize) {
+        _claimBatchSize = claimBatchSize;
+    }
+
+    public DistributedQueueStats getStats() {
+        return _stats;
+    }
+
     @Override
     public synchronized void start() {
         if (_workers.isTerminated()) {
@@ -199,7 +266,11 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
         }
 
         if (_consumer != null) {
+            _stats.register();
             _consumer.init(_queueName, this, _maxThreads);
+            if (_claimBatchSize > 1) {
+                _prefetchExecutor = new NamedThreadPoolExecutor(PREFETCH_POOL_NAME, 1);
+            }
             _workers.submit(new Callable<Object>() {
                 @Override
                 public Object call() throws Exception {
@@ -227,6 +298,10 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
         _zkClient.getConnectionStateListenable().removeListener(_connectionListener);
         _zkClient.getCuratorListenable().removeListener(_childListener);
         _workers.shutdownNow();
+        if (_prefetchExecutor != null) {
+            _prefetchExecutor.shutdownNow();
+        }
+        _stats.unregister();
         return true;
     }
 
@@ -237,7 +312,14 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
             _log.error("Queue is too busy. Found " + stat.getNumChildren() + " items. Max allowed items are " + _maxItem);
             throw CoordinatorException.retryables.queueTooBusy();
         }
-        String path = ZKPaths.makePath(_queuePath, _queuePrefix);
+        String prefix = DistributedQueueScheduler.ITEM_PREFIX;
+        if (_consumer != null) {
+            String priorityClass = _consumer.getPriorityClass(item);
+            int weight = _consumer.getPriorityWeight(priorityClass == null ? DistributedQueueScheduler.DEFAULT_CLASS
+                    : priorityClass);
+            prefix = DistributedQueueScheduler.getItemPrefix(priorityClass, _consumer.getFairShareKey(item), weight);
+        }
+        String path = ZKPaths.makePath(_queuePath, prefix);
         byte[] data = _serializer.serialize(item);
         _zkClient.create().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath(path, data);
     }
@@ -276,6 +358,10 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
      * 1. scans queued items and attempts to lock 2. if locked, queues it to pending item list
      */
     private void dispatch() throws Exception {
+        if (_claimBatchSize > 1) {
+            dispatchBatches();
+            return;
+        }
         while (!Thread.currentThread().isInterrupted()) {
             try {
                 List<String> children;
@@ -289,6 +375,7 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
                         _log.info("Processing queue {} - #items: {}, #locks: {}",
                                 new Object[] { _name, children.size(), locks.size() });
                         children.removeAll(locks);
+                        _stats.depth(children.size(), locks.size());
                         if (children.isEmpty()) {
                             wait();
                             needRescan = true;
@@ -325,6 +412,213 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
         }
     }
 
+    /**
+     * Batched dispatcher loop that
+     * <p/>
+     * 1. lists the queue and lock nodes again only when their watch fired, and applies the difference to the
+     * names known so far 2. claims as many of the oldest unlocked items as the consumer can start, at most
+     * _claimBatchSize, with one transaction 3. reads their data with background calls
+     */
+    private void dispatchBatches() throws Exception {
+        long retryInterval = MIN_RETRY_INTERVAL_MS;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<String> batch;
+                synchronized (this) {
+                    // same as the single item loop, always wait with both watches armed
+                    while (true) {
+                        refreshChildren();
+                        int slots = _consumer.getAvailableSlots(_queueName) - _prefetching.get();
+                        batch = getUnclaimedItems(Math.min(slots, _claimBatchSize));
+                        if (!batch.isEmpty()) {
+                            break;
+                        }
+                        if (slots <= 0 && _stats.getQueuedItems() > 0) {
+                            _log.info("The consumer {} is busy", _consumer);
+                            wait(SLOT_CHECK_INTERVAL_MS);
+                        } else {
+                            wait();
+                        }
+                    }
+                }
+                claimBatch(batch);
+                retryInterval = MIN_RETRY_INTERVAL_MS;
+            } catch (KeeperException e) {
+                _log.warn("KeeperException in dispatch loop, retrying in {} ms", retryInterval, e);
+                Thread.sleep(retryInterval);
+                retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL_MS);
+                notifyPendingChange();
+                continue;
+            } catch (Exception e) {
+                _log.error("Exception in dispatch loop, quiting", e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Lists the queue and/or lock children again if their watch fired, re-arming it
+     */
+    private void refreshChildren() throws Exception {
+        if (_locksChanged) {
+            List<String> locks = _zkClient.getChildren().watched().forPath(_lockPath);
+            _locksChanged = false;
+            applyChildren(_knownLocks, locks);
+        }
+        if (_itemsChanged) {
+            List<String> children = _zkClient.getChildren().watched().forPath(_queuePath);
+            _itemsChanged = false;
+            int added = applyChildren(_knownItems, children);
+            _log.debug("Queue {} - {} new items", _name, added);
+        }
+        int active = 0;
+        for (String lock : _knownLocks) {
+            if (_knownItems.contains(lock)) {
+                active++;
+            }
+        }
+        _stats.depth(_knownItems.size() - active, _knownLocks.size());
+    }
+
+    /**
+     * Updates known child names to the current ones
+     * 
+     * @return number of names added
+     */
+    private static int applyChildren(Set<String> known, List<String> current) {
+        known.retainAll(new HashSet<String>(current));
+        int size = known.size();
+        known.addAll(current);
+        return known.size() - size;
+    }
+
+    /**
+     * @return the next items to claim among those not locked by any node, at most max of them
+     */
+    private List<String> getUnclaimedItems(int max) {
+        if (max <= 0) {
+            return new ArrayList<String>();
+        }
+        List<String> items = new ArrayList<String>();
+        for (String item : _knownItems) {
+            if (!_knownLocks.contains(item)) {
+                items.add(item);
+            }
+        }
+        return _scheduler.select(items, max);
+    }
+
+    /**
+     * Locks a batch of items with one transaction and starts reading their data. Items claimed by
+     * another node in the meantime are left out and the rest of the batch is tried again.
+     * 
+     * @param batch names of the items to claim
+     * @throws Exception
+     */
+    private void claimBatch(List<String> batch) throws Exception {
+        List<String> children = new ArrayList<String>(batch);
+        while (!children.isEmpty()) {
+            long startMillis = System.currentTimeMillis();
+            String claimed = createLocks(children);
+            if (claimed == null) {
+                _stats.claimed(children.size(), System.currentTimeMillis() - startMillis);
+                _log.info("claimBatch(): Created {} lock zNodes for Queue {}", children.size(), _queuePath);
+                synchronized (this) {
+                    _knownLocks.addAll(children);
+                }
+                for (String child : children) {
+                    prefetch(child);
+                }
+                return;
+            }
+            _stats.conflict(System.currentTimeMillis() - startMillis);
+            _log.info("claimBatch(): For Queue: {}, ZNode {} already exists", _queuePath, claimed);
+            synchronized (this) {
+                _knownLocks.add(claimed);
+            }
+            children.remove(claimed);
+        }
+    }
+
+    /**
+     * Creates the lock nodes of the given items in one transaction
+     * 
+     * @return null if all were created, else the item already locked
+     * @throws Exception
+     */
+    private String createLocks(List<String> children) throws Exception {
+        CuratorTransaction tx = _zkClient.inTransaction();
+        CuratorTransactionFinal txFinal = null;
+        for (String child : children) {
+            txFinal = tx.create().withMode(CreateMode.EPHEMERAL).forPath(ZKPaths.makePath(_lockPath, child)).and();
+            tx = txFinal;
+        }
+        try {
+            txFinal.commit();
+            return null;
+        } catch (KeeperException.NodeExistsException ex) {
+            // the ops after the failed one report a runtime inconsistency, the ones before OK
+            List<OpResult> results = ex.getResults();
+            if (results != null) {
+                for (int i = 0; i < results.size() && i < children.size(); i++) {
+                    OpResult result = results.get(i);
+                    if (result instanceof OpResult.ErrorResult
+                            && ((OpResult.ErrorResult) result).getErr() == KeeperException.Code.NODEEXISTS.intValue()) {
+                        return children.get(i);
+                    }
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the data of a claimed item in the background and hands it to the consumer from the
+     * prefetch thread, so that the ZK event thread never waits on the consumer
+     * 
+     * @param child queue item name
+     */
+    private void prefetch(final String child) {
+        final String itemPath = ZKPaths.makePath(_queuePath, child);
+        _prefetching.incrementAndGet();
+        try {
+            _zkClient.getData().inBackground(new BackgroundCallback() {
+                @Override
+                public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
+                    try {
+                        if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                            waited(child, event.getStat());
+                            final T item = _serializer.deserialize(event.getData());
+                            _consumer.startConsumeItem(_queueName, child, item);
+                        } else {
+                            // the item might be already handled by other workers
+                            _log.warn("Problem seen while processing queue item {}: {}", itemPath,
+                                    KeeperException.Code.get(event.getResultCode()));
+                            releaseLock(child);
+                        }
+                    } catch (Exception e) {
+                        _log.warn("Problem seen while processing queue item {}", itemPath, e);
+                    } finally {
+                        _prefetching.decrementAndGet();
+                        notifySlotChange();
+                    }
+                }
+            }, _prefetchExecutor).forPath(itemPath);
+        } catch (Exception e) {
+            _log.warn("Problem seen while processing queue item {}", itemPath, e);
+            _prefetching.decrementAndGet();
+            releaseLock(child);
+        }
+    }
+
+    /**
+     * Wakes up main dispatch loop after the capacity of the consumer may have changed
+     */
+    private synchronized void notifySlotChange() {
+        // This is not a naked notify, the state is in the consumer, safe to suppress
+        notifyAll(); // NOSONAR("findbugs:NN_NAKED_NOTIFY")
+    }
+
     /**
      * Starts working on an item after lock is successfully obtained
      * 
@@ -337,30 +631,55 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
 
         final String itemPath = ZKPaths.makePath(_queuePath, child);
         byte[] data = null;
+        Stat stat = new Stat();
         try {
-            data = _zkClient.getData().forPath(itemPath);
+            data = _zkClient.getData().storingStatIn(stat).forPath(itemPath);
         } catch (Exception e) {
             // 1. free the lock if there is any issue reading the item.
             // 2. it also might be raised because the item has been handled by others quickly.
             _log.warn("Problem seen while processing queue item which might be already handled by other workers. ", e);
-            final String lockPath = ZKPaths.makePath(_lockPath, child);
-            try {
-                _log.info("delete lock {}", lockPath);
-                _zkClient.delete().guaranteed().inBackground().forPath(lockPath);
-            } catch (KeeperException.NoNodeException ex) {
-                _log.warn("The lock {} has been removed e={}", lockPath, ex);
-            } catch (Exception ex) {
-                _log.warn("Problem deleting lock item: {} e={}", lockPath, ex);
-            }
+            releaseLock(child);
             data = null;
         }
 
         if (data != null) {
+            waited(child, stat);
             final T item = _serializer.deserialize(data);
             _consumer.startConsumeItem(_queueName, child, item);
         }
     }
 
+    /**
+     * Records how long a claimed item waited in the queue, from the creation time of its node
+     * 
+     * @param child queue item name
+     * @param stat stat of the queue item node
+     */
+    private void waited(String child, Stat stat) {
+        if (stat != null && stat.getCtime() > 0) {
+            // clocks of the nodes may differ a little, never count less than nothing
+            _stats.waited(DistributedQueueScheduler.getPriorityClass(child),
+                    Math.max(0, System.currentTimeMillis() - stat.getCtime()));
+        }
+    }
+
+    /**
+     * Deletes the lock of an item which can't be processed, in the background
+     * 
+     * @param child queue item name
+     */
+    private void releaseLock(String child) {
+        final String lockPath = ZKPaths.makePath(_lockPath, child);
+        try {
+            _log.info("delete lock {}", lockPath);
+            _zkClient.delete().guaranteed().inBackground().forPath(lockPath);
+        } catch (KeeperException.NoNodeException ex) {
+            _log.warn("The lock {} has been removed e={}", lockPath, ex);
+        } catch (Exception ex) {
+            _log.warn("Problem deleting lock item: {} e={}", lockPath, ex);
+        }
+    }
+
     /**
      * Process each queued item by submitting them to worker queue
      * 
@@ -368,13 +687,9 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
      * @throws Exception
      */
     private void processChildren(List<String> children) throws Exception {
-        Collections.sort(children,
-                new Comparator<String>() {
-                    public int compare(String o1, String o2) {
-                        return o1.compareTo(o2);
-                    }
-                }
-                );
+        Collections.sort(children);
+        // the consumer is checked again before each item, this only bounds the scheduling work
+        children = _scheduler.select(children, Math.max(1, _consumer.getAvailableSlots(_queueName)));
 
         for (int i = 0; i < children.size(); i++) {
             // only grab tasks when the consumer is not busy
@@ -386,11 +701,14 @@ public class DistributedQueueImpl<T> implements DistributedQueue<T> {
 
             final String child = children.get(i);
             final String lockPath = ZKPaths.makePath(_lockPath, child);
+            long startMillis = System.currentTimeMillis();
             try {
                 _zkClient.create().withMode(CreateMode.EPHEMERAL).forPath(lockPath);
+                _stats.claimed(1, System.currentTimeMillis() - startMillis);
                 _log.info("processChildren(): Created lock zNode {} for Queue {}", child, _queuePath);
                 spawnWork(child);
             } catch (KeeperException.NodeExistsException nee) {
+                _stats.conflict(System.currentTimeMillis() - startMillis);
                 _log.info("processChildren(): For Queue: {}, ZNodes already exist", _queuePath);
             } catch (KeeperException ke) {
                 _log.info("processChildren(): For Queue: {}, Problem while creating ZNodes: {}",
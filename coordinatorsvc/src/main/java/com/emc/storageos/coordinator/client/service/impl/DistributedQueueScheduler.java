@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decides in which order the items of a distributed queue are claimed.
+ * <p/>
+ * The priority class and fair share key of an item are part of its znode name,
+ * queue-&lt;rank&gt;&lt;class&gt;~&lt;key&gt;~&lt;sequence&gt;, so that items can be scheduled without reading them. The classes with
+ * waiting items are served by smooth weighted round robin, with the weights given by the consumer. Within a class the
+ * fair share keys take turns, the items of a key in the order they were queued. Items named queue-&lt;sequence&gt; are in
+ * the default class, with the default key.
+ * <p/>
+ * Nodes of older versions claim the items in plain name order. The rank, two digits which are lower for classes of a
+ * larger weight, makes that order follow the priority of the classes rather than the alphabetical order of their names.
+ */
+class DistributedQueueScheduler {
+    static final String ITEM_PREFIX = "queue-";
+    static final char SEPARATOR = '~';
+    static final String DEFAULT_CLASS = "";
+    private static final int RANK_DIGITS = 2;
+    private static final int MAX_RANK = 99;
+    // keeps the znode names short, keys are expected to be URIs or names
+    private static final int MAX_NAME_PART = 100;
+
+    private final DistributedQueueConsumer<?> _consumer;
+    // smooth weighted round robin state of each class
+    private final Map<String, Integer> _currentWeights = new HashMap<String, Integer>();
+    // key last served in each class
+    private final Map<String, String> _lastKeys = new HashMap<String, String>();
+
+    /**
+     * @param consumer gives the weight of each priority class, may be null for equal weights
+     */
+    DistributedQueueScheduler(DistributedQueueConsumer<?> consumer) {
+        _consumer = consumer;
+    }
+
+    /**
+     * @param priorityClass class of the item, null for the default class
+     * @param fairShareKey key of the item, null for the default key
+     * @param weight weight of the class, see DistributedQueueConsumer.getPriorityWeight()
+     * @return prefix of the znode name of an item of the given class and key
+     */
+    static String getItemPrefix(String priorityClass, String fairShareKey, int weight) {
+        if (priorityClass == null && fairShareKey == null) {
+            return ITEM_PREFIX;
+        }
+        int rank = MAX_RANK - Math.min(Math.max(1, weight), MAX_RANK);
+        return ITEM_PREFIX + String.format("%0" + RANK_DIGITS + "d", rank) + clean(priorityClass) + SEPARATOR
+                + clean(fairShareKey) + SEPARATOR;
+    }
+
+    private static String clean(String part) {
+        if (part == null) {
+            return "";
+        }
+        String cleaned = part.replaceAll("[^A-Za-z0-9:._-]", "_");
+        return cleaned.length() > MAX_NAME_PART ? cleaned.substring(0, MAX_NAME_PART) : cleaned;
+    }
+
+    static String getPriorityClass(String itemName) {
+        int first = itemName.indexOf(SEPARATOR);
+        if (first < 0 || !itemName.startsWith(ITEM_PREFIX)) {
+            return DEFAULT_CLASS;
+        }
+        return itemName.substring(ITEM_PREFIX.length() + RANK_DIGITS, first);
+    }
+
+    static String getFairShareKey(String itemName) {
+        int first = itemName.indexOf(SEPARATOR);
+        int last = itemName.lastIndexOf(SEPARATOR);
+        if (first < 0 || last == first) {
+            return "";
+        }
+        return itemName.substring(first + 1, last);
+    }
+
+    /**
+     * Picks the next items to claim
+     *
+     * @param items names of the unclaimed items, in name order so that the items of a key come in queueing order
+     * @param max maximum number of items to pick
+     * @return the items to claim, in claiming order
+     */
+    synchronized List<String> select(Iterable<String> items, int max) {
+        // class -> key -> items in queueing order, no more than max of them
+        Map<String, TreeMap<String, LinkedList<String>>> waiting = new TreeMap<String, TreeMap<String, LinkedList<String>>>();
+        for (String item : items) {
+            String priorityClass = getPriorityClass(item);
+            TreeMap<String, LinkedList<String>> keys = waiting.get(priorityClass);
+            if (keys == null) {
+                keys = new TreeMap<String, LinkedList<String>>();
+                waiting.put(priorityClass, keys);
+            }
+            String key = getFairShareKey(item);
+            LinkedList<String> keyItems = keys.get(key);
+            if (keyItems == null) {
+                keyItems = new LinkedList<String>();
+                keys.put(key, keyItems);
+            }
+            if (keyItems.size() < max) {
+                keyItems.add(item);
+            }
+        }
+
+        List<String> selected = new ArrayList<String>();
+        while (selected.size() < max && !waiting.isEmpty()) {
+            String priorityClass = nextClass(waiting.keySet());
+            TreeMap<String, LinkedList<String>> keys = waiting.get(priorityClass);
+            String lastKey = _lastKeys.get(priorityClass);
+            String key = lastKey == null ? null : keys.higherKey(lastKey);
+            if (key == null) {
+                key = keys.firstKey();
+            }
+            LinkedList<String> keyItems = keys.get(key);
+            selected.add(keyItems.removeFirst());
+            _lastKeys.put(priorityClass, key);
+            if (keyItems.isEmpty()) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    waiting.remove(priorityClass);
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Smooth weighted round robin over the classes with waiting items
+     */
+    private String nextClass(Iterable<String> classes) {
+        int total = 0;
+        String next = null;
+        int nextWeight = 0;
+        for (String priorityClass : classes) {
+            int weight = getWeight(priorityClass);
+            total += weight;
+            Integer current = _currentWeights.get(priorityClass);
+            int updated = (current == null ? 0 : current) + weight;
+            _currentWeights.put(priorityClass, updated);
+            if (next == null || updated > nextWeight) {
+                next = priorityClass;
+                nextWeight = updated;
+            }
+        }
+        _currentWeights.put(next, nextWeight - total);
+        return next;
+    }
+
+    private int getWeight(String priorityClass) {
+        if (_consumer == null) {
+            return 1;
+        }
+        return Math.max(1, _consumer.getPriorityWeight(priorityClass));
+    }
+}
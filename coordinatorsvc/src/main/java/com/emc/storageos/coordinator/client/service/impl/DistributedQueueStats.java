@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Depth, claim latency and wait time per priority class of a distributed queue, as seen by the dispatch loop of this node
+ */
+public class DistributedQueueStats implements DistributedQueueStatsMBean {
+    private static final Logger log = LoggerFactory.getLogger(DistributedQueueStats.class);
+
+    private final String _queueName;
+    private volatile int _queuedItems;
+    private volatile int _activeItems;
+    private final AtomicLong _claims = new AtomicLong(0);
+    private final AtomicLong _claimedItems = new AtomicLong(0);
+    private final AtomicLong _conflicts = new AtomicLong(0);
+    private final AtomicLong _totalLatency = new AtomicLong(0);
+    private final AtomicLong _maxLatency = new AtomicLong(0);
+    // priority class -> time waited by the items claimed by this node
+    private final ConcurrentMap<String, WaitTimes> _waitTimes = new ConcurrentHashMap<String, WaitTimes>();
+    private ObjectName _registeredName;
+
+    public DistributedQueueStats(String queueName) {
+        _queueName = queueName;
+    }
+
+    /**
+     * Register with the platform MBean server, unless another queue of the same name in this JVM did already
+     */
+    public synchronized void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME + ",name=" + _queueName);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+                _registeredName = name;
+            }
+        } catch (Exception ex) {
+            log.error("Register MBean error ", ex);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (_registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(_registeredName);
+        } catch (Exception ex) {
+            log.warn("Unregister MBean error ", ex);
+        }
+        _registeredName = null;
+    }
+
+    void depth(int queuedItems, int activeItems) {
+        _queuedItems = queuedItems;
+        _activeItems = activeItems;
+    }
+
+    void claimed(int items, long latencyMs) {
+        _claimedItems.addAndGet(items);
+        latency(latencyMs);
+    }
+
+    void conflict(long latencyMs) {
+        _conflicts.incrementAndGet();
+        latency(latencyMs);
+    }
+
+    void waited(String priorityClass, long waitMs) {
+        WaitTimes times = _waitTimes.get(priorityClass);
+        if (times == null) {
+            _waitTimes.putIfAbsent(priorityClass, new WaitTimes());
+            times = _waitTimes.get(priorityClass);
+        }
+        times.add(waitMs);
+    }
+
+    private void latency(long latencyMs) {
+        _claims.incrementAndGet();
+        _totalLatency.addAndGet(latencyMs);
+        long current = _maxLatency.get();
+        while (latencyMs > current && !_maxLatency.compareAndSet(current, latencyMs)) {
+            current = _maxLatency.get();
+        }
+    }
+
+    @Override
+    public String getQueueName() {
+        return _queueName;
+    }
+
+    @Override
+    public int getQueuedItems() {
+        return _queuedItems;
+    }
+
+    @Override
+    public int getActiveItems() {
+        return _activeItems;
+    }
+
+    @Override
+    public long getClaimCount() {
+        return _claims.get();
+    }
+
+    @Override
+    public long getClaimedItems() {
+        return _claimedItems.get();
+    }
+
+    @Override
+    public long getClaimConflicts() {
+        return _conflicts.get();
+    }
+
+    @Override
+    public long getAverageClaimLatencyMs() {
+        long claims = _claims.get();
+        return claims > 0 ? _totalLatency.get() / claims : 0;
+    }
+
+    @Override
+    public long getMaxClaimLatencyMs() {
+        return _maxLatency.get();
+    }
+
+    @Override
+    public String[] getWaitTimesByClass() {
+        List<String> lines = new ArrayList<String>(_waitTimes.size());
+        for (Map.Entry<String, WaitTimes> entry : _waitTimes.entrySet()) {
+            String priorityClass = entry.getKey().isEmpty() ? "default" : entry.getKey();
+            lines.add(priorityClass + " " + entry.getValue());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public void reset() {
+        _claims.set(0);
+        _claimedItems.set(0);
+        _conflicts.set(0);
+        _totalLatency.set(0);
+        _maxLatency.set(0);
+        _waitTimes.clear();
+    }
+
+    private static class WaitTimes {
+        private long count = 0;
+        private long total = 0;
+        private long max = 0;
+
+        synchronized void add(long waitMs) {
+            count++;
+            total += waitMs;
+            max = Math.max(max, waitMs);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("items=%d avgWaitMs=%d maxWaitMs=%d", count, count > 0 ? total / count : 0, max);
+        }
+    }
+}
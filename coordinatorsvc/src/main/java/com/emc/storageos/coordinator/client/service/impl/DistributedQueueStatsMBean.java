@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+/**
+ * The API for statistics of a distributed queue. One MBean is registered per queue name,
+ * as MBEAN_NAME + ",name=<queue name>"
+ */
+public interface DistributedQueueStatsMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.coordinator.client.service.impl:type=DistributedQueueStats";
+
+    /**
+     * @return name of the queue
+     */
+    String getQueueName();
+
+    /**
+     * @return number of items waiting to be claimed, as of the last scan of the queue
+     */
+    int getQueuedItems();
+
+    /**
+     * @return number of items claimed by any node and not processed yet, as of the last scan
+     */
+    int getActiveItems();
+
+    /**
+     * @return number of claim requests sent to ZK, one per lock or per batch of locks
+     */
+    long getClaimCount();
+
+    /**
+     * @return number of items claimed by this node
+     */
+    long getClaimedItems();
+
+    /**
+     * @return number of claims which failed because another node claimed the item first
+     */
+    long getClaimConflicts();
+
+    /**
+     * @return average time taken by a claim request in milliseconds
+     */
+    long getAverageClaimLatencyMs();
+
+    /**
+     * @return longest time taken by a claim request in milliseconds
+     */
+    long getMaxClaimLatencyMs();
+
+    /**
+     * @return one line per priority class with the number of items claimed by this node, and their average
+     *         and longest time in the queue in milliseconds
+     */
+    String[] getWaitTimesByClass();
+
+    /**
+     * Start over with zero counters
+     */
+    void reset();
+}
@@ -6,9 +6,12 @@ package com.emc.storageos.coordinator.client.service.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.reflect.Array;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +21,12 @@ import com.emc.storageos.coordinator.exceptions.CoordinatorException;
 /**
  * Generic serialization for an Object
  * 
+ * Objects are written with Java serialization. Callers passing a codec to serialize() (none do
+ * by default, so that releases without codecs can read everything written) get results above
+ * COMPRESSION_THRESHOLD_IN_BYTES encoded by it and prefixed with the codec id. Data of both
+ * formats is read: without codec header, i.e. starting with the Java serialization magic number,
+ * it is read as is.
+ * 
  * @author watson
  * 
  */
@@ -25,6 +34,28 @@ public class GenericSerializer {
     private static final Logger _log = LoggerFactory.getLogger(GenericSerializer.class);
     private static final int MAX_ZK_OBJECT_SIZE_IN_BYTES = 250000;
     private static final int LOG_SIZE_IN_BYTES =  4 * MAX_ZK_OBJECT_SIZE_IN_BYTES;
+    // smaller objects aren't worth encoding
+    private static final int COMPRESSION_THRESHOLD_IN_BYTES = 4096;
+    // first byte of ObjectStreamConstants.STREAM_MAGIC
+    static final byte JAVA_SERIALIZATION_MAGIC = (byte) 0xAC;
+
+    private static final ConcurrentMap<Byte, PayloadCodec> _codecs = new ConcurrentHashMap<Byte, PayloadCodec>();
+
+    static {
+        registerCodec(new DeflatePayloadCodec());
+    }
+
+    /**
+     * Makes a codec available for reading
+     * 
+     * @param codec
+     */
+    static public void registerCodec(PayloadCodec codec) {
+        if (codec.getId() == JAVA_SERIALIZATION_MAGIC) {
+            throw new IllegalArgumentException("Codec id reserved for Java serialization: " + codec.getId());
+        }
+        _codecs.put(codec.getId(), codec);
+    }
 
     /**
      * Will serialize any serializable object.
@@ -35,13 +66,25 @@ public class GenericSerializer {
      * @throws CoordinatorException for exceedingLimit if checked
      */
     static public byte[] serialize(Object object, String logName, boolean zkData) {
+        return serialize(object, logName, zkData, null);
+    }
+
+    /**
+     * Same as serialize(), encoding large objects with the given codec. Only to be used for data
+     * read by nodes which can decode it.
+     * @param codec -- codec of large objects, registered for reading. Null to write Java serialization only
+     * @return byte[] representing serialized data
+     * @throws CoordinatorException for exceedingLimit if checked
+     */
+    static public byte[] serialize(Object object, String logName, boolean zkData, PayloadCodec codec) {
         String className = (object != null) ? object.getClass().getSimpleName() : "";
         String label = (logName != null) ? logName : "";
         try {
             ByteArrayOutputStream stream = new ByteArrayOutputStream();
             ObjectOutputStream ostream = new ObjectOutputStream(stream);
             ostream.writeObject(object);
-            byte[] byteArray = stream.toByteArray();
+            ostream.close();
+            byte[] byteArray = encode(stream.toByteArray(), codec);
             if (zkData && byteArray.length > MAX_ZK_OBJECT_SIZE_IN_BYTES) {
                 _log.error(String.format("Serialization failure: Class %s %s Byte Array length is %d limit is %d", 
                         className, label, byteArray.length, MAX_ZK_OBJECT_SIZE_IN_BYTES));
@@ -62,11 +105,49 @@ public class GenericSerializer {
      */
     static public Object deserialize(byte[] data) {
         try {
-            ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(data));
+            ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(decode(data)));
             Object object = stream.readObject();
             return object;
         } catch (Exception ex) {
             throw CoordinatorException.fatals.failedToDeserialize(ex);
         }
     }
+
+    /**
+     * Encodes serialized data with the codec, if large enough and if it makes it smaller
+     * 
+     * @param data Java serialized object
+     * @param codec codec, or null
+     * @return data with codec header, or data itself
+     */
+    static byte[] encode(byte[] data, PayloadCodec codec) throws IOException {
+        if (codec == null || data.length < COMPRESSION_THRESHOLD_IN_BYTES) {
+            return data;
+        }
+        byte[] encoded = codec.encode(data);
+        if (encoded.length + 1 >= data.length) {
+            return data;
+        }
+        byte[] result = new byte[encoded.length + 1];
+        result[0] = codec.getId();
+        System.arraycopy(encoded, 0, result, 1, encoded.length);
+        return result;
+    }
+
+    /**
+     * Decodes data written by encode()
+     * 
+     * @param data data with or without codec header
+     * @return Java serialized object
+     */
+    static byte[] decode(byte[] data) throws IOException {
+        if (data.length == 0 || data[0] == JAVA_SERIALIZATION_MAGIC) {
+            return data;
+        }
+        PayloadCodec codec = _codecs.get(data[0]);
+        if (codec == null) {
+            throw new IOException("Unknown codec id " + data[0]);
+        }
+        return codec.decode(data, 1);
+    }
 }
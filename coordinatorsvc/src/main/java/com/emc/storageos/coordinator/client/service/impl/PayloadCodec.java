@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.io.IOException;
+
+/**
+ * Encoding applied by GenericSerializer to serialized objects, e.g. compression.
+ * 
+ * The encoded data is stored behind a header byte holding the codec id, so that any registered
+ * codec can read it back, as well as data written before codecs existed.
+ */
+public interface PayloadCodec {
+    /**
+     * @return id written in the header byte. Must not be GenericSerializer.JAVA_SERIALIZATION_MAGIC,
+     *         the first byte of the data written without a codec
+     */
+    byte getId();
+
+    /**
+     * @param data serialized object
+     * @return encoded data, without header
+     */
+    byte[] encode(byte[] data) throws IOException;
+
+    /**
+     * @param data encoded data
+     * @param offset offset of the encoded data in the array, after the header
+     * @return serialized object
+     */
+    byte[] decode(byte[] data, int offset) throws IOException;
+}
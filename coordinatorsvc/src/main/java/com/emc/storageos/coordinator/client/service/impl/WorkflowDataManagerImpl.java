@@ -5,9 +5,13 @@
 
 package com.emc.storageos.coordinator.client.service.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +20,8 @@ import com.emc.storageos.coordinator.client.service.DistributedDataManager;
 import com.emc.storageos.coordinator.common.impl.ZkConnection;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorListener;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.state.ConnectionStateListener;
 
 /**
@@ -85,8 +91,12 @@ public class WorkflowDataManagerImpl implements DistributedDataManager {
 
     @Override
     public void putData(String path, Object object) throws Exception {
+        putSerializedData(path, GenericSerializer.serialize(object, path, true));
+    }
+
+    @Override
+    public void putSerializedData(String path, byte[] data) throws Exception {
         Stat stat = checkExists(path);
-        byte[] data = GenericSerializer.serialize(object, path, true);
         if (stat == null) {
             _zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
         } else {
@@ -94,6 +104,48 @@ public class WorkflowDataManagerImpl implements DistributedDataManager {
         }
     }
 
+    @Override
+    public String createNodesIfAbsent(Map<String, Object> nodes) throws Exception {
+        return createNodesIfAbsent(_zkClient, nodes);
+    }
+
+    /**
+     * Create the nodes in one multi-op, shared with DistributedDataManagerImpl
+     * 
+     * @return null if created, else the path of the node which already existed
+     */
+    static String createNodesIfAbsent(CuratorFramework zkClient, Map<String, Object> nodes) throws Exception {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        List<String> paths = new ArrayList<String>(nodes.keySet());
+        CuratorTransaction tx = zkClient.inTransaction();
+        CuratorTransactionFinal txFinal = null;
+        for (String path : paths) {
+            Object object = nodes.get(path);
+            byte[] data = object != null ? GenericSerializer.serialize(object, path, true) : new byte[0];
+            txFinal = tx.create().withMode(CreateMode.PERSISTENT).forPath(path, data).and();
+            tx = txFinal;
+        }
+        try {
+            txFinal.commit();
+            return null;
+        } catch (KeeperException.NodeExistsException ex) {
+            // the ops after the failed one report a runtime inconsistency, the ones before OK
+            List<OpResult> results = ex.getResults();
+            if (results != null) {
+                for (int i = 0; i < results.size() && i < paths.size(); i++) {
+                    OpResult result = results.get(i);
+                    if (result instanceof OpResult.ErrorResult
+                            && ((OpResult.ErrorResult) result).getErr() == KeeperException.Code.NODEEXISTS.intValue()) {
+                        return paths.get(i);
+                    }
+                }
+            }
+            return ex.getPath() != null ? ex.getPath() : paths.get(0);
+        }
+    }
+
     @Override
     public Object getData(String path, boolean watch) throws Exception {
         Stat stat = checkExists(path);
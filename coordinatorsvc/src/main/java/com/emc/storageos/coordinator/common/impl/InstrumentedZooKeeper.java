@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.common.impl;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.curator.utils.ZookeeperFactory;
+import org.apache.zookeeper.AsyncCallback.Children2Callback;
+import org.apache.zookeeper.AsyncCallback.ChildrenCallback;
+import org.apache.zookeeper.AsyncCallback.DataCallback;
+import org.apache.zookeeper.AsyncCallback.StatCallback;
+import org.apache.zookeeper.AsyncCallback.StringCallback;
+import org.apache.zookeeper.AsyncCallback.VoidCallback;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import com.emc.storageos.coordinator.common.impl.ZkClientStats.OpStats;
+import com.emc.storageos.coordinator.common.impl.ZkClientStats.Operation;
+
+/**
+ * ZooKeeper client which records its operations and watch events in ZkClientStats.
+ *
+ * Only the methods taking a Watcher are wrapped, ZooKeeper implements the ones taking a boolean
+ * watch flag with them. Wrapped watchers are equal when the watchers they wrap are, so that a
+ * watcher set again on a path is still registered once.
+ */
+class InstrumentedZooKeeper extends ZooKeeper {
+    private final ZkClientStats _stats;
+
+    /**
+     * Creates the ZK clients of a CuratorFramework
+     */
+    static class Factory implements ZookeeperFactory {
+        private final ZkClientStats _stats;
+
+        Factory(ZkClientStats stats) {
+            _stats = stats;
+        }
+
+        @Override
+        public ZooKeeper newZooKeeper(String connectString, int sessionTimeout, Watcher watcher, boolean canBeReadOnly)
+                throws Exception {
+            return new InstrumentedZooKeeper(connectString, sessionTimeout, watcher, canBeReadOnly, _stats);
+        }
+    }
+
+    InstrumentedZooKeeper(String connectString, int sessionTimeout, Watcher watcher, boolean canBeReadOnly,
+            ZkClientStats stats) throws IOException {
+        super(connectString, sessionTimeout, watcher, canBeReadOnly);
+        _stats = stats;
+    }
+
+    private Watcher wrap(Watcher watcher) {
+        return watcher == null || watcher instanceof CountingWatcher ? watcher : new CountingWatcher(watcher, _stats);
+    }
+
+    private static int length(byte[] data) {
+        return data == null ? 0 : data.length;
+    }
+
+    @Override
+    public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode)
+            throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.CREATE, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            String created = super.create(path, data, acl, createMode);
+            failed = false;
+            return created;
+        } finally {
+            stats.done(start, length(data), failed);
+        }
+    }
+
+    @Override
+    public void create(String path, final byte[] data, List<ACL> acl, CreateMode createMode, final StringCallback cb,
+            Object ctx) {
+        final OpStats stats = _stats.operation(Operation.CREATE, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.create(path, data, acl, createMode, cb, ctx);
+            return;
+        }
+        super.create(path, data, acl, createMode, new StringCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, String name) {
+                stats.done(start, length(data), rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx, name);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public void delete(String path, int version) throws InterruptedException, KeeperException {
+        OpStats stats = _stats.operation(Operation.DELETE, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            super.delete(path, version);
+            failed = false;
+        } finally {
+            stats.done(start, 0, failed);
+        }
+    }
+
+    @Override
+    public void delete(String path, int version, final VoidCallback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.DELETE, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.delete(path, version, cb, ctx);
+            return;
+        }
+        super.delete(path, version, new VoidCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx) {
+                stats.done(start, 0, rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public List<OpResult> multi(Iterable<Op> ops) throws InterruptedException, KeeperException {
+        Iterator<Op> it = ops.iterator();
+        OpStats stats = _stats.operation(Operation.MULTI, it.hasNext() ? it.next().getPath() : null);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            List<OpResult> results = super.multi(ops);
+            failed = false;
+            return results;
+        } finally {
+            stats.done(start, 0, failed);
+        }
+    }
+
+    @Override
+    public Stat exists(String path, Watcher watcher) throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.EXISTS, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            Stat stat = super.exists(path, wrap(watcher));
+            failed = false;
+            return stat;
+        } finally {
+            stats.done(start, 0, failed);
+        }
+    }
+
+    @Override
+    public void exists(String path, Watcher watcher, final StatCallback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.EXISTS, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.exists(path, wrap(watcher), cb, ctx);
+            return;
+        }
+        super.exists(path, wrap(watcher), new StatCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, Stat stat) {
+                // a missing node is an answer, not a failure
+                stats.done(start, 0, rc != KeeperException.Code.OK.intValue()
+                        && rc != KeeperException.Code.NONODE.intValue());
+                cb.processResult(rc, path, ctx, stat);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public byte[] getData(String path, Watcher watcher, Stat stat) throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.GET_DATA, path);
+        long start = stats.start();
+        byte[] data = null;
+        boolean failed = true;
+        try {
+            data = super.getData(path, wrap(watcher), stat);
+            failed = false;
+            return data;
+        } finally {
+            stats.done(start, length(data), failed);
+        }
+    }
+
+    @Override
+    public void getData(String path, Watcher watcher, final DataCallback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.GET_DATA, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.getData(path, wrap(watcher), cb, ctx);
+            return;
+        }
+        super.getData(path, wrap(watcher), new DataCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, byte[] data, Stat stat) {
+                stats.done(start, length(data), rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx, data, stat);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public Stat setData(String path, byte[] data, int version) throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.SET_DATA, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            Stat stat = super.setData(path, data, version);
+            failed = false;
+            return stat;
+        } finally {
+            stats.done(start, length(data), failed);
+        }
+    }
+
+    @Override
+    public void setData(String path, final byte[] data, int version, final StatCallback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.SET_DATA, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.setData(path, data, version, cb, ctx);
+            return;
+        }
+        super.setData(path, data, version, new StatCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, Stat stat) {
+                stats.done(start, length(data), rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx, stat);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public List<String> getChildren(String path, Watcher watcher) throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.GET_CHILDREN, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            List<String> children = super.getChildren(path, wrap(watcher));
+            failed = false;
+            return children;
+        } finally {
+            stats.done(start, 0, failed);
+        }
+    }
+
+    @Override
+    public List<String> getChildren(String path, Watcher watcher, Stat stat) throws KeeperException, InterruptedException {
+        OpStats stats = _stats.operation(Operation.GET_CHILDREN, path);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            List<String> children = super.getChildren(path, wrap(watcher), stat);
+            failed = false;
+            return children;
+        } finally {
+            stats.done(start, 0, failed);
+        }
+    }
+
+    @Override
+    public void getChildren(String path, Watcher watcher, final ChildrenCallback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.GET_CHILDREN, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.getChildren(path, wrap(watcher), cb, ctx);
+            return;
+        }
+        super.getChildren(path, wrap(watcher), new ChildrenCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, List<String> children) {
+                stats.done(start, 0, rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx, children);
+            }
+        }, ctx);
+    }
+
+    @Override
+    public void getChildren(String path, Watcher watcher, final Children2Callback cb, Object ctx) {
+        final OpStats stats = _stats.operation(Operation.GET_CHILDREN, path);
+        final long start = stats.start();
+        if (start == 0 || cb == null) {
+            super.getChildren(path, wrap(watcher), cb, ctx);
+            return;
+        }
+        super.getChildren(path, wrap(watcher), new Children2Callback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, List<String> children, Stat stat) {
+                stats.done(start, 0, rc != KeeperException.Code.OK.intValue());
+                cb.processResult(rc, path, ctx, children, stat);
+            }
+        }, ctx);
+    }
+
+    /**
+     * Counts the events of a watcher set by an operation
+     */
+    private static class CountingWatcher implements Watcher {
+        private final Watcher _watcher;
+        private final ZkClientStats _stats;
+
+        CountingWatcher(Watcher watcher, ZkClientStats stats) {
+            _watcher = watcher;
+            _stats = stats;
+        }
+
+        @Override
+        public void process(WatchedEvent event) {
+            if (event.getType() != Event.EventType.None) {
+                _stats.watchFired(event.getPath());
+            }
+            _watcher.process(event);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CountingWatcher && _watcher.equals(((CountingWatcher) obj)._watcher);
+        }
+
+        @Override
+        public int hashCode() {
+            return _watcher.hashCode();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.common.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operations of a ZK client, aggregated by ZkPath prefix.
+ *
+ * Every operation is counted. Only 1 in sampleRate of them is timed, with its outcome and payload
+ * size, so that the cost stays low on busy paths. Latencies go to histograms with power of two
+ * buckets, in microseconds.
+ */
+public class ZkClientStats implements ZkClientStatsMBean {
+    private static final Logger log = LoggerFactory.getLogger(ZkClientStats.class);
+
+    static final int DEFAULT_SAMPLE_RATE = 16;
+    // bucket i holds latencies below 2^i microseconds, the last one all the longer ones
+    static final int BUCKETS = 25;
+    static final String OTHER = "other";
+
+    public enum Operation {
+        CREATE, DELETE, EXISTS, GET_DATA, SET_DATA, GET_CHILDREN, MULTI
+    }
+
+    private static final Set<String> KNOWN_PREFIXES = new HashSet<String>();
+    static {
+        for (ZkPath path : ZkPath.values()) {
+            KNOWN_PREFIXES.add(path.toString());
+        }
+    }
+
+    private final ConcurrentMap<String, OpStats> _opStats = new ConcurrentHashMap<String, OpStats>();
+    private final ConcurrentMap<String, LongAdder> _watches = new ConcurrentHashMap<String, LongAdder>();
+    private volatile int _sampleRate = DEFAULT_SAMPLE_RATE;
+
+    /**
+     * Register with the platform MBean server, unless another ZK client of this JVM did already
+     */
+    public void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            log.error("Register MBean error ", ex);
+        }
+    }
+
+    /**
+     * Group of a path: its ZkPath prefix, with the site part of the per site paths left out
+     * (/sites/&lt;site id&gt;/config is /sites/*&#47;config), or OTHER
+     */
+    static String getPrefix(String path) {
+        if (path == null || path.length() < 2 || path.charAt(0) != '/') {
+            return OTHER;
+        }
+        int end = path.indexOf('/', 1);
+        String first = end < 0 ? path : path.substring(0, end);
+        if (!KNOWN_PREFIXES.contains(first)) {
+            return OTHER;
+        }
+        if (end > 0 && first.equals(ZkPath.SITES.toString())) {
+            int siteEnd = path.indexOf('/', end + 1);
+            if (siteEnd > 0) {
+                int next = path.indexOf('/', siteEnd + 1);
+                String sitePath = next < 0 ? path.substring(siteEnd) : path.substring(siteEnd, next);
+                if (KNOWN_PREFIXES.contains(sitePath)) {
+                    return first + "/*" + sitePath;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Counts an operation
+     *
+     * @return the statistics to time the operation with
+     */
+    OpStats operation(Operation operation, String path) {
+        String key = getPrefix(path) + " " + operation;
+        OpStats stats = _opStats.get(key);
+        if (stats == null) {
+            _opStats.putIfAbsent(key, new OpStats(this));
+            stats = _opStats.get(key);
+        }
+        stats.count.increment();
+        return stats;
+    }
+
+    void watchFired(String path) {
+        String prefix = getPrefix(path);
+        LongAdder fired = _watches.get(prefix);
+        if (fired == null) {
+            _watches.putIfAbsent(prefix, new LongAdder());
+            fired = _watches.get(prefix);
+        }
+        fired.increment();
+    }
+
+    static int getBucket(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    @Override
+    public String[] getOperationStats() {
+        List<String> lines = new ArrayList<String>(_opStats.size());
+        for (Map.Entry<String, OpStats> entry : _opStats.entrySet()) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public String[] getWatchStats() {
+        List<String> lines = new ArrayList<String>(_watches.size());
+        for (Map.Entry<String, LongAdder> entry : _watches.entrySet()) {
+            lines.add(entry.getKey() + " fired=" + entry.getValue().sum());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    @Override
+    public void setSampleRate(int sampleRate) {
+        _sampleRate = Math.max(0, sampleRate);
+    }
+
+    @Override
+    public void reset() {
+        _opStats.clear();
+        _watches.clear();
+    }
+
+    /**
+     * Statistics of one operation on one path prefix
+     */
+    static final class OpStats {
+        private final ZkClientStats parent;
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong sampled = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private final AtomicLong bytes = new AtomicLong(0);
+        private final AtomicLong maxMicros = new AtomicLong(0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private OpStats(ZkClientStats parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * @return start time in nanoseconds if the operation is to be timed, 0 otherwise
+         */
+        long start() {
+            int rate = parent._sampleRate;
+            if (rate <= 0 || rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+                return 0;
+            }
+            return Math.max(1, System.nanoTime());
+        }
+
+        /**
+         * Records a timed operation
+         *
+         * @param start value returned by start()
+         * @param size bytes read or written, 0 if none
+         * @param error true if the operation failed
+         */
+        void done(long start, int size, boolean error) {
+            if (start == 0) {
+                return;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            sampled.incrementAndGet();
+            if (error) {
+                failed.incrementAndGet();
+            }
+            bytes.addAndGet(size);
+            buckets.incrementAndGet(getBucket(micros));
+            long current = maxMicros.get();
+            while (micros > current && !maxMicros.compareAndSet(current, micros)) {
+                current = maxMicros.get();
+            }
+        }
+
+        /**
+         * @return upper bound of the bucket holding the given fraction of the timed operations
+         */
+        long getPercentileMicros(double fraction) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return 1L << i;
+                }
+            }
+            return maxMicros.get();
+        }
+
+        @Override
+        public String toString() {
+            long timed = sampled.get();
+            return String.format("count=%d sampled=%d failed=%d p50Us=%d p99Us=%d maxUs=%d avgBytes=%d",
+                    count.sum(), timed, failed.get(), getPercentileMicros(0.5), getPercentileMicros(0.99),
+                    maxMicros.get(), timed > 0 ? bytes.get() / timed : 0);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.common.impl;
+
+/**
+ * The API for the statistics of the ZK client of a service, by ZkPath prefix
+ */
+public interface ZkClientStatsMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.coordinator.common.impl:type=ZkClientStats";
+
+    /**
+     * @return one line per path prefix and operation with the number of operations, and for the sampled ones
+     *         the failures, latency percentiles in microseconds and bytes read or written
+     */
+    String[] getOperationStats();
+
+    /**
+     * @return one line per path prefix with the number of watches fired
+     */
+    String[] getWatchStats();
+
+    /**
+     * @return 1 in how many operations are timed, 0 if none
+     */
+    int getSampleRate();
+
+    /**
+     * @param sampleRate time 1 in sampleRate operations, 1 for all of them, 0 for none
+     */
+    void setSampleRate(int sampleRate);
+
+    /**
+     * Start over with zero counters
+     */
+    void reset();
+}
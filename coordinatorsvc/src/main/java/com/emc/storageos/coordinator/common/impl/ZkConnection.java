@@ -24,6 +24,7 @@ import com.emc.storageos.services.util.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.CuratorFrameworkFactory.Builder;
 import org.apache.curator.framework.api.UnhandledErrorListener;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
@@ -60,6 +61,9 @@ public class ZkConnection {
 
     private String siteIdFile;
     private String siteId;
+    // ZK client statistics, 1 in sample rate operations timed, none if 0
+    private final ZkClientStats _stats = new ZkClientStats();
+    private int _instrumentationSampleRate = ZkClientStats.DEFAULT_SAMPLE_RATE;
 
     public String getSiteId() {
         return siteId;
@@ -101,6 +105,22 @@ public class ZkConnection {
         _timeoutMs = timeoutMs;
     }
 
+    /**
+     * Set how often the ZK operations are timed. The operations are counted unless it is 0.
+     *
+     * @param sampleRate 1 in sampleRate operations is timed, 1 for all of them, 0 for no instrumentation at all
+     */
+    public void setInstrumentationSampleRate(int sampleRate) {
+        _instrumentationSampleRate = sampleRate;
+    }
+
+    /**
+     * @return statistics of the ZK client, by ZkPath prefix
+     */
+    public ZkClientStats getStats() {
+        return _stats;
+    }
+
     /**
      * Builds zk connector. Note that this method does not initiate a connection. {@link ZkConnection#connect()} must be called to connect
      * to cluster.
@@ -109,11 +129,17 @@ public class ZkConnection {
      */
     public void build() {
         try {
-            _zkConnection = CuratorFrameworkFactory.builder().connectString(_connectString)
+            Builder builder = CuratorFrameworkFactory.builder().connectString(_connectString)
                     .connectionTimeoutMs(DEFAULT_CONN_TIMEOUT)
                     .canBeReadOnly(true)
                     .sessionTimeoutMs(_timeoutMs).retryPolicy(
-                            new RetryUntilElapsed(_timeoutMs, RETRY_INTERVAL_MS)).build();
+                            new RetryUntilElapsed(_timeoutMs, RETRY_INTERVAL_MS));
+            if (_instrumentationSampleRate > 0) {
+                _stats.setSampleRate(_instrumentationSampleRate);
+                builder.zookeeperFactory(new InstrumentedZooKeeper.Factory(_stats));
+                _stats.register();
+            }
+            _zkConnection = builder.build();
             _zkConnection.getUnhandledErrorListenable().addListener(new UnhandledErrorListener() {
                 @Override
                 public void unhandledError(String message, Throwable e) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.beacon.ServiceBeacon;
+import com.emc.storageos.coordinator.client.service.impl.CoordinatorClientImpl;
+import com.emc.storageos.coordinator.client.service.impl.CoordinatorReadCache;
+import com.emc.storageos.coordinator.common.Configuration;
+import com.emc.storageos.coordinator.common.Service;
+import com.emc.storageos.coordinator.common.impl.ConfigurationImpl;
+import com.emc.storageos.coordinator.common.impl.ServiceImpl;
+import com.emc.storageos.coordinator.exceptions.RetryableCoordinatorException;
+
+public class CoordinatorReadCacheTest extends CoordinatorTestBase {
+    private static final String KIND = "readCacheTest";
+    private static final String KEY = "value";
+    private static final int WAIT_MS = 10000;
+
+    private CoordinatorClientImpl client;
+
+    @Before
+    public void setUp() throws Exception {
+        // the cache is opt-in
+        client = new CoordinatorClientImpl();
+        client.setZkConnection(createConnection(10 * 1000));
+        client.setInetAddessLookupMap(createLocalInetAddressLookupMap());
+        client.setVdcShortId("vdc1");
+        client.setReadCacheEnabled(true);
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+    }
+
+    private static Configuration config(String id, String value) {
+        ConfigurationImpl config = new ConfigurationImpl();
+        config.setKind(KIND);
+        config.setId(id);
+        config.setConfig(KEY, value);
+        return config;
+    }
+
+    /**
+     * Queries the configurations of the kind until the cache answers them
+     */
+    private void waitForCache() throws Exception {
+        CoordinatorReadCache cache = client.getReadCache();
+        long avoided = cache.getZkReadsAvoided();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (cache.getZkReadsAvoided() == avoided && System.currentTimeMillis() < deadline) {
+            client.queryAllConfiguration(KIND);
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(cache.getZkReadsAvoided() > avoided);
+    }
+
+    @Test
+    public void testCacheDisabledByDefault() throws Exception {
+        CoordinatorClientImpl defaultClient = (CoordinatorClientImpl) connectClient();
+        try {
+            Assert.assertNull(defaultClient.getReadCache());
+        } finally {
+            defaultClient.stop();
+        }
+    }
+
+    @Test
+    public void testDeletePathSeenByNextQuery() throws Exception {
+        client.persistServiceConfiguration(config("a", "1"), config("b", "2"));
+        waitForCache();
+
+        client.deletePath("/config/" + KIND);
+        Assert.assertTrue(client.queryAllConfiguration(KIND).isEmpty());
+        Assert.assertNull(client.queryConfiguration(KIND, "a"));
+    }
+
+    @Test
+    public void testRemoteWritesPickedUp() throws Exception {
+        client.persistServiceConfiguration(config("a", "1"));
+        waitForCache();
+
+        // another node changes the configuration, only the watch tells this client
+        CoordinatorClient remote = connectClient();
+        try {
+            remote.persistServiceConfiguration(config("a", "2"));
+        } finally {
+            ((CoordinatorClientImpl) remote).stop();
+        }
+        String value = null;
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!"2".equals(value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            value = client.queryConfiguration(KIND, "a").getConfig(KEY);
+        }
+        Assert.assertEquals("2", value);
+    }
+
+    @Test
+    public void testQueriesServedFromCacheSeeLocalWrites() throws Exception {
+        client.persistServiceConfiguration(config("a", "1"), config("b", "2"));
+
+        CoordinatorReadCache cache = client.getReadCache();
+        Assert.assertNotNull(cache);
+
+        // first query starts the cache of the kind, wait for its initial load
+        long avoided = cache.getZkReadsAvoided();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (cache.getZkReadsAvoided() == avoided && System.currentTimeMillis() < deadline) {
+            Assert.assertEquals(2, client.queryAllConfiguration(KIND).size());
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(cache.getZkReadsAvoided() > avoided);
+
+        client.persistServiceConfiguration(config("a", "3"));
+        Assert.assertEquals("3", client.queryConfiguration(KIND, "a").getConfig(KEY));
+
+        client.removeServiceConfiguration(config("b", null));
+        List<Configuration> configs = client.queryAllConfiguration(KIND);
+        Assert.assertEquals(1, configs.size());
+        Assert.assertEquals("3", configs.get(0).getConfig(KEY));
+    }
+
+    @Test
+    public void testServiceLookupFollowsRegistrations() throws Exception {
+        ServiceImpl svc = new ServiceImpl();
+        svc.setName("readcachesvc");
+        svc.setVersion("1");
+        svc.setId(UUID.randomUUID().toString());
+        svc.setEndpoint(URI.create("rmi://localhost:10099/test"));
+        ServiceBeacon beacon = createBeacon(svc, 10 * 1000);
+        beacon.start();
+
+        CoordinatorReadCache cache = client.getReadCache();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        List<Service> services = client.locateAllServices("readcachesvc", "1", null, null);
+        while (cache.getZkReadsAvoided() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            services = client.locateAllServices("readcachesvc", "1", null, null);
+        }
+        Assert.assertTrue(cache.getZkReadsAvoided() > 0);
+        Assert.assertEquals(1, services.size());
+        Assert.assertEquals(svc.getId(), services.get(0).getId());
+
+        // the cache drops the instance once the watch reports its node is gone
+        beacon.stop();
+        deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!services.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            try {
+                services = client.locateAllServices("readcachesvc", "1", null, null);
+            } catch (RetryableCoordinatorException e) {
+                services = Collections.emptyList();
+            }
+        }
+        Assert.assertTrue(services.isEmpty());
+    }
+}
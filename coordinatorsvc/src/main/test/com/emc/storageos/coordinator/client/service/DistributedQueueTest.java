@@ -10,6 +10,7 @@ import com.emc.storageos.svcs.errorhandling.resources.ServiceCode;
 import com.emc.storageos.coordinator.client.service.impl.CoordinatorClientImpl;
 import com.emc.storageos.coordinator.client.service.impl.DistributedQueueConsumer;
 import com.emc.storageos.coordinator.client.service.impl.DistributedQueueImpl;
+import com.emc.storageos.coordinator.client.service.impl.DistributedQueueStats;
 import com.emc.storageos.coordinator.client.service.DistributedQueueItemProcessedCallback;
 import org.apache.curator.framework.recipes.queue.QueueSerializer;
 import org.junit.Assert;
@@ -33,6 +34,7 @@ public class DistributedQueueTest extends CoordinatorTestBase {
     private static final String QUEUE_NAME_2 = "integerqueue2";
     private static final String QUEUE_NAME_3 = "integerqueue3";
     private static final String QUEUE_NAME_4 = "integerqueue4";
+    private static final String QUEUE_NAME_5 = "integerqueue5";
 
     private static List<DistributedQueue<Integer>> statisticDistQueueList = new ArrayList<DistributedQueue<Integer>>();
 
@@ -136,6 +138,104 @@ public class DistributedQueueTest extends CoordinatorTestBase {
         }
     }
 
+    /**
+     * Queue consumer that holds every item for a while, recording the items it got
+     */
+    public class HoldingConsumer extends DistributedQueueConsumer<Integer> {
+        private final CountDownLatch _latch;
+        private final Set<Integer> _consumed;
+        private final AtomicInteger _count = new AtomicInteger(0);
+
+        public HoldingConsumer(CountDownLatch latch, Set<Integer> consumed) {
+            _latch = latch;
+            _consumed = consumed;
+        }
+
+        @Override
+        public void consumeItem(Integer item, DistributedQueueItemProcessedCallback cb) throws Exception {
+            Thread.sleep(50);
+            Assert.assertTrue("consumed twice: " + item, _consumed.add(item));
+            _count.incrementAndGet();
+            cb.itemProcessed();
+            _latch.countDown();
+        }
+    }
+
+    private DistributedQueueImpl<Integer> getBatchedQueue(HoldingConsumer consumer, int batchSize, int threads)
+            throws Exception {
+        CoordinatorClientImpl client = (CoordinatorClientImpl) connectClient();
+        client.setQueueClaimBatchSizes(Collections.singletonMap(QUEUE_NAME_5, batchSize));
+        return (DistributedQueueImpl<Integer>) client.getQueue(QUEUE_NAME_5, consumer, new IntegerSerializer(), threads);
+    }
+
+    /**
+     * Tests that two nodes claim items in batches, no larger than their free threads,
+     * and share the items of a burst
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testBatchedClaim() throws Exception {
+        final int itemCount = 200;
+        final int batchSize = 16;
+        final int threads = 4;
+        DistributedQueue<Integer> producer = connectClient().getQueue(QUEUE_NAME_5, null, new IntegerSerializer(), 25);
+        for (int index = 0; index < itemCount; index++) {
+            producer.put(index);
+        }
+
+        CountDownLatch latch = new CountDownLatch(itemCount);
+        Set<Integer> consumed = Collections.synchronizedSet(new HashSet<Integer>());
+        HoldingConsumer firstConsumer = new HoldingConsumer(latch, consumed);
+        HoldingConsumer secondConsumer = new HoldingConsumer(latch, consumed);
+        DistributedQueueImpl<Integer> first = getBatchedQueue(firstConsumer, batchSize, threads);
+        DistributedQueueImpl<Integer> second = getBatchedQueue(secondConsumer, batchSize, threads);
+        Assert.assertTrue(latch.await(120, TimeUnit.SECONDS));
+        Assert.assertEquals(itemCount, consumed.size());
+
+        DistributedQueueImpl<?>[] queues = { first, second };
+        long claimed = 0;
+        for (DistributedQueueImpl<?> queue : queues) {
+            DistributedQueueStats stats = queue.getStats();
+            claimed += stats.getClaimedItems();
+            // several items per claim, never more than the free threads
+            Assert.assertTrue(stats.getClaimCount() < stats.getClaimedItems());
+            Assert.assertTrue(stats.getClaimCount() * threads >= stats.getClaimedItems());
+        }
+        Assert.assertEquals(itemCount, claimed);
+
+        // neither node takes the whole burst
+        for (HoldingConsumer consumer : new HoldingConsumer[] { firstConsumer, secondConsumer }) {
+            Assert.assertTrue(consumer._count.get() >= itemCount / 4);
+        }
+        first.stop(1000);
+        second.stop(1000);
+    }
+
+    /**
+     * Tests that a queue not configured for batches claims its items one by one
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testClaimOneByOneByDefault() throws Exception {
+        final int itemCount = 20;
+        CoordinatorClientImpl client = (CoordinatorClientImpl) connectClient();
+        client.setQueueClaimBatchSizes(Collections.singletonMap(QUEUE_NAME_5, 16));
+        DistributedQueue<Integer> producer = client.getQueue(QUEUE_NAME_3, null, new IntegerSerializer(), 25);
+        for (int index = 0; index < itemCount; index++) {
+            producer.put(index);
+        }
+
+        CountDownLatch latch = new CountDownLatch(itemCount);
+        HoldingConsumer consumer = new HoldingConsumer(latch, Collections.synchronizedSet(new HashSet<Integer>()));
+        DistributedQueueImpl<Integer> queue = (DistributedQueueImpl<Integer>) client.getQueue(QUEUE_NAME_3, consumer,
+                new IntegerSerializer(), 4);
+        Assert.assertTrue(latch.await(120, TimeUnit.SECONDS));
+        Assert.assertEquals(itemCount, queue.getStats().getClaimCount());
+        queue.stop(1000);
+    }
+
     /**
      * Starts a thread that will put integers [start, end)
      * 
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.DistributedQueueItemProcessedCallback;
+
+public class DistributedQueueSchedulerTest {
+    private static final DistributedQueueConsumer<String> consumer = new DistributedQueueConsumer<String>() {
+        @Override
+        public void consumeItem(String item, DistributedQueueItemProcessedCallback callback) throws Exception {
+        }
+
+        @Override
+        public int getPriorityWeight(String priorityClass) {
+            return "high".equals(priorityClass) ? 3 : 1;
+        }
+    };
+
+    private static int sequence = 0;
+
+    private static String item(String priorityClass, String key) {
+        return DistributedQueueScheduler.getItemPrefix(priorityClass, key, consumer.getPriorityWeight(priorityClass))
+                + String.format("%010d", sequence++);
+    }
+
+    @Test
+    public void testItemNames() {
+        String name = item("bulk", "urn:storageos:Workflow:1/2");
+        Assert.assertEquals("bulk", DistributedQueueScheduler.getPriorityClass(name));
+        Assert.assertEquals("urn:storageos:Workflow:1_2", DistributedQueueScheduler.getFairShareKey(name));
+
+        // named by a node of an older version
+        Assert.assertEquals("", DistributedQueueScheduler.getPriorityClass("queue-0000000012"));
+        Assert.assertEquals("", DistributedQueueScheduler.getFairShareKey("queue-0000000012"));
+    }
+
+    @Test
+    public void testNameOrderFollowsWeight() {
+        // older nodes claim in name order, where "bulk" and "low" would come before "high"
+        TreeSet<String> items = new TreeSet<String>();
+        items.add(item("bulk", "a"));
+        items.add(item("low", "a"));
+        String high = item("high", "a");
+        items.add(high);
+        Assert.assertEquals(high, items.first());
+    }
+
+    @Test
+    public void testKeysTakeTurns() {
+        TreeSet<String> items = new TreeSet<String>();
+        List<String> busy = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            String name = item("normal", "busy");
+            busy.add(name);
+            items.add(name);
+        }
+        String quiet = item("normal", "quiet");
+        items.add(quiet);
+
+        List<String> selected = new DistributedQueueScheduler(consumer).select(items, 3);
+        Assert.assertEquals(Arrays.asList(busy.get(0), quiet, busy.get(1)), selected);
+    }
+
+    @Test
+    public void testClassesByWeight() {
+        TreeSet<String> items = new TreeSet<String>();
+        for (int i = 0; i < 10; i++) {
+            items.add(item("high", "a"));
+            items.add(item("low", "a"));
+        }
+
+        DistributedQueueScheduler scheduler = new DistributedQueueScheduler(consumer);
+        int high = 0;
+        for (String name : scheduler.select(items, 8)) {
+            if ("high".equals(DistributedQueueScheduler.getPriorityClass(name))) {
+                high++;
+            }
+        }
+        // 3 to 1, the low class isn't starved
+        Assert.assertEquals(6, high);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.client.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.exceptions.CoordinatorException;
+
+/**
+ * Tests the codec header handling of GenericSerializer
+ */
+public class GenericSerializerTest {
+
+    private static ArrayList<URI> createUris(int count) {
+        ArrayList<URI> uris = new ArrayList<URI>();
+        for (int i = 0; i < count; i++) {
+            uris.add(URI.create("urn:storageos:Volume:" + i + "-5c1b-4d2f-9a3e-6f0e2b7d8c91:vdc1"));
+        }
+        return uris;
+    }
+
+    @Test
+    public void testNotCompressedByDefault() {
+        ArrayList<URI> uris = createUris(1000);
+        byte[] data = GenericSerializer.serialize(uris, "uris", true);
+        Assert.assertEquals(GenericSerializer.JAVA_SERIALIZATION_MAGIC, data[0]);
+        Assert.assertEquals(uris, GenericSerializer.deserialize(data));
+    }
+
+    @Test
+    public void testCodecOnlyForItsCaller() {
+        ArrayList<URI> uris = createUris(1000);
+        byte[] compressed = GenericSerializer.serialize(uris, "uris", true, new DeflatePayloadCodec());
+        byte[] plain = GenericSerializer.serialize(uris, "uris", true, new DeflatePayloadCodec());
+        Assert.assertEquals(DeflatePayloadCodec.ID, compressed[0]);
+        Assert.assertEquals(GenericSerializer.JAVA_SERIALIZATION_MAGIC, plain[0]);
+        Assert.assertEquals(uris, GenericSerializer.deserialize(compressed));
+    }
+
+    @Test
+    public void testLargeObjectsAreCompressed() {
+        ArrayList<URI> uris = createUris(1000);
+        byte[] data = GenericSerializer.serialize(uris, "uris", true, new DeflatePayloadCodec());
+        Assert.assertEquals(DeflatePayloadCodec.ID, data[0]);
+        Assert.assertEquals(uris, GenericSerializer.deserialize(data));
+    }
+
+    @Test
+    public void testSmallObjectsAreLeftAlone() {
+        ArrayList<URI> uris = createUris(2);
+        byte[] data = GenericSerializer.serialize(uris, "uris", true, new DeflatePayloadCodec());
+        Assert.assertEquals(GenericSerializer.JAVA_SERIALIZATION_MAGIC, data[0]);
+        Assert.assertEquals(uris, GenericSerializer.deserialize(data));
+    }
+
+    @Test
+    public void testDataWithoutHeaderIsRead() throws Exception {
+        List<URI> uris = createUris(1000);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ObjectOutputStream ostream = new ObjectOutputStream(stream);
+        ostream.writeObject(uris);
+        ostream.close();
+        Assert.assertEquals(uris, GenericSerializer.deserialize(stream.toByteArray()));
+    }
+
+    @Test(expected = CoordinatorException.class)
+    public void testUnknownCodec() {
+        byte[] data = GenericSerializer.serialize(createUris(1000), "uris", true, new DeflatePayloadCodec());
+        data[0] = 0x7f;
+        GenericSerializer.deserialize(data);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.coordinator.common.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.common.impl.ZkClientStats.OpStats;
+import com.emc.storageos.coordinator.common.impl.ZkClientStats.Operation;
+
+public class ZkClientStatsTest {
+
+    @Test
+    public void testPrefixes() {
+        Assert.assertEquals("/queue", ZkClientStats.getPrefix("/queue/controller/queue-0000000001"));
+        Assert.assertEquals("/workflow", ZkClientStats.getPrefix("/workflow"));
+        Assert.assertEquals("/sites/*/config", ZkClientStats.getPrefix("/sites/1234-abcd/config/upgradetargetpropertyoverride"));
+        Assert.assertEquals("/sites", ZkClientStats.getPrefix("/sites/1234-abcd"));
+        Assert.assertEquals(ZkClientStats.OTHER, ZkClientStats.getPrefix("/zookeeper/quota"));
+        Assert.assertEquals(ZkClientStats.OTHER, ZkClientStats.getPrefix(null));
+    }
+
+    @Test
+    public void testHistogram() {
+        ZkClientStats stats = new ZkClientStats();
+        stats.setSampleRate(1);
+        for (int i = 0; i < 100; i++) {
+            OpStats opStats = stats.operation(Operation.GET_DATA, "/config/x");
+            long start = opStats.start();
+            Assert.assertTrue(start > 0);
+            opStats.done(start, 100, i == 0);
+        }
+        OpStats opStats = stats.operation(Operation.GET_DATA, "/config/y");
+        Assert.assertTrue(opStats.getPercentileMicros(0.5) <= opStats.getPercentileMicros(0.99));
+        Assert.assertEquals(1, stats.getOperationStats().length);
+        String line = stats.getOperationStats()[0];
+        Assert.assertTrue(line, line.startsWith("/config GET_DATA count=101 sampled=100 failed=1"));
+        Assert.assertTrue(line, line.endsWith("avgBytes=100"));
+
+        Assert.assertEquals(0, ZkClientStats.getBucket(0));
+        Assert.assertEquals(1, ZkClientStats.getBucket(1));
+        Assert.assertEquals(3, ZkClientStats.getBucket(7));
+        Assert.assertEquals(ZkClientStats.BUCKETS - 1, ZkClientStats.getBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testNoSampling() {
+        ZkClientStats stats = new ZkClientStats();
+        stats.setSampleRate(0);
+        OpStats opStats = stats.operation(Operation.CREATE, "/workflow/workflows");
+        Assert.assertEquals(0, opStats.start());
+        opStats.done(0, 10, true);
+        Assert.assertTrue(stats.getOperationStats()[0].contains("count=1 sampled=0 failed=0"));
+    }
+}
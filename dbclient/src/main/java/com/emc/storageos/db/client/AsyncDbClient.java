@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.emc.storageos.db.client.constraint.Constraint;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.TimeSeries;
+import com.emc.storageos.db.client.model.TimeSeriesSerializer;
+
+/**
+ * Non blocking flavor of the most used DbClient calls. Every call returns right away and
+ * the returned future is completed once Cassandra answered, so callers can start several
+ * queries and wait for all of them at once instead of running them one after the other.
+ *
+ * Futures are completed on the db client's executor threads, which also run the blocking
+ * Cassandra calls behind them: callbacks attached with thenApply() etc. should be short, use the *Async() callback variants with an own executor for
+ * anything heavy or blocking. Failures complete the future exceptionally with the same
+ * DatabaseException the synchronous call would throw.
+ */
+public interface AsyncDbClient {
+
+    /**
+     * Asynchronous {@link DbClient#queryObject(Class, URI)}
+     *
+     * @param clazz object type
+     * @param id object id
+     * @return future completed with the object, or null if it doesn't exist
+     */
+    <T extends DataObject> CompletableFuture<T> queryObjectAsync(Class<T> clazz, URI id);
+
+    /**
+     * Asynchronous {@link DbClient#queryObject(Class, Collection, boolean)}
+     *
+     * @param clazz object type
+     * @param ids object ids
+     * @param activeOnly
+     * @return future completed with the objects found
+     */
+    <T extends DataObject> CompletableFuture<List<T>> queryObjectAsync(Class<T> clazz, Collection<URI> ids,
+            boolean activeOnly);
+
+    /**
+     * Asynchronous {@link DbClient#queryByConstraint(Constraint, com.emc.storageos.db.client.constraint.QueryResultList)}.
+     * All result pages are read before the future completes, constraints limited to a single
+     * page (start id) aren't supported.
+     *
+     * @param constraint
+     * @return future completed with the ids matching the constraint
+     */
+    CompletableFuture<List<URI>> queryByConstraintAsync(Constraint constraint);
+
+    /**
+     * Asynchronous {@link DbClient#updateObject(DataObject)}
+     *
+     * @param object
+     * @return future completed once the object is written
+     */
+    <T extends DataObject> CompletableFuture<Void> updateObjectAsync(T object);
+
+    /**
+     * Asynchronous {@link DbClient#updateObject(Collection)}
+     *
+     * @param objects
+     * @return future completed once all objects are written
+     */
+    <T extends DataObject> CompletableFuture<Void> updateObjectAsync(Collection<T> objects);
+
+    /**
+     * Asynchronous {@link DbClient#insertTimeSeries(Class, TimeSeriesSerializer.DataPoint...)}
+     *
+     * @param tsType time series class
+     * @param data data points
+     * @return future completed with the row id of the time series bucket written
+     */
+    <T extends TimeSeriesSerializer.DataPoint> CompletableFuture<String> insertTimeSeriesAsync(
+            Class<? extends TimeSeries> tsType, T... data);
+}
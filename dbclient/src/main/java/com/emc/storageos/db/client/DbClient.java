@@ -126,6 +126,19 @@ public interface DbClient {
     <T extends DataObject> Iterator<T> queryIterativeObjects(final Class<T> clazz,
             Collection<URI> ids, final boolean activeOnly);
 
+    /**
+     * Same as {@link DbClient#queryIterativeObjects(Class, Collection, boolean)}, but fetches several
+     * batches in parallel ahead of the caller. Use it for walks over very large id collections
+     * (e.g. all volumes of the system). Objects are NOT returned in the order of given ids.
+     * 
+     * @param clazz object type
+     * @param ids object ids
+     * @param activeOnly
+     * @return deserialized objects as an Iterator. non matching records are not returned
+     * @throws DatabaseException
+     */
+    <T extends DataObject> Iterator<T> queryPipelinedObjects(Class<T> clazz, Collection<URI> ids, boolean activeOnly);
+
     /**
      * Queries for a particular field on objects with the given URIs
      * 
@@ -627,12 +640,13 @@ public interface DbClient {
      * hour bucket for 2012-4-16 1:00:00 UTC time.
      * 
      * This method will call TimeSeriesQueryResult#data for every record found
-     * in that time bucket. Note that callbacks will done from multiple threads
-     * using workerThreads executor service.
+     * in that time bucket, from the calling thread and in time order across all
+     * shards.
      * 
      * Note that executor service should limit the number of threads used for
-     * parallel execution (fixed thread pool, for example). For each shard in a
-     * given time bucket, default implementation will launch a parallel queries.
+     * parallel execution (fixed thread pool, for example). Shards are read in
+     * parallel on the executor, one page ahead of the records being handed to
+     * the callback, so a slow callback slows down the reads.
      * 
      * @param tsType See insertTimeSeries for explanation of what time series
      *            class is
@@ -685,6 +699,21 @@ public interface DbClient {
     <T extends DataObject> Iterator<T>
             queryIterativeObjectFields(Class<T> clazz, Collection<String> fieldNames, Collection<URI> ids);
 
+    /**
+     * Streaming projection query: same as {@link DbClient#queryIterativeObjectFields(Class, Collection, Collection)},
+     * but fetches several batches in parallel ahead of the caller. Meant for list views which only
+     * need a few fields (e.g. label, inactive, project, varray, vpool) of many objects.
+     * Objects are NOT returned in the order of given ids.
+     * 
+     * @param clazz object type
+     * @param fieldNames names of the fields to load
+     * @param ids object ids
+     * @return partially loaded objects as an Iterator
+     * @throws DatabaseException
+     */
+    <T extends DataObject> Iterator<T>
+            queryPipelinedObjectFields(Class<T> clazz, Collection<String> fieldNames, Collection<URI> ids);
+
     /**
      * Get the DB schema version
      */
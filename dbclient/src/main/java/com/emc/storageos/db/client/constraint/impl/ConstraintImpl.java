@@ -8,6 +8,7 @@ package com.emc.storageos.db.client.constraint.impl;
 import java.net.URI;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -118,6 +119,23 @@ public abstract class ConstraintImpl <T extends CompositeIndexColumnName> implem
         queryWithAutoPaginate(genQuery(), result);
     }
 
+    /**
+     * Reads all hits without blocking the calling thread, see {@link QueryHitIterator#collectAsync()}.
+     * Single page queries (setStartId()) aren't supported.
+     *
+     * @param result creates the hits
+     * @return future completed with all hits
+     */
+    public <T1> CompletableFuture<List<T1>> executeAsync(final Constraint.QueryResult<T1> result) {
+        if (returnOnePage) {
+            throw new UnsupportedOperationException("single page queries can't be executed asynchronously");
+        }
+
+        RowQuery<String, T> query = genQuery();
+        query.autoPaginate(true);
+        return getQueryHitIterator(query, result).collectAsync();
+    }
+
     protected abstract <T1> void queryOnePage(final QueryResult<T1> result) throws ConnectionException;
 
     protected abstract RowQuery<String, T> genQuery();
@@ -90,8 +90,8 @@ public class DecommissionedConstraintImpl extends ConstraintImpl<IndexColumnName
     }
 
     @Override
-    protected <T> void queryWithAutoPaginate(RowQuery<String, IndexColumnName> query, final QueryResult<T> result) {
-        query.autoPaginate(true);
+    protected <T> QueryHitIterator<T, IndexColumnName> getQueryHitIterator(RowQuery<String, IndexColumnName> query,
+            final QueryResult<T> result) {
         FilteredQueryHitIterator<T, IndexColumnName> it;
         if (_timeToStartFrom > 0) {
             // time slice - get only older than _timeToStartFrom
@@ -125,8 +125,7 @@ public class DecommissionedConstraintImpl extends ConstraintImpl<IndexColumnName
                 }
             };
         }
-        it.prime();
-        result.setResult(it);
+        return it;
     }
 
     @Override
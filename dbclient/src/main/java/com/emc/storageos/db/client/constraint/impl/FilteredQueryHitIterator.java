@@ -4,6 +4,7 @@
  */
 package com.emc.storageos.db.client.constraint.impl;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import com.netflix.astyanax.model.Column;
@@ -73,6 +74,13 @@ public abstract class FilteredQueryHitIterator<T1, T2 extends CompositeIndexColu
         return ret;
     }
 
+    @Override
+    protected void addHit(Column<T2> column, List<T1> hits) {
+        if (filter(column)) {
+            super.addHit(column, hits);
+        }
+    }
+
     /**
      * check if a particular column is good or not
      * 
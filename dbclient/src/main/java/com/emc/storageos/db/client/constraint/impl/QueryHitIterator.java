@@ -5,9 +5,16 @@
 
 package com.emc.storageos.db.client.constraint.impl;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.astyanax.connectionpool.OperationResult;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
 import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.model.ColumnList;
@@ -75,5 +82,88 @@ public abstract class QueryHitIterator<T1, T2 extends CompositeIndexColumnName>
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Reads all hits without waiting for Cassandra: each page is requested with executeAsync()
+     * from the completion of the previous one. Use it instead of prime() and the iterator calls.
+     *
+     * @return future completed with all hits, or with the DatabaseException a page read failed with
+     */
+    public CompletableFuture<List<T1>> collectAsync() {
+        CompletableFuture<List<T1>> result = new CompletableFuture<List<T1>>();
+        collectAsync(new ArrayList<T1>(), result);
+        return result;
+    }
+
+    private void collectAsync(final List<T1> hits, final CompletableFuture<List<T1>> result) {
+        // pages already read (e.g. served inline) are handled in this loop rather than recursively
+        while (true) {
+            final ListenableFuture<OperationResult<ColumnList<T2>>> page;
+            try {
+                page = _query.executeAsync();
+            } catch (ConnectionException e) {
+                result.completeExceptionally(DatabaseException.retryables.connectionFailed(e));
+                return;
+            } catch (RuntimeException e) {
+                // e.g. rejected by the async executor
+                result.completeExceptionally(DatabaseException.fatals.queryFailed(e));
+                return;
+            }
+
+            if (!page.isDone()) {
+                page.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (addPage(page, hits, result)) {
+                            collectAsync(hits, result);
+                        }
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                return;
+            }
+
+            if (!addPage(page, hits, result)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the next page has to be read, false if the result is completed
+     */
+    private boolean addPage(ListenableFuture<OperationResult<ColumnList<T2>>> page, List<T1> hits,
+            CompletableFuture<List<T1>> result) {
+        try {
+            ColumnList<T2> columns = page.get().getResult();
+            if (columns.isEmpty()) {
+                result.complete(hits);
+                return false;
+            }
+            for (Column<T2> column : columns) {
+                addHit(column, hits);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(DatabaseException.fatals.queryFailed(e));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConnectionException) {
+                result.completeExceptionally(DatabaseException.retryables.connectionFailed((ConnectionException) cause));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return false;
+    }
+
+    /**
+     * Adds the hit of a column read by collectAsync()
+     */
+    protected void addHit(Column<T2> column, List<T1> hits) {
+        hits.add(createQueryHit(column));
+    }
+
     protected abstract T1 createQueryHit(Column<T2> column);
 }
@@ -6,6 +6,8 @@ package com.emc.storageos.db.client.constraint.impl;
 
 import java.net.URI;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.model.Column;
@@ -78,6 +80,15 @@ public class TimeConstraintImpl extends ConstraintImpl<IndexColumnName> implemen
 
     @Override
     public <T> void execute(final QueryResult<T> result) {
+        queryWithAutoPaginate(genAutoPaginatedQuery(), result);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> executeAsync(final QueryResult<T> result) {
+        return getQueryHitIterator(genAutoPaginatedQuery(), result).collectAsync();
+    }
+
+    private RowQuery<String, IndexColumnName> genAutoPaginatedQuery() {
         RowQuery<String, IndexColumnName> query;
         if (value == null) {
             query = keyspace.prepareQuery(cf).getKey(rowKey)
@@ -94,7 +105,13 @@ public class TimeConstraintImpl extends ConstraintImpl<IndexColumnName> implemen
                                     .limit(DEFAULT_PAGE_SIZE));
         }
 
-        FilteredQueryHitIterator<T, IndexColumnName> it = new FilteredQueryHitIterator<T, IndexColumnName>(query) {
+        return query;
+    }
+
+    @Override
+    protected <T> QueryHitIterator<T, IndexColumnName> getQueryHitIterator(RowQuery<String, IndexColumnName> query,
+            final QueryResult<T> result) {
+        return new FilteredQueryHitIterator<T, IndexColumnName>(query) {
             @Override
             protected T createQueryHit(Column<IndexColumnName> column) {
                 return result.createQueryHit(URI.create(column.getName().getTwo()));
@@ -114,9 +131,6 @@ public class TimeConstraintImpl extends ConstraintImpl<IndexColumnName> implemen
                 return true;
             }
         };
-
-        it.prime();
-        result.setResult(it);
     }
 
     @Override
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.emc.storageos.db.client.AsyncDbClient;
+import com.emc.storageos.db.client.constraint.Constraint;
+import com.emc.storageos.db.client.constraint.URIQueryResultList;
+import com.emc.storageos.db.client.constraint.impl.ConstraintImpl;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.TimeSeries;
+import com.emc.storageos.db.client.model.TimeSeriesSerializer;
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Rows;
+
+/**
+ * AsyncDbClient on top of DbClientImpl, sharing its keyspaces and connection pools.
+ *
+ * Object reads and time series inserts go through Astyanax executeAsync(), constraint queries
+ * request each page from the completion of the previous one, so none of them holds the caller's
+ * thread while waiting. They aren't free of blocking though: with the Thrift transport
+ * executeAsync() runs the blocking call on the async executor of the DbClientContext, which
+ * holds one of its threads for the whole round trip. The executor is sized to the connection
+ * pool, so the number of requests in flight is bounded the same way as for synchronous calls;
+ * what is saved is the caller's thread, not the wait.
+ * Object writes take several dependent round trips (index read-back and cleanup) and are carried
+ * out by the synchronous code on a separate executor, so they never wait for the executeAsync()
+ * work queued behind them. Both executors are bounded, calls beyond their capacity fail right away.
+ */
+public class AsyncDbClientImpl implements AsyncDbClient {
+    private final DbClientImpl _dbClient;
+
+    public AsyncDbClientImpl(DbClientImpl dbClient) {
+        _dbClient = dbClient;
+    }
+
+    @Override
+    public <T extends DataObject> CompletableFuture<T> queryObjectAsync(Class<T> clazz, URI id) {
+        _dbClient.getTracer().newTracer("read");
+        return queryObjectAsync(clazz, Arrays.asList(id), false).thenApply(objects -> objects.isEmpty() ? null : objects.get(0));
+    }
+
+    @Override
+    public <T extends DataObject> CompletableFuture<List<T>> queryObjectAsync(final Class<T> clazz, final Collection<URI> ids,
+            final boolean activeOnly) {
+        _dbClient.getTracer().newTracer("read");
+        final DataObjectType doType = TypeMap.getDoType(clazz);
+        if (doType == null || ids == null) {
+            throw new IllegalArgumentException();
+        }
+        if (!ids.iterator().hasNext()) {
+            // nothing to do, just an empty list
+            return CompletableFuture.<List<T>> completedFuture(new ArrayList<T>());
+        }
+
+        DbClientContext context = _dbClient.getDbClientContext(clazz);
+        if (_dbClient.getObjectCache() != null && DataObjectCache.isCacheable(clazz)) {
+            // mostly served from memory, keep the cache bookkeeping in one place
+            return callAsync(context.getAsyncBlockingExecutor(), () -> _dbClient.queryObject(clazz, ids, activeOnly));
+        }
+
+        final Keyspace ks = context.getKeyspace();
+        try {
+            ListenableFuture<OperationResult<Rows<String, CompositeColumnName>>> future = ks.prepareQuery(doType.getCF())
+                    .getKeySlice(_dbClient.convertUriCollection(ids))
+                    .executeAsync();
+            return toCompletableFuture(future).thenApply(
+                    result -> _dbClient.deserializeObjects(clazz, doType, ks, result.getResult(), activeOnly));
+        } catch (ConnectionException e) {
+            return failedFuture(DatabaseException.retryables.connectionFailed(e));
+        } catch (RuntimeException e) {
+            // e.g. rejected by the async executor
+            return failedFuture(DatabaseException.fatals.queryFailed(e));
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<URI>> queryByConstraintAsync(final Constraint constraint) {
+        _dbClient.getTracer().newTracer("read");
+        ConstraintImpl<?> constraintImpl = (ConstraintImpl<?>) constraint;
+        if (!constraintImpl.isValid()) {
+            throw new IllegalArgumentException("invalid constraint: the key can't be null or empty");
+        }
+        constraint.setKeyspace(_dbClient.getKeyspace(constraint.getDataObjectType()));
+        return constraintImpl.executeAsync(new URIQueryResultList());
+    }
+
+    @Override
+    public <T extends DataObject> CompletableFuture<Void> updateObjectAsync(final T object) {
+        _dbClient.getTracer().newTracer("write");
+        return callAsync(_dbClient.getDbClientContext(object.getClass()).getAsyncBlockingExecutor(), () -> {
+            _dbClient.updateObject(object);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends DataObject> CompletableFuture<Void> updateObjectAsync(final Collection<T> objects) {
+        _dbClient.getTracer().newTracer("write");
+        Iterator<T> it = objects.iterator();
+        if (!it.hasNext()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return callAsync(_dbClient.getDbClientContext(it.next().getClass()).getAsyncBlockingExecutor(), () -> {
+            _dbClient.updateObject(objects);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends TimeSeriesSerializer.DataPoint> CompletableFuture<String> insertTimeSeriesAsync(
+            Class<? extends TimeSeries> tsType, T... data) {
+        _dbClient.getTracer().newTracer("write");
+        TimeSeriesType<T> type = TypeMap.getTimeSeriesType(tsType);
+        final String rowId = type.getRowId();
+        try {
+            return toCompletableFuture(_dbClient.prepareTimeSeriesBatch(type, rowId, data).executeAsync())
+                    .thenApply(result -> rowId);
+        } catch (ConnectionException e) {
+            return failedFuture(DatabaseException.retryables.connectionFailed(e));
+        } catch (RuntimeException e) {
+            return failedFuture(DatabaseException.fatals.queryFailed(e));
+        }
+    }
+
+    /**
+     * Run a synchronous call on the given executor. The future fails if the executor
+     * rejects the call (full or shut down) or cancels it before it ran.
+     */
+    static <R> CompletableFuture<R> callAsync(Executor executor, Callable<R> callable) {
+        final CompletableFuture<R> result = new CompletableFuture<R>();
+        FutureTask<R> task = new FutureTask<R>(callable) {
+            @Override
+            protected void done() {
+                try {
+                    result.complete(get());
+                } catch (CancellationException e) {
+                    result.completeExceptionally(DatabaseException.fatals.queryFailed(e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(DatabaseException.fatals.queryFailed(e));
+                } catch (ExecutionException e) {
+                    result.completeExceptionally(e.getCause());
+                }
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            return failedFuture(DatabaseException.fatals.queryFailed(e));
+        }
+        return result;
+    }
+
+    /**
+     * Bridge an Astyanax future, translating connection failures the way the synchronous
+     * calls do
+     */
+    static <R> CompletableFuture<R> toCompletableFuture(final ListenableFuture<R> future) {
+        final CompletableFuture<R> result = new CompletableFuture<R>();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.completeExceptionally(DatabaseException.fatals.queryFailed(e));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ConnectionException) {
+                        result.completeExceptionally(DatabaseException.retryables.connectionFailed((ConnectionException) cause));
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    private static <R> CompletableFuture<R> failedFuture(Throwable t) {
+        CompletableFuture<R> result = new CompletableFuture<R>();
+        result.completeExceptionally(t);
+        return result;
+    }
+}
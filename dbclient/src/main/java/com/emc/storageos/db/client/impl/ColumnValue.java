@@ -30,16 +30,17 @@ public class ColumnValue {
      * Decrypts and sets data object field value
      * 
      * @param column encrypted column value
-     * @param pd property
+     * @param accessor property accessor
      * @param obj wrapper object
      * @param provider encryption provider
      */
     public static void setEncryptedStringField(Column<CompositeColumnName> column,
-            PropertyDescriptor pd, Object obj, EncryptionProvider provider) {
+            PropertyAccessor accessor, Object obj, EncryptionProvider provider) {
+        PropertyDescriptor pd = accessor.getPropertyDescriptor();
         byte[] encrypted = column.getByteArrayValue();
         String val = provider.decrypt(encrypted);
         try {
-            pd.getWriteMethod().invoke(obj, val);
+            accessor.set(obj, val);
         } catch (final InvocationTargetException e) {
             throw DatabaseException.fatals.deserializationFailedEncryptedProperty(pd.getName(), e);
         } catch (final IllegalAccessException e) {
@@ -47,13 +48,14 @@ public class ColumnValue {
         }
     }
 
-    public static void setField(Column<CompositeColumnName> column, PropertyDescriptor pd,
+    public static void setField(Column<CompositeColumnName> column, PropertyAccessor accessor,
             Object obj) {
+        PropertyDescriptor pd = accessor.getPropertyDescriptor();
         try {
             Class type = pd.getPropertyType();
             Object objValue = null;
             if (AbstractChangeTrackingSetMap.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
+                objValue = accessor.get(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -65,7 +67,7 @@ public class ColumnValue {
                     trackingMap.putNoTrack(column.getName().getTwo(), entryValue);
                 }
             } else if (AbstractChangeTrackingMap.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
+                objValue = accessor.get(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -77,7 +79,7 @@ public class ColumnValue {
                     trackingMap.putNoTrack(column.getName().getTwo(), column.getByteArrayValue());
                 }
             } else if (AbstractChangeTrackingSet.class.isAssignableFrom(type)) {
-                objValue = pd.getReadMethod().invoke(obj);
+                objValue = accessor.get(obj);
                 if (objValue == null) {
                     objValue = type.newInstance();
                 }
@@ -91,7 +93,7 @@ public class ColumnValue {
             } else {
                 objValue = getPrimitiveColumnValue(column, pd);
             }
-            pd.getWriteMethod().invoke(obj, objValue);
+            accessor.set(obj, objValue);
         } catch (IllegalAccessException e) {
             // should never get here
             throw DatabaseException.fatals.deserializationFailedProperty(pd.getName(), e);
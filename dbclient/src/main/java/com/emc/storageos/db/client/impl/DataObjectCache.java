@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.common.Configuration;
+import com.emc.storageos.coordinator.common.impl.ConfigurationImpl;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.DataObjectWithACLs;
+import com.emc.storageos.db.client.model.GeoVisibleResource;
+import com.emc.storageos.db.client.model.ReadCacheable;
+import com.emc.storageos.db.client.util.KeyspaceUtil;
+import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.netflix.astyanax.model.Row;
+
+/**
+ * Bounded, per type read-through cache of raw object rows, used by DbClientImpl for
+ * model classes annotated with {@link ReadCacheable}.
+ *
+ * Rows rather than objects are cached so every reader still gets its own freshly
+ * deserialized, change-tracking DataObject. Writes on this node invalidate the written
+ * rows right away; writes on other nodes are picked up through a per type version stamp
+ * in coordinator. The sync thread publishes the stamps of the types written on this node
+ * and polls the stamps of the other nodes every syncIntervalSeconds, so writes never wait
+ * for coordinator.
+ *
+ * Stamps are site local, so geo and geo visible types, which can change on another VDC, are
+ * never cached. Neither are types carrying ACLs, so permission changes apply right away.
+ */
+public class DataObjectCache implements DataObjectCacheMBean {
+    private static final Logger _log = LoggerFactory.getLogger(DataObjectCache.class);
+
+    static final String CONFIG_KIND = "dbObjectCacheVersion";
+    private static final String VERSION_KEY = "version";
+    private static final int DEFAULT_SYNC_INTERVAL_SECONDS = 2;
+
+    private final CoordinatorClient _coordinator;
+    private final Map<Class<? extends DataObject>, TypeCache> _typeCaches = new ConcurrentHashMap<>();
+    private final Map<String, TypeCache> _typeCachesByName = new ConcurrentHashMap<>();
+    private final Map<String, String> _knownVersions = new ConcurrentHashMap<>();
+    // types written on this node since the sync thread last published their stamps
+    private final Set<String> _changedTypes = ConcurrentHashMap.newKeySet();
+    private final AtomicLong _localInvalidations = new AtomicLong(0);
+    private final AtomicLong _remoteInvalidations = new AtomicLong(0);
+
+    private int _syncIntervalSeconds = DEFAULT_SYNC_INTERVAL_SECONDS;
+    private Ticker _ticker = Ticker.systemTicker();
+    private volatile boolean _synced = false;
+    private ScheduledExecutorService _syncExecutor;
+
+    public DataObjectCache(CoordinatorClient coordinator) {
+        _coordinator = coordinator;
+    }
+
+    public void setSyncIntervalSeconds(int syncIntervalSeconds) {
+        _syncIntervalSeconds = syncIntervalSeconds;
+    }
+
+    // for tests
+    void setTicker(Ticker ticker) {
+        _ticker = ticker;
+    }
+
+    public static boolean isCacheable(Class<? extends DataObject> clazz) {
+        return clazz.getAnnotation(ReadCacheable.class) != null
+                && !KeyspaceUtil.isGlobal(clazz)
+                && !GeoVisibleResource.class.isAssignableFrom(clazz)
+                && !DataObjectWithACLs.class.isAssignableFrom(clazz);
+    }
+
+    public synchronized void start() {
+        if (_syncExecutor != null) {
+            return;
+        }
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            _log.error("Register MBean error ", ex);
+        }
+
+        _syncExecutor = new NamedScheduledThreadPoolExecutor("DataObjectCacheSync", 1);
+        _syncExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                syncVersions();
+            }
+        }, 0, _syncIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (_syncExecutor != null) {
+            _syncExecutor.shutdownNow();
+            _syncExecutor = null;
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Get the cache for given type
+     *
+     * @param clazz
+     * @return the type cache, or null if the type is not cacheable
+     */
+    public TypeCache getTypeCache(Class<? extends DataObject> clazz) {
+        TypeCache typeCache = _typeCaches.get(clazz);
+        if (typeCache != null) {
+            return typeCache;
+        }
+
+        if (!isCacheable(clazz)) {
+            return null;
+        }
+
+        synchronized (_typeCaches) {
+            typeCache = _typeCaches.get(clazz);
+            if (typeCache == null) {
+                typeCache = new TypeCache(clazz, clazz.getAnnotation(ReadCacheable.class), _ticker);
+                _typeCachesByName.put(clazz.getSimpleName(), typeCache);
+                _typeCaches.put(clazz, typeCache);
+            }
+        }
+        return typeCache;
+    }
+
+    /**
+     * Invalidate given objects after they were written on this node. Other nodes are told
+     * to drop their cached rows of this type by the next sync.
+     *
+     * @param clazz
+     * @param ids
+     */
+    public void invalidate(Class<? extends DataObject> clazz, Collection<URI> ids) {
+        TypeCache typeCache = getTypeCache(clazz);
+        if (typeCache == null) {
+            return;
+        }
+
+        typeCache.invalidate(ids);
+        _localInvalidations.addAndGet(ids.size());
+        _changedTypes.add(clazz.getSimpleName());
+    }
+
+    /**
+     * Publish a new version stamp for every type written on this node since the last sync
+     */
+    private void publishVersions() {
+        for (String typeName : new ArrayList<String>(_changedTypes)) {
+            _changedTypes.remove(typeName);
+            publishVersion(typeName);
+        }
+    }
+
+    private void publishVersion(String typeName) {
+        String version = UUID.randomUUID().toString();
+        ConfigurationImpl config = new ConfigurationImpl();
+        config.setKind(CONFIG_KIND);
+        config.setId(typeName);
+        config.setConfig(VERSION_KEY, version);
+        // record our own version first so the sync thread doesn't invalidate this node again
+        _knownVersions.put(typeName, version);
+        try {
+            _coordinator.persistServiceConfiguration(config);
+        } catch (Exception e) {
+            _log.warn("Failed to publish object cache version of {}, retrying on next sync", typeName, e);
+            _changedTypes.add(typeName);
+        }
+    }
+
+    /**
+     * Publish the version stamps of the types written on this node, then poll the version
+     * stamps published by all nodes and drop the types changed elsewhere.
+     * If coordinator can't be reached, every type is invalidated so stale rows are never
+     * served for longer than one sync interval.
+     */
+    void syncVersions() {
+        publishVersions();
+        try {
+            List<Configuration> configs = _coordinator.queryAllConfiguration(CONFIG_KIND);
+            Set<String> seen = new HashSet<>();
+            for (Configuration config : configs) {
+                String typeName = config.getId();
+                String version = config.getConfig(VERSION_KEY);
+                seen.add(typeName);
+                String known = _knownVersions.put(typeName, version);
+                if (_synced && (known == null || !known.equals(version))) {
+                    invalidateType(typeName);
+                }
+            }
+            _knownVersions.keySet().retainAll(seen);
+            _synced = true;
+        } catch (Exception e) {
+            _log.warn("Failed to sync object cache versions, invalidating all cached rows", e);
+            _synced = false;
+            invalidateAll();
+        }
+    }
+
+    private void invalidateType(String typeName) {
+        TypeCache typeCache = _typeCachesByName.get(typeName);
+        if (typeCache != null) {
+            _log.debug("{} changed on another node, invalidating cached rows", typeName);
+            typeCache.invalidateAll();
+            _remoteInvalidations.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        long count = 0;
+        for (TypeCache typeCache : _typeCaches.values()) {
+            count += typeCache.stats().hitCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getMissCount() {
+        long count = 0;
+        for (TypeCache typeCache : _typeCaches.values()) {
+            count += typeCache.stats().missCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        long count = 0;
+        for (TypeCache typeCache : _typeCaches.values()) {
+            count += typeCache.stats().evictionCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getLocalInvalidationCount() {
+        return _localInvalidations.get();
+    }
+
+    @Override
+    public long getRemoteInvalidationCount() {
+        return _remoteInvalidations.get();
+    }
+
+    @Override
+    public List<String> getTypeStatistics() {
+        List<String> result = new ArrayList<>();
+        for (TypeCache typeCache : _typeCaches.values()) {
+            CacheStats stats = typeCache.stats();
+            result.add(String.format("%s: size=%d hits=%d misses=%d evictions=%d", typeCache.getTypeName(),
+                    typeCache.size(), stats.hitCount(), stats.missCount(), stats.evictionCount()));
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (TypeCache typeCache : _typeCaches.values()) {
+            typeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Cached rows of a single model class
+     */
+    public static class TypeCache {
+        private final String _typeName;
+        private final Cache<String, Row<String, CompositeColumnName>> _rows;
+        // bumped on every invalidation, so rows read before a write are never cached after it
+        private final AtomicLong _generation = new AtomicLong(0);
+
+        TypeCache(Class<? extends DataObject> clazz, ReadCacheable cacheable, Ticker ticker) {
+            _typeName = clazz.getSimpleName();
+            _rows = CacheBuilder.newBuilder()
+                    .maximumSize(cacheable.maxEntries())
+                    .expireAfterWrite(cacheable.ttlSeconds(), TimeUnit.SECONDS)
+                    .ticker(ticker)
+                    .recordStats()
+                    .build();
+        }
+
+        public String getTypeName() {
+            return _typeName;
+        }
+
+        public long getGeneration() {
+            return _generation.get();
+        }
+
+        public Row<String, CompositeColumnName> get(String key) {
+            return _rows.getIfPresent(key);
+        }
+
+        /**
+         * Cache a row fetched from db
+         *
+         * @param row the row
+         * @param generation the generation returned by {@link #getGeneration()} before the row was fetched
+         */
+        public void put(Row<String, CompositeColumnName> row, long generation) {
+            _rows.put(row.getKey(), row);
+            if (_generation.get() != generation) {
+                // an invalidation raced with the fetch, the row might be stale
+                _rows.invalidate(row.getKey());
+            }
+        }
+
+        void invalidate(Collection<URI> ids) {
+            _generation.incrementAndGet();
+            for (URI id : ids) {
+                _rows.invalidate(id.toString());
+            }
+        }
+
+        void invalidateAll() {
+            _generation.incrementAndGet();
+            _rows.invalidateAll();
+        }
+
+        long size() {
+            return _rows.size();
+        }
+
+        CacheStats stats() {
+            return _rows.stats();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.List;
+
+/**
+ * The API for dbclient read-through object cache statistics
+ */
+public interface DataObjectCacheMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.db.client.impl:type=DataObjectCache";
+
+    /**
+     * @return number of object reads served from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return number of object reads that had to go to Cassandra
+     */
+    long getMissCount();
+
+    /**
+     * @return number of rows evicted because of size or TTL limits
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of invalidations caused by writes on this node
+     */
+    long getLocalInvalidationCount();
+
+    /**
+     * @return number of whole-type invalidations caused by writes on other nodes
+     */
+    long getRemoteInvalidationCount();
+
+    /**
+     * Get per type statistics, one line per cached model class
+     *
+     * @return
+     */
+    List<String> getTypeStatistics();
+
+    /**
+     * Drop all cached rows of all types on this node
+     */
+    void invalidateAll();
+}
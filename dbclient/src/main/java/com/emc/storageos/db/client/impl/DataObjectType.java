@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -219,6 +220,28 @@ public class DataObjectType {
         return !_preprocessedFields.isEmpty();
     }
 
+    /**
+     * Check if old index entries of given fields can be cleaned up knowing only the columns
+     * of these fields and the inactive column, i.e. from a partial row
+     * 
+     * @param fieldNames names of modified indexed fields
+     * @return false if the cleanup of any of them reads other columns of the row
+     */
+    public boolean isColumnLocalIndexCleanup(Collection<String> fieldNames) {
+        for (String fieldName : fieldNames) {
+            ColumnField field = _columnFieldMap.get(fieldName);
+            if (field == null) {
+                return false;
+            }
+            DbIndex index = field.getIndex();
+            if (index instanceof AggregateDbIndex || index instanceof TimeSeriesDbIndex
+                    || !field.getDependentFields().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Deserializes row into data object instance
      * 
@@ -287,18 +310,37 @@ public class DataObjectType {
      * @throws DatabaseException
      */
     public boolean serialize(RowMutator mutator, DataObject val, LazyLoader lazyLoader) {
+        return serialize(mutator, val, lazyLoader, null);
+    }
+
+    /**
+     * Serializes data object into database updates
+     * 
+     * @param mutator row mutator to hold insertion queries
+     * @param val object to persist
+     * @param lazyLoader lazy loader helper class; can be null
+     * @param modifiedIndexFields if not null, collects names of the fields which need an index cleanup
+     * @return true if any field needs an index cleanup
+     * @throws DatabaseException
+     */
+    public boolean serialize(RowMutator mutator, DataObject val, LazyLoader lazyLoader, Set<String> modifiedIndexFields) {
         if (!_clazz.isInstance(val)) {
             throw new IllegalArgumentException();
         }
         try {
             boolean indexFieldsModified = false;
-            URI id = (URI) _idField.getPropertyDescriptor().getReadMethod().invoke(val);
+            URI id = (URI) _idField.getAccessor().get(val);
             if (id == null) {
                 throw new IllegalArgumentException();
             }
             for (ColumnField field : this._columnFieldMap.values()) {
                 setMappedByField(val, field);
-                indexFieldsModified |= field.serialize(val, mutator);
+                if (field.serialize(val, mutator)) {
+                    indexFieldsModified = true;
+                    if (modifiedIndexFields != null) {
+                        modifiedIndexFields.add(field.getName());
+                    }
+                }
             }
 
             setLazyLoaders(val, lazyLoader);
@@ -520,10 +562,10 @@ public class DataObjectType {
             if (mappedByField != null) {
                 try {
                     if (StringSet.class.isAssignableFrom(mappedByField.getPropertyDescriptor().getPropertyType())) {
-                        Object mappedByFieldValue = mappedByField.getPropertyDescriptor().getReadMethod().invoke(obj);
+                        Object mappedByFieldValue = mappedByField.getAccessor().get(obj);
                         if (mappedByFieldValue == null) {
                             mappedBy = (StringSet) mappedByField.getPropertyDescriptor().getPropertyType().newInstance();
-                            mappedByField.getPropertyDescriptor().getWriteMethod().invoke(obj, mappedBy);
+                            mappedByField.getAccessor().set(obj, mappedBy);
                         } else {
                             mappedBy = (StringSet) mappedByFieldValue;
                         }
@@ -566,14 +608,14 @@ public class DataObjectType {
             return;
         }
         try {
-            Object mappedByValue = mappedByField.getPropertyDescriptor().getReadMethod().invoke(obj);
-            Object lazyLoadedValue = lazyLoadedField.getPropertyDescriptor().getReadMethod().invoke(obj);
+            Object mappedByValue = mappedByField.getAccessor().get(obj);
+            Object lazyLoadedValue = lazyLoadedField.getAccessor().get(obj);
 
             if (null == mappedByValue && null != lazyLoadedValue) {
                 if (DataObject.class.isAssignableFrom(lazyLoadedValue.getClass()) &&
                         URI.class.isAssignableFrom(mappedByField.getPropertyDescriptor().getPropertyType())) {
                     DataObject lazyLoadedDbObj = (DataObject) lazyLoadedValue;
-                    mappedByField.getPropertyDescriptor().getWriteMethod().invoke(obj, lazyLoadedDbObj.getId());
+                    mappedByField.getAccessor().set(obj, lazyLoadedDbObj.getId());
                 } else if (Collection.class.isAssignableFrom(lazyLoadedValue.getClass()) &&
                         StringSet.class.isAssignableFrom(mappedByField.getPropertyDescriptor().getPropertyType())) {
                     StringSet stringSet = new StringSet();
@@ -582,7 +624,7 @@ public class DataObjectType {
                             stringSet.add(((DataObject) listElem).getId().toString());
                         }
                     }
-                    mappedByField.getPropertyDescriptor().getWriteMethod().invoke(obj, stringSet);
+                    mappedByField.getAccessor().set(obj, stringSet);
                 }
             }
         } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
@@ -11,8 +11,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -27,6 +30,7 @@ import com.emc.storageos.coordinator.client.model.SiteState;
 import com.emc.storageos.coordinator.client.service.DrUtil;
 import com.emc.storageos.db.exceptions.DatabaseException;
 import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import com.netflix.astyanax.AstyanaxContext;
 import com.netflix.astyanax.CassandraOperationCategory;
 import com.netflix.astyanax.CassandraOperationTracer;
@@ -103,6 +107,12 @@ public class DbClientContext {
     private boolean isClientToNodeEncrypted;
     private int logInterval = 1800; //seconds
     private ScheduledExecutorService exe = Executors.newScheduledThreadPool(1);
+    // runs executeAsync() operations of this keyspace, at most one per pooled connection
+    private ExecutorService asyncExecutor;
+    // runs the async calls carried out by synchronous DbClient calls (updates, cached reads)
+    private ExecutorService asyncBlockingExecutor;
+    // operations queued per pooled connection before further async calls are rejected
+    private static final int ASYNC_QUEUE_SIZE_PER_CONNECTION = 32;
 
     // whether to retry once with LOCAL_QUORUM for write failure 
     private boolean retryFailedWriteWithLocalQuorum = false; 
@@ -143,6 +153,21 @@ public class DbClientContext {
         return keyspace;
     }
 
+    /**
+     * @return executor which completes the executeAsync() operations of this context's keyspace
+     */
+    public ExecutorService getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * @return executor for async calls made of several dependent round trips, separate from the
+     *         async executor so they never wait for executeAsync() work queued behind them
+     */
+    public ExecutorService getAsyncBlockingExecutor() {
+        return asyncBlockingExecutor;
+    }
+
     public AstyanaxContext<Cluster> getClusterContext() {
         if (clusterContext == null) {
             initClusterContext();
@@ -270,6 +295,15 @@ public class DbClientContext {
             cfg.setSSLConnectionContext(sslContext);
         }
 
+        // bounded, callers get a failed future rather than an ever growing backlog
+        asyncExecutor = new NamedThreadPoolExecutor("DbClientAsync-" + keyspaceName, maxConnections, maxConnections,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(maxConnections * ASYNC_QUEUE_SIZE_PER_CONNECTION),
+                new ThreadPoolExecutor.AbortPolicy());
+        asyncBlockingExecutor = new NamedThreadPoolExecutor("DbClientAsyncBlocking-" + keyspaceName, maxConnections,
+                maxConnections, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(maxConnections * ASYNC_QUEUE_SIZE_PER_CONNECTION),
+                new ThreadPoolExecutor.AbortPolicy());
+
         // TODO revisit it to see if we need set different retry policy, timeout, discovery delay etc for geodb
         keyspaceContext = new AstyanaxContext.Builder().withHostSupplier(hostSupplier)
                 .forCluster(clusterName)
@@ -280,7 +314,8 @@ public class DbClientContext {
                                 .setDefaultReadConsistencyLevel(readCL)
                                 .setDefaultWriteConsistencyLevel(writeCL)
                                 .setTargetCassandraVersion("2.0").setPartitioners(partitioners)
-                                .setRetryPolicy(retryPolicy))
+                                .setRetryPolicy(retryPolicy)
+                                .setAsyncExecutor(asyncExecutor))
                 .withConnectionPoolConfiguration(cfg)
                 .withTracerFactory(new KeyspaceTracerFactoryImpl())
                 .withConnectionPoolMonitor(new CustomConnectionPoolMonitor(monitorIntervalSecs))
@@ -371,6 +406,17 @@ public class DbClientContext {
         keyspaceContext.shutdown();
         keyspaceContext = null;
 
+        // queued operations are cancelled, which fails the futures waiting for them
+        if (asyncExecutor != null) {
+            PipelinedDataObjQueryIterator.shutdown(asyncExecutor);
+            asyncExecutor = null;
+        }
+
+        if (asyncBlockingExecutor != null) {
+            PipelinedDataObjQueryIterator.shutdown(asyncBlockingExecutor);
+            asyncBlockingExecutor = null;
+        }
+
         if (clusterContext != null) {
             clusterContext.shutdown();
             clusterContext = null;
@@ -15,6 +15,7 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -36,6 +37,7 @@ import com.emc.storageos.db.client.constraint.QueryResultList;
 import com.emc.storageos.db.client.constraint.URIQueryResultList;
 import com.emc.storageos.db.client.constraint.impl.ConstraintImpl;
 import com.emc.storageos.db.client.model.AllowedGeoVersion;
+import com.emc.storageos.db.client.model.CompactDataPointCodec;
 import com.emc.storageos.db.client.model.CustomConfig;
 import com.emc.storageos.db.client.model.DataObject;
 import com.emc.storageos.db.client.model.EncryptionProvider;
@@ -105,6 +107,8 @@ public class DbClientImpl implements DbClient {
     private static final Logger _log = LoggerFactory.getLogger(DbClientImpl.class);
     private static final int DEFAULT_TS_PAGE_SIZE = 100;
     private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PIPELINED_QUERY_THREADS = 8;
+    private static final int DEFAULT_PIPELINED_QUERY_WINDOW = 4;
     protected static final int DEFAULT_PAGE_SIZE = 100;
 
     static private final List<Class<? extends DataObject>> excludeClasses = Arrays.asList(Token.class,
@@ -135,6 +139,19 @@ public class DbClientImpl implements DbClient {
     private int logInterval = 1800; //seconds
     private int logCount = 5;
     private KeyspaceTracerFactoryImpl tracer;
+    private boolean objectCacheEnabled = false;
+    private boolean compactTimeSeriesEnabled = false;
+    private volatile long _compactTimeSeriesCheckTime = 0;
+    private static final long COMPACT_TIME_SERIES_CHECK_INTERVAL_MS = 60 * 1000L;
+    protected DataObjectCache _objectCache;
+    private int pipelinedQueryThreads = DEFAULT_PIPELINED_QUERY_THREADS;
+    private int pipelinedQueryWindow = DEFAULT_PIPELINED_QUERY_WINDOW;
+    private ExecutorService _pipelinedQueryExecutor;
+    private long taskStatusWriteBehindMillis = 0;
+    protected TaskStatusWriteBehind _taskStatusWriteBehind;
+    private final IndexReadBackStats _readBackStats = new IndexReadBackStats();
+    private int cfScanParallelism = 1;
+    private ExecutorService _cfScanExecutor;
 
     public String getGeoVersion() {
         if (this._geoVersion == null) {
@@ -239,6 +256,122 @@ public class DbClientImpl implements DbClient {
         this.drUtil = drUtil;
     }
 
+    /**
+     * Sets whether model classes annotated with ReadCacheable are served from the
+     * read-through object cache or not
+     *
+     * @param objectCacheEnabled
+     */
+    public void setObjectCacheEnabled(boolean objectCacheEnabled) {
+        this.objectCacheEnabled = objectCacheEnabled;
+    }
+
+    /**
+     * Sets whether time series may be written with CompactDataPointCodec. Versions before it can't
+     * read that format, it is only used once the db schema migration to this version is done.
+     *
+     * @param compactTimeSeriesEnabled
+     */
+    public void setCompactTimeSeriesEnabled(boolean compactTimeSeriesEnabled) {
+        this.compactTimeSeriesEnabled = compactTimeSeriesEnabled;
+    }
+
+    public DataObjectCache getObjectCache() {
+        return _objectCache;
+    }
+
+    KeyspaceTracerFactoryImpl getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Sets the number of threads shared by all pipelined queries of this client
+     *
+     * @param pipelinedQueryThreads
+     */
+    public void setPipelinedQueryThreads(int pipelinedQueryThreads) {
+        this.pipelinedQueryThreads = pipelinedQueryThreads;
+    }
+
+    /**
+     * Sets the number of batches a single pipelined query fetches ahead of its caller
+     *
+     * @param pipelinedQueryWindow
+     */
+    public void setPipelinedQueryWindow(int pipelinedQueryWindow) {
+        this.pipelinedQueryWindow = pipelinedQueryWindow;
+    }
+
+    /**
+     * Sets how long pending task status updates of an object are held back and coalesced
+     * before they are written. 0 (default) writes every update right away.
+     *
+     * Only updates made through this DbClient are coalesced and ordered. Updates of the same
+     * task made by another node, or another DbClient of this JVM, aren't seen: a held back
+     * progress update is dropped if the task is already finished in db when it's written, but
+     * otherwise it may still overwrite a newer status written elsewhere during the window.
+     * Only to be enabled on services which are the only writers of the task status of their
+     * objects.
+     *
+     * @param taskStatusWriteBehindMillis
+     */
+    public void setTaskStatusWriteBehindMillis(long taskStatusWriteBehindMillis) {
+        this.taskStatusWriteBehindMillis = taskStatusWriteBehindMillis;
+    }
+
+    public TaskStatusWriteBehind getTaskStatusWriteBehind() {
+        return _taskStatusWriteBehind;
+    }
+
+    /**
+     * Sets the number of token ranges read at the same time by the scanners of
+     * getParallelCfScanner(), 1 (the default) scans a CF from a single thread.
+     *
+     * @param cfScanParallelism
+     */
+    public void setCfScanParallelism(int cfScanParallelism) {
+        this.cfScanParallelism = cfScanParallelism;
+    }
+
+    /**
+     * Creates a scanner going through all rows of the CF of given type, with the
+     * configured parallelism. Rows are returned in no particular order. Scans run
+     * on a pool shared by all scanners of this client, concurrent scans queue up.
+     *
+     * @param clazz object type
+     * @return
+     */
+    public <T extends DataObject> ParallelCfScanner getParallelCfScanner(Class<T> clazz) {
+        DataObjectType doType = TypeMap.getDoType(clazz);
+        if (doType == null) {
+            throw new IllegalArgumentException();
+        }
+        ParallelCfScanner scanner = new ParallelCfScanner(getKeyspace(clazz), doType.getCF(), getCfScanExecutor());
+        scanner.setParallelism(cfScanParallelism);
+        return scanner;
+    }
+
+    private synchronized ExecutorService getCfScanExecutor() {
+        if (_cfScanExecutor == null) {
+            int threads = Math.max(1, cfScanParallelism);
+            NamedThreadPoolExecutor executor = new NamedThreadPoolExecutor("DbClientCfScan", threads, threads,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            // scans are rare, don't keep the threads around in between
+            executor.allowCoreThreadTimeOut(true);
+            _cfScanExecutor = executor;
+        }
+        return _cfScanExecutor;
+    }
+
+    private synchronized ExecutorService getPipelinedQueryExecutor() {
+        if (_pipelinedQueryExecutor == null) {
+            // callers fetch the batches rejected once the queue is full, so the pool never blocks them
+            _pipelinedQueryExecutor = new NamedThreadPoolExecutor("DbClientPipelinedQuery", pipelinedQueryThreads,
+                    pipelinedQueryThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(pipelinedQueryThreads * 4));
+        }
+        return _pipelinedQueryExecutor;
+    }
+
     @Override
     public synchronized void start() {
         if (initDone) {
@@ -266,6 +399,18 @@ public class DbClientImpl implements DbClient {
 
         tracer = new KeyspaceTracerFactoryImpl();
 
+        _readBackStats.register();
+
+        if (objectCacheEnabled) {
+            _objectCache = new DataObjectCache(_coordinator);
+            _objectCache.start();
+        }
+
+        if (taskStatusWriteBehindMillis > 0) {
+            _taskStatusWriteBehind = new TaskStatusWriteBehind(this, taskStatusWriteBehindMillis);
+            _taskStatusWriteBehind.start();
+        }
+
         initDone = true;
     }
 
@@ -351,7 +496,7 @@ public class DbClientImpl implements DbClient {
         return getDbClientContext(clazz).getKeyspace();
     }
 
-    private <T extends DataObject> DbClientContext getDbClientContext(Class<T> clazz) {
+    <T extends DataObject> DbClientContext getDbClientContext(Class<T> clazz) {
         DbClientContext ctx = null;
         if (localContext == null && geoContext == null) {
             throw new IllegalStateException();
@@ -371,6 +516,27 @@ public class DbClientImpl implements DbClient {
 
     @Override
     public synchronized void stop() {
+        if (_taskStatusWriteBehind != null) {
+            // write what is still pending while the contexts are up
+            _taskStatusWriteBehind.stop();
+            _taskStatusWriteBehind = null;
+        }
+
+        if (_objectCache != null) {
+            _objectCache.stop();
+            _objectCache = null;
+        }
+
+        if (_pipelinedQueryExecutor != null) {
+            PipelinedDataObjQueryIterator.shutdown(_pipelinedQueryExecutor);
+            _pipelinedQueryExecutor = null;
+        }
+
+        if (_cfScanExecutor != null) {
+            _cfScanExecutor.shutdownNow();
+            _cfScanExecutor = null;
+        }
+
         if (localContext != null) {
             localContext.stop();
             localContext = null;
@@ -442,7 +608,21 @@ public class DbClientImpl implements DbClient {
         }
 
         Keyspace ks = getKeyspace(clazz);
+        DataObjectCache.TypeCache typeCache = _objectCache != null ? _objectCache.getTypeCache(clazz) : null;
+        if (typeCache != null) {
+            return queryCachedObjects(clazz, doType, typeCache, ks, ids, activeOnly);
+        }
+
         Rows<String, CompositeColumnName> rows = queryRowsWithAllColumns(ks, ids, doType.getCF());
+        return deserializeObjects(clazz, doType, ks, rows, activeOnly);
+    }
+
+    /**
+     * Deserialize object rows fetched with all columns, and clean up stale index entries found
+     * on the way in the background
+     */
+    <T extends DataObject> List<T> deserializeObjects(Class<T> clazz, DataObjectType doType, Keyspace ks,
+            Rows<String, CompositeColumnName> rows, boolean activeOnly) {
         List<T> objects = new ArrayList<T>(rows.size());
         IndexCleanupList cleanList = new IndexCleanupList();
 
@@ -464,13 +644,77 @@ public class DbClientImpl implements DbClient {
                 objects.add(object);
             }
         }
+        cleanIndexAsync(clazz, ks, doType, cleanList);
+        return objects;
+    }
+
+    /**
+     * Query objects of a ReadCacheable type, serving the rows found in the object cache and
+     * fetching only the missing ones. Objects are returned in the order of the given ids.
+     */
+    private <T extends DataObject> List<T> queryCachedObjects(Class<T> clazz, DataObjectType doType,
+            DataObjectCache.TypeCache typeCache, Keyspace ks, Collection<URI> ids, boolean activeOnly) {
+        long generation = typeCache.getGeneration();
+        Set<String> keys = new LinkedHashSet<String>();
+        Map<String, Row<String, CompositeColumnName>> cachedRows = new HashMap<String, Row<String, CompositeColumnName>>();
+        List<URI> missingIds = new ArrayList<URI>();
+        for (URI id : ids) {
+            String key = id.toString();
+            if (!keys.add(key)) {
+                continue;
+            }
+            Row<String, CompositeColumnName> row = typeCache.get(key);
+            if (row != null) {
+                cachedRows.put(key, row);
+            } else {
+                missingIds.add(id);
+            }
+        }
+
+        Map<String, Row<String, CompositeColumnName>> fetchedRows = new HashMap<String, Row<String, CompositeColumnName>>();
+        if (!missingIds.isEmpty()) {
+            for (Row<String, CompositeColumnName> row : queryRowsWithAllColumns(ks, missingIds, doType.getCF())) {
+                if (row != null && row.getColumns().size() != 0) {
+                    fetchedRows.put(row.getKey(), row);
+                }
+            }
+        }
+
+        List<T> objects = new ArrayList<T>(keys.size());
+        IndexCleanupList cleanList = new IndexCleanupList();
+        for (String key : keys) {
+            T object;
+            Row<String, CompositeColumnName> row = cachedRows.get(key);
+            if (row != null) {
+                // stale index entries of cached rows were already scheduled for cleanup when fetched
+                object = doType.deserialize(clazz, row, new IndexCleanupList(), new LazyLoader(this));
+            } else {
+                row = fetchedRows.get(key);
+                if (row == null) {
+                    continue;
+                }
+                object = doType.deserialize(clazz, row, cleanList, new LazyLoader(this));
+                if (!cleanList.getColumnsToClean().containsKey(key)) {
+                    typeCache.put(row, generation);
+                }
+            }
+
+            if (!activeOnly || !object.getInactive()) {
+                objects.add(object);
+            }
+        }
+        cleanIndexAsync(clazz, ks, doType, cleanList);
+        return objects;
+    }
+
+    private <T extends DataObject> void cleanIndexAsync(Class<T> clazz, Keyspace ks, DataObjectType doType,
+            IndexCleanupList cleanList) {
         if (!cleanList.isEmpty()) {
             boolean retryFailedWriteWithLocalQuorum = shouldRetryFailedWriteWithLocalQuorum(clazz);
             RowMutator mutator = new RowMutator(ks, retryFailedWriteWithLocalQuorum);
             SoftReference<IndexCleanupList> indexCleanUpRef = new SoftReference<IndexCleanupList>(cleanList);
             _indexCleaner.cleanIndexAsync(mutator, doType, indexCleanUpRef);
         }
-        return objects;
     }
 
     @Override
@@ -513,6 +757,29 @@ public class DbClientImpl implements DbClient {
         return bulkQueryIterator;
     }
 
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjects(final Class<T> clazz,
+            Collection<URI> ids, final boolean activeOnly) {
+        tracer.newTracer("read");
+        DataObjectType doType = TypeMap.getDoType(clazz);
+        if (doType == null || ids == null) {
+            throw new IllegalArgumentException();
+        }
+        if (!(ids.iterator().hasNext())) {
+            // nothing to do, just an empty list
+            return new ArrayList<T>().iterator();
+        }
+
+        List<List<URI>> batches = PipelinedDataObjQueryIterator.splitByToken(getKeyspace(clazz).getPartitioner(),
+                ids, DEFAULT_PAGE_SIZE);
+        return new PipelinedDataObjQueryIterator<T>(batches, new PipelinedDataObjQueryIterator.BatchLoader<T>() {
+            @Override
+            public List<T> load(List<URI> batch) {
+                return queryObject(clazz, batch, activeOnly);
+            }
+        }, getPipelinedQueryExecutor(), pipelinedQueryWindow);
+    }
+
     @Override
     public <T extends DataObject> Iterator<T> queryIterativeObjectField(final Class<T> clazz,
             final String fieldName, Collection<URI> ids) {
@@ -588,6 +855,29 @@ public class DbClientImpl implements DbClient {
         return bulkQueryIterator;
     }
 
+    @Override
+    public <T extends DataObject> Iterator<T> queryPipelinedObjectFields(final Class<T> clazz,
+            final Collection<String> fieldNames, Collection<URI> ids) {
+        tracer.newTracer("read");
+        DataObjectType doType = TypeMap.getDoType(clazz);
+        if (doType == null || ids == null) {
+            throw new IllegalArgumentException();
+        }
+        if (!(ids.iterator().hasNext())) {
+            // nothing to do, just an empty list
+            return new ArrayList<T>().iterator();
+        }
+
+        List<List<URI>> batches = PipelinedDataObjQueryIterator.splitByToken(getKeyspace(clazz).getPartitioner(),
+                ids, DEFAULT_PAGE_SIZE);
+        return new PipelinedDataObjQueryIterator<T>(batches, new PipelinedDataObjQueryIterator.BatchLoader<T>() {
+            @Override
+            public List<T> load(List<URI> batch) {
+                return new ArrayList<T>(queryObjectFields(clazz, fieldNames, batch));
+            }
+        }, getPipelinedQueryExecutor(), pipelinedQueryWindow);
+    }
+
     @Override
     public <T extends DataObject> Collection<T> queryObjectFields(Class<T> clazz,
             Collection<String> fieldNames, Collection<URI> ids) {
@@ -603,7 +893,7 @@ public class DbClientImpl implements DbClient {
             return new ArrayList<T>();
         }
 
-        Set<ColumnField> columnFields = new HashSet<ColumnField>(fieldNames.size());
+        Map<String, ColumnField> columnFields = new HashMap<String, ColumnField>(fieldNames.size());
         for (String fieldName : fieldNames) {
             ColumnField columnField = doType.getColumnField(fieldName);
 
@@ -611,14 +901,14 @@ public class DbClientImpl implements DbClient {
                 throw new IllegalArgumentException();
             }
 
-            columnFields.add(columnField);
+            columnFields.put(columnField.getName(), columnField);
         }
 
         Keyspace ks = getKeyspace(clazz);
         Map<URI, T> objectMap = new HashMap<URI, T>();
-        for (ColumnField columnField : columnFields) {
-            Rows<String, CompositeColumnName> rows = queryRowsWithAColumn(ks, ids, doType.getCF(),
-                    columnField);
+        for (List<ColumnField> columnRange : getProjectionRanges(doType, columnFields)) {
+            Rows<String, CompositeColumnName> rows = queryRowsWithColumnRange(ks, ids, doType.getCF(),
+                    columnRange.get(0), columnRange.get(columnRange.size() - 1));
             Iterator<Row<String, CompositeColumnName>> it = rows.iterator();
             while (it.hasNext()) {
                 Row<String, CompositeColumnName> row = it.next();
@@ -633,15 +923,20 @@ public class DbClientImpl implements DbClient {
 
                     T obj = objectMap.get(key);
 
-                    if (obj == null) {
-                        obj = (T) DataObject.createInstance(clazz, URI.create(row.getKey()));
-                        objectMap.put(key, obj);
-                    }
-
                     Iterator<Column<CompositeColumnName>> columnIterator = row.getColumns().iterator();
 
                     while (columnIterator.hasNext()) {
                         Column<CompositeColumnName> column = columnIterator.next();
+                        // the range may span scalar columns which were not asked for
+                        ColumnField columnField = columnFields.get(column.getName().getOne());
+                        if (columnField == null) {
+                            continue;
+                        }
+
+                        if (obj == null) {
+                            obj = (T) DataObject.createInstance(clazz, URI.create(row.getKey()));
+                            objectMap.put(key, obj);
+                        }
                         columnField.deserialize(column, obj);
                     }
                 } catch (final InstantiationException e) {
@@ -660,6 +955,45 @@ public class DbClientImpl implements DbClient {
         return objectMap.values();
     }
 
+    /**
+     * Group requested fields into as few column ranges as possible. Cassandra can only take a
+     * single column range per slice query, so the requested fields are sorted by column name
+     * and adjacent fields share a range. Scalar columns which were not requested are cheap to
+     * read along, so they don't split a range; collection and nested object columns can be
+     * large and always end the current range.
+     * Each range costs one slice query per batch of ids: requested fields with a collection or
+     * nested object column between them are read with several slices, one slice per batch only
+     * holds when no such column separates them.
+     *
+     * @param doType data object type
+     * @param requested requested fields by column name
+     * @return lists of fields sharing one range, each sorted by column name
+     */
+    private List<List<ColumnField>> getProjectionRanges(DataObjectType doType, Map<String, ColumnField> requested) {
+        TreeMap<String, ColumnField> allFields = new TreeMap<String, ColumnField>();
+        for (ColumnField field : doType.getColumnFields()) {
+            allFields.put(field.getName(), field);
+        }
+        allFields.putAll(requested);
+
+        List<List<ColumnField>> ranges = new ArrayList<List<ColumnField>>();
+        List<ColumnField> current = null;
+        for (ColumnField field : allFields.values()) {
+            if (requested.containsKey(field.getName())) {
+                if (current == null) {
+                    current = new ArrayList<ColumnField>();
+                    ranges.add(current);
+                }
+                current.add(field);
+            } else if (field.getType() != ColumnField.ColumnType.Primitive
+                    && field.getType() != ColumnField.ColumnType.NamedURI
+                    && field.getType() != ColumnField.ColumnType.Id) {
+                current = null;
+            }
+        }
+        return ranges;
+    }
+
     @Override
     public <T extends DataObject> void aggregateObjectField(Class<T> clazz, Iterator<URI> ids,
             DbAggregatorItf aggregator) {
@@ -1172,15 +1506,49 @@ public class DbClientImpl implements DbClient {
 
         Keyspace ks = getKeyspace(clazz);
 
-        List<URI> objectsToCleanup = insertNewColumns(ks, dataobjects);
-        if (updateIndex && !objectsToCleanup.isEmpty()) {
-            Rows<String, CompositeColumnName> rows = fetchNewest(clazz, ks, objectsToCleanup);
-            cleanupOldColumns(clazz, ks, rows);
+        flushPendingTaskStatus(dataobjects);
+        try {
+            List<URI> objectsToCleanup = insertNewColumns(ks, dataobjects);
+            if (updateIndex && !objectsToCleanup.isEmpty()) {
+                Rows<String, CompositeColumnName> rows = fetchNewest(clazz, ks, objectsToCleanup);
+                cleanupOldColumns(clazz, ks, rows);
+            }
+        } finally {
+            invalidateCachedObjects(clazz, dataobjects);
+        }
+    }
+
+    /**
+     * Write task status updates held back for given objects, so they never land after a
+     * later write of the same objects
+     */
+    private <T extends DataObject> void flushPendingTaskStatus(Collection<T> dataobjects) {
+        if (_taskStatusWriteBehind == null) {
+            return;
+        }
+        List<URI> ids = new ArrayList<URI>(dataobjects.size());
+        for (T object : dataobjects) {
+            ids.add(object.getId());
+        }
+        _taskStatusWriteBehind.flush(ids);
+    }
+
+    /**
+     * Drop written objects from the object cache, even if the write failed half way
+     */
+    private <T extends DataObject> void invalidateCachedObjects(Class<? extends T> clazz, Collection<T> dataobjects) {
+        if (_objectCache == null || !DataObjectCache.isCacheable(clazz)) {
+            return;
+        }
+        List<URI> ids = new ArrayList<URI>(dataobjects.size());
+        for (T object : dataobjects) {
+            ids.add(object.getId());
         }
+        _objectCache.invalidate(clazz, ids);
     }
 
     protected <T extends DataObject> List<URI> insertNewColumns(Keyspace ks, Collection<T> dataobjects) {
-        List<URI> objectsToCleanup = new ArrayList<URI>();
+        IndexReadBackList objectsToCleanup = new IndexReadBackList();
         boolean retryFailedWriteWithLocalQuorum = true;
         Iterator<T> dataObjectIterator = dataobjects.iterator();
         if (dataObjectIterator.hasNext()) {
@@ -1199,7 +1567,7 @@ public class DbClientImpl implements DbClient {
             if (doType.needPreprocessing()) {
                 preprocessTypeIndexes(ks, doType, object);
             }
-            if (doType.serialize(mutator, object, new LazyLoader(this))) {
+            if (doType.serialize(mutator, object, new LazyLoader(this), objectsToCleanup.getModifiedIndexFields())) {
                 objectsToCleanup.add(object.getId());
             }
 
@@ -1215,9 +1583,74 @@ public class DbClientImpl implements DbClient {
     protected <T extends DataObject> Rows<String, CompositeColumnName> fetchNewest(Class<? extends T> clazz, Keyspace ks,
             List<URI> objectsToCleanup) {
         DataObjectType doType = TypeMap.getDoType(clazz);
+        List<ColumnField> readBackRange = getReadBackRange(doType, objectsToCleanup);
+        if (readBackRange != null) {
+            Rows<String, CompositeColumnName> rows = queryRowsWithColumnRange(ks, objectsToCleanup, doType.getCF(),
+                    readBackRange.get(0), readBackRange.get(readBackRange.size() - 1));
+            if (!hasInactiveRow(rows)) {
+                _readBackStats.projected(objectsToCleanup.size());
+                return rows;
+            }
+            // indexes of inactive objects are hidden as a whole, that needs all columns
+        }
+        _readBackStats.full(objectsToCleanup.size());
         return queryRowsWithAllColumns(ks, objectsToCleanup, doType.getCF());
     }
 
+    /**
+     * Get the single column range covering the changed indexed fields and the inactive
+     * field, if the index cleanup of the type can work on such a partial row
+     *
+     * @return fields of the range, or null if the whole row has to be read back
+     */
+    private List<ColumnField> getReadBackRange(DataObjectType doType, List<URI> objectsToCleanup) {
+        if (!(objectsToCleanup instanceof IndexReadBackList)) {
+            return null;
+        }
+        Set<String> modifiedFields = ((IndexReadBackList) objectsToCleanup).getModifiedIndexFields();
+        if (modifiedFields.isEmpty() || modifiedFields.contains(DataObject.INACTIVE_FIELD_NAME)
+                || !doType.isColumnLocalIndexCleanup(modifiedFields)) {
+            return null;
+        }
+
+        Map<String, ColumnField> readBackFields = new HashMap<String, ColumnField>();
+        for (String fieldName : modifiedFields) {
+            readBackFields.put(fieldName, doType.getColumnField(fieldName));
+        }
+        ColumnField inactiveField = doType.getColumnField(DataObject.INACTIVE_FIELD_NAME);
+        readBackFields.put(inactiveField.getName(), inactiveField);
+
+        List<List<ColumnField>> ranges = getProjectionRanges(doType, readBackFields);
+        if (ranges.size() != 1) {
+            return null;
+        }
+
+        // old versions of unmodified columns inside the range get cleaned up too
+        List<ColumnField> range = ranges.get(0);
+        String first = range.get(0).getName();
+        String last = range.get(range.size() - 1).getName();
+        List<String> fieldsInRange = new ArrayList<String>();
+        for (ColumnField field : doType.getColumnFields()) {
+            if (field.getName().compareTo(first) >= 0 && field.getName().compareTo(last) <= 0
+                    && field.getIndex() != null) {
+                fieldsInRange.add(field.getName());
+            }
+        }
+        return doType.isColumnLocalIndexCleanup(fieldsInRange) ? range : null;
+    }
+
+    private boolean hasInactiveRow(Rows<String, CompositeColumnName> rows) {
+        for (Row<String, CompositeColumnName> row : rows) {
+            for (Column<CompositeColumnName> column : row.getColumns()) {
+                if (column.getName().getOne().equals(DataObject.INACTIVE_FIELD_NAME)
+                        && !ColumnField.isDeletionMark(column) && column.getBooleanValue()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     protected <T extends DataObject> void cleanupOldColumns(Class<? extends T> clazz, Keyspace ks, Rows<String, CompositeColumnName> rows) {
         // cleanup old entries for indexed columns
         // CHECK - persist is called only with same object types for now
@@ -1402,6 +1835,7 @@ public class DbClientImpl implements DbClient {
         tracer.newTracer("write");
         List<DataObject> allObjects = Arrays.asList(object);
         Keyspace ks = getKeyspace(clazz);
+        flushPendingTaskStatus(allObjects);
 
         DataObjectType doType = null;
         RemovedColumnsList removedList = new RemovedColumnsList();
@@ -1423,10 +1857,14 @@ public class DbClientImpl implements DbClient {
                 }
             }
         }
-        if (!removedList.isEmpty()) {
-            boolean retryFailedWriteWithLocalQuorum = shouldRetryFailedWriteWithLocalQuorum(clazz);
-            RowMutator mutator = new RowMutator(ks, retryFailedWriteWithLocalQuorum);
-            _indexCleaner.removeColumnAndIndex(mutator, doType, removedList);
+        try {
+            if (!removedList.isEmpty()) {
+                boolean retryFailedWriteWithLocalQuorum = shouldRetryFailedWriteWithLocalQuorum(clazz);
+                RowMutator mutator = new RowMutator(ks, retryFailedWriteWithLocalQuorum);
+                _indexCleaner.removeColumnAndIndex(mutator, doType, removedList);
+            }
+        } finally {
+            invalidateCachedObjects(clazz, allObjects);
         }
     }
 
@@ -1435,29 +1873,62 @@ public class DbClientImpl implements DbClient {
             Class<? extends TimeSeries> tsType, T... data) {
         tracer.newTracer("write");
         try {
-            // time series are always in the local keyspace
-            MutationBatch batch = getLocalKeyspace().prepareMutationBatch();
-            batch.lockCurrentTimestamp();
-            // quorum is not required since there should be no duplicates
-            // for reads, clients should expect read-after-write is
-            // not guaranteed for time series data.
             TimeSeriesType<T> type = TypeMap.getTimeSeriesType(tsType);
             String rowId = type.getRowId();
-            batch.setConsistencyLevel(ConsistencyLevel.CL_ONE);
-            ColumnListMutation<UUID> columns = batch.withRow(type.getCf(), rowId);
-
-            for (int i = 0; i < data.length; i++) {
-                columns.putColumn(TimeUUIDUtils.getUniqueTimeUUIDinMillis(),
-                        type.getSerializer().serialize(data[i]),
-                        type.getTtl());
-            }
-            batch.execute();
+            prepareTimeSeriesBatch(type, rowId, data).execute();
             return rowId;
         } catch (ConnectionException e) {
             throw DatabaseException.retryables.connectionFailed(e);
         }
     }
 
+    /**
+     * Turn on the compact time series format if allowed, once the schema migration to this
+     * version is done. Checked at most once a minute until then.
+     */
+    private void checkCompactTimeSeries() {
+        if (!compactTimeSeriesEnabled || CompactDataPointCodec.isWriteEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - _compactTimeSeriesCheckTime < COMPACT_TIME_SERIES_CHECK_INTERVAL_MS) {
+            return;
+        }
+        _compactTimeSeriesCheckTime = now;
+        try {
+            String currentVersion = _coordinator.getCurrentDbSchemaVersion();
+            if (currentVersion != null && currentVersion.equals(_coordinator.getTargetDbSchemaVersion())) {
+                _log.info("Db schema migration to {} is done, writing compact time series", currentVersion);
+                CompactDataPointCodec.setWriteEnabled(true);
+            }
+        } catch (Exception e) {
+            _log.warn("Failed to check the db schema version, keep writing the older time series format", e);
+        }
+    }
+
+    /**
+     * Build the batch inserting given data points into a time series row, the row is
+     * always in the local keyspace
+     */
+    <T extends TimeSeriesSerializer.DataPoint> MutationBatch prepareTimeSeriesBatch(TimeSeriesType<T> type,
+            String rowId, T... data) {
+        checkCompactTimeSeries();
+        MutationBatch batch = getLocalKeyspace().prepareMutationBatch();
+        batch.lockCurrentTimestamp();
+        // quorum is not required since there should be no duplicates
+        // for reads, clients should expect read-after-write is
+        // not guaranteed for time series data.
+        batch.setConsistencyLevel(ConsistencyLevel.CL_ONE);
+        ColumnListMutation<UUID> columns = batch.withRow(type.getCf(), rowId);
+
+        for (int i = 0; i < data.length; i++) {
+            columns.putColumn(TimeUUIDUtils.getUniqueTimeUUIDinMillis(),
+                    type.getSerializer().serialize(data[i]),
+                    type.getTtl());
+        }
+        return batch;
+    }
+
     @Override
     public <T extends TimeSeriesSerializer.DataPoint> String insertTimeSeries(
             Class<? extends TimeSeries> tsType, DateTime time, T data) {
@@ -1470,6 +1941,7 @@ public class DbClientImpl implements DbClient {
             TimeSeriesType<T> type = TypeMap.getTimeSeriesType(tsType);
             String rowId = type.getRowId(time);
             UUID columnName = TimeUUIDUtils.getTimeUUID(time.getMillis());
+            checkCompactTimeSeries();
             // time series are always in the local keyspace
             ColumnMutation mutation = getLocalKeyspace().prepareColumnMutation(type.getCf(),
                     rowId,
@@ -1504,39 +1976,30 @@ public class DbClientImpl implements DbClient {
         final TimeSeriesType<T> type = TypeMap.getTimeSeriesType(tsType);
         final TimeSeriesMetadata.TimeBucket granularity = (bucket == null ? type.getBucketConfig() : bucket);
         final List<String> rows = type.getRows(timeBucket);
-        final List<Future<Object>> queries = new ArrayList<Future<Object>>(rows.size());
+        List<TimeSeriesShardMerger.PageReader<T>> readers = new ArrayList<TimeSeriesShardMerger.PageReader<T>>(rows.size());
         for (int index = 0; index < rows.size(); index++) {
-            final String rowKey = rows.get(index);
-            queries.add(workerThreads.submit(new Callable<Object>() {
+            // time series are always in the local keyspace
+            final RowQuery<String, UUID> query = getLocalKeyspace()
+                    .prepareQuery(type.getCf())
+                    .setConsistencyLevel(ConsistencyLevel.CL_ONE)
+                    .getKey(rows.get(index))
+                    .autoPaginate(true)
+                    .withColumnRange(type.getColumnRange(timeBucket, granularity, DEFAULT_TS_PAGE_SIZE));
+            readers.add(new TimeSeriesShardMerger.PageReader<T>() {
                 @Override
-                public Object call() throws Exception {
-                    ColumnList<UUID> columns;
-                    // time series are always in the local keyspace
-                    RowQuery<String, UUID> query = getLocalKeyspace()
-                            .prepareQuery(type.getCf())
-                            .setConsistencyLevel(ConsistencyLevel.CL_ONE)
-                            .getKey(rowKey)
-                            .autoPaginate(true)
-                            .withColumnRange(type.getColumnRange(timeBucket, granularity, DEFAULT_TS_PAGE_SIZE));
-                    do {
-                        columns = query.execute().getResult();
-                        for (Column<UUID> c : columns) {
-                            result.data(type.getSerializer().deserialize(c.getByteArrayValue()),
-                                    TimeUUIDUtils.getTimeFromUUID(c.getName()));
-                        }
-                    } while (!columns.isEmpty());
-                    return null;
+                public List<TimeSeriesShardMerger.Entry<T>> nextPage() throws Exception {
+                    ColumnList<UUID> columns = query.execute().getResult();
+                    List<TimeSeriesShardMerger.Entry<T>> page = new ArrayList<TimeSeriesShardMerger.Entry<T>>(columns.size());
+                    for (Column<UUID> c : columns) {
+                        page.add(new TimeSeriesShardMerger.Entry<T>(c.getName(),
+                                type.getSerializer().deserialize(c.getByteArrayValue())));
+                    }
+                    return page;
                 }
-            }));
-        }
-        for (int i = 0; i < queries.size(); i++) {
-            Future<Object> objectFuture = queries.get(i);
-            try {
-                objectFuture.get();
-            } catch (Exception t) {
-                result.error(t);
-            }
+            });
         }
+        // shards are read ahead on the worker threads, results are delivered in time order from this thread
+        new TimeSeriesShardMerger<T>(readers, workerThreads).merge(result);
         result.done();
     }
 
@@ -1613,6 +2076,33 @@ public class DbClientImpl implements DbClient {
         }
     }
 
+    /**
+     * Convenience helper that queries for multiple rows for collection of row
+     * keys for all columns between two column fields, both inclusive
+     *
+     * @param ids row keys.
+     * @param cf column family
+     * @param first first column field of the range
+     * @param last last column field of the range
+     * @return matching rows
+     * @throws DatabaseException
+     */
+    protected Rows<String, CompositeColumnName> queryRowsWithColumnRange(Keyspace keyspace,
+            Collection<URI> ids, ColumnFamily<String, CompositeColumnName> cf, ColumnField first, ColumnField last) {
+        try {
+            OperationResult<Rows<String, CompositeColumnName>> result;
+            result = keyspace.prepareQuery(cf)
+                    .getKeySlice(convertUriCollection(ids))
+                    .withColumnRange(CompositeColumnNameSerializer.get().buildRange()
+                            .greaterThanEquals(first.getName())
+                            .lessThanEquals(last.getName()))
+                    .execute();
+            return result.getResult();
+        } catch (ConnectionException e) {
+            throw DatabaseException.retryables.connectionFailed(e);
+        }
+    }
+
     /**
      * Convernts from List<URI> to List<String>.
      *
@@ -1621,7 +2111,7 @@ public class DbClientImpl implements DbClient {
      * @param uriList
      * @return
      */
-    private Collection<String> convertUriCollection(Collection<URI> uriList) {
+    Collection<String> convertUriCollection(Collection<URI> uriList) {
         List<String> idList = new ArrayList<String>();
         Iterator<URI> it = uriList.iterator();
         while (it.hasNext()) {
@@ -1734,6 +2224,13 @@ public class DbClientImpl implements DbClient {
 
     private Operation updateTaskStatus(Class<? extends DataObject> clazz, URI id,
             String opId, Operation updateOperation, boolean resetStartTime) {
+        if (_taskStatusWriteBehind != null) {
+            Operation op = _taskStatusWriteBehind.updatePending(id, opId, updateOperation, resetStartTime);
+            if (op != null) {
+                return op;
+            }
+        }
+
         List<URI> ids = new ArrayList<URI>(Arrays.asList(id));
         List<? extends DataObject> objs = queryObjectField(clazz, "status", ids);
         if (objs == null || objs.isEmpty()) {
@@ -1770,7 +2267,11 @@ public class DbClientImpl implements DbClient {
                 return null;
             }
         }
-        persistObject(doobj);
+        if (_taskStatusWriteBehind != null) {
+            op = _taskStatusWriteBehind.submit(doobj, opId, updateOperation, resetStartTime, op);
+        } else {
+            persistObject(doobj);
+        }
         return op;
     }
 
@@ -104,9 +104,9 @@ public class DbConsistencyCheckerHelper {
      *
      * @return number of corrupted rows
      */
-    public int checkDataObject(DataObjectType doType, boolean toConsole) {
-        int dirtyCount = 0;
-        Class<? extends DataObject> dataObjectClass = doType.getDataObjectClass();
+    public int checkDataObject(DataObjectType doType, final boolean toConsole) {
+        final AtomicInteger dirtyCount = new AtomicInteger(0);
+        final Class<? extends DataObject> dataObjectClass = doType.getDataObjectClass();
         
 		_log.info("Check CF {}", dataObjectClass.getName());
         
@@ -115,32 +115,28 @@ public class DbConsistencyCheckerHelper {
         	return 0;
         }
         
-        try {
-            OperationResult<Rows<String, CompositeColumnName>> result = dbClient.getKeyspace(
-                    dataObjectClass).prepareQuery(doType.getCF())
-                    .getAllRows().setRowLimit(dbClient.DEFAULT_PAGE_SIZE)
-                    .withColumnRange(new RangeBuilder().setLimit(1).build())
-                    .execute();
-            for (Row<String, CompositeColumnName> row : result.getResult()) {
+        // token ranges are scanned with the configured CF scan parallelism, only the row keys are read
+        ParallelCfScanner scanner = dbClient.getParallelCfScanner(dataObjectClass);
+        scanner.setColumnRange(new RangeBuilder().setLimit(1).build());
+        scanner.scan(new ParallelCfScanner.RowHandler() {
+            @Override
+            public void handle(Row<String, CompositeColumnName> row) {
             	try {
 	            	if (!isValidDataObjectKey(URI.create(row.getKey()), dataObjectClass)) {
-	            		dirtyCount++;
+	            		dirtyCount.incrementAndGet();
 	    		        logMessage(String.format("Inconsistency found: Row key '%s' failed to convert to URI in CF %s",
 	    		                row.getKey(), dataObjectClass.getName()), true, toConsole);
 	            	}
             	} catch (Exception ex) {
-            		dirtyCount++;
+            		dirtyCount.incrementAndGet();
             		logMessage(String.format("Inconsistency found: Row key '%s' failed to convert to URI in CF %s with exception %s",
                             row.getKey(), dataObjectClass.getName(),
                             ex.getMessage()), true, toConsole);
             	}
             }
+        });
 
-        } catch (ConnectionException e) {
-            throw DatabaseException.retryables.connectionFailed(e);
-        }
-
-        return dirtyCount;
+        return dirtyCount.get();
     }
 
     /**
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Ids of the rows written with index changes, plus the names of the indexed fields
+ * changed in any of them, so the read-back before index cleanup can be limited to
+ * those columns
+ */
+class IndexReadBackList extends ArrayList<URI> {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> _modifiedIndexFields = new HashSet<String>();
+
+    Set<String> getModifiedIndexFields() {
+        return _modifiedIndexFields;
+    }
+}
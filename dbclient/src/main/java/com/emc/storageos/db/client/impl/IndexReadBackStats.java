@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts how the rows written by DbClientImpl were read back for index cleanup
+ */
+public class IndexReadBackStats implements IndexReadBackStatsMBean {
+    private static final Logger _log = LoggerFactory.getLogger(IndexReadBackStats.class);
+
+    private final AtomicLong _projected = new AtomicLong(0);
+    private final AtomicLong _full = new AtomicLong(0);
+
+    /**
+     * Register with the platform MBean server, unless another db client of this JVM did already
+     */
+    public void register() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            _log.error("Register MBean error ", ex);
+        }
+    }
+
+    void projected(int count) {
+        _projected.addAndGet(count);
+    }
+
+    void full(int count) {
+        _full.addAndGet(count);
+    }
+
+    @Override
+    public long getProjectedReadBackCount() {
+        return _projected.get();
+    }
+
+    @Override
+    public long getFullReadBackCount() {
+        return _full.get();
+    }
+}
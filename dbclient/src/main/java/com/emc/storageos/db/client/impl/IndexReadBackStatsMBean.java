@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+/**
+ * The API for statistics of the read-back done by dbclient writes to clean up old index entries
+ */
+public interface IndexReadBackStatsMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.db.client.impl:type=IndexReadBackStats";
+
+    /**
+     * @return number of written objects read back with the changed indexed columns only, i.e. whose
+     *         other columns were skipped
+     */
+    long getProjectedReadBackCount();
+
+    /**
+     * @return number of written objects read back with all columns
+     */
+    long getFullReadBackCount();
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
+import com.netflix.astyanax.model.ColumnFamily;
+import com.netflix.astyanax.model.Row;
+import com.netflix.astyanax.model.Rows;
+import com.netflix.astyanax.partitioner.Partitioner;
+import com.netflix.astyanax.query.RowSliceQuery;
+
+/**
+ * Full scan of a data object CF, split by partitioner token.
+ *
+ * The token ring is cut into a number of contiguous sub-ranges which are paged through
+ * concurrently by up to 'parallelism' tasks of the given executor, so the scan is spread over
+ * all replicas instead of walking the ring node by node from a single thread. The executor is
+ * owned by the caller and may be shared by several scanners. Rows of different sub-ranges are
+ * interleaved, callers must not rely on any row order.
+ *
+ * Two ways to consume the rows:
+ * <ul>
+ * <li>{@link #scan(RowHandler)} calls the handler from the scanning threads and returns once
+ * the whole CF is scanned. A thread doesn't fetch its next page before the handler is done with
+ * the current one.</li>
+ * <li>{@link #iterator()} hands pages to the caller thread through a bounded queue, scanning
+ * threads wait while the queue is full. A scan whose iterator is not consumed for
+ * stallTimeoutMillis is abandoned, and fails with a timeout once the caller reads the
+ * rows handed over before.</li>
+ * </ul>
+ *
+ * Progress of every sub-range is kept as the token of the last row handed over (for the
+ * iterator, the last row of a page fully iterated). {@link #getCheckpoint()} returns it as
+ * a string, a scanner configured with {@link #setCheckpoint(String)} continues from there,
+ * e.g. after a failed scan or a restarted migration. Rows of a page being processed when the
+ * checkpoint was taken are scanned again.
+ */
+public class ParallelCfScanner implements Iterable<Row<String, CompositeColumnName>> {
+    private static final Logger _log = LoggerFactory.getLogger(ParallelCfScanner.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int SPLITS_PER_THREAD = 4;
+    private static final long DEFAULT_STALL_TIMEOUT_MS = 5 * 60 * 1000L;
+    private static final long OFFER_INTERVAL_MS = 1000;
+    private static final String CHECKPOINT_SEPARATOR = ",";
+
+    /**
+     * Called for every row scanned, possibly from several threads at once
+     */
+    public interface RowHandler {
+        void handle(Row<String, CompositeColumnName> row);
+    }
+
+    private final Keyspace _keyspace;
+    private final ColumnFamily<String, CompositeColumnName> _cf;
+    private final ExecutorService _executor;
+    private int _parallelism = DEFAULT_PARALLELISM;
+    private int _splits = 0;
+    private int _pageSize = DEFAULT_PAGE_SIZE;
+    private int _queueSize = 0;
+    private long _stallTimeoutMillis = DEFAULT_STALL_TIMEOUT_MS;
+    private ByteBufferRange _columnRange;
+    private List<TokenRange> _ranges;
+
+    private final AtomicLong _scannedRows = new AtomicLong(0);
+    private final AtomicLong _scannedPages = new AtomicLong(0);
+
+    /**
+     * @param keyspace
+     * @param cf
+     * @param executor runs the scanning tasks, not shut down by the scanner
+     */
+    public ParallelCfScanner(Keyspace keyspace, ColumnFamily<String, CompositeColumnName> cf, ExecutorService executor) {
+        _keyspace = keyspace;
+        _cf = cf;
+        _executor = executor;
+    }
+
+    /**
+     * @param parallelism maximum number of sub-ranges scanned at the same time
+     */
+    public void setParallelism(int parallelism) {
+        _parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param splits number of token sub-ranges, defaults to a few per thread so that
+     *            threads done with a short range pick up the next one
+     */
+    public void setSplits(int splits) {
+        _splits = splits;
+    }
+
+    /**
+     * @param pageSize number of rows read in one round trip
+     */
+    public void setPageSize(int pageSize) {
+        _pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * @param queueSize number of pages the iterator may buffer ahead of the caller
+     */
+    public void setQueueSize(int queueSize) {
+        _queueSize = queueSize;
+    }
+
+    public void setStallTimeoutMillis(long stallTimeoutMillis) {
+        _stallTimeoutMillis = stallTimeoutMillis;
+    }
+
+    /**
+     * @param columnRange columns to read from every row, all columns if not set
+     */
+    public void setColumnRange(ByteBufferRange columnRange) {
+        _columnRange = columnRange;
+    }
+
+    /**
+     * Continue a scan from the checkpoint of an earlier one, the number of sub-ranges is
+     * taken from the checkpoint
+     *
+     * @param checkpoint value returned by {@link #getCheckpoint()}
+     */
+    public synchronized void setCheckpoint(String checkpoint) {
+        _ranges = restore(getMinToken(), getMaxToken(), checkpoint);
+    }
+
+    /**
+     * @return the progress of the current or last scan, or null if no scan was started
+     */
+    public synchronized String getCheckpoint() {
+        return _ranges == null ? null : checkpoint(_ranges);
+    }
+
+    /**
+     * @return true if the last scan went through the whole CF
+     */
+    public synchronized boolean isDone() {
+        if (_ranges == null) {
+            return false;
+        }
+        for (TokenRange range : _ranges) {
+            if (!range.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getScannedRowCount() {
+        return _scannedRows.get();
+    }
+
+    public long getScannedPageCount() {
+        return _scannedPages.get();
+    }
+
+    /**
+     * Scan the CF, calling the handler for every row from the scanning threads.
+     * The first failure (of a query or the handler) stops the scan and is thrown here.
+     *
+     * @param handler
+     */
+    public void scan(final RowHandler handler) {
+        final List<TokenRange> ranges = prepare();
+        final Queue<TokenRange> pending = pendingRanges(ranges);
+        final ScanState state = new ScanState();
+        int threads = Math.min(_parallelism, Math.max(1, pending.size()));
+        long start = System.currentTimeMillis();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(_executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try {
+                            scanRanges(pending, state, new PageConsumer() {
+                                @Override
+                                public boolean accept(Page page) {
+                                    for (Row<String, CompositeColumnName> row : page.rows) {
+                                        handler.handle(row);
+                                    }
+                                    page.commit();
+                                    return true;
+                                }
+                            });
+                        } catch (RuntimeException e) {
+                            // let the other threads stop at their next page
+                            state.fail(e);
+                            throw e;
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                await(future, state);
+            }
+        } finally {
+            // after a failure, don't leave tasks of this scan queued or running on the shared executor
+            state.stopped = true;
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+        _log.info("Scanned {} rows of CF {} in {} ms", _scannedRows.get(), _cf.getName(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Start a scan in the background and return its rows as they arrive. Query failures
+     * are thrown from hasNext()/next().
+     */
+    @Override
+    public Iterator<Row<String, CompositeColumnName>> iterator() {
+        final List<TokenRange> ranges = prepare();
+        final Queue<TokenRange> pending = pendingRanges(ranges);
+        final ScanState state = new ScanState();
+        int threads = Math.min(_parallelism, Math.max(1, pending.size()));
+        int queueSize = _queueSize > 0 ? _queueSize : 2 * threads;
+        final BlockingQueue<Page> queue = new ArrayBlockingQueue<Page>(queueSize);
+        final AtomicInteger running = new AtomicInteger(threads);
+
+        for (int i = 0; i < threads; i++) {
+            _executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        scanRanges(pending, state, new PageConsumer() {
+                            @Override
+                            public boolean accept(Page page) {
+                                return enqueue(queue, page, state);
+                            }
+                        });
+                    } catch (Throwable t) {
+                        state.fail(t);
+                    } finally {
+                        if (running.decrementAndGet() == 0) {
+                            state.finished = true;
+                            // only wakes up the caller, which also ends on an empty queue once finished
+                            queue.offer(Page.END);
+                        }
+                    }
+                }
+            });
+        }
+
+        return new ScanIterator(queue, state);
+    }
+
+    private synchronized List<TokenRange> prepare() {
+        if (_ranges == null || isDone()) {
+            int splits = _splits > 0 ? _splits : _parallelism * SPLITS_PER_THREAD;
+            _ranges = split(getMinToken(), getMaxToken(), splits);
+        }
+        _scannedRows.set(0);
+        _scannedPages.set(0);
+        return _ranges;
+    }
+
+    private static Queue<TokenRange> pendingRanges(List<TokenRange> ranges) {
+        Queue<TokenRange> pending = new ConcurrentLinkedQueue<TokenRange>();
+        for (TokenRange range : ranges) {
+            if (!range.isDone()) {
+                pending.add(range);
+            }
+        }
+        return pending;
+    }
+
+    private void scanRanges(Queue<TokenRange> pending, ScanState state, PageConsumer consumer) {
+        TokenRange range;
+        while (!state.stopped && (range = pending.poll()) != null) {
+            String position = range.position;
+            while (!state.stopped && !position.equals(range.end)) {
+                Page page = fetchPage(range, position);
+                _scannedPages.incrementAndGet();
+                _scannedRows.addAndGet(page.rows.size());
+                if (!consumer.accept(page)) {
+                    return;
+                }
+                position = page.next;
+            }
+        }
+    }
+
+    /**
+     * Read the rows following the given token (exclusive) up to the end of the range
+     */
+    private Page fetchPage(TokenRange range, String position) {
+        try {
+            RowSliceQuery<String, CompositeColumnName> query = _keyspace.prepareQuery(_cf)
+                    .getRowRange(null, null, position, range.end, _pageSize);
+            if (_columnRange != null) {
+                query = query.withColumnRange(_columnRange);
+            }
+            Rows<String, CompositeColumnName> result = query.execute().getResult();
+
+            List<Row<String, CompositeColumnName>> rows = new ArrayList<Row<String, CompositeColumnName>>(result.size());
+            String lastKey = null;
+            for (Row<String, CompositeColumnName> row : result) {
+                rows.add(row);
+                lastKey = row.getKey();
+            }
+
+            String next = range.end;
+            if (rows.size() >= _pageSize && lastKey != null) {
+                next = _keyspace.getPartitioner().getTokenForKey(_cf.getKeySerializer().toByteBuffer(lastKey));
+            }
+            return new Page(range, rows, next);
+        } catch (ConnectionException e) {
+            throw DatabaseException.retryables.connectionFailed(e);
+        }
+    }
+
+    private boolean enqueue(BlockingQueue<Page> queue, Page page, ScanState state) {
+        long deadline = System.currentTimeMillis() + _stallTimeoutMillis;
+        try {
+            while (!queue.offer(page, OFFER_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (state.stopped) {
+                    return false;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    String message = String.format("Scan of CF %s not consumed for %d ms, abandoned",
+                            _cf.getName(), _stallTimeoutMillis);
+                    _log.warn(message);
+                    state.fail(DatabaseException.fatals.queryFailed(new TimeoutException(message)));
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.fail(DatabaseException.fatals.queryFailed(e));
+            return false;
+        }
+    }
+
+    private static void await(Future<Void> future, ScanState state) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.stopped = true;
+            throw DatabaseException.fatals.queryFailed(e);
+        } catch (ExecutionException e) {
+            state.stopped = true;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw DatabaseException.fatals.queryFailed(e.getCause());
+        }
+    }
+
+    private String getMinToken() {
+        return _keyspace.getPartitioner().getMinToken();
+    }
+
+    private String getMaxToken() {
+        return _keyspace.getPartitioner().getMaxToken();
+    }
+
+    /**
+     * Cut the token ring (minToken, maxToken] into contiguous ranges of about the same width
+     *
+     * @param minToken first token, exclusive
+     * @param maxToken last token, inclusive
+     * @param splits number of ranges
+     * @return
+     */
+    static List<TokenRange> split(String minToken, String maxToken, int splits) {
+        BigInteger min = new BigInteger(minToken);
+        BigInteger max = new BigInteger(maxToken);
+        BigInteger width = max.subtract(min).divide(BigInteger.valueOf(Math.max(1, splits)));
+
+        List<TokenRange> ranges = new ArrayList<TokenRange>();
+        BigInteger start = min;
+        for (int i = 0; i < splits - 1 && width.signum() > 0; i++) {
+            BigInteger end = start.add(width);
+            ranges.add(new TokenRange(start.toString(), end.toString()));
+            start = end;
+        }
+        ranges.add(new TokenRange(start.toString(), max.toString()));
+        return Collections.unmodifiableList(ranges);
+    }
+
+    static String checkpoint(List<TokenRange> ranges) {
+        StringBuilder builder = new StringBuilder();
+        for (TokenRange range : ranges) {
+            if (builder.length() > 0) {
+                builder.append(CHECKPOINT_SEPARATOR);
+            }
+            builder.append(range.position);
+        }
+        return builder.toString();
+    }
+
+    static List<TokenRange> restore(String minToken, String maxToken, String checkpoint) {
+        String[] positions = checkpoint.split(CHECKPOINT_SEPARATOR);
+        List<TokenRange> ranges = split(minToken, maxToken, positions.length);
+        if (ranges.size() != positions.length) {
+            throw new IllegalArgumentException("Invalid scan checkpoint " + checkpoint);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            TokenRange range = ranges.get(i);
+            BigInteger position = new BigInteger(positions[i]);
+            if (position.compareTo(new BigInteger(range.start)) < 0 || position.compareTo(new BigInteger(range.end)) > 0) {
+                throw new IllegalArgumentException("Invalid scan checkpoint " + checkpoint);
+            }
+            range.position = positions[i];
+        }
+        return ranges;
+    }
+
+    /**
+     * Token range (start, end] and the token of the last row handed over
+     */
+    static class TokenRange {
+        final String start;
+        final String end;
+        volatile String position;
+
+        TokenRange(String start, String end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        boolean isDone() {
+            return position.equals(end);
+        }
+    }
+
+    private static class Page {
+        static final Page END = new Page(null, Collections.<Row<String, CompositeColumnName>> emptyList(), null);
+
+        final TokenRange range;
+        final List<Row<String, CompositeColumnName>> rows;
+        final String next;
+
+        Page(TokenRange range, List<Row<String, CompositeColumnName>> rows, String next) {
+            this.range = range;
+            this.rows = rows;
+            this.next = next;
+        }
+
+        void commit() {
+            range.position = next;
+        }
+    }
+
+    private interface PageConsumer {
+        /**
+         * @return false to stop scanning
+         */
+        boolean accept(Page page);
+    }
+
+    private static class ScanState {
+        volatile boolean stopped = false;
+        // set once all scanning threads are done, after their last page was queued
+        volatile boolean finished = false;
+        volatile Throwable failure;
+
+        void fail(Throwable t) {
+            if (failure == null) {
+                failure = t;
+            }
+            stopped = true;
+        }
+    }
+
+    private class ScanIterator implements Iterator<Row<String, CompositeColumnName>> {
+        private final BlockingQueue<Page> _queue;
+        private final ScanState _state;
+        private Page _page;
+        private Iterator<Row<String, CompositeColumnName>> _it = Collections.<Row<String, CompositeColumnName>> emptyList().iterator();
+        private boolean _end = false;
+
+        ScanIterator(BlockingQueue<Page> queue, ScanState state) {
+            _queue = queue;
+            _state = state;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!_it.hasNext()) {
+                if (_page != null) {
+                    // the caller is done with all rows of the page
+                    _page.commit();
+                    _page = null;
+                }
+                if (_end) {
+                    return false;
+                }
+                Page next;
+                try {
+                    next = _queue.poll(OFFER_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    _state.stopped = true;
+                    throw DatabaseException.fatals.queryFailed(e);
+                }
+                if (next == null) {
+                    if (!_state.finished) {
+                        continue;
+                    }
+                    // no page is queued after the threads are done
+                    next = _queue.poll();
+                    if (next == null) {
+                        next = Page.END;
+                    }
+                }
+                if (next == Page.END) {
+                    _end = true;
+                    Throwable failure = _state.failure;
+                    if (failure instanceof RuntimeException) {
+                        throw (RuntimeException) failure;
+                    } else if (failure != null) {
+                        throw DatabaseException.fatals.queryFailed(failure);
+                    }
+                    _log.info("Scanned {} rows of CF {}", _scannedRows.get(), _cf.getName());
+                    return false;
+                }
+                _page = next;
+                _it = next.rows.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Row<String, CompositeColumnName> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return _it.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.netflix.astyanax.partitioner.Partitioner;
+import com.netflix.astyanax.serializers.StringSerializer;
+
+/**
+ * Data object query iterator which keeps up to 'window' batches in flight on a shared executor,
+ * so the next batches are being fetched while the caller processes the current one.
+ *
+ * Ids are grouped by partitioner token before batching, so the keys of one batch are
+ * owned by a small set of replicas. Objects are therefore not returned in the order of the
+ * given ids.
+ *
+ * A batch the executor rejects, because its queue is full or it was shut down, is fetched
+ * by the caller. Batches dropped by {@link #shutdown(ExecutorService)} fail the query.
+ */
+class PipelinedDataObjQueryIterator<T> implements Iterator<T> {
+
+    /**
+     * Loads one batch of objects
+     */
+    interface BatchLoader<T> {
+        List<T> load(List<URI> ids);
+    }
+
+    private final Iterator<List<URI>> _batches;
+    private final BatchLoader<T> _loader;
+    private final ExecutorService _executor;
+    private final int _window;
+    private final Deque<Future<List<T>>> _inflight = new ArrayDeque<Future<List<T>>>();
+    private Iterator<T> _currentIt = Collections.<T> emptyList().iterator();
+
+    PipelinedDataObjQueryIterator(List<List<URI>> batches, BatchLoader<T> loader, ExecutorService executor, int window) {
+        _batches = batches.iterator();
+        _loader = loader;
+        _executor = executor;
+        _window = Math.max(1, window);
+        fill();
+    }
+
+    /**
+     * Split ids into batches of keys sorted by partitioner token
+     *
+     * @param partitioner partitioner of the keyspace
+     * @param ids object ids
+     * @param batchSize maximum number of keys in a batch
+     * @return
+     */
+    static List<List<URI>> splitByToken(Partitioner partitioner, Collection<URI> ids, int batchSize) {
+        List<TokenizedId> tokenized = new ArrayList<TokenizedId>();
+        for (URI id : ids) {
+            String token = partitioner.getTokenForKey(StringSerializer.get().toByteBuffer(id.toString()));
+            tokenized.add(new TokenizedId(new BigInteger(token), id));
+        }
+        Collections.sort(tokenized, new Comparator<TokenizedId>() {
+            @Override
+            public int compare(TokenizedId o1, TokenizedId o2) {
+                return o1.token.compareTo(o2.token);
+            }
+        });
+
+        List<List<URI>> batches = new ArrayList<List<URI>>();
+        List<URI> batch = null;
+        for (TokenizedId id : tokenized) {
+            if (batch == null || batch.size() >= batchSize) {
+                batch = new ArrayList<URI>(batchSize);
+                batches.add(batch);
+            }
+            batch.add(id.id);
+        }
+        return batches;
+    }
+
+    /**
+     * Shut down an executor used by pipelined queries or async calls, cancelling the tasks
+     * it hasn't started so the callers waiting for them fail instead of blocking forever
+     *
+     * @param executor
+     */
+    static void shutdown(ExecutorService executor) {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
+    private void fill() {
+        while (_inflight.size() < _window && _batches.hasNext()) {
+            final List<URI> batch = _batches.next();
+            FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws Exception {
+                    return _loader.load(batch);
+                }
+            });
+            try {
+                _executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+            _inflight.add(task);
+        }
+    }
+
+    private List<T> await(Future<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll();
+            throw DatabaseException.fatals.queryFailed(e);
+        } catch (CancellationException e) {
+            cancelAll();
+            throw DatabaseException.fatals.queryFailed(e);
+        } catch (ExecutionException e) {
+            cancelAll();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw DatabaseException.fatals.queryFailed(e.getCause());
+        }
+    }
+
+    private void cancelAll() {
+        for (Future<List<T>> future : _inflight) {
+            future.cancel(true);
+        }
+        _inflight.clear();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!_currentIt.hasNext()) {
+            Future<List<T>> next = _inflight.poll();
+            if (next == null) {
+                return false;
+            }
+            List<T> result = await(next);
+            // keep the pipeline full before handing the batch to the caller
+            fill();
+            _currentIt = result.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return _currentIt.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static class TokenizedId {
+        private final BigInteger token;
+        private final URI id;
+
+        TokenizedId(BigInteger token, URI id) {
+            this.token = token;
+            this.id = id;
+        }
+    }
+}
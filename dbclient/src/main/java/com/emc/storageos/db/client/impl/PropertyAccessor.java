@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Getter/setter pair of a data object property.
+ *
+ * Accessors are generated once per property when the DataObjectType is built: the bean
+ * read and write methods are bound to Function/BiConsumer instances through
+ * LambdaMetafactory, so the JIT can inline them like hand written code instead of going
+ * through Method.invoke() for every field of every object. Properties which can't be
+ * bound (e.g. declared in a non public class) fall back to reflection.
+ *
+ * Both kinds keep the contract of Method.invoke(): exceptions thrown by the getter or
+ * setter are wrapped in InvocationTargetException, a wrong object or argument type is an
+ * IllegalArgumentException and a null object is a NullPointerException.
+ */
+public abstract class PropertyAccessor {
+    private static final Logger _log = LoggerFactory.getLogger(PropertyAccessor.class);
+
+    // set -Dstorageos.dbclient.reflectiveAccessors=true to disable generated accessors
+    private static final boolean REFLECTIVE_ONLY = Boolean.getBoolean("storageos.dbclient.reflectiveAccessors");
+
+    protected final PropertyDescriptor _property;
+
+    protected PropertyAccessor(PropertyDescriptor pd) {
+        _property = pd;
+    }
+
+    /**
+     * Read property value
+     *
+     * @param obj object to read from
+     * @return property value
+     */
+    public abstract Object get(Object obj) throws IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Write property value
+     *
+     * @param obj object to write to
+     * @param val new value
+     */
+    public abstract void set(Object obj, Object val) throws IllegalAccessException, InvocationTargetException;
+
+    /**
+     * @return true if the accessor is generated, false if it uses reflection
+     */
+    public abstract boolean isGenerated();
+
+    public PropertyDescriptor getPropertyDescriptor() {
+        return _property;
+    }
+
+    /**
+     * Create accessor for given property
+     *
+     * @param pd
+     * @return
+     */
+    public static PropertyAccessor create(PropertyDescriptor pd) {
+        if (!REFLECTIVE_ONLY) {
+            try {
+                return new GeneratedAccessor(pd);
+            } catch (Throwable t) {
+                _log.info("Cannot generate accessor for {}, falling back to reflection: {}", pd.getName(), t.toString());
+            }
+        }
+        return new ReflectiveAccessor(pd);
+    }
+
+    /**
+     * Create reflection based accessor for given property, used as baseline by tests
+     *
+     * @param pd
+     * @return
+     */
+    static PropertyAccessor createReflective(PropertyDescriptor pd) {
+        return new ReflectiveAccessor(pd);
+    }
+
+    private static class ReflectiveAccessor extends PropertyAccessor {
+        private final Method _readMethod;
+        private final Method _writeMethod;
+
+        ReflectiveAccessor(PropertyDescriptor pd) {
+            super(pd);
+            _readMethod = pd.getReadMethod();
+            _writeMethod = pd.getWriteMethod();
+        }
+
+        @Override
+        public Object get(Object obj) throws IllegalAccessException, InvocationTargetException {
+            return _readMethod.invoke(obj);
+        }
+
+        @Override
+        public void set(Object obj, Object val) throws IllegalAccessException, InvocationTargetException {
+            _writeMethod.invoke(obj, val);
+        }
+
+        @Override
+        public boolean isGenerated() {
+            return false;
+        }
+    }
+
+    private static class GeneratedAccessor extends PropertyAccessor {
+        private final Function<Object, Object> _getter;
+        private final BiConsumer<Object, Object> _setter;
+        // the types the generated getter and setter cast their arguments to
+        private final Class<?> _getterObjectType;
+        private final Class<?> _setterObjectType;
+        private final Class<?> _setterValueType;
+        private final boolean _primitiveValue;
+
+        GeneratedAccessor(PropertyDescriptor pd) throws Throwable {
+            super(pd);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Method readMethod = pd.getReadMethod();
+            Method writeMethod = pd.getWriteMethod();
+            _getter = readMethod == null ? null : bindGetter(lookup, readMethod);
+            _setter = writeMethod == null ? null : bindSetter(lookup, writeMethod);
+            _getterObjectType = readMethod == null ? null : readMethod.getDeclaringClass();
+            _setterObjectType = writeMethod == null ? null : writeMethod.getDeclaringClass();
+            _setterValueType = writeMethod == null ? null :
+                    MethodType.methodType(writeMethod.getParameterTypes()[0]).wrap().returnType();
+            _primitiveValue = writeMethod != null && writeMethod.getParameterTypes()[0].isPrimitive();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Function<Object, Object> bindGetter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    handle.type().wrap());
+            return (Function<Object, Object>) site.getTarget().invoke();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BiConsumer<Object, Object> bindSetter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    handle.type().wrap().changeReturnType(void.class));
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        }
+
+        @Override
+        public Object get(Object obj) throws IllegalAccessException, InvocationTargetException {
+            if (_getter == null) {
+                throw new IllegalAccessException("no read method for " + _property.getName());
+            }
+            if (!_getterObjectType.isInstance(obj)) {
+                // let Method.invoke() report the wrong or null object
+                return _property.getReadMethod().invoke(obj);
+            }
+            try {
+                return _getter.apply(obj);
+            } catch (RuntimeException | Error e) {
+                // thrown by the getter itself, keep the same contract as Method.invoke()
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        @Override
+        public void set(Object obj, Object val) throws IllegalAccessException, InvocationTargetException {
+            if (_setter == null) {
+                throw new IllegalAccessException("no write method for " + _property.getName());
+            }
+            if (!_setterObjectType.isInstance(obj) || (val == null ? _primitiveValue : !_setterValueType.isInstance(val))) {
+                // let Method.invoke() report the wrong object or argument, or widen a primitive argument
+                _property.getWriteMethod().invoke(obj, val);
+                return;
+            }
+            try {
+                _setter.accept(obj, val);
+            } catch (RuntimeException | Error e) {
+                // thrown by the setter itself, keep the same contract as Method.invoke()
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        @Override
+        public boolean isGenerated() {
+            return true;
+        }
+    }
+}
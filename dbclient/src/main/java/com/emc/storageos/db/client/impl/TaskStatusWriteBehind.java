@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.Operation;
+import com.emc.storageos.services.util.NamedScheduledThreadPoolExecutor;
+
+/**
+ * Optional write-behind buffer for task status updates made through DbClient
+ * (pending/ready/error/updateTaskOpStatus).
+ *
+ * The first status update of an object is read and applied as usual, but instead of being
+ * written the object is parked for windowMillis. Further updates of any operation of the
+ * same object inside the window are applied to the parked copy, so a burst of progress
+ * updates turns into a single write of the object row and its Task rows. Parked objects
+ * whose window expired are written together in one batch.
+ *
+ * Ordering: each parked object is guarded by its own lock, which is held while it is
+ * written, and any other write of the object through DbClientImpl flushes it first.
+ * An update read from db while another thread parked the object is applied to the parked
+ * copy, so its stale copy never overwrites the parked update.
+ * Terminal states (anything but pending) are written before the update call returns.
+ *
+ * The buffer only knows the updates made through this DbClient. Another node (or DbClient)
+ * may finish an operation while its progress is parked here, so before parked pending
+ * updates are written their stored status is read, and the updates of operations already
+ * finished in db are dropped. This narrows but doesn't close the window: a status written
+ * elsewhere between that read and the write is still overwritten.
+ */
+public class TaskStatusWriteBehind implements TaskStatusWriteBehindMBean {
+    private static final Logger _log = LoggerFactory.getLogger(TaskStatusWriteBehind.class);
+
+    private final DbClient _dbClient;
+    private final long _windowMillis;
+    private final Map<URI, PendingStatus> _pending = new ConcurrentHashMap<URI, PendingStatus>();
+
+    private final AtomicLong _updates = new AtomicLong(0);
+    private final AtomicLong _coalesced = new AtomicLong(0);
+    private final AtomicLong _flushedObjects = new AtomicLong(0);
+    private final AtomicLong _immediateFlushes = new AtomicLong(0);
+    private final AtomicLong _dropped = new AtomicLong(0);
+
+    private ScheduledExecutorService _flushExecutor;
+
+    public TaskStatusWriteBehind(DbClient dbClient, long windowMillis) {
+        _dbClient = dbClient;
+        _windowMillis = windowMillis;
+    }
+
+    public synchronized void start() {
+        if (_flushExecutor != null) {
+            return;
+        }
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                mbs.registerMBean(this, name);
+            }
+        } catch (Exception ex) {
+            _log.error("Register MBean error ", ex);
+        }
+
+        _flushExecutor = new NamedScheduledThreadPoolExecutor("TaskStatusWriteBehind", 1);
+        long period = Math.max(1, _windowMillis / 2);
+        _flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flushExpired();
+                } catch (Exception e) {
+                    _log.error("Failed to flush task status updates", e);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (_flushExecutor != null) {
+            _flushExecutor.shutdownNow();
+            _flushExecutor = null;
+        }
+        flushAll();
+    }
+
+    /**
+     * Apply a status update to the parked copy of the object, if there is one
+     *
+     * @return the updated operation, or null if the object is not parked (or doesn't
+     *         have the operation) and the caller has to read and update it from db
+     */
+    public Operation updatePending(URI id, String opId, Operation updateOperation, boolean resetStartTime) {
+        PendingStatus pending = _pending.get(id);
+        if (pending == null) {
+            return null;
+        }
+        Operation op = updatePending(pending, opId, updateOperation, resetStartTime);
+        if (op != null) {
+            _updates.incrementAndGet();
+        }
+        return op;
+    }
+
+    private Operation updatePending(PendingStatus pending, String opId, Operation updateOperation, boolean resetStartTime) {
+        pending.lock.lock();
+        try {
+            if (pending.flushed) {
+                // written in the meantime, db has the latest state
+                return null;
+            }
+            Operation op = pending.object.getOpStatus().updateTaskStatus(opId, updateOperation, resetStartTime);
+            if (op == null) {
+                // operation created after the object was parked, let the caller start from db
+                flush(pending);
+                return null;
+            }
+            pending.opIds.add(opId);
+            _coalesced.incrementAndGet();
+            if (isTerminal(op)) {
+                _immediateFlushes.incrementAndGet();
+                flush(pending);
+            }
+            return op;
+        } finally {
+            pending.lock.unlock();
+        }
+    }
+
+    /**
+     * Hand over an object read from db with a freshly applied status update.
+     * Terminal states are written right away, others are parked. If another thread parked
+     * the object since it was read, the update is applied to the parked copy instead.
+     *
+     * @param object object holding the status map
+     * @param opId the updated operation id
+     * @param updateOperation the update applied to the object
+     * @param resetStartTime
+     * @param op the updated operation of the object
+     * @return the updated operation, of the parked copy if the update was applied to it
+     */
+    public Operation submit(DataObject object, String opId, Operation updateOperation, boolean resetStartTime,
+            Operation op) {
+        _updates.incrementAndGet();
+        PendingStatus pending = new PendingStatus(object, System.currentTimeMillis() + _windowMillis);
+        pending.opIds.add(opId);
+        PendingStatus existing;
+        while ((existing = _pending.putIfAbsent(object.getId(), pending)) != null) {
+            Operation merged = updatePending(existing, opId, updateOperation, resetStartTime);
+            if (merged != null) {
+                return merged;
+            }
+            // the parked copy was written in the meantime, park this one
+        }
+
+        if (isTerminal(op)) {
+            _immediateFlushes.incrementAndGet();
+            flush(pending);
+        }
+        return op;
+    }
+
+    /**
+     * Write pending updates of given objects, called before any other write of them
+     *
+     * @param ids
+     */
+    public void flush(Collection<URI> ids) {
+        if (_pending.isEmpty()) {
+            return;
+        }
+        for (URI id : ids) {
+            flush(id);
+        }
+    }
+
+    private void flush(URI id) {
+        PendingStatus pending = _pending.get(id);
+        if (pending != null) {
+            flush(pending);
+        }
+    }
+
+    private void flush(PendingStatus pending) {
+        pending.lock.lock();
+        try {
+            if (pending.flushed) {
+                return;
+            }
+            pending.flushed = true;
+            _pending.remove(pending.object.getId(), pending);
+            if (!dropStaleUpdates(Collections.singletonList(pending)).isEmpty()) {
+                write(pending.object);
+            }
+        } finally {
+            pending.lock.unlock();
+        }
+    }
+
+    private void write(DataObject object) {
+        _dbClient.updateObject(object);
+        _flushedObjects.incrementAndGet();
+    }
+
+    /**
+     * Write all objects whose window expired, one batch per type
+     */
+    void flushExpired() {
+        flush(System.currentTimeMillis());
+    }
+
+    private void flush(long deadline) {
+        Map<Class<? extends DataObject>, List<PendingStatus>> expired = new HashMap<Class<? extends DataObject>, List<PendingStatus>>();
+        for (PendingStatus pending : _pending.values()) {
+            if (pending.deadline <= deadline) {
+                List<PendingStatus> list = expired.get(pending.object.getClass());
+                if (list == null) {
+                    list = new ArrayList<PendingStatus>();
+                    expired.put(pending.object.getClass(), list);
+                }
+                list.add(pending);
+            }
+        }
+
+        for (List<PendingStatus> batch : expired.values()) {
+            flushBatch(batch);
+        }
+    }
+
+    private void flushBatch(List<PendingStatus> batch) {
+        List<PendingStatus> locked = new ArrayList<PendingStatus>(batch.size());
+        List<PendingStatus> flushed = new ArrayList<PendingStatus>(batch.size());
+        try {
+            for (PendingStatus pending : batch) {
+                pending.lock.lock();
+                locked.add(pending);
+                if (!pending.flushed) {
+                    pending.flushed = true;
+                    _pending.remove(pending.object.getId(), pending);
+                    flushed.add(pending);
+                }
+            }
+            List<DataObject> objects = dropStaleUpdates(flushed);
+            if (!objects.isEmpty()) {
+                _dbClient.updateObject(objects);
+                _flushedObjects.addAndGet(objects.size());
+            }
+        } finally {
+            for (PendingStatus pending : locked) {
+                pending.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Drop the parked pending updates of operations whose stored status is terminal
+     *
+     * @param batch parked objects of the same type, being flushed
+     * @return the objects still to be written
+     */
+    private List<DataObject> dropStaleUpdates(List<PendingStatus> batch) {
+        List<DataObject> objects = new ArrayList<DataObject>(batch.size());
+        Map<URI, PendingStatus> toCheck = new HashMap<URI, PendingStatus>();
+        for (PendingStatus pending : batch) {
+            if (hasPendingUpdate(pending)) {
+                toCheck.put(pending.object.getId(), pending);
+            } else {
+                objects.add(pending.object);
+            }
+        }
+        if (toCheck.isEmpty()) {
+            return objects;
+        }
+
+        Map<URI, DataObject> stored = new HashMap<URI, DataObject>();
+        Class<? extends DataObject> clazz = batch.get(0).object.getClass();
+        for (DataObject object : _dbClient.queryObjectField(clazz, "status", toCheck.keySet())) {
+            stored.put(object.getId(), object);
+        }
+        for (PendingStatus pending : toCheck.values()) {
+            if (keepUpdates(pending, stored.get(pending.object.getId()))) {
+                objects.add(pending.object);
+            }
+        }
+        return objects;
+    }
+
+    private static boolean hasPendingUpdate(PendingStatus pending) {
+        for (String opId : pending.opIds) {
+            Operation op = pending.object.getOpStatus().get(opId);
+            if (op != null && !isTerminal(op)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if every parked update of the object was dropped
+     */
+    private boolean keepUpdates(PendingStatus pending, DataObject stored) {
+        if (stored == null || stored.getOpStatus() == null) {
+            return true;
+        }
+        boolean keep = false;
+        for (String opId : pending.opIds) {
+            Operation parked = pending.object.getOpStatus().get(opId);
+            Operation current = stored.getOpStatus().get(opId);
+            if (parked != null && !isTerminal(parked) && current != null && isTerminal(current)) {
+                _log.info("Dropping parked update of operation {} of {}, already {} in db", opId,
+                        pending.object.getId(), current.getStatus());
+                pending.object.getOpStatus().put(opId, current);
+                _dropped.incrementAndGet();
+            } else {
+                keep = true;
+            }
+        }
+        return keep;
+    }
+
+    private static boolean isTerminal(Operation op) {
+        return !Operation.Status.pending.name().equalsIgnoreCase(op.getStatus());
+    }
+
+    @Override
+    public long getUpdateCount() {
+        return _updates.get();
+    }
+
+    @Override
+    public long getCoalescedCount() {
+        return _coalesced.get();
+    }
+
+    @Override
+    public long getFlushedObjectCount() {
+        return _flushedObjects.get();
+    }
+
+    @Override
+    public long getImmediateFlushCount() {
+        return _immediateFlushes.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return _dropped.get();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return _pending.size();
+    }
+
+    @Override
+    public void flushAll() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private static class PendingStatus {
+        private final DataObject object;
+        private final long deadline;
+        // reentrant, the flushing thread goes through DbClientImpl which flushes the same object again
+        private final ReentrantLock lock = new ReentrantLock();
+        // operations updated while parked
+        private final Set<String> opIds = new HashSet<String>();
+        private boolean flushed = false;
+
+        PendingStatus(DataObject object, long deadline) {
+            this.object = object;
+            this.deadline = deadline;
+        }
+    }
+}
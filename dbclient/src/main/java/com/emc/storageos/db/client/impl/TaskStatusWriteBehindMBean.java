@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+/**
+ * The API for task status write-behind statistics
+ */
+public interface TaskStatusWriteBehindMBean {
+    static final String MBEAN_NAME = "com.emc.storageos.db.client.impl:type=TaskStatusWriteBehind";
+
+    /**
+     * @return number of status updates handed to the write-behind buffer
+     */
+    long getUpdateCount();
+
+    /**
+     * @return number of status updates folded into an already pending write
+     */
+    long getCoalescedCount();
+
+    /**
+     * @return number of objects written by the buffer
+     */
+    long getFlushedObjectCount();
+
+    /**
+     * @return number of writes forced by a terminal (non pending) status
+     */
+    long getImmediateFlushCount();
+
+    /**
+     * @return number of parked progress updates dropped because the operation was already
+     *         finished in db, e.g. by another node
+     */
+    long getDroppedCount();
+
+    /**
+     * @return number of objects with status updates waiting to be written
+     */
+    int getPendingCount();
+
+    /**
+     * Write all pending status updates now
+     */
+    void flushAll();
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.emc.storageos.db.client.TimeSeriesQueryResult;
+import com.emc.storageos.db.client.model.TimeSeriesSerializer;
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.netflix.astyanax.util.TimeUUIDUtils;
+
+/**
+ * Merges the shard rows of a time series bucket into one stream ordered by time UUID.
+ *
+ * Pages are read and deserialized on the worker threads, but every shard has at most one page
+ * being read ahead of the one being merged: the next page of a shard is only requested when the
+ * caller is done with the current one. A slow consumer (e.g. a REST client reading the stream)
+ * therefore holds back the Cassandra reads instead of piling up results in memory, and reads
+ * never block a worker thread, so any pool size works for any number of shards.
+ *
+ * Results are handed to the TimeSeriesQueryResult from the calling thread, one at a time.
+ */
+class TimeSeriesShardMerger<T extends TimeSeriesSerializer.DataPoint> {
+
+    /**
+     * Reads the pages of one shard row in time order
+     */
+    interface PageReader<T> {
+        /**
+         * @return next page, empty at the end of the row
+         */
+        List<Entry<T>> nextPage() throws Exception;
+    }
+
+    static class Entry<T> {
+        final UUID time;
+        final T data;
+
+        Entry(UUID time, T data) {
+            this.time = time;
+            this.data = data;
+        }
+    }
+
+    private final List<PageReader<T>> _readers;
+    private final ExecutorService _executor;
+
+    TimeSeriesShardMerger(List<PageReader<T>> readers, ExecutorService executor) {
+        _readers = readers;
+        _executor = executor;
+    }
+
+    /**
+     * Merge all shards into result. A shard failing is reported through result.error()
+     * and the others are merged to the end.
+     */
+    void merge(TimeSeriesQueryResult<T> result) {
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<ShardCursor>(Math.max(1, _readers.size()),
+                new Comparator<ShardCursor>() {
+                    @Override
+                    public int compare(ShardCursor c1, ShardCursor c2) {
+                        return compareTime(c1.head.time, c2.head.time);
+                    }
+                });
+
+        ShardCursor[] cursors = new ShardCursor[_readers.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = new ShardCursor(_readers.get(i));
+            cursors[i].prefetch();
+        }
+        try {
+            for (ShardCursor cursor : cursors) {
+                if (cursor.advance(result)) {
+                    heads.add(cursor);
+                }
+            }
+            while (!heads.isEmpty()) {
+                ShardCursor cursor = heads.poll();
+                result.data(cursor.head.data, TimeUUIDUtils.getTimeFromUUID(cursor.head.time));
+                if (cursor.advance(result)) {
+                    heads.add(cursor);
+                }
+            }
+        } finally {
+            for (ShardCursor cursor : cursors) {
+                cursor.cancel();
+            }
+        }
+    }
+
+    static int compareTime(UUID u1, UUID u2) {
+        int diff = Long.compare(u1.timestamp(), u2.timestamp());
+        return diff != 0 ? diff : u1.compareTo(u2);
+    }
+
+    private class ShardCursor {
+        private final PageReader<T> _reader;
+        private Future<List<Entry<T>>> _next;
+        private Iterator<Entry<T>> _page = Collections.<Entry<T>> emptyList().iterator();
+        private Entry<T> head;
+
+        ShardCursor(PageReader<T> reader) {
+            _reader = reader;
+        }
+
+        void prefetch() {
+            _next = _executor.submit(new Callable<List<Entry<T>>>() {
+                @Override
+                public List<Entry<T>> call() throws Exception {
+                    return _reader.nextPage();
+                }
+            });
+        }
+
+        /**
+         * Move to the next entry of the shard
+         *
+         * @return false at the end of the shard, or if it failed
+         */
+        boolean advance(TimeSeriesQueryResult<T> result) {
+            while (!_page.hasNext()) {
+                if (_next == null) {
+                    return false;
+                }
+                List<Entry<T>> page;
+                try {
+                    page = _next.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw DatabaseException.fatals.queryFailed(e);
+                } catch (ExecutionException e) {
+                    _next = null;
+                    result.error(e.getCause());
+                    return false;
+                }
+                if (page.isEmpty()) {
+                    _next = null;
+                    return false;
+                }
+                // one page ahead while this one is merged
+                prefetch();
+                _page = page.iterator();
+            }
+            head = _page.next();
+            return true;
+        }
+
+        void cancel() {
+            if (_next != null) {
+                _next.cancel(true);
+                _next = null;
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@
 package com.emc.storageos.db.client.model;
 
 import com.emc.storageos.db.client.TimeSeriesMetadata;
+import com.emc.storageos.db.exceptions.DatabaseException;
 
 /**
  * CF definition for auditlog time series data
@@ -23,19 +24,88 @@ public class AuditLogTimeSeries implements TimeSeries<AuditLog> {
     }
 
     /**
-     * AuditLog serializer implementation
+     * AuditLog serializer implementation. Once CompactDataPointCodec writes are enabled, audit
+     * logs are written with it using their SerializationIndex as field number, with
+     * GenericSerializer before. Both are read.
      */
     public static class AuditLogSerializer implements TimeSeriesSerializer<AuditLog> {
+        // field numbers are the SerializationIndex of the getters and are stored in the columns, don't reuse them
+        private static final int TIME = 1;
+        private static final int PRODUCT_ID = 2;
+        private static final int TENANT_ID = 3;
+        private static final int USER_ID = 4;
+        private static final int SERVICE_TYPE = 5;
+        private static final int AUDIT_TYPE = 6;
+        private static final int DESCRIPTION = 7;
+        private static final int OPERATIONAL_STATUS = 8;
+        private static final int AUDITLOG_ID = 9;
+
         private GenericSerializer _genericSerializer = new GenericSerializer();
 
         @Override
         public byte[] serialize(AuditLog data) {
-            return _genericSerializer.toByteArray(AuditLog.class, data);
+            if (!CompactDataPointCodec.isWriteEnabled()) {
+                return _genericSerializer.toByteArray(AuditLog.class, data);
+            }
+            CompactDataPointCodec.Writer out = new CompactDataPointCodec.Writer();
+            out.writeLong(TIME, data.getTimeInMillis());
+            out.writeString(PRODUCT_ID, data.getProductId());
+            out.writeUri(TENANT_ID, data.getTenantId());
+            out.writeUri(USER_ID, data.getUserId());
+            out.writeString(SERVICE_TYPE, data.getServiceType());
+            out.writeString(AUDIT_TYPE, data.getAuditType());
+            out.writeString(DESCRIPTION, data.getDescription());
+            out.writeString(OPERATIONAL_STATUS, data.getOperationalStatus());
+            out.writeString(AUDITLOG_ID, data.getAuditlogId());
+            return out.toByteArray();
         }
 
         @Override
         public AuditLog deserialize(byte[] data) {
-            return _genericSerializer.fromByteArray(AuditLog.class, data);
+            if (!CompactDataPointCodec.isCompact(data)) {
+                return _genericSerializer.fromByteArray(AuditLog.class, data);
+            }
+            try {
+                AuditLog auditLog = new AuditLog();
+                CompactDataPointCodec.Reader in = new CompactDataPointCodec.Reader(data);
+                for (int field = in.nextField(); field >= 0; field = in.nextField()) {
+                    switch (field) {
+                        case TIME:
+                            auditLog.setTimeInMillis(in.readLong());
+                            break;
+                        case PRODUCT_ID:
+                            auditLog.setProductId(in.readString());
+                            break;
+                        case TENANT_ID:
+                            auditLog.setTenantId(in.readUri());
+                            break;
+                        case USER_ID:
+                            auditLog.setUserId(in.readUri());
+                            break;
+                        case SERVICE_TYPE:
+                            auditLog.setServiceType(in.readString());
+                            break;
+                        case AUDIT_TYPE:
+                            auditLog.setAuditType(in.readString());
+                            break;
+                        case DESCRIPTION:
+                            auditLog.setDescription(in.readString());
+                            break;
+                        case OPERATIONAL_STATUS:
+                            auditLog.setOperationalStatus(in.readString());
+                            break;
+                        case AUDITLOG_ID:
+                            auditLog.setAuditlogId(in.readString());
+                            break;
+                        default:
+                            // written by a newer version
+                            in.skip();
+                    }
+                }
+                return auditLog;
+            } catch (RuntimeException e) {
+                throw DatabaseException.fatals.deserializationFailed(AuditLog.class, e);
+            }
         }
     }
 }
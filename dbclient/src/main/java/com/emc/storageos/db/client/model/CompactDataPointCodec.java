@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.model;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact binary encoding of time series data points.
+ *
+ * A record starts with a format byte, followed by fields written as { tag [varint], value }.
+ * The tag holds the field number and the wire type of the value (field << 3 | wireType),
+ * so readers skip fields they don't know and fields not set are simply left out:
+ * <ul>
+ * <li>VARINT: zigzag encoded long, 1 byte for small values</li>
+ * <li>STRING: length [varint] followed by the UTF-8 bytes</li>
+ * <li>URI: ViPR ids (urn:storageos:Type:uuid:vdc) as the index of the type in TYPE_DICTIONARY,
+ * the uuid as 16 bytes and the vdc id as string, any other URI as string</li>
+ * </ul>
+ *
+ * The format byte can't be the first byte of the older encodings (Java serialization streams
+ * start with 0xAC, GenericSerializer with a SerializationIndex below 0x80), which lets readers
+ * tell both apart column by column.
+ *
+ * Versions before this codec can't read it, serializers keep writing the older encodings until
+ * {@link #setWriteEnabled(boolean)} turns it on, once the db schema migration to this version is
+ * done (see DbClientImpl.setCompactTimeSeriesEnabled()).
+ */
+public class CompactDataPointCodec {
+    public static final byte FORMAT_V1 = (byte) 0xF1;
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_STRING = 1;
+    static final int WIRE_URI = 2;
+
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+    private static final String URN_PREFIX = "urn:storageos:";
+    private static final int URI_RAW = 0;
+    private static final int URI_URN = 1;
+    private static final int MAX_INTERNED_URIS = 10000;
+
+    /**
+     * Resource types referenced by data points. Append only: the position of a type is stored in
+     * the columns. Types not listed are written by name.
+     */
+    private static final List<String> TYPE_DICTIONARY = Arrays.asList(
+            "Volume", "FileShare", "Project", "TenantOrg", "VirtualPool", "BlockSnapshot",
+            "Snapshot", "StorageSystem", "StoragePool", "StoragePort", "Bucket", "ExportGroup",
+            "BlockMirror", "BlockConsistencyGroup", "Host", "Initiator", "Network", "VirtualArray");
+    private static final Map<String, Integer> TYPE_INDEX = new HashMap<String, Integer>();
+    static {
+        for (int i = 0; i < TYPE_DICTIONARY.size(); i++) {
+            TYPE_INDEX.put(TYPE_DICTIONARY.get(i), i + 1);
+        }
+    }
+
+    private static volatile boolean _writeEnabled = false;
+
+    // readers see the same tenant/project/vpool ids over and over, hand out one instance for them
+    private static final ConcurrentMap<String, URI> _internedUris = new ConcurrentHashMap<String, URI>();
+
+    /**
+     * @return true if the serializers write this format, false if they write the older encodings
+     */
+    public static boolean isWriteEnabled() {
+        return _writeEnabled;
+    }
+
+    public static void setWriteEnabled(boolean writeEnabled) {
+        _writeEnabled = writeEnabled;
+    }
+
+    /**
+     * @return true if the column was written by this codec
+     */
+    public static boolean isCompact(byte[] data) {
+        return data != null && data.length > 0 && data[0] == FORMAT_V1;
+    }
+
+    static URI intern(String uri) {
+        URI value = _internedUris.get(uri);
+        if (value == null) {
+            if (_internedUris.size() >= MAX_INTERNED_URIS) {
+                _internedUris.clear();
+            }
+            value = URI.create(uri);
+            _internedUris.putIfAbsent(uri, value);
+        }
+        return value;
+    }
+
+    /**
+     * Encodes the fields of one data point
+     */
+    public static class Writer {
+        private byte[] _buf = new byte[128];
+        private int _pos = 0;
+
+        public Writer() {
+            writeByte(FORMAT_V1);
+        }
+
+        public Writer writeLong(int field, long value) {
+            writeTag(field, WIRE_VARINT);
+            writeVarLong((value << 1) ^ (value >> 63));
+            return this;
+        }
+
+        /**
+         * Writes the field if the value isn't null
+         */
+        public Writer writeString(int field, String value) {
+            if (value != null) {
+                writeTag(field, WIRE_STRING);
+                writeBytes(value.getBytes(ENCODING));
+            }
+            return this;
+        }
+
+        /**
+         * Writes the field if the value isn't null
+         */
+        public Writer writeUri(int field, URI value) {
+            if (value == null) {
+                return this;
+            }
+            writeTag(field, WIRE_URI);
+            String str = value.toString();
+            String[] parts = str.startsWith(URN_PREFIX) ? str.substring(URN_PREFIX.length()).split(":", -1) : null;
+            UUID uuid = parts != null && parts.length == 3 ? parseUuid(parts[1]) : null;
+            if (uuid == null) {
+                writeVarLong(URI_RAW);
+                writeBytes(str.getBytes(ENCODING));
+                return this;
+            }
+
+            writeVarLong(URI_URN);
+            Integer type = TYPE_INDEX.get(parts[0]);
+            if (type != null) {
+                writeVarLong(type);
+            } else {
+                writeVarLong(0);
+                writeBytes(parts[0].getBytes(ENCODING));
+            }
+            writeFixedLong(uuid.getMostSignificantBits());
+            writeFixedLong(uuid.getLeastSignificantBits());
+            writeBytes(parts[2].getBytes(ENCODING));
+            return this;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(_buf, _pos);
+        }
+
+        private static UUID parseUuid(String str) {
+            try {
+                UUID uuid = UUID.fromString(str);
+                // only if the string comes back the same when decoded
+                return uuid.toString().equals(str) ? uuid : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private void writeTag(int field, int wireType) {
+            writeVarLong((field << 3) | wireType);
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, _buf, _pos, bytes.length);
+            _pos += bytes.length;
+        }
+
+        private void writeFixedLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                _buf[_pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                _buf[_pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            _buf[_pos++] = (byte) value;
+        }
+
+        private void writeByte(byte value) {
+            ensure(1);
+            _buf[_pos++] = value;
+        }
+
+        private void ensure(int len) {
+            if (_pos + len > _buf.length) {
+                _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2, _pos + len));
+            }
+        }
+    }
+
+    /**
+     * Decodes the fields of one data point. Usage: call nextField() until it returns -1 and read
+     * the value of each known field with the method matching its type, or skip() it.
+     */
+    public static class Reader {
+        private final byte[] _buf;
+        private int _pos;
+        private int _wireType;
+
+        public Reader(byte[] data) {
+            if (!isCompact(data)) {
+                throw new IllegalArgumentException("Unknown data point format");
+            }
+            _buf = data;
+            _pos = 1;
+        }
+
+        /**
+         * @return number of the next field, -1 at the end of the record
+         */
+        public int nextField() {
+            if (_pos >= _buf.length) {
+                return -1;
+            }
+            long tag = readVarLong();
+            _wireType = (int) (tag & 0x7);
+            return (int) (tag >>> 3);
+        }
+
+        public long readLong() {
+            expect(WIRE_VARINT);
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public String readString() {
+            expect(WIRE_STRING);
+            return readUtf8();
+        }
+
+        public URI readUri() {
+            expect(WIRE_URI);
+            int kind = (int) readVarLong();
+            if (kind == URI_RAW) {
+                return intern(readUtf8());
+            }
+
+            int type = (int) readVarLong();
+            String typeName = type == 0 ? readUtf8() : TYPE_DICTIONARY.get(type - 1);
+            UUID uuid = new UUID(readFixedLong(), readFixedLong());
+            String vdc = readUtf8();
+            return intern(URN_PREFIX + typeName + ":" + uuid + ":" + vdc);
+        }
+
+        /**
+         * Skip the value of a field unknown to the reader
+         */
+        public void skip() {
+            switch (_wireType) {
+                case WIRE_VARINT:
+                    readVarLong();
+                    break;
+                case WIRE_STRING:
+                    readUtf8();
+                    break;
+                case WIRE_URI:
+                    readUri();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown wire type " + _wireType);
+            }
+        }
+
+        private void expect(int wireType) {
+            if (_wireType != wireType) {
+                throw new IllegalArgumentException("Unexpected wire type " + _wireType + ", expected " + wireType);
+            }
+        }
+
+        private String readUtf8() {
+            int len = (int) readVarLong();
+            if (len < 0 || _pos + len > _buf.length) {
+                throw new IllegalArgumentException("Invalid string length " + len);
+            }
+            String value = new String(_buf, _pos, len, ENCODING);
+            _pos += len;
+            return value;
+        }
+
+        private long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (_buf[_pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = _buf[_pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
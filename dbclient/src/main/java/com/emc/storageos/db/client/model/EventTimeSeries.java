@@ -6,6 +6,7 @@
 package com.emc.storageos.db.client.model;
 
 import com.emc.storageos.db.client.TimeSeriesMetadata;
+import com.emc.storageos.db.exceptions.DatabaseException;
 
 /**
  * CF definition for event time series data
@@ -23,19 +24,133 @@ public class EventTimeSeries implements TimeSeries<Event> {
     }
 
     /**
-     * Event serializer implementation
+     * Event serializer implementation. Once CompactDataPointCodec writes are enabled, events are
+     * written with it using their SerializationIndex as field number, with GenericSerializer
+     * before. Both are read.
      */
     public static class EventSerializer implements TimeSeriesSerializer<Event> {
+        // field numbers are the SerializationIndex of the getters and are stored in the columns, don't reuse them
+        private static final int TIME = 1;
+        private static final int TENANT_ID = 2;
+        private static final int ALERT_TYPE = 3;
+        private static final int VIRTUAL_POOL = 4;
+        private static final int DESCRIPTION = 5;
+        private static final int EVENT_ID = 6;
+        private static final int NATIVE_GUID = 7;
+        private static final int EVENT_TYPE = 8;
+        private static final int EXTENSIONS = 9;
+        private static final int PROJECT_ID = 10;
+        private static final int RESOURCE_ID = 11;
+        private static final int SERVICE = 12;
+        private static final int SEVERITY = 13;
+        private static final int USER_ID = 14;
+        private static final int RECORD_TYPE = 15;
+        private static final int OPERATIONAL_STATUS_CODES = 16;
+        private static final int OPERATIONAL_STATUS_DESCRIPTIONS = 17;
+        private static final int EVENT_SOURCE = 18;
+
         private GenericSerializer _genericSerializer = new GenericSerializer();
 
         @Override
         public byte[] serialize(Event data) {
-            return _genericSerializer.toByteArray(Event.class, data);
+            if (!CompactDataPointCodec.isWriteEnabled()) {
+                return _genericSerializer.toByteArray(Event.class, data);
+            }
+            CompactDataPointCodec.Writer out = new CompactDataPointCodec.Writer();
+            out.writeLong(TIME, data.getTimeInMillis());
+            out.writeUri(TENANT_ID, data.getTenantId());
+            out.writeString(ALERT_TYPE, data.getAlertType());
+            out.writeUri(VIRTUAL_POOL, data.getVirtualPool());
+            out.writeString(DESCRIPTION, data.getDescription());
+            out.writeString(EVENT_ID, data.getEventId());
+            out.writeString(NATIVE_GUID, data.getNativeGuid());
+            out.writeString(EVENT_TYPE, data.getEventType());
+            out.writeString(EXTENSIONS, data.getExtensions());
+            out.writeUri(PROJECT_ID, data.getProjectId());
+            out.writeUri(RESOURCE_ID, data.getResourceId());
+            out.writeString(SERVICE, data.getService());
+            out.writeString(SEVERITY, data.getSeverity());
+            out.writeUri(USER_ID, data.getUserId());
+            out.writeString(RECORD_TYPE, data.getRecordType());
+            out.writeString(OPERATIONAL_STATUS_CODES, data.getOperationalStatusCodes());
+            out.writeString(OPERATIONAL_STATUS_DESCRIPTIONS, data.getOperationalStatusDescriptions());
+            out.writeString(EVENT_SOURCE, data.getEventSource());
+            return out.toByteArray();
         }
 
         @Override
         public Event deserialize(byte[] data) {
-            return _genericSerializer.fromByteArray(Event.class, data);
+            if (!CompactDataPointCodec.isCompact(data)) {
+                return _genericSerializer.fromByteArray(Event.class, data);
+            }
+            try {
+                Event event = new Event();
+                CompactDataPointCodec.Reader in = new CompactDataPointCodec.Reader(data);
+                for (int field = in.nextField(); field >= 0; field = in.nextField()) {
+                    switch (field) {
+                        case TIME:
+                            event.setTimeInMillis(in.readLong());
+                            break;
+                        case TENANT_ID:
+                            event.setTenantId(in.readUri());
+                            break;
+                        case ALERT_TYPE:
+                            event.setAlertType(in.readString());
+                            break;
+                        case VIRTUAL_POOL:
+                            event.setVirtualPool(in.readUri());
+                            break;
+                        case DESCRIPTION:
+                            event.setDescription(in.readString());
+                            break;
+                        case EVENT_ID:
+                            event.setEventId(in.readString());
+                            break;
+                        case NATIVE_GUID:
+                            event.setNativeGuid(in.readString());
+                            break;
+                        case EVENT_TYPE:
+                            event.setEventType(in.readString());
+                            break;
+                        case EXTENSIONS:
+                            event.setExtensions(in.readString());
+                            break;
+                        case PROJECT_ID:
+                            event.setProjectId(in.readUri());
+                            break;
+                        case RESOURCE_ID:
+                            event.setResourceId(in.readUri());
+                            break;
+                        case SERVICE:
+                            event.setService(in.readString());
+                            break;
+                        case SEVERITY:
+                            event.setSeverity(in.readString());
+                            break;
+                        case USER_ID:
+                            event.setUserId(in.readUri());
+                            break;
+                        case RECORD_TYPE:
+                            event.setRecordType(in.readString());
+                            break;
+                        case OPERATIONAL_STATUS_CODES:
+                            event.setOperationalStatusCodes(in.readString());
+                            break;
+                        case OPERATIONAL_STATUS_DESCRIPTIONS:
+                            event.setOperationalStatusDescriptions(in.readString());
+                            break;
+                        case EVENT_SOURCE:
+                            event.setEventSource(in.readString());
+                            break;
+                        default:
+                            // written by a newer version
+                            in.skip();
+                    }
+                }
+                return event;
+            } catch (RuntimeException e) {
+                throw DatabaseException.fatals.deserializationFailed(Event.class, e);
+            }
         }
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.model;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a hot, rarely changing model class as eligible for the dbclient read-through
+ * object cache. Cached rows are evicted once the cache holds more than maxEntries rows
+ * of this type, or ttlSeconds after they were loaded, whichever comes first.
+ * Geo, geo visible and ACL-bearing classes are never cached, even if annotated.
+ * It doesn't affect the serialization behavior.
+ */
+@Documented
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadCacheable {
+    int maxEntries() default 1000;
+
+    // by default, 5 min
+    int ttlSeconds() default 5 * 60;
+}
@@ -13,6 +13,7 @@ import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 
 import com.emc.storageos.db.client.TimeSeriesMetadata;
+import com.emc.storageos.db.exceptions.DatabaseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,14 +36,203 @@ public class StatTimeSeries implements TimeSeries<Stat> {
     }
 
     /**
-     * Stat serializer implementation ;Default Serialization is not efficient (version problems),
-     * but till we finalize Serializer Implementation, this code remains.
-     * For demo purpose, will use Default Serialization
-     * To-Do: use Protocol Buffers
+     * Stat serializer implementation. Once CompactDataPointCodec writes are enabled, stats are
+     * written with it, with Java serialization before. Both are read.
      */
     public static class StatSerializer implements TimeSeriesSerializer<Stat> {
+        // field numbers are stored in the columns, don't reuse them
+        private static final int RESOURCE_ID = 1;
+        private static final int PROVISIONED_CAPACITY = 2;
+        private static final int ALLOCATED_CAPACITY = 3;
+        private static final int SNAPSHOT_CAPACITY = 4;
+        private static final int SNAPSHOT_COUNT = 5;
+        private static final int BANDWIDTH_IN = 6;
+        private static final int BANDWIDTH_OUT = 7;
+        private static final int TOTAL_IOS = 8;
+        private static final int READ_IOS = 9;
+        private static final int WRITE_IOS = 10;
+        private static final int KBYTES_TRANSFERRED = 11;
+        private static final int IDLE_TIME_COUNTER = 12;
+        private static final int IO_TIME_COUNTER = 13;
+        private static final int QUEUE_LENGTH = 14;
+        private static final int READ_HIT_IOS = 15;
+        private static final int WRITE_HIT_IOS = 16;
+        private static final int OBJ_COUNT = 17;
+        private static final int USER_SIZE = 18;
+        private static final int REAL_SIZE = 19;
+        private static final int UMD_SIZE = 20;
+        private static final int SMD_SIZE = 21;
+        private static final int VIRTUAL_POOL = 22;
+        private static final int PROJECT = 23;
+        private static final int TENANT = 24;
+        private static final int USER = 25;
+        private static final int SERVICE_TYPE = 26;
+        private static final int NATIVE_GUID = 27;
+        // stored as difference to the time measured, usually a few bytes
+        private static final int TIME_COLLECTED_DELTA = 28;
+        private static final int TIME_MEASURED = 29;
+
         @Override
         public byte[] serialize(Stat data) {
+            if (!CompactDataPointCodec.isWriteEnabled()) {
+                return serializeJava(data);
+            }
+            CompactDataPointCodec.Writer out = new CompactDataPointCodec.Writer();
+            out.writeLong(TIME_MEASURED, data.getTimeInMillis());
+            out.writeLong(TIME_COLLECTED_DELTA, data.getTimeCollected() - data.getTimeInMillis());
+            out.writeUri(RESOURCE_ID, data.getResourceId());
+            writeCounter(out, PROVISIONED_CAPACITY, data.getProvisionedCapacity());
+            writeCounter(out, ALLOCATED_CAPACITY, data.getAllocatedCapacity());
+            writeCounter(out, SNAPSHOT_CAPACITY, data.getSnapshotCapacity());
+            if (data.getSnapshotCount() != null) {
+                out.writeLong(SNAPSHOT_COUNT, data.getSnapshotCount());
+            }
+            writeCounter(out, BANDWIDTH_IN, data.getBandwidthIn());
+            writeCounter(out, BANDWIDTH_OUT, data.getBandwidthOut());
+            writeCounter(out, TOTAL_IOS, data.getTotalIOs());
+            writeCounter(out, READ_IOS, data.getReadIOs());
+            writeCounter(out, WRITE_IOS, data.getWriteIOs());
+            writeCounter(out, KBYTES_TRANSFERRED, data.getKbytesTransferred());
+            writeCounter(out, IDLE_TIME_COUNTER, data.getIdleTimeCounter());
+            writeCounter(out, IO_TIME_COUNTER, data.getIoTimeCounter());
+            writeCounter(out, QUEUE_LENGTH, data.getQueueLength());
+            writeCounter(out, READ_HIT_IOS, data.getReadHitIOs());
+            writeCounter(out, WRITE_HIT_IOS, data.getWriteHitIOs());
+            writeCounter(out, OBJ_COUNT, data.getObjCount());
+            writeCounter(out, USER_SIZE, data.getUserSize());
+            writeCounter(out, REAL_SIZE, data.getRealSize());
+            writeCounter(out, UMD_SIZE, data.getUmdSize());
+            writeCounter(out, SMD_SIZE, data.getSmdSize());
+            out.writeUri(VIRTUAL_POOL, data.getVirtualPool());
+            out.writeUri(PROJECT, data.getProject());
+            out.writeUri(TENANT, data.getTenant());
+            out.writeUri(USER, data.getUser());
+            out.writeString(SERVICE_TYPE, data.getServiceType());
+            out.writeString(NATIVE_GUID, data.getNativeGuid());
+            return out.toByteArray();
+        }
+
+        private static void writeCounter(CompactDataPointCodec.Writer out, int field, Long value) {
+            // counters not collected are null
+            if (value != null) {
+                out.writeLong(field, value);
+            }
+        }
+
+        @Override
+        public Stat deserialize(byte[] data) {
+            if (!CompactDataPointCodec.isCompact(data)) {
+                return deserializeJava(data);
+            }
+            try {
+                Stat stat = new Stat();
+                long timeCollectedDelta = 0;
+                CompactDataPointCodec.Reader in = new CompactDataPointCodec.Reader(data);
+                for (int field = in.nextField(); field >= 0; field = in.nextField()) {
+                    switch (field) {
+                        case TIME_MEASURED:
+                            stat.setTimeInMillis(in.readLong());
+                            break;
+                        case TIME_COLLECTED_DELTA:
+                            timeCollectedDelta = in.readLong();
+                            break;
+                        case RESOURCE_ID:
+                            stat.setResourceId(in.readUri());
+                            break;
+                        case PROVISIONED_CAPACITY:
+                            stat.setProvisionedCapacity(in.readLong());
+                            break;
+                        case ALLOCATED_CAPACITY:
+                            stat.setAllocatedCapacity(in.readLong());
+                            break;
+                        case SNAPSHOT_CAPACITY:
+                            stat.setSnapshotCapacity(in.readLong());
+                            break;
+                        case SNAPSHOT_COUNT:
+                            stat.setSnapshotCount((int) in.readLong());
+                            break;
+                        case BANDWIDTH_IN:
+                            stat.setBandwidthIn(in.readLong());
+                            break;
+                        case BANDWIDTH_OUT:
+                            stat.setBandwidthOut(in.readLong());
+                            break;
+                        case TOTAL_IOS:
+                            stat.setTotalIOs(in.readLong());
+                            break;
+                        case READ_IOS:
+                            stat.setReadIOs(in.readLong());
+                            break;
+                        case WRITE_IOS:
+                            stat.setWriteIOs(in.readLong());
+                            break;
+                        case KBYTES_TRANSFERRED:
+                            stat.setKbytesTransferred(in.readLong());
+                            break;
+                        case IDLE_TIME_COUNTER:
+                            stat.setIdleTimeCounter(in.readLong());
+                            break;
+                        case IO_TIME_COUNTER:
+                            stat.setIoTimeCounter(in.readLong());
+                            break;
+                        case QUEUE_LENGTH:
+                            stat.setQueueLength(in.readLong());
+                            break;
+                        case READ_HIT_IOS:
+                            stat.setReadHitIOs(in.readLong());
+                            break;
+                        case WRITE_HIT_IOS:
+                            stat.setWriteHitIOs(in.readLong());
+                            break;
+                        case OBJ_COUNT:
+                            stat.setObjCount(in.readLong());
+                            break;
+                        case USER_SIZE:
+                            stat.setUserSize(in.readLong());
+                            break;
+                        case REAL_SIZE:
+                            stat.setRealSize(in.readLong());
+                            break;
+                        case UMD_SIZE:
+                            stat.setUmdSize(in.readLong());
+                            break;
+                        case SMD_SIZE:
+                            stat.setSmdSize(in.readLong());
+                            break;
+                        case VIRTUAL_POOL:
+                            stat.setVirtualPool(in.readUri());
+                            break;
+                        case PROJECT:
+                            stat.setProject(in.readUri());
+                            break;
+                        case TENANT:
+                            stat.setTenant(in.readUri());
+                            break;
+                        case USER:
+                            stat.setUser(in.readUri());
+                            break;
+                        case SERVICE_TYPE:
+                            stat.setServiceType(in.readString());
+                            break;
+                        case NATIVE_GUID:
+                            stat.setNativeGuid(in.readString());
+                            break;
+                        default:
+                            // written by a newer version
+                            in.skip();
+                    }
+                }
+                stat.setTimeCollected(stat.getTimeInMillis() + timeCollectedDelta);
+                return stat;
+            } catch (RuntimeException e) {
+                throw DatabaseException.fatals.deserializationFailed(Stat.class, e);
+            }
+        }
+
+        /**
+         * Write a stat with Java serialization, readable by all versions
+         */
+        private byte[] serializeJava(Stat data) {
             byte[] Objbytes = null;
             ByteArrayOutputStream bos = new ByteArrayOutputStream();
             ObjectOutput out = null;
@@ -54,7 +244,9 @@ public class StatTimeSeries implements TimeSeries<Stat> {
                 _logger.error("Serializing Object to byte Array Exception  :" + e);
             } finally {
                 try {
-                    out.close();
+                    if (out != null) {
+                        out.close();
+                    }
                     bos.close();
                 } catch (IOException e) {
                     _logger.error("Error while closing Streams " + e);
@@ -63,8 +255,10 @@ public class StatTimeSeries implements TimeSeries<Stat> {
             return Objbytes;
         }
 
-        @Override
-        public Stat deserialize(byte[] data) {
+        /**
+         * Read a stat written with Java serialization
+         */
+        private Stat deserializeJava(byte[] data) {
             Object statsObj = null;
             ByteArrayInputStream bis = null;
             ObjectInput in = null;
@@ -76,7 +270,9 @@ public class StatTimeSeries implements TimeSeries<Stat> {
                 _logger.error("DeSerializing Object to byte Array Exception  :" + e1);
             } finally {
                 try {
-                    in.close();
+                    if (in != null) {
+                        in.close();
+                    }
                     bis.close();
                 } catch (IOException e1) {
                     _logger.error("Error while closing Streams " + e1);
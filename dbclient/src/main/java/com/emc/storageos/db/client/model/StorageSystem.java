@@ -14,6 +14,7 @@ import com.google.common.base.Strings;
  * StorageDevice data object
  */
 @Cf("StorageSystem")
+@ReadCacheable
 public class StorageSystem extends DiscoveredSystemObject {
 
     // Unigue native identifier (system level identifier)
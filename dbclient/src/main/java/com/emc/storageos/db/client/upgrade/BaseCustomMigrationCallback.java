@@ -6,6 +6,9 @@ package com.emc.storageos.db.client.upgrade;
 
 import com.emc.storageos.coordinator.client.service.CoordinatorClient;
 import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.impl.DbClientImpl;
+import com.emc.storageos.db.client.impl.ParallelCfScanner;
+import com.emc.storageos.db.client.model.DataObject;
 import com.emc.storageos.svcs.errorhandling.resources.MigrationCallbackException;
 
 /**
@@ -32,6 +35,20 @@ public abstract class BaseCustomMigrationCallback implements MigrationCallback {
         this.name = name;
     }
 
+    /**
+     * Scanner for callbacks which have to go through all rows of a CF. The scan can be
+     * resumed with its checkpoint if the callback is run again after a failure.
+     *
+     * @param clazz object type
+     * @return
+     */
+    protected ParallelCfScanner getParallelCfScanner(Class<? extends DataObject> clazz) {
+        if (!(dbClient instanceof DbClientImpl)) {
+            throw new IllegalStateException("CF scan is not supported by " + dbClient.getClass().getName());
+        }
+        return ((DbClientImpl) dbClient).getParallelCfScanner(clazz);
+    }
+
     @Override
     abstract public void process() throws MigrationCallbackException;
 
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import com.emc.storageos.db.client.model.Cf;
 import com.emc.storageos.db.client.model.Name;
+import com.emc.storageos.db.client.model.ReadCacheable;
 import com.emc.storageos.db.client.model.Ttl;
 import com.emc.storageos.db.client.upgrade.CustomMigrationCallback;
 import com.emc.storageos.db.common.DbSchemaScannerInterceptor;
@@ -45,6 +46,10 @@ public class Annotations {
             if (annotation.annotationType().equals(Ttl.class)) {
                 continue;
             }
+            // ReadCacheable only affects the client side read path
+            if (annotation.annotationType().equals(ReadCacheable.class)) {
+                continue;
+            }
             // This will override the field name if present, so no need to record it here
             // Cf annotation will overwrite the name of the DbSchema, so, skip it here
             if (annotation.annotationType().equals(Name.class) || annotation.annotationType().equals(Cf.class)) {
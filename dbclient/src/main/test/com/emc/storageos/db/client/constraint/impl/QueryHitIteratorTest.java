@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.constraint.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.impl.IndexColumnName;
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
+import com.netflix.astyanax.model.Column;
+import com.netflix.astyanax.model.ColumnList;
+import com.netflix.astyanax.query.RowQuery;
+
+public class QueryHitIteratorTest {
+
+    @SuppressWarnings("unchecked")
+    private static OperationResult<ColumnList<IndexColumnName>> page(String... ids) {
+        List<Column<IndexColumnName>> columns = new ArrayList<Column<IndexColumnName>>();
+        for (String id : ids) {
+            Column<IndexColumnName> column = EasyMock.createMock(Column.class);
+            EasyMock.expect(column.getName()).andReturn(new IndexColumnName("type", id, null)).anyTimes();
+            EasyMock.replay(column);
+            columns.add(column);
+        }
+        ColumnList<IndexColumnName> list = EasyMock.createMock(ColumnList.class);
+        EasyMock.expect(list.isEmpty()).andReturn(columns.isEmpty()).anyTimes();
+        EasyMock.expect(list.iterator()).andReturn(columns.iterator()).anyTimes();
+        EasyMock.replay(list);
+
+        OperationResult<ColumnList<IndexColumnName>> result = EasyMock.createMock(OperationResult.class);
+        EasyMock.expect(result.getResult()).andReturn(list).anyTimes();
+        EasyMock.replay(result);
+        return result;
+    }
+
+    private static class Hits extends FilteredQueryHitIterator<String, IndexColumnName> {
+        Hits(RowQuery<String, IndexColumnName> query) {
+            super(query);
+        }
+
+        @Override
+        protected String createQueryHit(Column<IndexColumnName> column) {
+            return column.getName().getTwo();
+        }
+
+        @Override
+        public boolean filter(Column<IndexColumnName> column) {
+            return !column.getName().getTwo().startsWith("skip");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPagesAreChained() throws Exception {
+        List<SettableFuture<OperationResult<ColumnList<IndexColumnName>>>> pages =
+                new ArrayList<SettableFuture<OperationResult<ColumnList<IndexColumnName>>>>();
+        RowQuery<String, IndexColumnName> query = EasyMock.createMock(RowQuery.class);
+        for (int i = 0; i < 3; i++) {
+            SettableFuture<OperationResult<ColumnList<IndexColumnName>>> page = SettableFuture.create();
+            pages.add(page);
+            EasyMock.expect(query.executeAsync()).andReturn(page);
+        }
+        EasyMock.replay(query);
+
+        CompletableFuture<List<String>> result = new Hits(query).collectAsync();
+        // the next page is only requested once the previous one is read
+        pages.get(0).set(page("a", "skip1", "b"));
+        Assert.assertFalse(result.isDone());
+        pages.get(1).set(page("skip2", "c"));
+        Assert.assertFalse(result.isDone());
+        pages.get(2).set(page());
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), result.get());
+        EasyMock.verify(query);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPagesReadInline() throws Exception {
+        RowQuery<String, IndexColumnName> query = EasyMock.createMock(RowQuery.class);
+        EasyMock.expect(query.executeAsync()).andReturn(done(page("a")));
+        EasyMock.expect(query.executeAsync()).andReturn(done(page("b")));
+        EasyMock.expect(query.executeAsync()).andReturn(done(page()));
+        EasyMock.replay(query);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), new Hits(query).collectAsync().get());
+        EasyMock.verify(query);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPageFailure() throws Exception {
+        SettableFuture<OperationResult<ColumnList<IndexColumnName>>> failed = SettableFuture.create();
+        RowQuery<String, IndexColumnName> query = EasyMock.createMock(RowQuery.class);
+        EasyMock.expect(query.executeAsync()).andReturn(done(page("a")));
+        EasyMock.expect(query.executeAsync()).andReturn(failed);
+        EasyMock.replay(query);
+
+        CompletableFuture<List<String>> result = new Hits(query).collectAsync();
+        failed.setException(new TimeoutException("timed out"));
+        assertFailed(result);
+        EasyMock.verify(query);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRejectedPage() throws Exception {
+        RowQuery<String, IndexColumnName> query = EasyMock.createMock(RowQuery.class);
+        EasyMock.expect(query.executeAsync()).andThrow(new RejectedExecutionException());
+        EasyMock.replay(query);
+
+        assertFailed(new Hits(query).collectAsync());
+    }
+
+    private static ListenableFuture<OperationResult<ColumnList<IndexColumnName>>> done(
+            OperationResult<ColumnList<IndexColumnName>> page) {
+        SettableFuture<OperationResult<ColumnList<IndexColumnName>>> future = SettableFuture.create();
+        future.set(page);
+        return future;
+    }
+
+    private static void assertFailed(CompletableFuture<?> result) throws InterruptedException {
+        try {
+            result.get();
+            Assert.fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DatabaseException);
+        }
+    }
+}
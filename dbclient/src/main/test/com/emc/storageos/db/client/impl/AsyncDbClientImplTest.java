@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.google.common.util.concurrent.SettableFuture;
+import com.netflix.astyanax.connectionpool.exceptions.TimeoutException;
+
+public class AsyncDbClientImplTest {
+
+    @Test
+    public void testResultIsPassedThrough() throws Exception {
+        SettableFuture<String> future = SettableFuture.create();
+        CompletableFuture<String> result = AsyncDbClientImpl.toCompletableFuture(future);
+        Assert.assertFalse(result.isDone());
+
+        future.set("row");
+        Assert.assertEquals("row", result.get());
+    }
+
+    @Test
+    public void testConnectionFailureIsTranslated() throws Exception {
+        SettableFuture<String> future = SettableFuture.create();
+        CompletableFuture<String> result = AsyncDbClientImpl.toCompletableFuture(future);
+
+        future.setException(new TimeoutException("timed out"));
+        assertFailed(result, DatabaseException.class);
+    }
+
+    @Test
+    public void testCallFailureIsPassedThrough() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        try {
+            CompletableFuture<Void> result = AsyncDbClientImpl.callAsync(executor, new Callable<Void>() {
+                @Override
+                public Void call() {
+                    throw new IllegalStateException();
+                }
+            });
+            assertFailed(result, IllegalStateException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFullExecutorFailsCall() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(1), new ThreadPoolExecutor.AbortPolicy());
+        try {
+            Callable<String> blocked = new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    release.await();
+                    return "done";
+                }
+            };
+            CompletableFuture<String> running = AsyncDbClientImpl.callAsync(executor, blocked);
+            CompletableFuture<String> queued = AsyncDbClientImpl.callAsync(executor, blocked);
+
+            assertFailed(AsyncDbClientImpl.callAsync(executor, blocked), DatabaseException.class);
+            release.countDown();
+            Assert.assertEquals("done", running.get());
+            Assert.assertEquals("done", queued.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownFailsQueuedCalls() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        CompletableFuture<String> running = AsyncDbClientImpl.callAsync(executor, new Callable<String>() {
+            @Override
+            public String call() {
+                started.countDown();
+                // a running call isn't interrupted by the shutdown
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+                return "done";
+            }
+        });
+        CompletableFuture<String> queued = AsyncDbClientImpl.callAsync(executor, new Callable<String>() {
+            @Override
+            public String call() {
+                return "never";
+            }
+        });
+        started.await();
+
+        PipelinedDataObjQueryIterator.shutdown(executor);
+        assertFailed(queued, DatabaseException.class);
+        assertFailed(AsyncDbClientImpl.callAsync(executor, new Callable<String>() {
+            @Override
+            public String call() {
+                return "never";
+            }
+        }), DatabaseException.class);
+        release.countDown();
+        Assert.assertEquals("done", running.get());
+    }
+
+    private static void assertFailed(CompletableFuture<?> result, Class<? extends Throwable> expected)
+            throws InterruptedException {
+        try {
+            result.get();
+            Assert.fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(String.valueOf(e.getCause()), expected.isInstance(e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.coordinator.client.service.CoordinatorClient;
+import com.emc.storageos.coordinator.common.Configuration;
+import com.emc.storageos.coordinator.common.impl.ConfigurationImpl;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.Project;
+import com.emc.storageos.db.client.model.ReadCacheable;
+import com.emc.storageos.db.client.model.StorageSystem;
+import com.emc.storageos.db.client.model.TenantOrg;
+import com.emc.storageos.db.client.model.VirtualArray;
+import com.emc.storageos.db.client.model.VirtualPool;
+import com.google.common.base.Ticker;
+import com.netflix.astyanax.model.Row;
+
+public class DataObjectCacheTest {
+    private static final String ID = "urn:storageos:StorageSystem:1:vdc1";
+
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong _nanos = new AtomicLong(0);
+
+        @Override
+        public long read() {
+            return _nanos.get();
+        }
+
+        void advance(long time, TimeUnit unit) {
+            _nanos.addAndGet(unit.toNanos(time));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Row<String, CompositeColumnName> row(String key) {
+        Row<String, CompositeColumnName> row = EasyMock.createMock(Row.class);
+        EasyMock.expect(row.getKey()).andReturn(key).anyTimes();
+        EasyMock.replay(row);
+        return row;
+    }
+
+    private static Configuration version(String version) {
+        ConfigurationImpl config = new ConfigurationImpl();
+        config.setKind(DataObjectCache.CONFIG_KIND);
+        config.setId(StorageSystem.class.getSimpleName());
+        config.setConfig("version", version);
+        return config;
+    }
+
+    @Test
+    public void testCacheableTypes() {
+        Assert.assertTrue(DataObjectCache.isCacheable(StorageSystem.class));
+        List<Class<? extends DataObject>> notCacheable = Arrays.<Class<? extends DataObject>> asList(
+                Project.class, TenantOrg.class, VirtualArray.class, VirtualPool.class);
+        for (Class<? extends DataObject> clazz : notCacheable) {
+            Assert.assertFalse(clazz.getSimpleName(), DataObjectCache.isCacheable(clazz));
+        }
+        Assert.assertNull(new DataObjectCache(null).getTypeCache(VirtualPool.class));
+    }
+
+    @Test
+    public void testHitAndLocalInvalidation() {
+        // writes must not reach coordinator
+        CoordinatorClient coordinator = EasyMock.createMock(CoordinatorClient.class);
+        EasyMock.replay(coordinator);
+
+        DataObjectCache cache = new DataObjectCache(coordinator);
+        DataObjectCache.TypeCache typeCache = cache.getTypeCache(StorageSystem.class);
+        Row<String, CompositeColumnName> row = row(ID);
+        typeCache.put(row, typeCache.getGeneration());
+        Assert.assertSame(row, typeCache.get(ID));
+        Assert.assertEquals(1, cache.getHitCount());
+
+        cache.invalidate(StorageSystem.class, Collections.singletonList(URI.create(ID)));
+        Assert.assertNull(typeCache.get(ID));
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getLocalInvalidationCount());
+        EasyMock.verify(coordinator);
+    }
+
+    @Test
+    public void testInvalidationDuringFetch() {
+        DataObjectCache cache = new DataObjectCache(null);
+        DataObjectCache.TypeCache typeCache = cache.getTypeCache(StorageSystem.class);
+        long generation = typeCache.getGeneration();
+        // written while the row was being fetched
+        cache.invalidate(StorageSystem.class, Collections.singletonList(URI.create(ID)));
+        typeCache.put(row(ID), generation);
+        Assert.assertNull(typeCache.get(ID));
+    }
+
+    @Test
+    public void testTtl() {
+        FakeTicker ticker = new FakeTicker();
+        DataObjectCache cache = new DataObjectCache(null);
+        cache.setTicker(ticker);
+        DataObjectCache.TypeCache typeCache = cache.getTypeCache(StorageSystem.class);
+        typeCache.put(row(ID), typeCache.getGeneration());
+
+        int ttlSeconds = StorageSystem.class.getAnnotation(ReadCacheable.class).ttlSeconds();
+        ticker.advance(ttlSeconds - 1, TimeUnit.SECONDS);
+        Assert.assertNotNull(typeCache.get(ID));
+        ticker.advance(2, TimeUnit.SECONDS);
+        Assert.assertNull(typeCache.get(ID));
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testSync() {
+        final Capture<Configuration> published = new Capture<Configuration>();
+        CoordinatorClient coordinator = EasyMock.createMock(CoordinatorClient.class);
+        EasyMock.expect(coordinator.queryAllConfiguration(DataObjectCache.CONFIG_KIND))
+                .andReturn(Collections.<Configuration> emptyList());
+        coordinator.persistServiceConfiguration(EasyMock.capture(published));
+        EasyMock.expectLastCall().once();
+        EasyMock.expect(coordinator.queryAllConfiguration(DataObjectCache.CONFIG_KIND)).andAnswer(
+                new IAnswer<List<Configuration>>() {
+                    @Override
+                    public List<Configuration> answer() {
+                        return Collections.singletonList(published.getValue());
+                    }
+                });
+        EasyMock.expect(coordinator.queryAllConfiguration(DataObjectCache.CONFIG_KIND))
+                .andReturn(Collections.singletonList(version("changed elsewhere")));
+        EasyMock.replay(coordinator);
+
+        DataObjectCache cache = new DataObjectCache(coordinator);
+        DataObjectCache.TypeCache typeCache = cache.getTypeCache(StorageSystem.class);
+        cache.syncVersions();
+        cache.invalidate(StorageSystem.class, Collections.singletonList(URI.create(ID)));
+
+        // publishes the local write, and doesn't invalidate this node again because of it
+        cache.syncVersions();
+        typeCache.put(row(ID), typeCache.getGeneration());
+        Assert.assertNotNull(typeCache.get(ID));
+        Assert.assertEquals(0, cache.getRemoteInvalidationCount());
+
+        cache.syncVersions();
+        Assert.assertNull(typeCache.get(ID));
+        Assert.assertEquals(1, cache.getRemoteInvalidationCount());
+        EasyMock.verify(coordinator);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.model.Volume;
+
+public class IndexReadBackTest {
+
+    @Test
+    public void testColumnLocalIndexCleanup() {
+        DataObjectType doType = TypeMap.getDoType(Volume.class);
+
+        // prefix and relation indexes only need their own columns
+        Assert.assertTrue(doType.isColumnLocalIndexCleanup(Arrays.asList("label", "pool")));
+
+        // aggregated indexes read their group by columns
+        Assert.assertFalse(doType.isColumnLocalIndexCleanup(Arrays.asList("label", "provisionedCapacity")));
+
+        // project is a group by field, the aggregated index depending on it is cleaned up as well
+        Assert.assertFalse(doType.isColumnLocalIndexCleanup(Arrays.asList("project")));
+
+        Assert.assertFalse(doType.isColumnLocalIndexCleanup(Arrays.asList("noSuchField")));
+    }
+}
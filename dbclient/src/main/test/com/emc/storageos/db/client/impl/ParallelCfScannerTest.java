@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.exceptions.DatabaseException;
+import com.netflix.astyanax.Keyspace;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.model.ColumnFamily;
+import com.netflix.astyanax.model.Row;
+import com.netflix.astyanax.model.Rows;
+import com.netflix.astyanax.partitioner.Partitioner;
+import com.netflix.astyanax.query.ColumnFamilyQuery;
+import com.netflix.astyanax.query.RowSliceQuery;
+
+public class ParallelCfScannerTest {
+    private static final String MIN_TOKEN = Long.toString(Long.MIN_VALUE);
+    private static final String MAX_TOKEN = Long.toString(Long.MAX_VALUE);
+
+    @Test
+    public void testSplitCoversWholeRing() {
+        List<ParallelCfScanner.TokenRange> ranges = ParallelCfScanner.split(MIN_TOKEN, MAX_TOKEN, 16);
+        Assert.assertEquals(16, ranges.size());
+        Assert.assertEquals(MIN_TOKEN, ranges.get(0).start);
+        Assert.assertEquals(MAX_TOKEN, ranges.get(ranges.size() - 1).end);
+        for (int i = 1; i < ranges.size(); i++) {
+            // contiguous, no gap and no overlap since the start token is exclusive
+            Assert.assertEquals(ranges.get(i - 1).end, ranges.get(i).start);
+            Assert.assertFalse(ranges.get(i).isDone());
+        }
+    }
+
+    @Test
+    public void testCheckpointRoundTrip() {
+        List<ParallelCfScanner.TokenRange> ranges = ParallelCfScanner.split(MIN_TOKEN, MAX_TOKEN, 4);
+        ranges.get(0).position = ranges.get(0).end;
+        ranges.get(2).position = "42";
+
+        List<ParallelCfScanner.TokenRange> restored = ParallelCfScanner.restore(MIN_TOKEN, MAX_TOKEN,
+                ParallelCfScanner.checkpoint(ranges));
+        Assert.assertEquals(4, restored.size());
+        Assert.assertTrue(restored.get(0).isDone());
+        Assert.assertEquals(ranges.get(1).start, restored.get(1).position);
+        Assert.assertEquals("42", restored.get(2).position);
+        Assert.assertFalse(restored.get(3).isDone());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testScanLeavesExecutorRunning() throws Exception {
+        Rows<String, CompositeColumnName> rows = EasyMock.createMock(Rows.class);
+        EasyMock.expect(rows.size()).andReturn(0).anyTimes();
+        EasyMock.expect(rows.iterator()).andAnswer(new IAnswer<Iterator<Row<String, CompositeColumnName>>>() {
+            @Override
+            public Iterator<Row<String, CompositeColumnName>> answer() {
+                return Collections.<Row<String, CompositeColumnName>> emptyList().iterator();
+            }
+        }).anyTimes();
+        OperationResult<Rows<String, CompositeColumnName>> result = EasyMock.createMock(OperationResult.class);
+        EasyMock.expect(result.getResult()).andReturn(rows).anyTimes();
+        RowSliceQuery<String, CompositeColumnName> query = EasyMock.createMock(RowSliceQuery.class);
+        EasyMock.expect(query.execute()).andReturn(result).times(2);
+        ColumnFamilyQuery<String, CompositeColumnName> cfQuery = EasyMock.createMock(ColumnFamilyQuery.class);
+        EasyMock.expect(cfQuery.getRowRange((String) EasyMock.isNull(), (String) EasyMock.isNull(), EasyMock.<String> anyObject(),
+                EasyMock.<String> anyObject(), EasyMock.anyInt())).andReturn(query).times(2);
+        Partitioner partitioner = EasyMock.createMock(Partitioner.class);
+        EasyMock.expect(partitioner.getMinToken()).andReturn(MIN_TOKEN).anyTimes();
+        EasyMock.expect(partitioner.getMaxToken()).andReturn(MAX_TOKEN).anyTimes();
+        ColumnFamily<String, CompositeColumnName> cf = EasyMock.createMock(ColumnFamily.class);
+        EasyMock.expect(cf.getName()).andReturn("Volume").anyTimes();
+        Keyspace keyspace = EasyMock.createMock(Keyspace.class);
+        EasyMock.expect(keyspace.getPartitioner()).andReturn(partitioner).anyTimes();
+        EasyMock.expect(keyspace.prepareQuery(cf)).andReturn(cfQuery).times(2);
+        EasyMock.replay(rows, result, query, cfQuery, partitioner, cf, keyspace);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParallelCfScanner scanner = new ParallelCfScanner(keyspace, cf, executor);
+            scanner.setParallelism(2);
+            scanner.setSplits(2);
+            scanner.scan(new ParallelCfScanner.RowHandler() {
+                @Override
+                public void handle(Row<String, CompositeColumnName> row) {
+                    Assert.fail("no rows expected");
+                }
+            });
+            Assert.assertTrue(scanner.isDone());
+            // the executor belongs to the caller and serves the next scan
+            Assert.assertFalse(executor.isShutdown());
+            EasyMock.verify(keyspace, cfQuery, query);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 30000)
+    @SuppressWarnings("unchecked")
+    public void testStalledIteratorFails() throws Exception {
+        // every range is a single page of one row
+        Row<String, CompositeColumnName> row = EasyMock.createNiceMock(Row.class);
+        EasyMock.expect(row.getKey()).andReturn("key").anyTimes();
+        final List<Row<String, CompositeColumnName>> page = Arrays.asList(row);
+        Rows<String, CompositeColumnName> rows = EasyMock.createMock(Rows.class);
+        EasyMock.expect(rows.size()).andReturn(1).anyTimes();
+        EasyMock.expect(rows.iterator()).andAnswer(new IAnswer<Iterator<Row<String, CompositeColumnName>>>() {
+            @Override
+            public Iterator<Row<String, CompositeColumnName>> answer() {
+                return page.iterator();
+            }
+        }).anyTimes();
+        OperationResult<Rows<String, CompositeColumnName>> result = EasyMock.createMock(OperationResult.class);
+        EasyMock.expect(result.getResult()).andReturn(rows).anyTimes();
+        RowSliceQuery<String, CompositeColumnName> query = EasyMock.createMock(RowSliceQuery.class);
+        EasyMock.expect(query.execute()).andReturn(result).anyTimes();
+        ColumnFamilyQuery<String, CompositeColumnName> cfQuery = EasyMock.createMock(ColumnFamilyQuery.class);
+        EasyMock.expect(cfQuery.getRowRange((String) EasyMock.isNull(), (String) EasyMock.isNull(), EasyMock.<String> anyObject(),
+                EasyMock.<String> anyObject(), EasyMock.anyInt())).andReturn(query).anyTimes();
+        Partitioner partitioner = EasyMock.createMock(Partitioner.class);
+        EasyMock.expect(partitioner.getMinToken()).andReturn(MIN_TOKEN).anyTimes();
+        EasyMock.expect(partitioner.getMaxToken()).andReturn(MAX_TOKEN).anyTimes();
+        ColumnFamily<String, CompositeColumnName> cf = EasyMock.createMock(ColumnFamily.class);
+        EasyMock.expect(cf.getName()).andReturn("Volume").anyTimes();
+        Keyspace keyspace = EasyMock.createMock(Keyspace.class);
+        EasyMock.expect(keyspace.getPartitioner()).andReturn(partitioner).anyTimes();
+        EasyMock.expect(keyspace.prepareQuery(cf)).andReturn(cfQuery).anyTimes();
+        EasyMock.replay(row, rows, result, query, cfQuery, partitioner, cf, keyspace);
+
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            ParallelCfScanner scanner = new ParallelCfScanner(keyspace, cf, executor);
+            scanner.setParallelism(1);
+            scanner.setSplits(4);
+            scanner.setPageSize(10);
+            scanner.setQueueSize(1);
+            scanner.setStallTimeoutMillis(10);
+            Iterator<Row<String, CompositeColumnName>> it = scanner.iterator();
+            // not consumed until the scan is abandoned
+            Thread.sleep(2500);
+
+            // the row queued before is still returned, but the scan doesn't end as if complete
+            Assert.assertTrue(it.hasNext());
+            it.next();
+            try {
+                it.hasNext();
+                Assert.fail("expected DatabaseException");
+            } catch (DatabaseException e) {
+                // expected
+            }
+            Assert.assertFalse(scanner.isDone());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointOutsideRangeIsRejected() {
+        List<ParallelCfScanner.TokenRange> ranges = ParallelCfScanner.split(MIN_TOKEN, MAX_TOKEN, 2);
+        // first range ends at -1, its position can't be in the second half of the ring
+        ranges.get(0).position = "100";
+        ParallelCfScanner.restore(MIN_TOKEN, MAX_TOKEN, ParallelCfScanner.checkpoint(ranges));
+    }
+}
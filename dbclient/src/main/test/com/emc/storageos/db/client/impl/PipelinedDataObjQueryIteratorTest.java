@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.exceptions.DatabaseException;
+
+public class PipelinedDataObjQueryIteratorTest {
+
+    private static List<List<URI>> batches(String... batches) {
+        List<List<URI>> result = new ArrayList<List<URI>>();
+        for (String batch : batches) {
+            List<URI> ids = new ArrayList<URI>();
+            for (String id : batch.split(",")) {
+                ids.add(URI.create(id));
+            }
+            result.add(ids);
+        }
+        return result;
+    }
+
+    private static List<String> drain(Iterator<String> it) {
+        List<String> result = new ArrayList<String>();
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of a batch, recording the threads loading them
+     */
+    private static class IdLoader implements PipelinedDataObjQueryIterator.BatchLoader<String> {
+        private final List<Thread> _threads = new ArrayList<Thread>();
+
+        @Override
+        public List<String> load(List<URI> ids) {
+            synchronized (_threads) {
+                _threads.add(Thread.currentThread());
+            }
+            List<String> result = new ArrayList<String>();
+            for (URI id : ids) {
+                result.add(id.toString());
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Iterator<String> it = new PipelinedDataObjQueryIterator<String>(batches("a,b", "c", "d,e", "f"),
+                    new IdLoader(), executor, 2);
+            Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), drain(it));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedBatchesAreFetchedByCaller() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.shutdown();
+        IdLoader loader = new IdLoader();
+        Iterator<String> it = new PipelinedDataObjQueryIterator<String>(batches("a,b", "c"), loader, executor, 2);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), drain(it));
+        Assert.assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread()), loader._threads);
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdown() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Iterator<String> it = new PipelinedDataObjQueryIterator<String>(batches("a", "b", "c"),
+                new PipelinedDataObjQueryIterator.BatchLoader<String>() {
+                    @Override
+                    public List<String> load(List<URI> ids) {
+                        started.countDown();
+                        // a running fetch isn't interrupted by the shutdown
+                        while (release.getCount() > 0) {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                continue;
+                            }
+                        }
+                        return Arrays.asList(ids.get(0).toString());
+                    }
+                }, executor, 3);
+        started.await();
+
+        // the batches still queued are dropped
+        PipelinedDataObjQueryIterator.shutdown(executor);
+        release.countDown();
+        Assert.assertEquals("a", it.next());
+        try {
+            it.hasNext();
+            Assert.fail("expected DatabaseException");
+        } catch (DatabaseException e) {
+            // expected
+        }
+    }
+}
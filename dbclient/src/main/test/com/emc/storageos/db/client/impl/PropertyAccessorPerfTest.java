@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.beans.PropertyDescriptor;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.NamedURI;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.Volume;
+
+/**
+ * Compares generated accessors with the reflective path on the fields of a Volume, printing
+ * the ns/op numbers. Run by the PerformanceTest task only.
+ */
+public class PropertyAccessorPerfTest {
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int ITERATIONS = 2000000;
+    private static final String[] FIELDS = { "label", "capacity", "thinlyProvisioned", "project", "protocols" };
+
+    private Volume createVolume() {
+        Volume volume = new Volume();
+        volume.setId(URIUtil.createId(Volume.class));
+        volume.setLabel("vol1");
+        volume.setCapacity(1024L);
+        volume.setThinlyProvisioned(true);
+        volume.setProject(new NamedURI(URI.create("urn:storageos:Project:1:"), "project"));
+        StringSet protocols = new StringSet();
+        protocols.add("FC");
+        volume.setProtocol(protocols);
+        return volume;
+    }
+
+    @Test
+    public void testAccessorPerformance() throws Exception {
+        Volume volume = createVolume();
+        DataObjectType doType = TypeMap.getDoType(Volume.class);
+        List<PropertyAccessor> generated = new ArrayList<PropertyAccessor>();
+        List<PropertyAccessor> reflective = new ArrayList<PropertyAccessor>();
+        for (String name : FIELDS) {
+            PropertyDescriptor pd = doType.getColumnField(name).getPropertyDescriptor();
+            generated.add(PropertyAccessor.create(pd));
+            reflective.add(PropertyAccessor.createReflective(pd));
+        }
+
+        runRoundTrips(volume, reflective, WARMUP_ITERATIONS);
+        runRoundTrips(volume, generated, WARMUP_ITERATIONS);
+
+        long reflectiveNs = runRoundTrips(volume, reflective, ITERATIONS);
+        long generatedNs = runRoundTrips(volume, generated, ITERATIONS);
+
+        int ops = ITERATIONS * generated.size() * 2;
+        System.out.println(String.format("reflective: %.2f ns/op, generated: %.2f ns/op",
+                (double) reflectiveNs / ops, (double) generatedNs / ops));
+    }
+
+    private long runRoundTrips(Volume volume, List<PropertyAccessor> accessors, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (PropertyAccessor accessor : accessors) {
+                accessor.set(volume, accessor.get(volume));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.NamedURI;
+import com.emc.storageos.db.client.model.StringSet;
+import com.emc.storageos.db.client.model.Volume;
+
+public class PropertyAccessorTest {
+    private Volume createVolume() {
+        Volume volume = new Volume();
+        volume.setId(URIUtil.createId(Volume.class));
+        volume.setLabel("vol1");
+        volume.setCapacity(1024L);
+        volume.setThinlyProvisioned(true);
+        volume.setProject(new NamedURI(URI.create("urn:storageos:Project:1:"), "project"));
+        StringSet protocols = new StringSet();
+        protocols.add("FC");
+        volume.setProtocol(protocols);
+        return volume;
+    }
+
+    private List<ColumnField> getFields() {
+        List<ColumnField> fields = new ArrayList<ColumnField>();
+        DataObjectType doType = TypeMap.getDoType(Volume.class);
+        fields.add(doType.getColumnField("label"));
+        fields.add(doType.getColumnField("capacity"));
+        fields.add(doType.getColumnField("thinlyProvisioned"));
+        fields.add(doType.getColumnField("project"));
+        fields.add(doType.getColumnField("protocols"));
+        return fields;
+    }
+
+    @Test
+    public void testGeneratedAccessorMatchesReflection() throws Exception {
+        Volume source = createVolume();
+        Volume target = new Volume();
+        for (ColumnField field : getFields()) {
+            PropertyAccessor generated = field.getAccessor();
+            PropertyAccessor reflective = PropertyAccessor.createReflective(field.getPropertyDescriptor());
+            Assert.assertTrue(field.getName(), generated.isGenerated());
+            Assert.assertEquals(field.getName(), reflective.get(source), generated.get(source));
+
+            generated.set(target, generated.get(source));
+            Assert.assertEquals(field.getName(), reflective.get(source), reflective.get(target));
+        }
+    }
+
+    /**
+     * Bean with a primitive property and a failing getter
+     */
+    public static class Bean {
+        private long _size;
+
+        public long getSize() {
+            return _size;
+        }
+
+        public void setSize(long size) {
+            _size = size;
+        }
+
+        public String getName() {
+            throw new IllegalStateException("no name");
+        }
+
+        public void setName(String name) {
+        }
+    }
+
+    /**
+     * Call the accessor, returning the exception it threw or null
+     */
+    private static Throwable call(PropertyAccessor accessor, boolean set, Object obj, Object val) {
+        try {
+            if (set) {
+                accessor.set(obj, val);
+            } else {
+                accessor.get(obj);
+            }
+            return null;
+        } catch (Throwable t) {
+            return t;
+        }
+    }
+
+    private static void assertSameFailure(PropertyDescriptor pd, Class<? extends Throwable> expected, Throwable cause,
+            boolean set, Object obj, Object val) {
+        PropertyAccessor generated = PropertyAccessor.create(pd);
+        Assert.assertTrue(generated.isGenerated());
+        for (PropertyAccessor accessor : new PropertyAccessor[] { generated, PropertyAccessor.createReflective(pd) }) {
+            Throwable t = call(accessor, set, obj, val);
+            Assert.assertNotNull(t);
+            Assert.assertEquals(expected, t.getClass());
+            if (cause != null) {
+                Assert.assertSame(cause.getClass(), t.getCause().getClass());
+            }
+        }
+    }
+
+    @Test
+    public void testFailuresMatchReflection() throws Exception {
+        PropertyDescriptor size = new PropertyDescriptor("size", Bean.class);
+        PropertyDescriptor name = new PropertyDescriptor("name", Bean.class);
+
+        // argument errors are not wrapped
+        assertSameFailure(size, NullPointerException.class, null, false, null, null);
+        assertSameFailure(size, IllegalArgumentException.class, null, false, new Volume(), null);
+        assertSameFailure(size, IllegalArgumentException.class, null, true, new Bean(), null);
+        assertSameFailure(size, IllegalArgumentException.class, null, true, new Bean(), "1");
+        // exceptions of the getter are
+        assertSameFailure(name, InvocationTargetException.class, new IllegalStateException(), false, new Bean(), null);
+    }
+
+    @Test
+    public void testPrimitiveWidening() throws Exception {
+        Bean bean = new Bean();
+        PropertyAccessor accessor = PropertyAccessor.create(new PropertyDescriptor("size", Bean.class));
+        accessor.set(bean, 1L);
+        Assert.assertEquals(1L, bean.getSize());
+        // Integer to long, as Method.invoke() does
+        accessor.set(bean, 2);
+        Assert.assertEquals(2L, accessor.get(bean));
+    }
+}
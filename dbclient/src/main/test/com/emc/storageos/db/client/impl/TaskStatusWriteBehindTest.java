@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.DbClient;
+import com.emc.storageos.db.client.URIUtil;
+import com.emc.storageos.db.client.model.DataObject;
+import com.emc.storageos.db.client.model.OpStatusMap;
+import com.emc.storageos.db.client.model.Operation;
+import com.emc.storageos.db.client.model.Volume;
+
+public class TaskStatusWriteBehindTest {
+    private static final String OP_ID = "op1";
+
+    private Volume createVolume() {
+        Volume volume = new Volume();
+        volume.setId(URIUtil.createId(Volume.class));
+        volume.setOpStatus(new OpStatusMap());
+        volume.getOpStatus().put(OP_ID, new Operation());
+        return volume;
+    }
+
+    private Operation progress(int progress) {
+        Operation update = new Operation();
+        update.setProgress(progress);
+        return update;
+    }
+
+    /**
+     * Apply an update to an object read from db and submit it, as DbClientImpl does
+     */
+    private Operation submit(TaskStatusWriteBehind writeBehind, Volume volume, Operation update) {
+        Operation op = volume.getOpStatus().updateTaskStatus(OP_ID, update);
+        return writeBehind.submit(volume, OP_ID, update, false, op);
+    }
+
+    /**
+     * Expect the read of the stored status done before parked pending updates are written
+     */
+    private void expectStatusRead(DbClient dbClient, Volume stored) {
+        EasyMock.expect(dbClient.queryObjectField(EasyMock.eq(Volume.class), EasyMock.eq("status"),
+                EasyMock.<Collection<URI>> anyObject())).andReturn(Collections.singletonList(stored)).once();
+    }
+
+    @Test
+    public void testPendingUpdatesAreCoalesced() {
+        Volume volume = createVolume();
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        expectStatusRead(dbClient, createVolume());
+        dbClient.updateObject(EasyMock.<Collection<DataObject>> anyObject());
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(dbClient);
+
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(dbClient, 60000);
+        Operation op = submit(writeBehind, volume, progress(10));
+        for (int i = 2; i < 10; i++) {
+            op = writeBehind.updatePending(volume.getId(), OP_ID, progress(i * 10), false);
+            Assert.assertNotNull(op);
+        }
+        Assert.assertEquals(Integer.valueOf(90), op.getProgress());
+        Assert.assertEquals(1, writeBehind.getPendingCount());
+        Assert.assertEquals(9, writeBehind.getUpdateCount());
+        Assert.assertEquals(8, writeBehind.getCoalescedCount());
+
+        writeBehind.flushAll();
+        EasyMock.verify(dbClient);
+        Assert.assertEquals(0, writeBehind.getPendingCount());
+        Assert.assertEquals(1, writeBehind.getFlushedObjectCount());
+        // nothing parked anymore, the caller has to go to db
+        Assert.assertNull(writeBehind.updatePending(volume.getId(), OP_ID, progress(95), false));
+    }
+
+    @Test
+    public void testTerminalStatusIsWrittenImmediately() {
+        Volume volume = createVolume();
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        dbClient.updateObject(volume);
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(dbClient);
+
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(dbClient, 60000);
+        submit(writeBehind, volume, progress(50));
+
+        Operation ready = new Operation();
+        ready.ready();
+        Operation op = writeBehind.updatePending(volume.getId(), OP_ID, ready, false);
+
+        EasyMock.verify(dbClient);
+        Assert.assertEquals(Operation.Status.ready.name(), op.getStatus());
+        Assert.assertEquals(0, writeBehind.getPendingCount());
+        Assert.assertEquals(1, writeBehind.getImmediateFlushCount());
+    }
+
+    @Test
+    public void testUnknownOperationFallsBackToDb() {
+        Volume volume = createVolume();
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        expectStatusRead(dbClient, createVolume());
+        dbClient.updateObject(volume);
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(dbClient);
+
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(dbClient, 60000);
+        submit(writeBehind, volume, progress(50));
+
+        // an operation created after the object was parked flushes it and is read from db
+        Assert.assertNull(writeBehind.updatePending(volume.getId(), "op2", progress(10), false));
+        EasyMock.verify(dbClient);
+        Assert.assertEquals(0, writeBehind.getPendingCount());
+    }
+
+    @Test
+    public void testConcurrentReadsAreMerged() {
+        // two threads read the object from db before either parked it
+        Volume first = createVolume();
+        Volume second = createVolume();
+        second.setId(first.getId());
+
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        expectStatusRead(dbClient, createVolume());
+        dbClient.updateObject(EasyMock.<Collection<DataObject>> anyObject());
+        EasyMock.expectLastCall().once();
+        EasyMock.replay(dbClient);
+
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(dbClient, 60000);
+        Operation message = new Operation();
+        message.setMessage("first");
+        submit(writeBehind, first, message);
+        // applied to the parked copy rather than written over it
+        Operation op = submit(writeBehind, second, progress(20));
+        Assert.assertSame(first.getOpStatus().get(OP_ID), op);
+        Assert.assertEquals("first", op.getMessage());
+        Assert.assertEquals(Integer.valueOf(20), op.getProgress());
+        Assert.assertEquals(1, writeBehind.getPendingCount());
+        Assert.assertEquals(2, writeBehind.getUpdateCount());
+
+        writeBehind.flushAll();
+        EasyMock.verify(dbClient);
+        Assert.assertEquals(1, writeBehind.getFlushedObjectCount());
+    }
+
+    @Test
+    public void testUpdateOfOperationFinishedElsewhereIsDropped() {
+        Volume volume = createVolume();
+        // another node completed the operation while its progress was parked here
+        Volume stored = createVolume();
+        stored.setId(volume.getId());
+        stored.getOpStatus().get(OP_ID).ready();
+
+        DbClient dbClient = EasyMock.createMock(DbClient.class);
+        expectStatusRead(dbClient, stored);
+        EasyMock.replay(dbClient);
+
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(dbClient, 60000);
+        submit(writeBehind, volume, progress(50));
+        writeBehind.flushAll();
+
+        // no write of the stale progress
+        EasyMock.verify(dbClient);
+        Assert.assertEquals(1, writeBehind.getDroppedCount());
+        Assert.assertEquals(0, writeBehind.getFlushedObjectCount());
+        Assert.assertEquals(Operation.Status.ready.name(), volume.getOpStatus().get(OP_ID).getStatus());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+
+package com.emc.storageos.db.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.TimeSeriesQueryResult;
+import com.emc.storageos.db.client.model.Event;
+import com.netflix.astyanax.util.TimeUUIDUtils;
+
+public class TimeSeriesShardMergerTest {
+    // fewer threads than shards, reads must not hold on to them
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        _executor.shutdownNow();
+    }
+
+    private static class ListReader implements TimeSeriesShardMerger.PageReader<Event> {
+        private final List<List<TimeSeriesShardMerger.Entry<Event>>> _pages = new ArrayList<List<TimeSeriesShardMerger.Entry<Event>>>();
+        private int _next = 0;
+
+        /**
+         * One page per given time, shard rows are time ordered
+         */
+        ListReader(long... times) {
+            for (long time : times) {
+                Event event = new Event();
+                event.setTimeInMillis(time);
+                _pages.add(Collections.singletonList(
+                        new TimeSeriesShardMerger.Entry<Event>(TimeUUIDUtils.getTimeUUID(time), event)));
+            }
+        }
+
+        @Override
+        public List<TimeSeriesShardMerger.Entry<Event>> nextPage() throws Exception {
+            return _next < _pages.size() ? _pages.get(_next++) : Collections.<TimeSeriesShardMerger.Entry<Event>> emptyList();
+        }
+    }
+
+    private static class CollectingResult implements TimeSeriesQueryResult<Event> {
+        private final List<Long> times = new ArrayList<Long>();
+        private final List<Throwable> errors = new ArrayList<Throwable>();
+
+        @Override
+        public void data(Event data, long insertionTimeMs) {
+            times.add(insertionTimeMs);
+        }
+
+        @Override
+        public void done() {
+        }
+
+        @Override
+        public void error(Throwable e) {
+            errors.add(e);
+        }
+    }
+
+    @Test
+    public void testShardsAreMergedInTimeOrder() {
+        List<TimeSeriesShardMerger.PageReader<Event>> readers = new ArrayList<TimeSeriesShardMerger.PageReader<Event>>();
+        readers.add(new ListReader(1000, 4000, 7000));
+        readers.add(new ListReader(2000, 3000, 8000, 9000));
+        readers.add(new ListReader());
+        readers.add(new ListReader(5000, 6000));
+
+        CollectingResult result = new CollectingResult();
+        new TimeSeriesShardMerger<Event>(readers, _executor).merge(result);
+
+        Assert.assertTrue(result.errors.isEmpty());
+        Assert.assertEquals(9, result.times.size());
+        for (int i = 0; i < result.times.size(); i++) {
+            Assert.assertEquals(Long.valueOf((i + 1) * 1000L), result.times.get(i));
+        }
+    }
+
+    @Test
+    public void testFailedShardIsReported() {
+        List<TimeSeriesShardMerger.PageReader<Event>> readers = new ArrayList<TimeSeriesShardMerger.PageReader<Event>>();
+        readers.add(new ListReader(1000, 3000));
+        readers.add(new ListReader(2000) {
+            private boolean _failed = false;
+
+            @Override
+            public List<TimeSeriesShardMerger.Entry<Event>> nextPage() throws Exception {
+                if (!_failed) {
+                    _failed = true;
+                    return super.nextPage();
+                }
+                throw new IllegalStateException("shard read failed");
+            }
+        });
+
+        CollectingResult result = new CollectingResult();
+        new TimeSeriesShardMerger<Event>(readers, _executor).merge(result);
+
+        Assert.assertEquals(1, result.errors.size());
+        Assert.assertEquals(3, result.times.size());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.emc.storageos.db.client.URIUtil;
+
+/**
+ * Tests the compact time series encoding and reading of older columns
+ */
+public class CompactDataPointCodecTest {
+
+    static Stat createStat() {
+        Stat stat = new Stat();
+        long now = System.currentTimeMillis();
+        stat.setTimeInMillis(now);
+        stat.setTimeCollected(now + 1500);
+        stat.setResourceId(URIUtil.createId(Volume.class));
+        stat.setProject(URIUtil.createId(Project.class));
+        stat.setTenant(URIUtil.createId(TenantOrg.class));
+        stat.setVirtualPool(URIUtil.createId(VirtualPool.class));
+        stat.setServiceType("block");
+        stat.setNativeGuid("SYMMETRIX+000195701573+VOLUME+0A1B");
+        stat.setProvisionedCapacity(1073741824L);
+        stat.setAllocatedCapacity(536870912L);
+        stat.setSnapshotCount(3);
+        stat.setTotalIOs(123456789L);
+        stat.setReadIOs(100000000L);
+        stat.setWriteIOs(23456789L);
+        stat.setKbytesTransferred(987654321L);
+        return stat;
+    }
+
+    static Event createEvent() {
+        Event event = new Event();
+        event.setTimeInMillis(System.currentTimeMillis());
+        event.setResourceId(URIUtil.createId(Volume.class));
+        event.setTenantId(URIUtil.createId(TenantOrg.class));
+        event.setUserId(URI.create("root"));
+        event.setEventId("eventid12345678");
+        event.setEventType("VolumeCreated");
+        event.setDescription("Volume created");
+        event.setService("block");
+        return event;
+    }
+
+    @Before
+    public void enableWrites() {
+        CompactDataPointCodec.setWriteEnabled(true);
+    }
+
+    @After
+    public void disableWrites() {
+        CompactDataPointCodec.setWriteEnabled(false);
+    }
+
+    @Test
+    public void testOlderFormatsUntilEnabled() {
+        CompactDataPointCodec.setWriteEnabled(false);
+        Stat stat = createStat();
+        StatTimeSeries.StatSerializer statSerializer = new StatTimeSeries().getSerializer();
+        byte[] encoded = statSerializer.serialize(stat);
+        // Java serialization stream, as written by earlier versions
+        Assert.assertEquals((byte) 0xAC, encoded[0]);
+        Assert.assertEquals(stat.getTotalIOs(), statSerializer.deserialize(encoded).getTotalIOs());
+
+        Event event = createEvent();
+        EventTimeSeries.EventSerializer eventSerializer = new EventTimeSeries().getSerializer();
+        encoded = eventSerializer.serialize(event);
+        Assert.assertArrayEquals(new GenericSerializer().toByteArray(Event.class, event), encoded);
+        Assert.assertEquals(event.getEventId(), eventSerializer.deserialize(encoded).getEventId());
+
+        AuditLog log = new AuditLog();
+        log.setTimeInMillis(System.currentTimeMillis());
+        log.setAuditType("CREATE_VOLUME");
+        encoded = new AuditLogTimeSeries().getSerializer().serialize(log);
+        Assert.assertFalse(CompactDataPointCodec.isCompact(encoded));
+        Assert.assertEquals("CREATE_VOLUME", new AuditLogTimeSeries().getSerializer().deserialize(encoded).getAuditType());
+    }
+
+    @Test
+    public void testStatRoundTrip() {
+        StatTimeSeries.StatSerializer serializer = new StatTimeSeries().getSerializer();
+        Stat stat = createStat();
+        byte[] encoded = serializer.serialize(stat);
+        Assert.assertTrue(CompactDataPointCodec.isCompact(encoded));
+
+        Stat decoded = serializer.deserialize(encoded);
+        Assert.assertEquals(stat.getTimeInMillis(), decoded.getTimeInMillis());
+        Assert.assertEquals(stat.getTimeCollected(), decoded.getTimeCollected());
+        Assert.assertEquals(stat.getResourceId(), decoded.getResourceId());
+        Assert.assertEquals(stat.getProject(), decoded.getProject());
+        Assert.assertEquals(stat.getTenant(), decoded.getTenant());
+        Assert.assertEquals(stat.getVirtualPool(), decoded.getVirtualPool());
+        Assert.assertEquals(stat.getServiceType(), decoded.getServiceType());
+        Assert.assertEquals(stat.getNativeGuid(), decoded.getNativeGuid());
+        Assert.assertEquals(stat.getProvisionedCapacity(), decoded.getProvisionedCapacity());
+        Assert.assertEquals(stat.getAllocatedCapacity(), decoded.getAllocatedCapacity());
+        Assert.assertEquals(stat.getSnapshotCount(), decoded.getSnapshotCount());
+        Assert.assertEquals(stat.getTotalIOs(), decoded.getTotalIOs());
+        Assert.assertEquals(stat.getKbytesTransferred(), decoded.getKbytesTransferred());
+        // counters not set stay unset
+        Assert.assertNull(decoded.getBandwidthIn());
+        Assert.assertNull(decoded.getUser());
+    }
+
+    @Test
+    public void testLegacyStatIsRead() throws Exception {
+        Stat stat = createStat();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bos);
+        out.writeObject(stat);
+        out.close();
+
+        Stat decoded = new StatTimeSeries().getSerializer().deserialize(bos.toByteArray());
+        Assert.assertEquals(stat.getResourceId(), decoded.getResourceId());
+        Assert.assertEquals(stat.getTotalIOs(), decoded.getTotalIOs());
+    }
+
+    @Test
+    public void testEventRoundTripAndLegacy() {
+        EventTimeSeries.EventSerializer serializer = new EventTimeSeries().getSerializer();
+        Event event = createEvent();
+
+        for (byte[] encoded : new byte[][] { serializer.serialize(event),
+                new GenericSerializer().toByteArray(Event.class, event) }) {
+            Event decoded = serializer.deserialize(encoded);
+            Assert.assertEquals(event.getTimeInMillis(), decoded.getTimeInMillis());
+            Assert.assertEquals(event.getResourceId(), decoded.getResourceId());
+            Assert.assertEquals(event.getTenantId(), decoded.getTenantId());
+            Assert.assertEquals(event.getUserId(), decoded.getUserId());
+            Assert.assertEquals(event.getEventId(), decoded.getEventId());
+            Assert.assertEquals(event.getDescription(), decoded.getDescription());
+            Assert.assertNull(decoded.getExtensions());
+        }
+    }
+
+    @Test
+    public void testAuditLogRoundTrip() {
+        AuditLogTimeSeries.AuditLogSerializer serializer = new AuditLogTimeSeries().getSerializer();
+        AuditLog log = new AuditLog();
+        log.setTimeInMillis(System.currentTimeMillis());
+        log.setTenantId(URIUtil.createId(TenantOrg.class));
+        log.setUserId(URI.create("root"));
+        log.setAuditType("CREATE_VOLUME");
+        log.setDescription("Volume created");
+
+        AuditLog decoded = serializer.deserialize(serializer.serialize(log));
+        Assert.assertEquals(log.getTimeInMillis(), decoded.getTimeInMillis());
+        Assert.assertEquals(log.getTenantId(), decoded.getTenantId());
+        Assert.assertEquals(log.getUserId(), decoded.getUserId());
+        Assert.assertEquals(log.getAuditType(), decoded.getAuditType());
+        Assert.assertEquals(log.getDescription(), decoded.getDescription());
+    }
+
+    @Test
+    public void testUnknownFieldsAreSkipped() {
+        byte[] encoded = new CompactDataPointCodec.Writer()
+                .writeLong(1, 42)
+                .writeString(100, "from a newer version")
+                .writeUri(101, URIUtil.createId(Volume.class))
+                .writeString(6, "event1")
+                .toByteArray();
+        Event decoded = new EventTimeSeries().getSerializer().deserialize(encoded);
+        Assert.assertEquals(42, decoded.getTimeInMillis());
+        Assert.assertEquals("event1", decoded.getEventId());
+    }
+
+    @Test
+    public void testNonViprUrisAreKeptAsIs() {
+        URI[] uris = new URI[] { URI.create("urn:storageos:Volume:NOT-A-UUID:vdc1"),
+                URI.create("urn:storageos:SomeNewType:" + java.util.UUID.randomUUID() + ":"),
+                URI.create("http://localhost/stats") };
+        for (URI uri : uris) {
+            byte[] encoded = new CompactDataPointCodec.Writer().writeUri(1, uri).toByteArray();
+            CompactDataPointCodec.Reader in = new CompactDataPointCodec.Reader(encoded);
+            Assert.assertEquals(1, in.nextField());
+            Assert.assertEquals(uri, in.readUri());
+            Assert.assertEquals(-1, in.nextField());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.db.client.model;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Compares size and speed of the compact time series encoding with the older ones, printing
+ * bytes/record and records/sec. Run by the PerformanceTest task only.
+ */
+public class TimeSeriesSerializerPerfTest {
+    private static final int RECORDS = 20000;
+
+    private interface Codec<T> {
+        byte[] encode(T data) throws Exception;
+
+        T decode(byte[] data) throws Exception;
+    }
+
+    @After
+    public void cleanup() {
+        CompactDataPointCodec.setWriteEnabled(false);
+    }
+
+    /**
+     * The serializer, writing the compact format or the older encoding
+     */
+    private static <T extends TimeSeriesSerializer.DataPoint> Codec<T> codec(final TimeSeriesSerializer<T> serializer,
+            final boolean compact) {
+        return new Codec<T>() {
+            @Override
+            public byte[] encode(T data) {
+                CompactDataPointCodec.setWriteEnabled(compact);
+                return serializer.serialize(data);
+            }
+
+            @Override
+            public T decode(byte[] data) {
+                return serializer.deserialize(data);
+            }
+        };
+    }
+
+    @Test
+    public void testStatPerformance() throws Exception {
+        StatTimeSeries.StatSerializer serializer = new StatTimeSeries().getSerializer();
+        Stat[] stats = new Stat[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            stats[i] = CompactDataPointCodecTest.createStat();
+        }
+
+        run("Stat java serialization", stats, codec(serializer, false));
+        run("Stat compact", stats, codec(serializer, true));
+    }
+
+    @Test
+    public void testEventPerformance() throws Exception {
+        EventTimeSeries.EventSerializer serializer = new EventTimeSeries().getSerializer();
+        Event[] events = new Event[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            events[i] = CompactDataPointCodecTest.createEvent();
+        }
+
+        run("Event generic serializer", events, codec(serializer, false));
+        run("Event compact", events, codec(serializer, true));
+    }
+
+    private <T> void run(String name, T[] records, Codec<T> codec) throws Exception {
+        // warm up
+        for (int i = 0; i < records.length / 10; i++) {
+            codec.decode(codec.encode(records[i]));
+        }
+
+        byte[][] encoded = new byte[records.length][];
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < records.length; i++) {
+            encoded[i] = codec.encode(records[i]);
+            bytes += encoded[i].length;
+        }
+        long encodeTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < records.length; i++) {
+            codec.decode(encoded[i]);
+        }
+        long decodeTime = System.nanoTime() - start;
+
+        System.out.println(String.format("%s: %d bytes/record, encode %d records/sec, decode %d records/sec", name,
+                bytes / records.length, records.length * 1000000000L / Math.max(1, encodeTime),
+                records.length * 1000000000L / Math.max(1, decodeTime)));
+    }
+}
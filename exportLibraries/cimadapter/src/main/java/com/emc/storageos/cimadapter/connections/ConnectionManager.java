@@ -14,6 +14,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -58,17 +59,18 @@ public class ConnectionManager {
     // A reference to the CIM listener;
     private CimListener _listener;
 
-    // A map of cache keys (host/port) to their connections
-    private Map<String, CimConnection> _connections = new HashMap<String, CimConnection>();
+    // A map of cache keys (host/port) to their connections. It is read without the lock,
+    // all changes are made holding it.
+    private Map<String, CimConnection> _connections = new ConcurrentHashMap<String, CimConnection>();
 
-    // A synchronization object to control access to shared objects
+    // A synchronization object to control changes to shared objects
     private Lock connectionLock = new ReentrantLock();
 
     // A scheduled execution service that cleans up connections
     private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
 
     // A map of cache keys in _connections to the last time the connection was retrieved
-    private Map<String, Long> connectionLastTouch = new HashMap<>();
+    private Map<String, Long> connectionLastTouch = new ConcurrentHashMap<>();
 
     // This map will be used to keep track of connections that are pinned. These are connections
     // that should not be reaped. We will be keeping a count since you can have multiple arrays
@@ -357,22 +359,11 @@ public class ConnectionManager {
      * @throws ConnectionManagerException When the passed host is null or blank.
      */
     public boolean isConnected(String hostAndPort) throws ConnectionManagerException {
-        connectionLock.lock();
-        boolean isConnected = false;
-        try {
-            // Verify the passed host/port is not null or blank.
-            if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
-                throw new ConnectionManagerException("Passed host/port is null or blank.");
-            }
-
-            CimConnection connection = _connections.get(hostAndPort);
-            if (connection != null) {
-                isConnected = true;
-            }
-        } finally {
-            connectionLock.unlock();
+        // Verify the passed host/port is not null or blank.
+        if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
+            throw new ConnectionManagerException("Passed host/port is null or blank.");
         }
-        return isConnected;
+        return _connections.containsKey(hostAndPort);
     }
 
     /**
@@ -398,21 +389,16 @@ public class ConnectionManager {
      */
     public CimConnection getConnection(String host, Integer port)
             throws ConnectionManagerException {
-        connectionLock.lock();
-        CimConnection connection = null;
-        try {
-            String hostAndPort = generateConnectionCacheKey(host, port);
-            // Verify the passed host/port is not null or blank.
-            if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
-                throw new ConnectionManagerException("Passed host/port is null or blank.");
-            }
-            connection = _connections.get(hostAndPort);
-            if (connection != null) {
-                // Every time the connection is returned, update the last get time
-                connectionLastTouch.put(hostAndPort, System.currentTimeMillis());
-            }
-        } finally {
-            connectionLock.unlock();
+        String hostAndPort = generateConnectionCacheKey(host, port);
+        // Verify the passed host/port is not null or blank.
+        if ((hostAndPort == null) || (hostAndPort.length() == 0)) {
+            throw new ConnectionManagerException("Passed host/port is null or blank.");
+        }
+        CimConnection connection = _connections.get(hostAndPort);
+        if (connection != null) {
+            // Every time the connection is returned, update the last get time. Only replace it,
+            // so that a connection removed meanwhile does not leave a time behind.
+            connectionLastTouch.replace(hostAndPort, System.currentTimeMillis());
         }
         return connection;
     }
@@ -23,6 +23,7 @@ public class Constants {
     public static final String _SystemName = "SystemName";
     public static final String _DeviceID = "DeviceID";
     public static final String _Stats = "Stats";
+    public static final String _StatsToEnrich = "StatsToEnrich";
     public static final String _plusDelimiter = "+";
     public static final String _InteropNamespace = "InteropNamespace";
     public static final String SV_BLOCK_SIZE = "SVBlockSize";
@@ -247,6 +248,7 @@ public class Constants {
     public static final String UN_VOLUMES_RAGP = "unManagedVolumesInRAGroup";
     public static final String UN_VOLUME_RAGROUP_MAP = "unManagedVolumesToRAGroupMap";
     public static final String UN_VOLUME_LOCAL_REPLICA_MAP = "unManagedVolumesToLocalReplicaMap";
+    public static final String UN_VOLUME_DISCOVERY_COUNTS = "unManagedVolumeDiscoveryCounts";
     public static final String SNAPSHOT_NAMES_SYNCHRONIZATION_ASPECT_MAP = "snapshotsToSynchronizationAspects";
     public static final String DUPLICATE_SYNC_ASPECT_ELEMENT_NAME_MAP = "duplicateSyncAspectElementNameMap";
     public static final String NOT_INGESTABLE_SYNC_ASPECT = "notIngestableSyncAspect";
@@ -12,6 +12,7 @@ import com.emc.storageos.plugins.common.commandgenerator.CommandGenerator;
 import com.emc.storageos.plugins.common.domainmodel.Namespace;
 import com.emc.storageos.plugins.common.domainmodel.Operation;
 import com.emc.storageos.plugins.metering.smis.SMIPluginException;
+import com.emc.storageos.services.util.NamedThreadPoolExecutor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +22,25 @@ import javax.cim.CIMProperty;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * SMIExecutor- responsible for executing SMICommands
@@ -38,20 +54,36 @@ public abstract class Executor {
     private static final String NEWLINE = "\n";
     private static final String SEMICOLON = "; ";
     private static final String TAB = "\t";
+    private static final int OPERATION_POOL_SIZE = 20;
+    private static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 4;
+    private static final int TIMINGS_LOGGED = 10;
+    private static final String LOCAL_PROVIDER = "local";
+
     /**
-     * Discover Util.
+     * Runs the operations of parallel namespaces, for all the executors.
      */
-    protected Util _util;
+    private static final ExecutorService OPERATION_POOL;
+    static {
+        NamedThreadPoolExecutor pool = new NamedThreadPoolExecutor(Executor.class.getSimpleName(),
+                OPERATION_POOL_SIZE, OPERATION_POOL_SIZE, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        pool.allowCoreThreadTimeOut(true);
+        OPERATION_POOL = pool;
+    }
+
     /**
-     * Command Objects.
+     * Operations running against each provider, from all the executors.
      */
-    protected List<Command> _commandObjects;
+    private static final ConcurrentMap<String, Semaphore> PROVIDER_PERMITS = new ConcurrentHashMap<String, Semaphore>();
+    /**
+     * Discover Util.
+     */
+    protected Util _util;
     protected CommandGenerator _generator;
 
     /**
-     * Generator.
+     * Number of operations of a parallel namespace run at the same time against a provider.
      */
-    private ExecutorService execService = null;
+    private int _maxConcurrentOperations = DEFAULT_MAX_CONCURRENT_OPERATIONS;
     /**
      * keyMap.
      */
@@ -81,12 +113,16 @@ public abstract class Executor {
         return _generator;
     }
 
-    public Executor() {
-        execService = Executors.newFixedThreadPool(10);
+    public void setMaxConcurrentOperations(int maxConcurrentOperations) {
+        _maxConcurrentOperations = Math.max(1, maxConcurrentOperations);
+    }
+
+    public int getMaxConcurrentOperations() {
+        return _maxConcurrentOperations;
     }
 
     public ExecutorService getExecService() {
-        return execService;
+        return OPERATION_POOL;
     }
 
     /**
@@ -97,15 +133,197 @@ public abstract class Executor {
      * happens and each Command gets executed. The List of Result Objects will
      * then be sent to the Processor.
      * 
+     * Operations of a parallel namespace are run as soon as the ones they depend
+     * on, see OperationGraph, are done.
+     * 
      * @throws BaseCollectionException
      *             ex.
      */
     public void execute(Namespace ns) throws BaseCollectionException {
         assert ns != null;
+        List<Operation> operations = new ArrayList<Operation>(ns.getOperations().size());
         for (Object operationobj : ns.getOperations()) {
-            Operation operation = (Operation) operationobj;
+            operations.add((Operation) operationobj);
+        }
+        AtomicLongArray durations = new AtomicLongArray(operations.size());
+        long start = System.currentTimeMillis();
+        try {
+            if (ns.isParallel()) {
+                executeConcurrently(new OperationGraph(operations), durations);
+            } else {
+                for (int i = 0; i < operations.size(); i++) {
+                    executeTimedOperation(operations.get(i), i, durations);
+                }
+            }
+        } finally {
+            logTimings(operations, durations, System.currentTimeMillis() - start, ns.isParallel());
+        }
+    }
+
+    /**
+     * Run the operations once the ones they depend on are done, at most maxConcurrentOperations
+     * at a time against the provider. Once an operation failed no more operations are started.
+     * 
+     * @param graph
+     * @param durations
+     * @throws BaseCollectionException
+     */
+    private void executeConcurrently(final OperationGraph graph, final AtomicLongArray durations)
+            throws BaseCollectionException {
+        final Semaphore permits = getProviderPermits();
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(OPERATION_POOL);
+        List<OperationTask> tasks = new ArrayList<OperationTask>(graph.size());
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(graph.size());
+        boolean[] started = new boolean[graph.size()];
+        Set<Integer> done = new HashSet<Integer>();
+        int running = 0;
+        Throwable failure = null;
+        try {
+            while (true) {
+                for (int i = 0; failure == null && i < graph.size(); i++) {
+                    if (!started[i] && done.containsAll(graph.getDependencies(i))) {
+                        permits.acquire();
+                        started[i] = true;
+                        running++;
+                        OperationTask task = new OperationTask(graph.getOperation(i), i, durations, permits);
+                        tasks.add(task);
+                        futures.add(completion.submit(task));
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+                Future<Integer> future = completion.take();
+                running--;
+                try {
+                    done.add(future.get());
+                } catch (ExecutionException e) {
+                    if (null == failure) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (OperationTask task : tasks) {
+                // the permits of the tasks which did not start are released here
+                if (task.claim()) {
+                    permits.release();
+                }
+            }
+            for (Future<Integer> future : futures) {
+                future.cancel(true);
+            }
+            _LOGGER.error("Interrupted while executing operations");
+            customizeException(e, null);
+            return;
+        }
+        if (failure instanceof BaseCollectionException) {
+            throw (BaseCollectionException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private Semaphore getProviderPermits() {
+        String provider = LOCAL_PROVIDER;
+        Object profile = null == _keyMap ? null : _keyMap.get(Constants.ACCESSPROFILE);
+        if (profile instanceof AccessProfile) {
+            provider = ((AccessProfile) profile).getIpAddress() + ":" + ((AccessProfile) profile).getPortNumber();
+        }
+        Semaphore permits = PROVIDER_PERMITS.get(provider);
+        if (null == permits) {
+            PROVIDER_PERMITS.putIfAbsent(provider, new Semaphore(_maxConcurrentOperations));
+            permits = PROVIDER_PERMITS.get(provider);
+        }
+        return permits;
+    }
+
+    /**
+     * An operation of a parallel namespace, releasing its provider permit when done
+     */
+    private class OperationTask implements Callable<Integer> {
+        private final Operation _operation;
+        private final int _index;
+        private final AtomicLongArray _durations;
+        private final Semaphore _permits;
+        private final AtomicBoolean _claimed = new AtomicBoolean(false);
+
+        OperationTask(Operation operation, int index, AtomicLongArray durations, Semaphore permits) {
+            _operation = operation;
+            _index = index;
+            _durations = durations;
+            _permits = permits;
+        }
+
+        /**
+         * @return true if the task was not started or cancelled yet, and no longer will be
+         */
+        boolean claim() {
+            return _claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public Integer call() throws BaseCollectionException {
+            if (!claim()) {
+                return _index;
+            }
+            try {
+                executeTimedOperation(_operation, _index, _durations);
+            } finally {
+                _permits.release();
+            }
+            return _index;
+        }
+    }
+
+    private void executeTimedOperation(Operation operation, int index, AtomicLongArray durations)
+            throws BaseCollectionException {
+        long start = System.currentTimeMillis();
+        try {
             executeOperation(operation);
+        } finally {
+            durations.set(index, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Log how long the namespace took, and its slowest operations.
+     */
+    private void logTimings(final List<Operation> operations, final AtomicLongArray durations, long elapsed,
+            boolean parallel) {
+        List<Integer> indexes = new ArrayList<Integer>(operations.size());
+        long total = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            indexes.add(i);
+            total += durations.get(i);
+        }
+        Collections.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Long.compare(durations.get(second), durations.get(first));
+            }
+        });
+        StringBuilder slowest = new StringBuilder();
+        for (int i = 0; i < Math.min(TIMINGS_LOGGED, indexes.size()); i++) {
+            int index = indexes.get(i);
+            slowest.append(SEMICOLON).append(getLabel(operations.get(index))).append('=')
+                    .append(durations.get(index)).append("ms");
+        }
+        _LOGGER.info("Executed {} operations {} in {} ms, {} ms of operations. Slowest{}",
+                operations.size(), parallel ? "in parallel" : "sequentially", elapsed, total, slowest);
+    }
+
+    private static String getLabel(Operation operation) {
+        StringBuilder label = new StringBuilder();
+        label.append(null == operation.getProcessor() ? operation.getMethod()
+                : operation.getProcessor().getClass().getSimpleName());
+        if (null != operation.getResult() && !operation.getResult().isEmpty()) {
+            label.append('[').append(operation.getResult()).append(']');
         }
+        return label.toString();
     }
 
     /**
@@ -169,10 +387,10 @@ public abstract class Executor {
             }
             _LOGGER.info(null == operation.getMessage() ? "START Executing operation"
                     : "START :" + operation.getMessage());
-            _commandObjects = _generator.returnCommandObjects(operation, _keyMap);
+            List<Command> commandObjects = _generator.returnCommandObjects(operation, _keyMap);
             // only sequential processing allowed. also avoiding too many calls to the Provider at
             // the same time.
-            for (Command commandObj : _commandObjects) {
+            for (Command commandObj : commandObjects) {
                 printArgs(commandObj);
                 Object resultObj = null;
                 try {
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.plugins.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.emc.storageos.plugins.common.domainmodel.Argument;
+import com.emc.storageos.plugins.common.domainmodel.Operation;
+
+/**
+ * Dependencies between the operations of a namespace, derived from the keyMap entries they
+ * read and write.
+ *
+ * An operation reads the entries its arguments refer to and the inputs it declares, and writes
+ * its result and the outputs it declares. It depends on the earlier operations writing what it
+ * reads, reading or writing what it writes, or sharing its processor, as processors keep the
+ * state of the operation they process. An operation which declares neither inputs nor outputs
+ * depends on all the earlier operations, and all the later ones depend on it.
+ */
+final class OperationGraph {
+    private final List<Operation> _operations;
+    private final List<Set<Integer>> _dependencies;
+
+    OperationGraph(List<Operation> operations) {
+        _operations = operations;
+        _dependencies = new ArrayList<Set<Integer>>(operations.size());
+        List<Set<String>> reads = new ArrayList<Set<String>>(operations.size());
+        List<Set<String>> writes = new ArrayList<Set<String>>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            reads.add(getReads(operation));
+            writes.add(getWrites(operation));
+            Set<Integer> dependencies = new TreeSet<Integer>();
+            for (int j = 0; j < i; j++) {
+                Operation earlier = operations.get(j);
+                if (!isDeclared(operation) || !isDeclared(earlier)
+                        || operation.getProcessor() != null && operation.getProcessor() == earlier.getProcessor()
+                        || !Collections.disjoint(reads.get(i), writes.get(j))
+                        || !Collections.disjoint(writes.get(i), reads.get(j))
+                        || !Collections.disjoint(writes.get(i), writes.get(j))) {
+                    dependencies.add(j);
+                }
+            }
+            _dependencies.add(Collections.unmodifiableSet(dependencies));
+        }
+    }
+
+    static boolean isDeclared(Operation operation) {
+        return operation.getInputs() != null || operation.getOutputs() != null;
+    }
+
+    private static Set<String> getReads(Operation operation) {
+        Set<String> reads = new HashSet<String>();
+        if (null != operation.getInputs()) {
+            reads.addAll(operation.getInputs());
+        }
+        if (null != operation.getArguments()) {
+            for (Object argument : operation.getArguments()) {
+                if (argument instanceof Argument && ((Argument) argument).getValue() instanceof String) {
+                    reads.add((String) ((Argument) argument).getValue());
+                }
+            }
+        }
+        return reads;
+    }
+
+    private static Set<String> getWrites(Operation operation) {
+        Set<String> writes = new HashSet<String>();
+        if (null != operation.getOutputs()) {
+            writes.addAll(operation.getOutputs());
+        }
+        if (null != operation.getResult() && !operation.getResult().isEmpty()) {
+            writes.add(operation.getResult());
+        }
+        return writes;
+    }
+
+    int size() {
+        return _operations.size();
+    }
+
+    Operation getOperation(int index) {
+        return _operations.get(index);
+    }
+
+    /**
+     * @return indexes of the operations to complete before this one
+     */
+    Set<Integer> getDependencies(int index) {
+        return _dependencies.get(index);
+    }
+}
@@ -8,6 +8,11 @@ import java.util.List;
 
 public class Namespace {
     private List<Object> _operations;
+    /**
+     * Operations of a parallel namespace which declare their inputs run concurrently
+     * with the operations they do not depend on, see Operation.setInputs.
+     */
+    private boolean _parallel;
 
     public void setOperations(List<Object> _operations) {
         this._operations = _operations;
@@ -17,4 +22,12 @@ public class Namespace {
         return _operations;
     }
 
+    public void setParallel(boolean parallel) {
+        _parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return _parallel;
+    }
+
 }
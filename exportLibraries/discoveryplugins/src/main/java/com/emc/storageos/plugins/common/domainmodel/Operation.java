@@ -23,6 +23,13 @@ public class Operation {
     private Object _instance;
 
     private String _type;
+    /**
+     * keyMap entries the processor reads or writes, besides the ones named by
+     * the arguments and the result. Null if not declared, in which case the
+     * operation runs on its own, after all the previous ones.
+     */
+    private List<String> _inputs;
+    private List<String> _outputs;
 
     public void setArguments(List<Object> _arguments) {
         this._arguments = _arguments;
@@ -124,4 +131,20 @@ public class Operation {
     public void setSupportedVersion(String supportedVersion) {
         this.supportedVersion = supportedVersion;
     }
+
+    public List<String> getInputs() {
+        return _inputs;
+    }
+
+    public void setInputs(List<String> inputs) {
+        _inputs = inputs;
+    }
+
+    public List<String> getOutputs() {
+        return _outputs;
+    }
+
+    public void setOutputs(List<String> outputs) {
+        _outputs = outputs;
+    }
 }
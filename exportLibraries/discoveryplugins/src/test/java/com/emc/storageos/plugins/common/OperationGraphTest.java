@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 EMC Corporation
+ * All Rights Reserved
+ */
+package com.emc.storageos.plugins.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.emc.storageos.plugins.common.domainmodel.Argument;
+import com.emc.storageos.plugins.common.domainmodel.Operation;
+
+public class OperationGraphTest {
+
+    private static Operation operation(String reference, String result, List<String> inputs, List<String> outputs) {
+        Operation operation = new Operation();
+        List<Object> arguments = new ArrayList<Object>();
+        if (null != reference) {
+            Argument argument = new Argument();
+            argument.setMethod("getReferenceValue");
+            argument.setValue(reference);
+            arguments.add(argument);
+        }
+        operation.setArguments(arguments);
+        operation.setResult(result);
+        operation.setInputs(inputs);
+        operation.setOutputs(outputs);
+        return operation;
+    }
+
+    private static void assertDependencies(OperationGraph graph, int index, Integer... dependencies) {
+        Assert.assertEquals(new HashSet<Integer>(Arrays.asList(dependencies)), graph.getDependencies(index));
+    }
+
+    @Test
+    public void testDependencies() {
+        List<String> none = Collections.emptyList();
+        OperationGraph graph = new OperationGraph(Arrays.asList(
+                // 0: not declared, runs on its own
+                operation("ComputerSystem", "ComputerSystem", null, null),
+                // 1: adapters
+                operation("ComputerSystem", "storageProcessors", none, null),
+                // 2: ports, after adapters
+                operation("storageProcessors", "storagePorts", none, Collections.singletonList("protocols")),
+                // 3, 4: end points, after ports, writing the same result
+                operation("storagePorts", "ipEndPoints", none, null),
+                operation("storagePorts", "ipEndPoints", none, null),
+                // 5: pools, after ports only
+                operation("ComputerSystem", "storagePools", Collections.singletonList("protocols"), null),
+                // 6: not declared, after all
+                operation(null, "", null, null),
+                // 7: declared, after the last undeclared one
+                operation("ComputerSystem", "other", none, null)));
+
+        assertDependencies(graph, 0);
+        assertDependencies(graph, 1, 0);
+        assertDependencies(graph, 2, 0, 1);
+        assertDependencies(graph, 3, 0, 2);
+        assertDependencies(graph, 4, 0, 2, 3);
+        assertDependencies(graph, 5, 0, 2);
+        assertDependencies(graph, 6, 0, 1, 2, 3, 4, 5);
+        assertDependencies(graph, 7, 0, 6);
+    }
+
+    @Test
+    public void testSharedProcessor() {
+        Processor processor = new Processor() {
+            @Override
+            public void processResult(Operation operation, Object resultObj, Map<String, Object> keyMap) {
+            }
+
+            @Override
+            protected void setPrerequisiteObjects(List<Object> inputArgs) {
+            }
+        };
+        Operation first = operation("a", "b", Collections.<String> emptyList(), null);
+        Operation second = operation("c", "d", Collections.<String> emptyList(), null);
+        first.setProcessor(processor);
+        second.setProcessor(processor);
+        assertDependencies(new OperationGraph(Arrays.asList(first, second)), 1, 0);
+        second.setProcessor(null);
+        assertDependencies(new OperationGraph(Arrays.asList(first, second)), 1);
+    }
+}
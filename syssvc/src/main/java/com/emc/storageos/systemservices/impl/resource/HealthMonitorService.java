@@ -10,6 +10,7 @@ import javax.ws.rs.core.MediaType;
 
 import com.emc.storageos.coordinator.client.service.CoordinatorClient.LicenseType;
 import com.emc.storageos.coordinator.client.service.impl.DualInetAddress;
+import com.emc.storageos.coordinator.common.impl.ZkClientStatsMBean;
 import com.emc.storageos.model.vpool.ManagedResourcesCapacity;
 import com.emc.storageos.model.vpool.ManagedResourcesCapacity.ManagedResourceCapacity;
 import com.emc.storageos.security.authorization.CheckPermission;
@@ -45,6 +46,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.util.*;
 
@@ -287,6 +293,43 @@ public class HealthMonitorService extends BaseLogSvcResource {
                         ? DiagConstants.VERBOSE : ""));
     }
 
+    /**
+     * Show the statistics of the ZooKeeper client of this node's system service by ZK path prefix:
+     * operation counts, failures, latency percentiles and payload sizes of the sampled operations,
+     * and watch events. The other services register the same statistics with JMX as
+     * ZkClientStatsMBean.MBEAN_NAME.
+     *
+     * @brief Show ZooKeeper client statistics
+     * @prereq none
+     * @return One line per path prefix and operation, then per path prefix with watches
+     */
+    @GET
+    @Path("/zk-client-stats")
+    @CheckPermission(roles = { Role.SYSTEM_ADMIN, Role.SYSTEM_MONITOR })
+    @Produces({ MediaType.TEXT_PLAIN })
+    public String getZkClientStats() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(ZkClientStatsMBean.MBEAN_NAME);
+            if (!mbs.isRegistered(name)) {
+                return "ZK client instrumentation is disabled\n";
+            }
+            ZkClientStatsMBean stats = JMX.newMBeanProxy(mbs, name, ZkClientStatsMBean.class);
+            StringBuilder result = new StringBuilder();
+            result.append("sampleRate=").append(stats.getSampleRate()).append('\n');
+            for (String line : stats.getOperationStats()) {
+                result.append(line).append('\n');
+            }
+            for (String line : stats.getWatchStats()) {
+                result.append(line).append('\n');
+            }
+            return result.toString();
+        } catch (Exception e) {
+            _log.error("Internal error occurred while getting ZK client stats. {}", e);
+            throw APIException.internalServerErrors.getObjectError("ZK client stats", e);
+        }
+    }
+
     /**
      * Get the current capacity for object, file and block storage.
      * 